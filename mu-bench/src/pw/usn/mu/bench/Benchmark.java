@@ -0,0 +1,13 @@
+package pw.usn.mu.bench;
+
+/**
+ * Represents an operation whose performance is measured by a {@link BenchmarkRunner}.
+ */
+public interface Benchmark {
+	/**
+	 * Performs the operation once.
+	 * @return The result of the operation. This is kept by the {@link BenchmarkRunner} so
+	 * that the operation cannot be optimized away.
+	 */
+	public Object run();
+}
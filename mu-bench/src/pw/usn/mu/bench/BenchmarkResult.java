@@ -0,0 +1,117 @@
+package pw.usn.mu.bench;
+
+/**
+ * Represents the measurements taken by a {@link BenchmarkRunner} for one benchmark over
+ * one corpus.
+ */
+public class BenchmarkResult {
+	private String benchmark, corpus;
+	private int corpusLength;
+	private long operations, nanoseconds, allocatedBytes, collections, collectionMilliseconds;
+	
+	/**
+	 * Initializes a new BenchmarkResult.
+	 * @param benchmark The name of the benchmark.
+	 * @param corpus The name of the corpus.
+	 * @param corpusLength The number of characters in the corpus.
+	 * @param operations The number of times the benchmark was run while measuring.
+	 * @param nanoseconds The time taken to run the benchmark {@code operations} times.
+	 * @param allocatedBytes The number of bytes allocated while running the benchmark, or
+	 * {@code -1} if this could not be measured.
+	 * @param collections The number of garbage collections while running the benchmark.
+	 * @param collectionMilliseconds The time spent in garbage collection while running the
+	 * benchmark.
+	 */
+	public BenchmarkResult(String benchmark, String corpus, int corpusLength, long operations, long nanoseconds, long allocatedBytes, long collections, long collectionMilliseconds) {
+		this.benchmark = benchmark;
+		this.corpus = corpus;
+		this.corpusLength = corpusLength;
+		this.operations = operations;
+		this.nanoseconds = nanoseconds;
+		this.allocatedBytes = allocatedBytes;
+		this.collections = collections;
+		this.collectionMilliseconds = collectionMilliseconds;
+	}
+	
+	/**
+	 * Gets the number of times the benchmark was run per second.
+	 * @return The throughput of the benchmark, in operations per second.
+	 */
+	public double getThroughput() {
+		return operations * 1e9 / nanoseconds;
+	}
+	
+	/**
+	 * Gets the average time taken to run the benchmark once.
+	 * @return The average time per operation, in milliseconds.
+	 */
+	public double getAverageTime() {
+		return nanoseconds / 1e6 / operations;
+	}
+	
+	/**
+	 * Gets the number of characters of the corpus processed per second.
+	 * @return The throughput of the benchmark, in megabytes of characters per second.
+	 */
+	public double getCharacterRate() {
+		return corpusLength * getThroughput() / (1024 * 1024);
+	}
+	
+	/**
+	 * Gets the average number of bytes allocated by running the benchmark once. This
+	 * corresponds to {@code gc.alloc.rate.norm} in JMH's {@code -prof gc} profiler.
+	 * @return The number of bytes allocated per operation, or {@code -1} if this could
+	 * not be measured.
+	 */
+	public double getAllocationPerOperation() {
+		return allocatedBytes < 0 ? -1 : (double)allocatedBytes / operations;
+	}
+	
+	/**
+	 * Gets the rate at which memory was allocated by running the benchmark. This
+	 * corresponds to {@code gc.alloc.rate} in JMH's {@code -prof gc} profiler.
+	 * @return The allocation rate, in megabytes per second, or {@code -1} if this could not
+	 * be measured.
+	 */
+	public double getAllocationRate() {
+		return allocatedBytes < 0 ? -1 : allocatedBytes * 1e9 / nanoseconds / (1024 * 1024);
+	}
+	
+	/**
+	 * Gets the column headings for the rows returned by {@link BenchmarkResult#toString()}.
+	 * @return A line of column headings.
+	 */
+	public static String getHeader() {
+		return String.format("%-20s %-24s %10s %12s %12s %10s %14s %12s %6s %8s",
+				"benchmark", "corpus", "chars", "ops/s", "ms/op", "MB/s",
+				"alloc B/op", "alloc MB/s", "gc", "gc ms");
+	}
+	
+	/**
+	 * Gets the column headings for the rows returned by {@link BenchmarkResult#toCsv()}.
+	 * @return A line of comma-separated column headings.
+	 */
+	public static String getCsvHeader() {
+		return "benchmark,corpus,chars,ops_per_s,ms_per_op,mb_per_s,alloc_bytes_per_op,alloc_mb_per_s,gc_count,gc_ms";
+	}
+	
+	/**
+	 * Formats the result as a line of comma-separated values, so that the results of
+	 * several runs can be compared.
+	 * @return The result as a line of comma-separated values.
+	 */
+	public String toCsv() {
+		return String.format("%s,%s,%d,%.3f,%.6f,%.3f,%.1f,%.3f,%d,%d",
+				benchmark, corpus, corpusLength, getThroughput(), getAverageTime(),
+				getCharacterRate(), getAllocationPerOperation(), getAllocationRate(),
+				collections, collectionMilliseconds);
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("%-20s %-24s %10d %12.2f %12.4f %10.2f %14.0f %12.2f %6d %8d",
+				benchmark, corpus, corpusLength, getThroughput(), getAverageTime(),
+				getCharacterRate(), getAllocationPerOperation(), getAllocationRate(),
+				collections, collectionMilliseconds);
+	}
+}
@@ -0,0 +1,119 @@
+package pw.usn.mu.bench;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measures the performance of {@link Benchmark}s. Each benchmark is first run for a
+ * number of warm-up iterations, so that the code being measured has been compiled by the
+ * JIT compiler, and then for a number of measured iterations. Each iteration runs the
+ * benchmark repeatedly for a fixed length of time.<br>
+ * The memory allocated by the benchmark is measured with the per-thread allocation counter
+ * of the HotSpot JVM, which is also what JMH's {@code -prof gc} profiler reports. On other
+ * JVMs, the allocation is reported as unknown.
+ */
+public class BenchmarkRunner {
+	private int warmupIterations, measurementIterations;
+	private long iterationNanoseconds;
+	private volatile Object sink;
+	
+	/**
+	 * Initializes a new BenchmarkRunner.
+	 * @param warmupIterations The number of iterations to run before measuring.
+	 * @param measurementIterations The number of iterations to measure.
+	 * @param iterationMilliseconds The length of each iteration, in milliseconds. An
+	 * iteration always runs the benchmark at least once.
+	 */
+	public BenchmarkRunner(int warmupIterations, int measurementIterations, long iterationMilliseconds) {
+		if(warmupIterations < 0 || measurementIterations <= 0 || iterationMilliseconds <= 0) {
+			throw new IllegalArgumentException("At least one iteration of a positive length must be measured.");
+		}
+		this.warmupIterations = warmupIterations;
+		this.measurementIterations = measurementIterations;
+		this.iterationNanoseconds = iterationMilliseconds * 1000000;
+	}
+	
+	/**
+	 * Measures the performance of a benchmark.
+	 * @param name The name of the benchmark.
+	 * @param corpus The name of the corpus the benchmark runs over.
+	 * @param corpusLength The number of characters in the corpus.
+	 * @param benchmark The benchmark to run.
+	 * @return The measurements taken over the measured iterations.
+	 */
+	public BenchmarkResult run(String name, String corpus, int corpusLength, Benchmark benchmark) {
+		for(int i = 0; i < warmupIterations; i++) {
+			runIteration(benchmark);
+		}
+		long startCollections = getCollectionCount(), startCollectionTime = getCollectionTime();
+		long startAllocated = getAllocatedBytes();
+		long operations = 0, nanoseconds = 0;
+		for(int i = 0; i < measurementIterations; i++) {
+			long start = System.nanoTime();
+			operations += runIteration(benchmark);
+			nanoseconds += System.nanoTime() - start;
+		}
+		long endAllocated = getAllocatedBytes();
+		return new BenchmarkResult(
+				name, corpus, corpusLength,
+				operations, nanoseconds,
+				startAllocated < 0 || endAllocated < 0 ? -1 : endAllocated - startAllocated,
+				getCollectionCount() - startCollections,
+				getCollectionTime() - startCollectionTime);
+	}
+	
+	/**
+	 * Runs a benchmark repeatedly for the length of one iteration.
+	 * @param benchmark The benchmark to run.
+	 * @return The number of times the benchmark was run.
+	 */
+	private long runIteration(Benchmark benchmark) {
+		long end = System.nanoTime() + iterationNanoseconds, operations = 0;
+		do {
+			sink = benchmark.run();
+			operations += 1;
+		} while(System.nanoTime() < end);
+		return operations;
+	}
+	
+	/**
+	 * Gets the number of bytes allocated by the current thread so far.
+	 * @return The number of bytes allocated, or {@code -1} if the JVM does not support
+	 * measuring this.
+	 */
+	private static long getAllocatedBytes() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if(threads instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean hotspotThreads = (com.sun.management.ThreadMXBean)threads;
+			if(hotspotThreads.isThreadAllocatedMemorySupported() && hotspotThreads.isThreadAllocatedMemoryEnabled()) {
+				return hotspotThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Gets the total number of garbage collections so far.
+	 * @return The number of collections run by all of the garbage collectors.
+	 */
+	private static long getCollectionCount() {
+		long count = 0;
+		for(GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(collector.getCollectionCount(), 0);
+		}
+		return count;
+	}
+	
+	/**
+	 * Gets the total time spent in garbage collection so far.
+	 * @return The time spent by all of the garbage collectors, in milliseconds.
+	 */
+	private static long getCollectionTime() {
+		long time = 0;
+		for(GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			time += Math.max(collector.getCollectionTime(), 0);
+		}
+		return time;
+	}
+}
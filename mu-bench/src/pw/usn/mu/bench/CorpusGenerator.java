@@ -0,0 +1,268 @@
+package pw.usn.mu.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic mu programs of a given size for benchmarking. The programs use
+ * every construct of the language which the analyser supports - functions, bindings,
+ * applications, operators, tuples, sequences, literals, submodules and qualified
+ * identifiers - and every identifier in them can be resolved, so the programs can be
+ * tokenized, parsed and analysed. The same seed and size always give the same program.
+ */
+public class CorpusGenerator {
+	private static final String[] BINARY_OPERATORS = { "+", "-", "*", "/", "==", "<", "&&", "||", "|>" };
+	private static final String[] UNARY_OPERATORS = { "!", "~" };
+	private static final String[] NAMES = { "x", "y", "acc", "value", "list_1", "next", "item", "n" };
+	private static final String[] SUBMODULE_DEFINITIONS = { "id", "pair", "const" };
+	private static final String[] WHITESPACE = { " ", " ", " ", "\n\t", "\n\t\t", " /* note */ ", " // note\n\t" };
+	
+	private Random random;
+	private StringBuilder builder;
+	private int definitionCount;
+	private List<String> definitions;
+	
+	/**
+	 * Initializes a new CorpusGenerator.
+	 * @param seed The seed from which the programs are generated.
+	 */
+	public CorpusGenerator(long seed) {
+		this.random = new Random(seed);
+	}
+	
+	/**
+	 * Generates a program of at least the given length.
+	 * @param length The minimum number of characters in the program.
+	 * @return The text of the generated program.
+	 */
+	public String generate(int length) {
+		builder = new StringBuilder(length + 1024);
+		definitionCount = 0;
+		definitions = new ArrayList<String>();
+		for(String operator : BINARY_OPERATORS) {
+			if(operator.equals("|>")) {
+				builder.append("(|>) <- (\\ a b -> b a);\n");
+			} else {
+				builder.append(String.format("(%s) <- (\\ a b -> __add a b);\n", operator));
+			}
+		}
+		for(String operator : UNARY_OPERATORS) {
+			builder.append(String.format("(%s) <- (\\ a -> a);\n", operator));
+		}
+		builder.append("\n");
+		while(builder.length() < length) {
+			if(random.nextInt(8) == 0) {
+				appendSubmodule();
+			} else {
+				appendDefinition();
+			}
+		}
+		return builder.toString();
+	}
+	
+	/**
+	 * Appends a submodule definition to the program.
+	 */
+	private void appendSubmodule() {
+		int index = definitionCount++;
+		builder.append(String.format("util%d <- (@\n", index));
+		builder.append("\tid <- (\\ x -> x);\n");
+		builder.append("\tpair <- (\\ x y -> (x, y));\n");
+		builder.append(String.format("\tconst <- (\\ x y -> x :: [y, %d]);\n", index));
+		builder.append(");\n\n");
+		for(String definition : SUBMODULE_DEFINITIONS) {
+			definitions.add(String.format("util%d.%s", index, definition));
+		}
+	}
+	
+	/**
+	 * Appends a function definition to the program.
+	 */
+	private void appendDefinition() {
+		int index = definitionCount++;
+		List<String> scope = new ArrayList<String>();
+		int argumentCount = 1 + random.nextInt(3);
+		builder.append(String.format("def%d <- (\\", index));
+		for(int i = 0; i < argumentCount; i++) {
+			scope.add(NAMES[i]);
+			builder.append(' ').append(NAMES[i]);
+		}
+		builder.append(" ->");
+		appendWhitespace();
+		appendBody(3, scope);
+		builder.append(");\n\n");
+		definitions.add(String.format("def%d", index));
+	}
+	
+	/**
+	 * Appends a function body, which may begin with some bindings, to the program.
+	 * @param depth The maximum depth to which to nest expressions.
+	 * @param scope The names of the values which the body may refer to.
+	 */
+	private void appendBody(int depth, List<String> scope) {
+		while(random.nextInt(3) == 0) {
+			String name = NAMES[random.nextInt(NAMES.length)] + scope.size();
+			builder.append(name).append(" <-");
+			appendWhitespace();
+			appendExpression(depth, scope);
+			builder.append(';');
+			appendWhitespace();
+			scope = new ArrayList<String>(scope);
+			scope.add(name);
+		}
+		appendExpression(depth, scope);
+	}
+	
+	/**
+	 * Appends an expression to the program.
+	 * @param depth The maximum depth to which to nest expressions.
+	 * @param scope The names of the values which the expression may refer to.
+	 */
+	private void appendExpression(int depth, List<String> scope) {
+		switch(depth > 0 ? random.nextInt(4) : 0) {
+		case 0:
+		case 1:
+			appendOperation(depth, scope);
+			break;
+		case 2:
+			appendApplication(depth, scope);
+			break;
+		default:
+			appendOperation(depth, scope);
+			builder.append(" :: ");
+			appendAtomic(depth - 1, scope);
+		}
+	}
+	
+	/**
+	 * Appends a chain of operator applications to the program.
+	 * @param depth The maximum depth to which to nest expressions.
+	 * @param scope The names of the values which the expression may refer to.
+	 */
+	private void appendOperation(int depth, List<String> scope) {
+		if(random.nextInt(10) == 0) {
+			builder.append(UNARY_OPERATORS[random.nextInt(UNARY_OPERATORS.length)]);
+		}
+		appendAtomic(depth - 1, scope);
+		while(random.nextInt(3) == 0) {
+			builder.append(' ').append(BINARY_OPERATORS[random.nextInt(BINARY_OPERATORS.length)]);
+			appendWhitespace();
+			appendAtomic(depth - 1, scope);
+		}
+	}
+	
+	/**
+	 * Appends a function application to the program.
+	 * @param depth The maximum depth to which to nest expressions.
+	 * @param scope The names of the values which the expression may refer to.
+	 */
+	private void appendApplication(int depth, List<String> scope) {
+		appendReference(scope);
+		for(int i = 1 + random.nextInt(3); i > 0; i--) {
+			builder.append(' ');
+			appendArgument(depth - 1, scope);
+		}
+	}
+	
+	/**
+	 * Appends an argument of a function application to the program. Symbol literals and
+	 * sequences cannot be arguments unless they are bracketed.
+	 * @param depth The maximum depth to which to nest expressions.
+	 * @param scope The names of the values which the expression may refer to.
+	 */
+	private void appendArgument(int depth, List<String> scope) {
+		int length = builder.length();
+		appendAtomic(depth, scope);
+		char first = builder.charAt(length);
+		if(first == '\'' || first == '[') {
+			builder.insert(length, '(').append(')');
+		}
+	}
+	
+	/**
+	 * Appends an atomic expression, such as a literal or a bracketed expression, to the
+	 * program.
+	 * @param depth The maximum depth to which to nest expressions.
+	 * @param scope The names of the values which the expression may refer to.
+	 */
+	private void appendAtomic(int depth, List<String> scope) {
+		switch(depth > 0 ? random.nextInt(12) : random.nextInt(6)) {
+		case 0:
+			builder.append(random.nextInt(100000));
+			break;
+		case 1:
+			builder.append(random.nextBoolean() ?
+					"0x" + Integer.toHexString(random.nextInt(0x10000)) :
+					"0b" + Integer.toBinaryString(random.nextInt(256)));
+			break;
+		case 2:
+			builder.append(random.nextBoolean() ? "\"text\"" : "\"some longer string\"");
+			break;
+		case 3:
+			builder.append(random.nextBoolean() ? "'symbol" : "'\"quoted symbol\"");
+			break;
+		case 4:
+		case 5:
+			appendReference(scope);
+			break;
+		case 6:
+		case 7:
+			builder.append('(');
+			appendExpression(depth, scope);
+			builder.append(')');
+			break;
+		case 8:
+			builder.append("(\\ ");
+			List<String> innerScope = new ArrayList<String>(scope);
+			String argument = NAMES[random.nextInt(NAMES.length)] + "_" + scope.size();
+			innerScope.add(argument);
+			builder.append(argument).append(" ->");
+			appendWhitespace();
+			appendBody(depth - 1, innerScope);
+			builder.append(')');
+			break;
+		case 9:
+			builder.append('(');
+			appendOperation(depth, scope);
+			builder.append(", ");
+			appendOperation(depth, scope);
+			builder.append(')');
+			break;
+		case 10:
+			builder.append('[');
+			for(int i = random.nextInt(4); i > 0; i--) {
+				appendOperation(depth, scope);
+				if(i > 1) {
+					builder.append(", ");
+				}
+			}
+			builder.append(']');
+			break;
+		default:
+			builder.append("()");
+		}
+	}
+	
+	/**
+	 * Appends an identifier which can be resolved to the program.
+	 * @param scope The names of the local values which the identifier may refer to.
+	 */
+	private void appendReference(List<String> scope) {
+		int choice = random.nextInt(4);
+		if(choice < 2 && !scope.isEmpty()) {
+			builder.append(scope.get(random.nextInt(scope.size())));
+		} else if(choice == 2 && !definitions.isEmpty()) {
+			builder.append(definitions.get(random.nextInt(definitions.size())));
+		} else {
+			builder.append("__add");
+		}
+	}
+	
+	/**
+	 * Appends some whitespace, which may contain a comment, to the program.
+	 */
+	private void appendWhitespace() {
+		builder.append(WHITESPACE[random.nextInt(WHITESPACE.length)]);
+	}
+}
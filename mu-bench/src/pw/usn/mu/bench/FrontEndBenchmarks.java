@@ -0,0 +1,248 @@
+package pw.usn.mu.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import pw.usn.mu.StringSource;
+import pw.usn.mu.analyser.DefaultAnalyser;
+import pw.usn.mu.parser.ModuleNode;
+import pw.usn.mu.parser.OperatorTable;
+import pw.usn.mu.parser.Parser;
+import pw.usn.mu.tokenizer.AutomatonTokenizer;
+import pw.usn.mu.tokenizer.DefaultTokenizerFactory;
+import pw.usn.mu.tokenizer.Location;
+import pw.usn.mu.tokenizer.TokenBuffer;
+import pw.usn.mu.tokenizer.Tokenizer;
+
+/**
+ * Measures the performance of each phase of the mu front end - tokenizing, parsing and
+ * analysis - separately, and of the whole front end from source text to analysed module.
+ * Each benchmark is run over the fixed corpora in the {@code corpus} directory and over
+ * synthetic corpora of several sizes created by {@link CorpusGenerator}, and the results
+ * are printed as a table. The results can also be written as comma-separated values, to
+ * be kept as a baseline and compared with later runs.<br>
+ * The following options are accepted:
+ * <ul>
+ * <li>{@code -w <n>} The number of warm-up iterations (default 5).</li>
+ * <li>{@code -i <n>} The number of measured iterations (default 5).</li>
+ * <li>{@code -t <ms>} The length of each iteration, in milliseconds (default 1000).</li>
+ * <li>{@code -s <sizes>} The comma-separated sizes, in characters, of the synthetic
+ * corpora. A size may end in {@code k} or {@code m} (default {@code 16k,256k,4m}).</li>
+ * <li>{@code -b <names>} The comma-separated names of the benchmarks to run (default all of
+ * them).</li>
+ * <li>{@code -o <file>} The file to which to write the results as comma-separated
+ * values.</li>
+ * </ul>
+ * As with JMH, the JVM should be given a fixed heap size, such as {@code -Xms2g -Xmx2g}, so
+ * that the results of different runs can be compared.
+ */
+public class FrontEndBenchmarks {
+	private static final String[] FIXED_CORPORA = { "lists.mu", "closures.mu" };
+	private static final String[] BENCHMARKS = {
+			"tokenize", "tokenize-buffer", "tokenize-parallel", "tokenize-utf8",
+			"parse", "parse-parallel", "analyse", "front-end" };
+	private static final long SEED = 0x6d75L;
+	
+	private Tokenizer tokenizer;
+	private BenchmarkRunner runner;
+	private List<String> benchmarks;
+	private List<BenchmarkResult> results;
+	
+	/**
+	 * Initializes a new FrontEndBenchmarks.
+	 * @param runner The runner with which to measure the benchmarks.
+	 * @param benchmarks The names of the benchmarks to run.
+	 */
+	public FrontEndBenchmarks(BenchmarkRunner runner, List<String> benchmarks) {
+		this.tokenizer = new DefaultTokenizerFactory().create();
+		this.runner = runner;
+		this.benchmarks = benchmarks;
+		this.results = new ArrayList<BenchmarkResult>();
+	}
+	
+	/**
+	 * Runs the selected benchmarks over the given corpus, printing each result as it is
+	 * measured.
+	 * @param name The name of the corpus.
+	 * @param text The text of the corpus.
+	 */
+	public void runCorpus(String name, String text) {
+		/* The parse and analysis benchmarks start from the output of the previous phase,
+		 * so that each phase is measured on its own.
+		 */
+		TokenBuffer tokens = tokenizer.tokenizeToBuffer(new StringSource(text, name));
+		byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+		ModuleNode node = ModuleNode.parse(new Location(), new Parser(tokens));
+		
+		for(String benchmark : benchmarks) {
+			BenchmarkResult result;
+			switch(benchmark) {
+			case "tokenize":
+				result = runner.run(benchmark, name, text.length(),
+						() -> tokenizer.tokenize(new StringSource(text, name)));
+				break;
+			case "tokenize-buffer":
+				result = runner.run(benchmark, name, text.length(),
+						() -> tokenizer.tokenizeToBuffer(new StringSource(text, name)));
+				break;
+			case "tokenize-parallel":
+				/* Only the allocation of the calling thread is measured, not that of the
+				 * threads of the pool.
+				 */
+				result = runner.run(benchmark, name, text.length(),
+						() -> ((AutomatonTokenizer)tokenizer).tokenizeParallel(text, name, ForkJoinPool.commonPool()));
+				break;
+			case "tokenize-utf8":
+				/* The other tokenizing benchmarks start from text which is already decoded,
+				 * whereas this one starts from the encoded bytes.
+				 */
+				result = runner.run(benchmark, name, text.length(),
+						() -> ((AutomatonTokenizer)tokenizer).tokenizeUtf8(encoded, name));
+				break;
+			case "parse":
+				result = runner.run(benchmark, name, text.length(),
+						() -> ModuleNode.parse(new Location(), new Parser(tokens)));
+				break;
+			case "parse-parallel":
+				result = runner.run(benchmark, name, text.length(),
+						() -> ModuleNode.parseParallel(new Location(), tokens, OperatorTable.createDefault(), ForkJoinPool.commonPool()));
+				break;
+			case "analyse":
+				result = runner.run(benchmark, name, text.length(),
+						() -> new DefaultAnalyser().analyse(node));
+				break;
+			case "front-end":
+				result = runner.run(benchmark, name, text.length(),
+						() -> new DefaultAnalyser().analyse(ModuleNode.parse(
+								new Location(),
+								new Parser(tokenizer.tokenizeLazily(new StringSource(text, name))))));
+				break;
+			default:
+				throw new IllegalArgumentException(String.format("There is no benchmark named %s.", benchmark));
+			}
+			System.out.println(result);
+			results.add(result);
+		}
+	}
+	
+	/**
+	 * Gets the results measured so far.
+	 * @return The results of every benchmark run, in the order they were run.
+	 */
+	public List<BenchmarkResult> getResults() {
+		return results;
+	}
+	
+	/**
+	 * Reads one of the fixed corpora.
+	 * @param name The file name of the corpus in the {@code corpus} directory.
+	 * @return The text of the corpus.
+	 * @throws IOException
+	 */
+	private static String readCorpus(String name) throws IOException {
+		InputStream stream = FrontEndBenchmarks.class.getResourceAsStream("corpus/" + name);
+		if(stream == null) {
+			throw new IOException(String.format("The corpus %s could not be found.", name));
+		}
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			for(int read = stream.read(buffer); read >= 0; read = stream.read(buffer)) {
+				bytes.write(buffer, 0, read);
+			}
+			return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+		} finally {
+			stream.close();
+		}
+	}
+	
+	/**
+	 * Parses a corpus size, which may end in {@code k} or {@code m}.
+	 * @param size The size to parse.
+	 * @return The number of characters represented by {@code size}.
+	 */
+	private static int parseSize(String size) {
+		String lower = size.trim().toLowerCase();
+		if(lower.endsWith("k")) {
+			return Integer.parseInt(lower.substring(0, lower.length() - 1)) * 1024;
+		} else if(lower.endsWith("m")) {
+			return Integer.parseInt(lower.substring(0, lower.length() - 1)) * 1024 * 1024;
+		} else {
+			return Integer.parseInt(lower);
+		}
+	}
+	
+	/**
+	 * Runs the benchmarks.
+	 * @param args The command-line options, as described in {@link FrontEndBenchmarks}.
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		int warmupIterations = 5, measurementIterations = 5;
+		long iterationMilliseconds = 1000;
+		String sizes = "16k,256k,4m", output = null;
+		List<String> benchmarks = Arrays.asList(BENCHMARKS);
+		for(int i = 0; i < args.length; i++) {
+			if(i + 1 >= args.length) {
+				throw new IllegalArgumentException(String.format("Option %s needs a value.", args[i]));
+			}
+			switch(args[i]) {
+			case "-w":
+				warmupIterations = Integer.parseInt(args[++i]);
+				break;
+			case "-i":
+				measurementIterations = Integer.parseInt(args[++i]);
+				break;
+			case "-t":
+				iterationMilliseconds = Long.parseLong(args[++i]);
+				break;
+			case "-s":
+				sizes = args[++i];
+				break;
+			case "-b":
+				benchmarks = Arrays.asList(args[++i].split(","));
+				break;
+			case "-o":
+				output = args[++i];
+				break;
+			default:
+				throw new IllegalArgumentException(String.format("Unknown option %s.", args[i]));
+			}
+		}
+		
+		Map<String, String> corpora = new LinkedHashMap<String, String>();
+		for(String name : FIXED_CORPORA) {
+			corpora.put(name, readCorpus(name));
+		}
+		for(String size : sizes.split(",")) {
+			corpora.put("synthetic-" + size.trim(), new CorpusGenerator(SEED).generate(parseSize(size)));
+		}
+		
+		FrontEndBenchmarks frontEnd = new FrontEndBenchmarks(
+				new BenchmarkRunner(warmupIterations, measurementIterations, iterationMilliseconds),
+				benchmarks);
+		System.out.println(BenchmarkResult.getHeader());
+		corpora.forEach(frontEnd::runCorpus);
+		
+		if(output != null) {
+			PrintStream csv = new PrintStream(output, "UTF-8");
+			try {
+				csv.println(BenchmarkResult.getCsvHeader());
+				for(BenchmarkResult result : frontEnd.getResults()) {
+					csv.println(result.toCsv());
+				}
+			} finally {
+				csv.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,336 @@
+package pw.usn.mu;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import pw.usn.mu.tokenizer.Location;
+import pw.usn.mu.tokenizer.Token;
+import pw.usn.mu.tokenizer.TokenizerRule;
+
+/**
+ * Represents a source that decodes data from a {@link ByteBuffer} or a {@link
+ * ReadableByteChannel} as it is read, such as a memory-mapped file. Unlike {@link
+ * StreamSource}, the data is never held in memory all at once: only a window of characters
+ * starting at the reading head is kept, which is extended when a token runs past its end and
+ * discarded once the reading head has moved past it. The memory used therefore depends on
+ * the length of the longest token rather than on the size of the source.
+ */
+public class ChannelSource implements Source {
+	private static final int INITIAL_WINDOW_SIZE = 8192;
+	private static final int BUFFER_SIZE = 8192;
+
+	private String name;
+	private ReadableByteChannel channel;
+	private ByteBuffer bytes;
+	private CharsetDecoder decoder;
+	private boolean inputExhausted, endOfInput, closed;
+
+	private char[] window;
+	private CharBuffer windowText;
+	private int windowStart, windowLength;
+	private int index, row, column;
+	private Map<Pattern, Matcher> matchers;
+
+	/**
+	 * Initializes a new ChannelSource which decodes the remaining content of a buffer.
+	 * @param bytes The buffer containing the encoded source data. This might be a {@link
+	 * java.nio.MappedByteBuffer MappedByteBuffer} of a source file.
+	 * @param name The name of the source. This is used for error reporting, and may contain
+	 * a value such as a file name or terminal name.
+	 * @param charset The character set in which the source data is encoded.
+	 */
+	public ChannelSource(ByteBuffer bytes, String name, Charset charset) {
+		this(null, bytes, name, charset);
+	}
+
+	/**
+	 * Initializes a new ChannelSource which reads from the given channel.
+	 * @param channel The channel from which to read the source data. This is closed when
+	 * the source is closed.
+	 * @param name The name of the source. This is used for error reporting, and may contain
+	 * a value such as a file name or terminal name.
+	 * @param charset The character set in which the source data is encoded.
+	 */
+	public ChannelSource(ReadableByteChannel channel, String name, Charset charset) {
+		this(channel, (ByteBuffer)ByteBuffer.allocate(BUFFER_SIZE).flip(), name, charset);
+	}
+
+	/**
+	 * Initializes a new ChannelSource which reads from the given channel, decoding the
+	 * data in the platform's default character set.
+	 * @param channel The channel from which to read the source data. This is closed when
+	 * the source is closed.
+	 * @param name The name of the source. This is used for error reporting, and may contain
+	 * a value such as a file name or terminal name.
+	 */
+	public ChannelSource(ReadableByteChannel channel, String name) {
+		this(channel, name, Charset.defaultCharset());
+	}
+
+	/**
+	 * Initializes a new ChannelSource.
+	 * @param channel The channel from which to refill {@code bytes}, or {@code null} if
+	 * {@code bytes} already contains all of the data.
+	 * @param bytes The buffer of encoded data, ready to be read from.
+	 * @param name The name of the source.
+	 * @param charset The character set in which the source data is encoded.
+	 */
+	private ChannelSource(ReadableByteChannel channel, ByteBuffer bytes, String name, Charset charset) {
+		this.name = name;
+		this.channel = channel;
+		this.bytes = bytes;
+		this.decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.inputExhausted = channel == null;
+		this.window = new char[INITIAL_WINDOW_SIZE];
+		this.windowText = CharBuffer.wrap(window, 0, 0);
+		this.index = 0;
+		this.row = 1;
+		this.column = 0;
+		this.matchers = new HashMap<Pattern, Matcher>();
+	}
+
+	/**
+	 * Creates a new ChannelSource which reads from a memory-mapped {@link java.io.File File}.
+	 * The source name will be set according to the file name, and the data is decoded in the
+	 * platform's default character set.
+	 * @param file The file from which to read the source data.
+	 * @return A {@link ChannelSource} reading from a mapping of {@code file}, or from a
+	 * {@link FileChannel} if the file is too large to be mapped at once.
+	 * @throws IOException
+	 */
+	public static ChannelSource fromFile(File file) throws IOException {
+		if(file.exists() && file.isFile()) {
+			FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			if(channel.size() <= Integer.MAX_VALUE) {
+				/* The mapping stays valid after the channel is closed.
+				 */
+				try {
+					return new ChannelSource(
+							channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()),
+							file.getName(),
+							Charset.defaultCharset());
+				} finally {
+					channel.close();
+				}
+			} else {
+				return new ChannelSource(channel, file.getName());
+			}
+		} else {
+			throw new IOException("The source file must be a file that already exists.");
+		}
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public boolean endOfSource() {
+		return closed || !ensureAvailable(1);
+	}
+
+	@Override
+	public Token readToken(TokenizerRule rule) {
+		checkOpen();
+		while(true) {
+			Matcher matcher = getMatcher(rule.getPattern(), index - windowStart, windowLength)
+					.useAnchoringBounds(false);
+			boolean matched = matcher.lookingAt();
+			if(matcher.hitEnd() && !endOfInput) {
+				/* The match might have turned out differently with more data available, so
+				 * read some more and try again.
+				 */
+				readMore();
+			} else if(matched) {
+				MatchResult result = matcher.toMatchResult();
+				Token token = rule.read(getLocation(), result);
+				advanceInput(result.end() - result.start());
+				return token;
+			} else {
+				return null;
+			}
+		}
+	}
+
+	@Override
+	public Token readToken(TokenizerRule rule, int length) {
+		checkOpen();
+		if(!ensureAvailable(length)) {
+			return null;
+		}
+		int start = index - windowStart;
+		Matcher matcher = getMatcher(rule.getPattern(), start, start + length)
+				.useAnchoringBounds(true);
+		if(matcher.matches()) {
+			Token token = rule.read(getLocation(), matcher.toMatchResult());
+			advanceInput(length);
+			return token;
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * Gets a matcher for {@code pattern} over the current window, restricted to the given
+	 * region of the window.
+	 * @param pattern The pattern to match.
+	 * @param start The index in the window of the start of the region to match in.
+	 * @param end The index in the window of the end of the region to match in.
+	 * @return A matcher for {@code pattern} with opaque bounds over the region.
+	 */
+	private Matcher getMatcher(Pattern pattern, int start, int end) {
+		Matcher matcher = matchers.get(pattern);
+		if(matcher == null) {
+			matcher = pattern.matcher(windowText);
+			matchers.put(pattern, matcher);
+		}
+		return matcher.region(start, end).useTransparentBounds(false);
+	}
+
+	@Override
+	public int peek(int offset) {
+		checkOpen();
+		if(ensureAvailable(offset + 1)) {
+			return window[index - windowStart + offset];
+		} else {
+			return -1;
+		}
+	}
+
+	@Override
+	public void skip(int length) {
+		checkOpen();
+		if(ensureAvailable(length)) {
+			advanceInput(length);
+		} else {
+			throw new IllegalArgumentException("Cannot skip past the end of the source.");
+		}
+	}
+
+	/**
+	 * Advances the location information for this source over the next {@code length}
+	 * characters, which must already be in the window.
+	 * @param length The number of characters to advance by.
+	 */
+	private void advanceInput(int length) {
+		int end = index - windowStart + length;
+		for(int i = index - windowStart; i < end; i++) {
+			if(window[i] == '\n') {
+				this.row += 1;
+				this.column = 0;
+			} else {
+				this.column += 1;
+			}
+		}
+		this.index += length;
+	}
+
+	/**
+	 * Reads data into the window until at least {@code count} characters following the
+	 * reading head are available, or the end of the data is reached.
+	 * @param count The number of characters needed.
+	 * @return Whether {@code count} characters are available.
+	 */
+	private boolean ensureAvailable(int count) {
+		while(index - windowStart + count > windowLength) {
+			if(endOfInput) {
+				return false;
+			}
+			readMore();
+		}
+		return true;
+	}
+
+	/**
+	 * Discards the characters before the reading head from the window, and decodes more
+	 * characters into the end of the window. The window is enlarged if the characters after
+	 * the reading head already fill it.
+	 */
+	private void readMore() {
+		int head = index - windowStart;
+		if(head > 0) {
+			System.arraycopy(window, head, window, 0, windowLength - head);
+			windowLength -= head;
+			windowStart = index;
+		}
+		if(windowLength == window.length) {
+			window = Arrays.copyOf(window, window.length * 2);
+		}
+
+		CharBuffer output = CharBuffer.wrap(window, windowLength, window.length - windowLength);
+		try {
+			while(output.position() == windowLength && !endOfInput) {
+				if(decoder.decode(bytes, output, inputExhausted).isOverflow()) {
+					break;
+				} else if(inputExhausted) {
+					decoder.flush(output);
+					endOfInput = true;
+				} else {
+					bytes.compact();
+					inputExhausted = channel.read(bytes) < 0;
+					bytes.flip();
+				}
+			}
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		windowLength = output.position();
+		windowText = CharBuffer.wrap(window, 0, windowLength);
+		matchers.clear();
+	}
+
+	private void checkOpen() {
+		if(closed) {
+			throw new IllegalStateException("Cannot read after the source has been closed.");
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		if(channel != null) {
+			channel.close();
+		}
+	}
+
+	@Override
+	public String getRemainderOfLine() {
+		StringBuilder builder = new StringBuilder();
+		for(int c = peek(0); c >= 0 && !isLineTerminator((char)c); c = peek(builder.length())) {
+			builder.append((char)c);
+		}
+		return builder.length() > 0 ? builder.toString() : null;
+	}
+
+	/**
+	 * Determines whether the given character ends a line.
+	 * @param c The character to check.
+	 * @return Whether {@code c} is one of the line terminators recognized by {@link Pattern}.
+	 */
+	private static boolean isLineTerminator(char c) {
+		return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+	}
+
+	@Override
+	public Location getLocation() {
+		return new Location(this, row, column);
+	}
+}
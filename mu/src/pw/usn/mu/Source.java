@@ -34,6 +34,30 @@ public interface Source extends Closeable {
 	 */
 	public Token readToken(TokenizerRule rule);
 	
+	/**
+	 * Reads a token of exactly {@code length} characters from this source using the given
+	 * tokenizer rule, and advances the source reader ahead to the end of the token.
+	 * @param rule The rule with which to read the token.
+	 * @param length The number of characters in the token.
+	 * @return Returns {@code null} if the pattern of {@code rule} does not match exactly the
+	 * next {@code length} characters; otherwise, returns the token that was read.
+	 */
+	public Token readToken(TokenizerRule rule, int length);
+	
+	/**
+	 * Gets a character ahead of the reading head without advancing the source reader.
+	 * @param offset The number of characters after the reading head of the character to get.
+	 * @return The character {@code offset} characters after the reading head, or {@code -1}
+	 * if that is past the end of the source.
+	 */
+	public int peek(int offset);
+	
+	/**
+	 * Advances the source reader ahead by {@code length} characters without reading a token.
+	 * @param length The number of characters to skip.
+	 */
+	public void skip(int length);
+	
 	/**
 	 * Reads data up to (and excluding) the next new line in the source.
 	 * @return A string representing all data in the source up to and excluding the next new-line read.
@@ -1,5 +1,7 @@
 package pw.usn.mu;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.regex.MatchResult;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -9,13 +11,15 @@ import pw.usn.mu.tokenizer.Token;
 import pw.usn.mu.tokenizer.TokenizerRule;
 
 /**
- * Represents a source that internally stores read data into a {@link String}.
+ * Represents a source that internally stores read data into a {@link String}, or any other
+ * {@link CharSequence}.
  */
 public class StringSource implements Source {
-	private String data;
+	private CharSequence data;
 	private String name;
 	private boolean closed;
 	private int index, row, column;
+	private Map<Pattern, Matcher> matchers;
 	
 	/**
 	 * Initializes a new StringDataSource with the given source text and source name.
@@ -24,11 +28,26 @@ public class StringSource implements Source {
 	 * a value such as a file name or terminal name.
 	 */
 	public StringSource(String data, String name) {
+		this(data, name, 0, 1, 0);
+	}
+	
+	/**
+	 * Initializes a new StringDataSource which begins reading part of the way through the
+	 * given source text. This is used to read part of a source again after it is edited.
+	 * @param data The data that is to be read from the source.
+	 * @param name The name of the source. This is used for error reporting, and may contain
+	 * a value such as a file name or terminal name.
+	 * @param index The index in {@code data} at which to begin reading.
+	 * @param row The row in the source at {@code index}, starting from row 1.
+	 * @param column The column in the source at {@code index}, starting from column 0.
+	 */
+	public StringSource(CharSequence data, String name, int index, int row, int column) {
 		this.data = data;
 		this.name = name;
-		this.index = 0;
-		this.row = 1;
-		this.column = 0;
+		this.index = index;
+		this.row = row;
+		this.column = column;
+		this.matchers = new HashMap<Pattern, Matcher>();
 	}
 
 	@Override
@@ -46,11 +65,32 @@ public class StringSource implements Source {
 		if(closed) {
 			throw new IllegalStateException("Cannot read a token after the source has been closed.");
 		} else {
-			Matcher matcher = rule.getPattern().matcher(data);
-			if(matcher.find(index) && matcher.start() == index) {
+			/* Only the text from the reading head onwards is looked at, so that a rule which
+			 * does not match does not search through the rest of the data.
+			 */
+			Matcher matcher = getMatcher(rule.getPattern(), index, data.length())
+					.useAnchoringBounds(false);
+			if(matcher.lookingAt()) {
 				MatchResult result = matcher.toMatchResult();
 				Token token = rule.read(getLocation(), result);
-				advanceInput(result.group());
+				advanceInput(result.end() - index);
+				return token;
+			} else {
+				return null;
+			}
+		}
+	}
+	
+	@Override
+	public Token readToken(TokenizerRule rule, int length) {
+		if(closed) {
+			throw new IllegalStateException("Cannot read a token after the source has been closed.");
+		} else {
+			Matcher matcher = getMatcher(rule.getPattern(), index, index + length)
+					.useAnchoringBounds(true);
+			if(matcher.matches()) {
+				Token token = rule.read(getLocation(), matcher.toMatchResult());
+				advanceInput(length);
 				return token;
 			} else {
 				return null;
@@ -59,22 +99,60 @@ public class StringSource implements Source {
 	}
 	
 	/**
-	 * Advances the location information for this stream source according to the content
-	 * of the given match text. This updates the index, row and column information according to
-	 * the characters in {@code matchText}, assuming that it immediately follows the previous
-	 * matched text or the start of the stream.
-	 * @param matchText
+	 * Gets a matcher for {@code pattern} over the data of this source, restricted to the
+	 * given region. Matchers are reused between calls, as creating a matcher for each token
+	 * would dominate the time taken to read small tokens.
+	 * @param pattern The pattern to match.
+	 * @param start The index of the start of the region to match in.
+	 * @param end The index of the end of the region to match in.
+	 * @return A matcher for {@code pattern} with transparent bounds over the region.
+	 */
+	private Matcher getMatcher(Pattern pattern, int start, int end) {
+		Matcher matcher = matchers.get(pattern);
+		if(matcher == null) {
+			matcher = pattern.matcher(data);
+			matchers.put(pattern, matcher);
+		}
+		return matcher.region(start, end).useTransparentBounds(true);
+	}
+	
+	@Override
+	public int peek(int offset) {
+		if(closed) {
+			throw new IllegalStateException("Cannot read after the source has been closed.");
+		} else if(index + offset < data.length()) {
+			return data.charAt(index + offset);
+		} else {
+			return -1;
+		}
+	}
+	
+	@Override
+	public void skip(int length) {
+		if(closed) {
+			throw new IllegalStateException("Cannot read after the source has been closed.");
+		} else {
+			advanceInput(length);
+		}
+	}
+	
+	/**
+	 * Advances the location information for this stream source over the next {@code length}
+	 * characters of data. This updates the index, row and column information according to
+	 * the characters passed over.
+	 * @param length The number of characters to advance by.
 	 */
-	private void advanceInput(String matchText) {
-		for(int i = 0; i < matchText.length(); i++) {
-			if(matchText.charAt(i) == '\n') {
+	private void advanceInput(int length) {
+		int end = index + length;
+		for(int i = index; i < end; i++) {
+			if(data.charAt(i) == '\n') {
 				this.row += 1;
 				this.column = 0;
 			} else {
 				this.column += 1;
 			}
 		}
-		this.index += matchText.length();
+		this.index = end;
 	}
 
 	@Override
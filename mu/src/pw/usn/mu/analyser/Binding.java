@@ -1,12 +1,9 @@
 package pw.usn.mu.analyser;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Stack;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 
-import pw.usn.mu.analyser.closure.BindingClosureContext;
 import pw.usn.mu.analyser.closure.ClosureContext;
 import pw.usn.mu.parser.BindingNode;
 import pw.usn.mu.parser.IdentifierNode;
@@ -64,9 +61,9 @@ public class Binding extends Expression {
 	
 	@Override
 	public void liftClosures(ClosureContext context) {
-		ClosureContext bindingContext = new BindingClosureContext(this, context);
-		expression.liftClosures(bindingContext);
-		body.liftClosures(bindingContext);
+		context.bind(value);
+		expression.liftClosures(context);
+		body.liftClosures(context);
 	}
 	
 	private static Expression createApplication(ResolutionContext context, Location location, String builtinName, Expression... arguments) {
@@ -92,100 +89,99 @@ public class Binding extends Expression {
 			BindValueNode bindValueNode = (BindValueNode)node.getBindingStructure();
 			
 			// Create a value for this binding
-			Value value = new Value(bindValueNode.getValueName());
+			Value value = new Value(context.getValueTable(), bindValueNode.getValueName());
 			
 			// Simple resolution context
-			ResolutionContext bindingContext = new ResolutionContext(context) {
-				@Override
-				public Expression resolve(IdentifierNode identifier) {
-					String name = identifier.getName();
-					if(identifier.isUnqualified() &&
-							name.equals(value.getName())) {
-						return value.newReference(identifier.getLocation());
-					} else {
-						return super.resolve(identifier);
-					}
-				}
-			};
-			
-			return new Binding(node.getLocation(),
-					value,
-					Expression.analyse(bindingContext, node.getValue()),
-					Expression.analyse(bindingContext, node.getContent()));
+			LocalResolutionContext bindingContext = LocalResolutionContext.of(context);
+			bindingContext.enterScope();
+			try {
+				bindingContext.bind(value);
+				return new Binding(node.getLocation(),
+						value,
+						Expression.analyse(bindingContext, node.getValue()),
+						Expression.analyse(bindingContext, node.getContent()));
+			} finally {
+				bindingContext.exitScope();
+			}
 		} else {
-			// All identifiers bound
-			Map<String, Value> boundValues = new HashMap<String, Value>();
-			
-			/* Build a tree of bindings from the bottom up; we don't have pointers in
-			 * Java so we'll use a stack of builder functions instead.
-			 */
-			Stack<Function<Expression, Binding>> reverseTreeStack = new Stack<Function<Expression, Binding>>();
-			
-			/* This function recursively analyses the binding decomposition format and
-			 * creates the appropriate bindings.
+			/* All identifiers are bound in one scope, which is entered before the
+			 * decomposition and exited after the whole tree of bindings is built.
 			 */
-			BiConsumer<Expression, Node> decomposeNode = (lowerExpr, structureNode) -> {
-				if(structureNode instanceof BindValueNode) {
-					BindValueNode valueNode = (BindValueNode)structureNode;
-					Value value = new Value(valueNode.getValueName());
-					boundValues.put(valueNode.getValueName(), value);
-					reverseTreeStack.push(expr ->
-						new Binding(node.getLocation(), value, lowerExpr, expr));
-				} else if(structureNode instanceof BindConsNode) {
-					BindConsNode consNode = (BindConsNode)structureNode;
-					Value valueHead = new Value(), valueTail = new Value();
-					reverseTreeStack.push(expr ->
-					new Binding(
-							node.getLocation(),
-							valueHead,
-							createApplication(
-									context,
-									consNode.getLocation(),
-									"__head",
-									lowerExpr),
-							new Binding(
-									node.getLocation(),
-									valueTail,
-									createApplication(
-											context,
-											consNode.getLocation(),
-											"__tail",
-											lowerExpr),
-									expr)));
-				}
-			};
-			
-			ResolutionContext bindingContext = new ResolutionContext(context) {
-				@Override
-				public Expression resolve(IdentifierNode identifier) {
-					String name = identifier.getName();
-					if(identifier.isUnqualified() &&
-							boundValues.containsKey(name)) {
-						return boundValues.get(name).newReference(identifier.getLocation());
-					} else {
-						return super.resolve(identifier);
-					}
-				}
-			};
-			
-			if(node.getValue() instanceof IdentifierNode) {
-				decomposeNode.accept(Expression.analyse(bindingContext, node), node.getBindingStructure());
-			} else {
-				Value initialValue = new Value();
-				reverseTreeStack.push(expr ->
-						new Binding(node.getLocation(),
-							initialValue,
-							Expression.analyse(bindingContext, node.getValue()),
-							expr));
-				decomposeNode.accept(initialValue.newReference(node.getLocation()), node.getBindingStructure());
+			LocalResolutionContext bindingContext = LocalResolutionContext.of(context);
+			bindingContext.enterScope();
+			try {
+				return analyseDecomposition(context, bindingContext, node);
+			} finally {
+				bindingContext.exitScope();
 			}
-			
-			Expression expression = Expression.analyse(bindingContext, node.getContent());
-			Binding binding = reverseTreeStack.pop().apply(expression);
-			while(!reverseTreeStack.isEmpty()) {
-				binding = reverseTreeStack.pop().apply(binding);
+		}
+	}
+	
+	/**
+	 * Analyses a binding which decomposes its value into several values.
+	 * @param context The context in which {@code node} resides.
+	 * @param bindingContext The context in which the decomposed values are bound, whose
+	 * current scope is the scope of the binding.
+	 * @param node The AST node to analyse.
+	 * @return The outermost binding of the tree of bindings equivalent to {@code node}.
+	 */
+	private static Binding analyseDecomposition(ResolutionContext context, LocalResolutionContext bindingContext, BindingNode node) {
+		/* Build a tree of bindings from the bottom up; we don't have pointers in
+		 * Java so we'll use a stack of builder functions instead.
+		 */
+		Stack<Function<Expression, Binding>> reverseTreeStack = new Stack<Function<Expression, Binding>>();
+		
+		/* This function recursively analyses the binding decomposition format and
+		 * creates the appropriate bindings.
+		 */
+		BiConsumer<Expression, Node> decomposeNode = (lowerExpr, structureNode) -> {
+			if(structureNode instanceof BindValueNode) {
+				BindValueNode valueNode = (BindValueNode)structureNode;
+				Value value = new Value(context.getValueTable(), valueNode.getValueName());
+				bindingContext.bind(value);
+				reverseTreeStack.push(expr ->
+					new Binding(node.getLocation(), value, lowerExpr, expr));
+			} else if(structureNode instanceof BindConsNode) {
+				BindConsNode consNode = (BindConsNode)structureNode;
+				Value valueHead = new Value(context.getValueTable()), valueTail = new Value(context.getValueTable());
+				reverseTreeStack.push(expr ->
+				new Binding(
+						node.getLocation(),
+						valueHead,
+						createApplication(
+								context,
+								consNode.getLocation(),
+								"__head",
+								lowerExpr),
+						new Binding(
+								node.getLocation(),
+								valueTail,
+								createApplication(
+										context,
+										consNode.getLocation(),
+										"__tail",
+										lowerExpr),
+								expr)));
 			}
-			return binding;
+		};
+		
+		if(node.getValue() instanceof IdentifierNode) {
+			decomposeNode.accept(Expression.analyse(bindingContext, node), node.getBindingStructure());
+		} else {
+			Value initialValue = new Value(context.getValueTable());
+			reverseTreeStack.push(expr ->
+					new Binding(node.getLocation(),
+						initialValue,
+						Expression.analyse(bindingContext, node.getValue()),
+						expr));
+			decomposeNode.accept(initialValue.newReference(node.getLocation()), node.getBindingStructure());
+		}
+		
+		Expression expression = Expression.analyse(bindingContext, node.getContent());
+		Binding binding = reverseTreeStack.pop().apply(expression);
+		while(!reverseTreeStack.isEmpty()) {
+			binding = reverseTreeStack.pop().apply(binding);
 		}
+		return binding;
 	}
 }
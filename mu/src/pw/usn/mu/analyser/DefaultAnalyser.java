@@ -1,7 +1,11 @@
 package pw.usn.mu.analyser;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.Consumer;
 
 import pw.usn.mu.analyser.builtin.BuiltinResolutionContext;
@@ -14,28 +18,113 @@ import pw.usn.mu.tokenizer.Location;
  * An object which accepts one or more top-level {@link ModuleNode}s 
  * from source files, performs semantic analysis, and returns a
  * {@link Module} containing the root module of all the defined
- * submodules in a mu program.
+ * submodules in a mu program.<br>
+ * Once the modules are declared, each top-level definition is analysed
+ * and has its closures lifted independently of the others. An analyser
+ * created with a {@link ForkJoinPool} analyses the definitions at the
+ * same time on the pool; otherwise, they are analysed in order. Either way, the values
+ * created in the analysis are given the same ids.
  * TODO Add support for precompiled references
  */
 public class DefaultAnalyser implements Analyser {
+	private static final int TASKS_PER_THREAD = 4;
+	
+	private ForkJoinPool pool;
+	
+	/**
+	 * Initializes a new DefaultAnalyser which analyses definitions in order.
+	 */
+	public DefaultAnalyser() {
+		this(null);
+	}
+	
+	/**
+	 * Initializes a new DefaultAnalyser which analyses definitions in parallel.
+	 * @param pool The pool on which to analyse the definitions, or {@code null} to
+	 * analyse them in order.
+	 */
+	public DefaultAnalyser(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+	
 	@Override
 	public Module analyse(ModuleNode... nodes) {
-		Module rootModule = new Module(new Location());
+		ValueTable values = new ValueTable();
+		Module rootModule = new Module(new Location(), values);
 		Queue<Consumer<ResolutionContext>> handlers = new ArrayDeque<Consumer<ResolutionContext>>();
 		Consumer<Expression> analyser = e -> e.liftClosures();
 		
 		for(ModuleNode node : nodes) {
-			Module analysedModule = Module.analyseInitial(handlers, analyser, node);
+			Module analysedModule = Module.analyseInitial(handlers, analyser, values, node);
 			rootModule.absorbModule(analysedModule);
 		}
 		
 		ModuleResolutionContext moduleResolutionContext = new ModuleResolutionContext(rootModule);
 		BuiltinResolutionContext builtinResolutionContext = new BuiltinResolutionContext(moduleResolutionContext);
 		
-		for(Consumer<ResolutionContext> handler : handlers) {
-			handler.accept(builtinResolutionContext);
+		if(pool == null) {
+			for(Consumer<ResolutionContext> handler : handlers) {
+				handler.accept(builtinResolutionContext);
+			}
+		} else {
+			runParallel(handlers, builtinResolutionContext);
 		}
 		
 		return rootModule;
 	}
-}
\ No newline at end of file
+	
+	/**
+	 * Runs the handlers which analyse each definition at the same time on the pool of this
+	 * analyser. The handlers are split into groups of consecutive handlers, each of which is
+	 * run in order by one task. If any handlers fail, the exception thrown by the first of
+	 * them in order is rethrown, so that the same exception is thrown as when the handlers
+	 * are run in order. The values created by each handler are recorded, and renumbered once
+	 * every handler has run, so that they have the same ids as when the handlers are run in
+	 * order, however the pool scheduled the groups.
+	 * @param handlers The handlers to run.
+	 * @param context The context to pass to each handler.
+	 */
+	private void runParallel(Queue<Consumer<ResolutionContext>> handlers, ResolutionContext context) {
+		List<Consumer<ResolutionContext>> handlerList = new ArrayList<Consumer<ResolutionContext>>(handlers);
+		Throwable[] failures = new Throwable[handlerList.size()];
+		ValueTable values = context.getValueTable();
+		int firstId = values.size();
+		List<List<Value>> created = new ArrayList<List<Value>>(handlerList.size());
+		for(int i = 0; i < handlerList.size(); i++) {
+			created.add(new ArrayList<Value>());
+		}
+		int handlersPerTask = Math.max(1, handlerList.size() / (pool.getParallelism() * TASKS_PER_THREAD));
+		List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+		for(int first = 0; first < handlerList.size(); first += handlersPerTask) {
+			int from = first, to = Math.min(first + handlersPerTask, handlerList.size());
+			tasks.add(pool.submit(() -> {
+				/* The failures are kept rather than rethrown from the task, as the pool
+				 * may rethrow a copy of an exception thrown on another thread. The rest
+				 * of the group is skipped, as the failure precedes them.
+				 */
+				for(int i = from; i < to; i++) {
+					values.beginBatch(created.get(i));
+					try {
+						handlerList.get(i).accept(context);
+					} catch(RuntimeException | Error e) {
+						failures[i] = e;
+						break;
+					} finally {
+						values.endBatch();
+					}
+				}
+			}));
+		}
+		for(ForkJoinTask<?> task : tasks) {
+			task.join();
+		}
+		for(Throwable failure : failures) {
+			if(failure instanceof RuntimeException) {
+				throw (RuntimeException)failure;
+			} else if(failure instanceof Error) {
+				throw (Error)failure;
+			}
+		}
+		values.renumber(firstId, created);
+	}
+}
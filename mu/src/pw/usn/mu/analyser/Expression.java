@@ -3,6 +3,7 @@ package pw.usn.mu.analyser;
 import pw.usn.mu.analyser.closure.ClosureContext;
 import pw.usn.mu.parser.ApplicationNode;
 import pw.usn.mu.parser.BindingNode;
+import pw.usn.mu.parser.ErrorNode;
 import pw.usn.mu.parser.FunctionNode;
 import pw.usn.mu.parser.IdentifierNode;
 import pw.usn.mu.parser.LiteralIntNode;
@@ -47,7 +48,7 @@ public abstract class Expression {
 	 * {@code this} the top-level context during closure lifting.
 	 */
 	public void liftClosures() {
-		liftClosures(null);
+		liftClosures(new ClosureContext());
 	}
 	
 	/**
@@ -92,6 +93,8 @@ public abstract class Expression {
 			return Sequence.analyse(context, (SequenceNode)node);
 		} else if(node instanceof SwitchNode) {
 			throw new AnalysisErrorException("Switch expressions are currently unsupported.", node.getLocation());
+		} else if(node instanceof ErrorNode) {
+			throw new AnalysisErrorException("Expression could not be parsed.", node.getLocation());
 		} else {
 			throw new RuntimeException("Unknown AST node type: " + node.getClass().getSimpleName());
 		}
@@ -1,12 +1,11 @@
 package pw.usn.mu.analyser;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import pw.usn.mu.analyser.closure.ClosureContext;
 import pw.usn.mu.analyser.closure.FunctionClosureContext;
 import pw.usn.mu.parser.FunctionNode;
-import pw.usn.mu.parser.IdentifierNode;
 import pw.usn.mu.tokenizer.Location;
 
 /**
@@ -28,7 +27,7 @@ public class Function extends Expression {
 		super(location);
 		this.argument = argument;
 		this.body = body;
-		this.closureContext = new HashMap<Value, Reference>();
+		this.closureContext = new LinkedHashMap<Value, Reference>();
 	}
 	
 	/**
@@ -50,6 +49,8 @@ public class Function extends Expression {
 	/**
 	 * Gets the closure context for this function. This maps local
 	 * closure values into references to values outside of this function.
+	 * The closure context is filled when the closures of the function are
+	 * lifted, with one entry for each free variable of the function.
 	 * @return The closure context for this function.
 	 */
 	public Map<Value, Reference> getClosureContext() {
@@ -60,9 +61,7 @@ public class Function extends Expression {
 	public void liftClosures(ClosureContext context) {
 		FunctionClosureContext functionContext = new FunctionClosureContext(this, context);
 		body.liftClosures(functionContext);
-		functionContext.getLocalClosure().forEach((v, l) -> {
-			closureContext.put(v, l.newReference(getLocation()));
-		});
+		closureContext.putAll(functionContext.liftFreeValues());
 	}
 
 	/**
@@ -74,22 +73,17 @@ public class Function extends Expression {
 	 * node} but with all identifiers resolved into references to values.
 	 */
 	public static Function analyse(ResolutionContext context, FunctionNode node) {
-		Value argument = new Value(node.getArgumentName());
+		Value argument = new Value(context.getValueTable(), node.getArgumentName());
 		
-		ResolutionContext functionContext = new ResolutionContext(context) {
-			@Override
-			public Expression resolve(IdentifierNode identifier) {
-				if(identifier.isUnqualified() &&
-						identifier.getName().equals(node.getArgumentName())) {
-					return argument.newReference(identifier.getLocation());
-				} else {
-					return super.resolve(identifier);
-				}
-			}
-		};
-		
-		return new Function(node.getLocation(),
-				argument,
-				Expression.analyse(functionContext, node.getBody()));
+		LocalResolutionContext functionContext = LocalResolutionContext.of(context);
+		functionContext.enterScope();
+		try {
+			functionContext.bind(argument);
+			return new Function(node.getLocation(),
+					argument,
+					Expression.analyse(functionContext, node.getBody()));
+		} finally {
+			functionContext.exitScope();
+		}
 	}
 }
@@ -0,0 +1,200 @@
+package pw.usn.mu.analyser;
+
+import java.util.Arrays;
+
+import pw.usn.mu.parser.IdentifierNode;
+import pw.usn.mu.tokenizer.NameTable;
+
+/**
+ * Represents the context in which the values bound by the functions and bindings of
+ * one definition are resolved. Rather than one context per scope, a single context
+ * holds a flat table of every value currently in scope, in which the innermost value
+ * bound to each name is found by hashing the id of the name in the {@link NameTable}.
+ * Resolving an unqualified identifier therefore takes constant time however deeply the
+ * scopes are nested; identifiers not bound in any scope are resolved in the context
+ * containing this one. The table only holds the names bound within the definition, so
+ * a context is cheap to create however many names the program has.<br>
+ * Scopes are entered and exited in a stack discipline by {@link
+ * LocalResolutionContext#enterScope()} and {@link LocalResolutionContext#exitScope()}.
+ * The references created by this context record the depth of the scope which bound
+ * their value, and the slot of the value within that scope.<br>
+ * A LocalResolutionContext holds the state of the definition being analysed, so it must
+ * only be used by one thread at a time.
+ */
+public class LocalResolutionContext extends ResolutionContext {
+	private static final int NOT_BOUND = -1;
+
+	/* An open-addressed hash table from each name bound so far to the index of the
+	 * innermost entry binding that name. Names are never removed from the table; a name
+	 * whose entries have all gone out of scope maps to NOT_BOUND.
+	 */
+	private int[] names, innermost;
+	private int nameCount;
+	/* The entries, in the order in which they were bound. Each entry records the entry
+	 * for the same name which it shadows.
+	 */
+	private Value[] entryValues;
+	private int[] entryShadowed, entryDepths, entrySlots;
+	private int entryCount;
+	/* For each scope entered, the index of its first entry.
+	 */
+	private int[] scopeStarts;
+	private int depth;
+
+	/**
+	 * Initializes a new LocalResolutionContext, with no scopes entered.
+	 * @param parentContext The context in which to resolve the identifiers which are not
+	 * bound in any scope of this context.
+	 */
+	public LocalResolutionContext(ResolutionContext parentContext) {
+		super(parentContext);
+		this.names = new int[16];
+		this.innermost = new int[16];
+		Arrays.fill(names, NameTable.NO_NAME);
+		Arrays.fill(innermost, NOT_BOUND);
+		this.entryValues = new Value[16];
+		this.entryShadowed = new int[16];
+		this.entryDepths = new int[16];
+		this.entrySlots = new int[16];
+		this.scopeStarts = new int[16];
+	}
+
+	/**
+	 * Gets a LocalResolutionContext in which to analyse an expression.
+	 * @param context The context in which the expression resides.
+	 * @return {@code context}, if it is already a LocalResolutionContext; otherwise, a new
+	 * LocalResolutionContext whose parent is {@code context}.
+	 */
+	public static LocalResolutionContext of(ResolutionContext context) {
+		if(context instanceof LocalResolutionContext) {
+			return (LocalResolutionContext)context;
+		} else {
+			return new LocalResolutionContext(context);
+		}
+	}
+
+	/**
+	 * Enters a new scope, nested within the current scope.
+	 */
+	public void enterScope() {
+		if(depth == scopeStarts.length) {
+			scopeStarts = Arrays.copyOf(scopeStarts, depth * 2);
+		}
+		scopeStarts[depth++] = entryCount;
+	}
+
+	/**
+	 * Exits the current scope. The values bound in the scope can no longer be resolved,
+	 * and the values which they shadowed can be resolved again.
+	 * @throws IllegalStateException when no scope has been entered.
+	 */
+	public void exitScope() {
+		if(depth == 0) {
+			throw new IllegalStateException("No scope has been entered.");
+		}
+		int start = scopeStarts[--depth];
+		while(entryCount > start) {
+			entryCount--;
+			innermost[find(entryValues[entryCount].getNameId())] = entryShadowed[entryCount];
+			entryValues[entryCount] = null;
+		}
+	}
+
+	/**
+	 * Gets the number of scopes which are currently entered.
+	 * @return The depth of the current scope, which is zero if no scope has been entered.
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Binds a value in the current scope, so that unqualified identifiers with the name of
+	 * the value resolve to it until the scope is exited. If a value with the same name is
+	 * already in scope, {@code value} shadows it.
+	 * @param value The value to bind. This must have a name.
+	 * @return The slot of {@code value} in the current scope.
+	 * @throws IllegalStateException when no scope has been entered.
+	 * @throws IllegalArgumentException when {@code value} has no name.
+	 */
+	public int bind(Value value) {
+		if(depth == 0) {
+			throw new IllegalStateException("No scope has been entered.");
+		}
+		int nameId = value.getNameId();
+		if(nameId == NameTable.NO_NAME) {
+			throw new IllegalArgumentException(String.format("The value %s has no name to bind.", value));
+		}
+		if(entryCount == entryValues.length) {
+			int length = entryCount * 2;
+			entryValues = Arrays.copyOf(entryValues, length);
+			entryShadowed = Arrays.copyOf(entryShadowed, length);
+			entryDepths = Arrays.copyOf(entryDepths, length);
+			entrySlots = Arrays.copyOf(entrySlots, length);
+		}
+		int index = find(nameId);
+		if(names[index] == NameTable.NO_NAME) {
+			if((nameCount + 1) * 2 > names.length) {
+				rehash();
+				index = find(nameId);
+			}
+			names[index] = nameId;
+			nameCount++;
+		}
+		int slot = entryCount - scopeStarts[depth - 1];
+		entryValues[entryCount] = value;
+		entryShadowed[entryCount] = innermost[index];
+		entryDepths[entryCount] = depth - 1;
+		entrySlots[entryCount] = slot;
+		innermost[index] = entryCount++;
+		return slot;
+	}
+	
+	/**
+	 * Finds the index in the hash table of a name.
+	 * @param nameId The id of the name to find.
+	 * @return The index holding {@code nameId}, or the empty index at which it would be
+	 * added if it is not in the table.
+	 */
+	private int find(int nameId) {
+		int mask = names.length - 1;
+		int hash = nameId * 0x9E3779B9;
+		int index = (hash ^ hash >>> 16) & mask;
+		while(names[index] != nameId && names[index] != NameTable.NO_NAME) {
+			index = (index + 1) & mask;
+		}
+		return index;
+	}
+	
+	/**
+	 * Doubles the size of the hash table.
+	 */
+	private void rehash() {
+		int[] oldNames = names, oldInnermost = innermost;
+		names = new int[oldNames.length * 2];
+		innermost = new int[oldNames.length * 2];
+		Arrays.fill(names, NameTable.NO_NAME);
+		Arrays.fill(innermost, NOT_BOUND);
+		for(int i = 0; i < oldNames.length; i++) {
+			if(oldNames[i] != NameTable.NO_NAME) {
+				int index = find(oldNames[i]);
+				names[index] = oldNames[i];
+				innermost[index] = oldInnermost[i];
+			}
+		}
+	}
+
+	@Override
+	public Expression resolve(IdentifierNode identifier) {
+		if(identifier.isUnqualified()) {
+			int entry = innermost[find(identifier.getNameId())];
+			if(entry != NOT_BOUND) {
+				return entryValues[entry].newReference(
+						identifier.getLocation(),
+						entryDepths[entry],
+						entrySlots[entry]);
+			}
+		}
+		return super.resolve(identifier);
+	}
+}
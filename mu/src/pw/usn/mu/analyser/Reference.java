@@ -7,10 +7,24 @@ import pw.usn.mu.parser.IdentifierNode;
 import pw.usn.mu.tokenizer.Location;
 
 /**
- * Represents a reference to a value in a mu program.
+ * Represents a reference to a value in a mu program. A reference to a value bound by a
+ * function or binding records the depth of the scope which bound the value, counting the
+ * outermost scope of a definition as zero, and the slot of the value within that scope,
+ * as resolved by a {@link LocalResolutionContext}.
  */
 public class Reference extends Expression {
+	/**
+	 * The scope depth and slot of a reference which was not resolved from a local scope,
+	 * such as a reference to a module value or built-in function.
+	 */
+	public static final int NOT_LOCAL = -1;
+	
 	private Value value;
+	private int scopeDepth, slot;
+	/* The neighbours of this reference in the list of references to its value, which is
+	 * maintained by Value.
+	 */
+	Reference previousReference, nextReference;
 	
 	/**
 	 * Initialize a new reference to a {@link Value}.
@@ -19,8 +33,22 @@ public class Reference extends Expression {
 	 * @param value The value to refer to.
 	 */
 	public Reference(Location location, Value value) {
+		this(location, value, NOT_LOCAL, NOT_LOCAL);
+	}
+	
+	/**
+	 * Initialize a new reference to a {@link Value} bound in a local scope.
+	 * @param location The original location, in a source, of the code that represents
+	 * this expression.
+	 * @param value The value to refer to.
+	 * @param scopeDepth The depth of the scope which binds {@code value}.
+	 * @param slot The slot of {@code value} in the scope which binds it.
+	 */
+	public Reference(Location location, Value value, int scopeDepth, int slot) {
 		super(location);
 		redirect(value);
+		this.scopeDepth = scopeDepth;
+		this.slot = slot;
 	}
 	
 	/**
@@ -41,6 +69,24 @@ public class Reference extends Expression {
 		return value;
 	}
 	
+	/**
+	 * Gets the depth of the scope which binds the value referred to by this reference.
+	 * @return The depth of the scope, where the outermost scope of a definition has the
+	 * depth zero, or {@link Reference#NOT_LOCAL} if the value is not bound in a local scope.
+	 */
+	public int getScopeDepth() {
+		return scopeDepth;
+	}
+	
+	/**
+	 * Gets the slot of the value referred to by this reference in the scope which binds it.
+	 * @return The index of the value among the values bound by its scope, or {@link
+	 * Reference#NOT_LOCAL} if the value is not bound in a local scope.
+	 */
+	public int getSlot() {
+		return slot;
+	}
+	
 	@Override
 	public void liftClosures(ClosureContext context) {
 		context.liftReference(this);
@@ -63,7 +109,9 @@ public class Reference extends Expression {
 	 * Redirects this {@link Reference} to refer to the given value. Calling
 	 * this method will remove the link between this reference and the value
 	 * referred to previously (if it exists) and create a link between this
-	 * reference and the newly referred-to value.
+	 * reference and the newly referred-to value. This takes constant time.<br>
+	 * The new value is not resolved from a scope, so the scope depth and slot of this
+	 * reference become {@link Reference#NOT_LOCAL}.
 	 * @param value The value to refer to.
 	 */
 	public void redirect(Value value) {
@@ -71,6 +119,8 @@ public class Reference extends Expression {
 			this.value.removeReference(this);
 		}
 		this.value = value;
+		this.scopeDepth = NOT_LOCAL;
+		this.slot = NOT_LOCAL;
 		this.value.addReference(this);
 	}
 	
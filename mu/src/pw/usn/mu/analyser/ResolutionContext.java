@@ -4,10 +4,13 @@ import pw.usn.mu.parser.IdentifierNode;
 
 /**
  * Represents a context in which values are bound to identifiers, and in which
- * the value to which an identifer refers can be resolved.
+ * the value to which an identifer refers can be resolved. The values bound in a
+ * context are created in the {@link ValueTable} of the context, which is shared with
+ * the context containing it.
  */
 public abstract class ResolutionContext {
 	protected ResolutionContext globalContext, parentContext;
+	protected ValueTable values;
 	
 	/**
 	 * Initializes a new ResolutionContext.
@@ -17,6 +20,26 @@ public abstract class ResolutionContext {
 	public ResolutionContext(ResolutionContext globalContext, ResolutionContext parentContext) {
 		this.globalContext = globalContext;
 		this.parentContext = parentContext;
+		if(parentContext != null) {
+			this.values = parentContext.values;
+		} else if(globalContext != null) {
+			this.values = globalContext.values;
+		} else {
+			this.values = new ValueTable();
+		}
+	}
+	
+	/**
+	 * Initializes a new ResolutionContext, whose values are created in the given table
+	 * rather than in the table of the context containing it.
+	 * @param globalContext The global context containing the program.
+	 * @param parentContext The context containing this context.
+	 * @param values The table in which to create the values bound in this context.
+	 */
+	protected ResolutionContext(ResolutionContext globalContext, ResolutionContext parentContext, ValueTable values) {
+		this.globalContext = globalContext;
+		this.parentContext = parentContext;
+		this.values = values;
 	}
 	
 	/**
@@ -34,6 +57,14 @@ public abstract class ResolutionContext {
 		this(null, null);
 	}
 	
+	/**
+	 * Gets the table in which the values bound in this context are created.
+	 * @return The value table of the program.
+	 */
+	public ValueTable getValueTable() {
+		return values;
+	}
+	
 	/**
 	 * Resolves an identifier in the current context to a reference to the value
 	 * to which {@code identifier} refers.
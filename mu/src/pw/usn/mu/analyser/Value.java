@@ -1,38 +1,73 @@
 package pw.usn.mu.analyser;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
-
 import pw.usn.mu.tokenizer.Location;
+import pw.usn.mu.tokenizer.NameTable;
 
 /**
  * Represents a value in a mu program. Note that this only represents the value
- * rather than containing the value itself.
+ * rather than containing the value itself.<br>
+ * Each value belongs to the {@link ValueTable} of the program being analysed, which gives
+ * it a dense id. Two values are equal only if they are the same value.<br>
+ * The references to a value are kept in a doubly linked list running through the
+ * {@link Reference}s themselves, so that a reference can be added, removed or redirected
+ * in constant time however many references the value has. References may be created to
+ * the same value from several threads at once.
  */
 public class Value {
-	private long id;
-	private static Random random = new Random();
+	private ValueTable table;
+	private int id;
 	private String name;
-	private List<Reference> references;
+	private int nameId;
+	private Reference firstReference;
+	private int referenceCount;
 	
 	/**
 	 * Initializes a new unique Value.
+	 * @param table The table of the values of the program, which gives this value its id.
 	 * @param name The original name of the value, as written in the source code.
 	 * If this parameter has the value {@code null}, then the value is assumed to be
 	 * a generated part of the program structure, rather than parsed from source code.
 	 */
-	public Value(String name) {
+	public Value(ValueTable table, String name) {
+		this.table = table;
 		this.name = name;
-		this.id = random.nextLong();
-		this.references = new ArrayList<Reference>();
+		this.nameId = name == null ? NameTable.NO_NAME : NameTable.intern(name);
+		this.id = table.register(this);
 	}
 
 	/**
 	 * Initializes a new unique Value.
+	 * @param table The table of the values of the program, which gives this value its id.
+	 */
+	public Value(ValueTable table) {
+		this(table, null);
+	}
+	
+	/**
+	 * Gets the table of the values of the program to which this value belongs.
+	 * @return The value table which gave this value its id.
+	 */
+	public ValueTable getValueTable() {
+		return table;
+	}
+	
+	/**
+	 * Gets the id of this value. When the definitions of a program are analysed in
+	 * parallel, the id may change until the analysis has finished, so it is not used as the
+	 * hash code of this value.
+	 * @return The index of this value in its {@link ValueTable}, which is less than the
+	 * {@link ValueTable#size() size} of the table.
 	 */
-	public Value() {
-		this(null);
+	public int getId() {
+		return id;
+	}
+	
+	/**
+	 * Sets the id of this value, when its table renumbers the values in it.
+	 * @param id The new id of this value.
+	 */
+	void setId(int id) {
+		this.id = id;
 	}
 	
 	/**
@@ -43,6 +78,15 @@ public class Value {
 		return name;
 	}
 	
+	/**
+	 * Gets the id of the original name of the value.
+	 * @return The id in the {@link NameTable} of the name returned by {@link
+	 * Value#getName()}, or {@link NameTable#NO_NAME} if this value has no name.
+	 */
+	public int getNameId() {
+		return nameId;
+	}
+	
 	/**
 	 * Creates a reference to this value.
 	 * @param location The original location, in a source, of the code that represents
@@ -50,17 +94,40 @@ public class Value {
 	 * @return A {@link Reference} which refers to this value.
 	 */
 	public Reference newReference(Location location) {
-		Reference reference = new Reference(location, this);
-		addReference(reference);
-		return reference;
+		return new Reference(location, this);
+	}
+	
+	/**
+	 * Creates a reference to this value, resolved from the scope which binds the value.
+	 * @param location The original location, in a source, of the code that represents
+	 * this reference.
+	 * @param scopeDepth The depth of the scope which binds this value.
+	 * @param slot The slot of this value in the scope which binds it.
+	 * @return A {@link Reference} which refers to this value.
+	 */
+	public Reference newReference(Location location, int scopeDepth, int slot) {
+		return new Reference(location, this, scopeDepth, slot);
 	}
 	
 	/**
 	 * Adds and tracks a reference to this {@link Value}.
-	 * @param reference The reference to track.
+	 * @param reference The reference to track. This must refer to this value, and must not
+	 * already be tracked.
+	 * @throws IllegalArgumentException when {@code reference} does not refer to this value,
+	 * or is already tracked.
 	 */
-	protected void addReference(Reference reference) {
-		references.add(reference);
+	protected synchronized void addReference(Reference reference) {
+		if(reference.getValue() != this) {
+			throw new IllegalArgumentException("The reference does not refer to this value.");
+		} else if(reference.previousReference != null || firstReference == reference) {
+			throw new IllegalArgumentException("The reference is already tracked by this value.");
+		}
+		reference.nextReference = firstReference;
+		if(firstReference != null) {
+			firstReference.previousReference = reference;
+		}
+		firstReference = reference;
+		referenceCount++;
 	}
 	
 	/**
@@ -68,30 +135,61 @@ public class Value {
 	 * This means that this {@link Value} will no longer track {@code reference} as a
 	 * reference to itself.
 	 * @param reference The reference to drop.
+	 * @throws IllegalArgumentException when {@code reference} is not tracked by this value.
 	 */
-	protected void removeReference(Reference reference) {
-		references.remove(reference);
+	protected synchronized void removeReference(Reference reference) {
+		if(reference.getValue() != this ||
+				(reference.previousReference == null && firstReference != reference)) {
+			throw new IllegalArgumentException("The reference is not tracked by this value.");
+		}
+		if(reference.previousReference == null) {
+			firstReference = reference.nextReference;
+		} else {
+			reference.previousReference.nextReference = reference.nextReference;
+		}
+		if(reference.nextReference != null) {
+			reference.nextReference.previousReference = reference.previousReference;
+		}
+		reference.previousReference = null;
+		reference.nextReference = null;
+		referenceCount--;
 	}
 	
 	/**
 	 * Gets the number of references to this value.
-	 * @return The number of references created that point to this value.
+	 * @return The number of references created that point to this value, and have not
+	 * since been redirected to another value.
+	 */
+	public synchronized int getReferenceCount() {
+		return referenceCount;
+	}
+	
+	/**
+	 * Redirects every reference to this value to refer to the given value instead, as if
+	 * {@link Reference#redirect(Value)} were called on each of them. This takes time
+	 * proportional to the number of references to this value. No references to either
+	 * value may be created or redirected by other threads while this method runs.
+	 * @param value The value to which to redirect the references.
 	 */
-	public int getReferenceCount() {
-		return references.size();
+	public void redirectReferences(Value value) {
+		if(value != this) {
+			while(firstReference != null) {
+				firstReference.redirect(value);
+			}
+		}
 	}
 	
 	@Override
 	public boolean equals(Object obj) {
-		return
-				obj != null &&
-				obj instanceof Value &&
-				((Value)obj).id == id;
+		return obj == this;
 	}
 	
 	@Override
 	public int hashCode() {
-		return (int)(id & -1);
+		/* The id is not used, as it can change when the table is renumbered while this
+		 * value is a key in a hash map.
+		 */
+		return System.identityHashCode(this);
 	}
 	
 	@Override
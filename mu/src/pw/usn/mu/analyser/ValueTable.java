@@ -0,0 +1,152 @@
+package pw.usn.mu.analyser;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Represents the table of every {@link Value} created during the analysis of one program.
+ * Each value is given an int id when it is created, and the ids are assigned densely from
+ * zero in the order in which the values are created, so that an analysis can keep its facts
+ * about values in arrays or {@link java.util.BitSet}s indexed by id, rather than in maps
+ * keyed by value. As the ids do not depend on anything but the order of creation, analysing
+ * the same program twice gives the same ids. Values created by several threads at once
+ * can be recorded in batches, and {@link ValueTable#renumber(int, List) renumbered} once
+ * they are all created, so that their ids do not depend on how the threads were
+ * scheduled.<br>
+ * Values may be created from several threads at once. Creating a value, and getting the
+ * value with an id, never lock. A value is stored in the table before it is given its id,
+ * but another thread may see the id counted in {@link ValueTable#size()} a moment before
+ * the value is stored; {@link ValueTable#get(int)} waits for the value in that case, rather
+ * than failing.
+ */
+public final class ValueTable {
+	private static final int SEGMENT_BITS = 10;
+	private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+	private static final int SEGMENT_COUNT = 1 << 16;
+	
+	private final AtomicReferenceArray<AtomicReferenceArray<Value>> segments;
+	private final AtomicInteger count, openBatches;
+	private final ThreadLocal<List<Value>> batch;
+	
+	/**
+	 * Initializes a new, empty ValueTable.
+	 */
+	public ValueTable() {
+		this.segments = new AtomicReferenceArray<AtomicReferenceArray<Value>>(SEGMENT_COUNT);
+		this.count = new AtomicInteger();
+		this.openBatches = new AtomicInteger();
+		this.batch = new ThreadLocal<List<Value>>();
+	}
+	
+	/**
+	 * Begins recording the values created by the current thread in a batch.
+	 * @param created The list to which to add each value created by the current thread,
+	 * in order, until {@link ValueTable#endBatch()} is called.
+	 */
+	void beginBatch(List<Value> created) {
+		openBatches.incrementAndGet();
+		batch.set(created);
+	}
+	
+	/**
+	 * Stops recording the values created by the current thread.
+	 */
+	void endBatch() {
+		batch.remove();
+		openBatches.decrementAndGet();
+	}
+	
+	/**
+	 * Gives new ids to the values recorded in batches, numbering them from {@code first} in
+	 * the order of the batches, and in the order in which they were created within each
+	 * batch. The ids are then the same as if the batches had been created one after
+	 * another on one thread. No values may be created while this runs.
+	 * @param first The first id to give, which is the number of values in the table before
+	 * the values in {@code batches} were created.
+	 * @param batches The batches of values to renumber.
+	 * @throws IllegalStateException when values were created after {@code first} which are
+	 * not in any of {@code batches}.
+	 */
+	void renumber(int first, List<List<Value>> batches) {
+		int total = 0;
+		for(List<Value> created : batches) {
+			total += created.size();
+		}
+		if(first + total != count.get()) {
+			throw new IllegalStateException(String.format(
+					"%d values were created outside of the batches being renumbered.",
+					count.get() - first - total));
+		}
+		int id = first;
+		for(List<Value> created : batches) {
+			for(Value value : created) {
+				value.setId(id);
+				segments.get(id >>> SEGMENT_BITS).set(id & (SEGMENT_SIZE - 1), value);
+				id++;
+			}
+		}
+	}
+	
+	/**
+	 * Assigns the next id to a value which is being created, and stores the value in the
+	 * table under that id.
+	 * @param value The value to add.
+	 * @return The id of {@code value}, which is only returned once {@code value} can be
+	 * got from the table with it.
+	 */
+	int register(Value value) {
+		int id = count.getAndIncrement();
+		if(id >>> SEGMENT_BITS >= SEGMENT_COUNT) {
+			throw new IllegalStateException("Too many values have been created.");
+		}
+		AtomicReferenceArray<Value> segment = segments.get(id >>> SEGMENT_BITS);
+		if(segment == null) {
+			segments.compareAndSet(id >>> SEGMENT_BITS, null, new AtomicReferenceArray<Value>(SEGMENT_SIZE));
+			segment = segments.get(id >>> SEGMENT_BITS);
+		}
+		segment.set(id & (SEGMENT_SIZE - 1), value);
+		/* The thread-local batch is only looked up while some thread is recording one.
+		 */
+		if(openBatches.get() != 0) {
+			List<Value> created = batch.get();
+			if(created != null) {
+				created.add(value);
+			}
+		}
+		return id;
+	}
+	
+	/**
+	 * Gets the value with the given id. If the id has been assigned, but the value is still
+	 * being stored by the thread creating it, this waits until the value is stored; that
+	 * thread stores it without locking, so the wait is short.
+	 * @param id The id of the value, as returned by {@link Value#getId()}.
+	 * @return The value with the id {@code id}.
+	 * @throws IllegalArgumentException when no value in this table has the id {@code id}.
+	 */
+	public Value get(int id) {
+		if(id < 0 || id >= count.get() || id >>> SEGMENT_BITS >= SEGMENT_COUNT) {
+			throw new IllegalArgumentException(String.format("%d is not the id of a value in this table.", id));
+		}
+		while(true) {
+			AtomicReferenceArray<Value> segment = segments.get(id >>> SEGMENT_BITS);
+			if(segment != null) {
+				Value value = segment.get(id & (SEGMENT_SIZE - 1));
+				if(value != null) {
+					return value;
+				}
+			}
+			Thread.yield();
+		}
+	}
+	
+	/**
+	 * Gets the number of values in the table. Every id is less than this number, so an
+	 * array of this length can hold a fact about every value created so far.
+	 * @return The number of values created so far.
+	 */
+	public int size() {
+		return count.get();
+	}
+}
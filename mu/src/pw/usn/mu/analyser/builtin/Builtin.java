@@ -1,6 +1,7 @@
 package pw.usn.mu.analyser.builtin;
 
 import pw.usn.mu.analyser.Value;
+import pw.usn.mu.analyser.ValueTable;
 
 /**
  * Represents the type of a built-in function.
@@ -10,11 +11,12 @@ public class Builtin extends Value {
 	
 	/**
 	 * Initializes a new Builtin with the given arity.
+	 * @param table The table of the values of the program.
 	 * @param name The name of the built-in function.
 	 * @param arity The arity of the built-in function represented.
 	 */
-	public Builtin(String name, int arity) {
-		super(name);
+	public Builtin(ValueTable table, String name, int arity) {
+		super(table, name);
 		this.arity = arity;
 	}
 	
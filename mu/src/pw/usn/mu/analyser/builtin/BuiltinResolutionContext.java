@@ -11,7 +11,7 @@ import pw.usn.mu.parser.IdentifierNode;
  * Represents the context from which built-in function identifiers can be resolved.
  */
 public class BuiltinResolutionContext extends ResolutionContext {
-	private Map<String, Builtin> builtins = new HashMap<String, Builtin>();
+	private Map<Integer, Builtin> builtins = new HashMap<Integer, Builtin>();
 	
 	/**
 	 * Initializes a new BuiltinResolutionContext.
@@ -45,23 +45,23 @@ public class BuiltinResolutionContext extends ResolutionContext {
 	 * @param builtin The built-in function to register.
 	 */
 	protected final void registerBuiltin(Builtin builtin) {
-		builtins.put(builtin.getName(), builtin);
+		builtins.put(builtin.getNameId(), builtin);
 	}
 	
 	/**
 	 * Registers the default built-in functions.
 	 */
 	protected void registerBuiltins() {
-		registerBuiltin(new Builtin("__add", 2));
-		registerBuiltin(new Builtin("__cons", 2));
+		registerBuiltin(new Builtin(values, "__add", 2));
+		registerBuiltin(new Builtin(values, "__cons", 2));
 	}
 	
 	@Override
 	public Expression resolve(IdentifierNode identifier) {
 		if(identifier.isUnqualified()) {
-			String name = identifier.getName();
-			if(builtins.containsKey(name)) {
-				return builtins.get(name).newReference(identifier.getLocation());
+			Builtin builtin = builtins.get(identifier.getNameId());
+			if(builtin != null) {
+				return builtin.newReference(identifier.getLocation());
 			}
 		}
 		return super.resolve(identifier);
@@ -1,16 +1,32 @@
 package pw.usn.mu.analyser.closure;
 
-import java.util.stream.Stream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+import pw.usn.mu.analyser.AnalysisErrorException;
 import pw.usn.mu.analyser.Reference;
 import pw.usn.mu.analyser.Value;
 
 /**
  * Represents a context in which free variables can be bound to
- * function closures during the lambda-lifting process.
+ * function closures during the lambda-lifting process.<br>
+ * The contexts used while lifting the closures of one definition share
+ * a numbering of the values bound in the definition. Values are numbered
+ * in the order in which their bindings are reached, so the values bound
+ * within a function are numbered after every value bound outside of it.
+ * A reference inside a function is therefore to a free variable of the
+ * function exactly when its value is numbered before the argument of the
+ * function, which lets each function keep its free variables as a {@link
+ * java.util.BitSet} of these numbers.<br>
+ * A context which is not a {@link FunctionClosureContext} is the top-level
+ * context of a definition, in which every locally bound value is in scope.
  */
-public abstract class ClosureContext {
+public class ClosureContext {
 	private ClosureContext enclosingScope;
+	private Map<Value, Integer> indices;
+	private List<Value> boundValues;
 	
 	/**
 	 * Initializes a new ClosureContext with the specified enclosing scope.
@@ -19,6 +35,13 @@ public abstract class ClosureContext {
 	 */
 	public ClosureContext(ClosureContext enclosingScope) {
 		this.enclosingScope = enclosingScope;
+		if(enclosingScope != null) {
+			this.indices = enclosingScope.indices;
+			this.boundValues = enclosingScope.boundValues;
+		} else {
+			this.indices = new HashMap<Value, Integer>();
+			this.boundValues = new ArrayList<Value>();
+		}
 	}
 	
 	/**
@@ -38,15 +61,59 @@ public abstract class ClosureContext {
 	}
 	
 	/**
-	 * Gets all values defined locally in this context.
-	 * @return A sequence of values defined locally in this context, down to the scope
-	 * of the function directly enclosing this context.
+	 * Numbers a value bound in the definition whose closures are being lifted. This
+	 * must be called when the binding of the value is reached, before any reference
+	 * to the value is lifted.
+	 * @param value The bound value.
+	 * @return The number given to {@code value}.
 	 */
-	public abstract Stream<Value> getLocalValues();
+	public int bind(Value value) {
+		int index = boundValues.size();
+		indices.put(value, index);
+		boundValues.add(value);
+		return index;
+	}
+	
+	/**
+	 * Gets the number given to a bound value by {@link ClosureContext#bind(Value)}.
+	 * @param reference The reference to the value.
+	 * @return The number of the value referred to by {@code reference}.
+	 * @throws AnalysisErrorException when the value has not been bound.
+	 */
+	protected int indexOf(Reference reference) {
+		Integer index = indices.get(reference.getValue());
+		if(index == null) {
+			throw new AnalysisErrorException(String.format("Unscoped value %s.", reference.getValue().getName()), reference.getLocation());
+		}
+		return index;
+	}
+	
+	/**
+	 * Gets the bound value with the given number.
+	 * @param index The number of the value.
+	 * @return The value given the number {@code index}.
+	 */
+	protected Value getBoundValue(int index) {
+		return boundValues.get(index);
+	}
 	
 	/**
-	 * Lifts a reference into a local scope where necessary.
+	 * Gets the number of values bound so far. Every value bound from now on is given
+	 * a number at least this number.
+	 * @return The number of values bound so far.
+	 */
+	protected int getBoundCount() {
+		return boundValues.size();
+	}
+	
+	/**
+	 * Lifts a reference into a local scope where necessary. At the top level of a
+	 * definition, this only checks that the value is in scope.
 	 * @param reference The reference to lift.
 	 */
-	public abstract void liftReference(Reference reference);
+	public void liftReference(Reference reference) {
+		if(!reference.isNonLocalReference()) {
+			indexOf(reference);
+		}
+	}
 }
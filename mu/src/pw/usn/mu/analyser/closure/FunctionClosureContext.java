@@ -1,34 +1,47 @@
 package pw.usn.mu.analyser.closure;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.stream.Stream;
 
-import pw.usn.mu.analyser.AnalysisErrorException;
 import pw.usn.mu.analyser.Function;
 import pw.usn.mu.analyser.Reference;
 import pw.usn.mu.analyser.Value;
 
 /**
  * Represents a context in which free variables can be bound to function
- * closures during the lambda-lifting process. This class also handles the
- * lifting of values from enclosing contexts into new ones by creating {@link
- * Lift}s which the relevant {@link Function} will turn into closure data.
+ * closures during the lambda-lifting process. While the body of the function
+ * is lifted, this context collects the references to its free variables, and
+ * the numbers of the free variables; see {@link ClosureContext}. Afterward,
+ * {@link FunctionClosureContext#liftFreeValues()} gives each free variable a
+ * value local to the function, and redirects the collected references to it.
+ * As the closure of a nested function is itself made of references to values
+ * in the enclosing function, each reference is collected by one function and
+ * redirected once, so lifting the closures of a definition takes time linear
+ * in its size.
  */
 public class FunctionClosureContext extends ClosureContext {
-	private Map<Value, Value> localClosure;
 	private Function function;
+	private int firstIndex;
+	private BitSet freeValues;
+	private List<Reference> freeReferences;
 	
 	/**
 	 * Initializes a new FunctionClosureContext with the specified enclosing scope.
+	 * This binds the argument of {@code function}.
 	 * @param function The function which maintains this {@link FunctionClosureContext}.
 	 * @param enclosingScope The scope in which this context exists, or {@code null}
 	 * to specify a top-level context.
 	 */
 	public FunctionClosureContext(Function function, ClosureContext enclosingScope) {
 		super(enclosingScope);
-		localClosure = new HashMap<Value, Value>();
 		this.function = function;
+		this.firstIndex = getBoundCount();
+		this.freeValues = new BitSet();
+		this.freeReferences = new ArrayList<Reference>();
+		bind(function.getArgument());
 	}
 	
 	/**
@@ -40,82 +53,59 @@ public class FunctionClosureContext extends ClosureContext {
 	}
 	
 	/**
-	 * Gets all lifted values in the local closure, where values in the enclosing
-	 * scope are mapped to lifted values local to the closure representing this
-	 * function.
-	 * @return The local closure of this function closure context.
+	 * Gets the free variables of the function found so far.
+	 * @return A set containing the number of each value which is referred to in the
+	 * function, but bound outside of it.
 	 */
-	public Map<Value, Value> getLocalClosure() {
-		return localClosure;
-	}
-	
-	@Override
-	public Stream<Value> getLocalValues() {
-		return Stream.of(function.getArgument());
+	public BitSet getFreeValues() {
+		return (BitSet)freeValues.clone();
 	}
 	
 	/**
-	 * Gets the function scope in which this context exists, or {@code null} if there
-	 * is no {@link FunctionClosureContext} in the scope hierarchy above this context.
-	 * @return The enclosing function scope of this {@link FunctionClosureContext}.
+	 * Lifts the free variables of the function into its closure. This must be called
+	 * once, after the closures in the body of the function have been lifted. Each free
+	 * variable is given a new value local to the function, to which the references to
+	 * the variable within the function are redirected. The closure maps each of these
+	 * local values to a new reference to the variable, which is lifted in the enclosing
+	 * scope in turn.
+	 * @return The closure of the function, in order of the numbers of the variables.
 	 */
-	private FunctionClosureContext getEnclosingFunctionScope() {
-		ClosureContext enclosingContext = getEnclosingScope();
-		while(!(enclosingContext instanceof FunctionClosureContext)) {
-			if(enclosingContext == null) {
-				/* Return null if we reach the top-level context before
-				 * finding a function closure context.
-				 */
-				return null;
-			}
-			enclosingContext = enclosingContext.getEnclosingScope();
+	public Map<Value, Reference> liftFreeValues() {
+		Value[] locals = new Value[freeValues.length()];
+		Map<Value, Reference> closure = new LinkedHashMap<Value, Reference>();
+		for(int i = freeValues.nextSetBit(0); i >= 0; i = freeValues.nextSetBit(i + 1)) {
+			Value value = getBoundValue(i);
+			locals[i] = new Value(value.getValueTable(), value.getName());
+			Reference reference = value.newReference(function.getLocation());
+			getEnclosingScope().liftReference(reference);
+			closure.put(locals[i], reference);
 		}
-		return (FunctionClosureContext)enclosingContext;
-	}
-	
-	public Value liftValue(Value value) {
-		if(localClosure.containsKey(value)) {
-			return localClosure.get(value);
-		} else {
-			ClosureContext enclosingScope = getEnclosingScope();
-			if(enclosingScope == null) {
-				throw new AnalysisErrorException(String.format("Unscoped value %s.", value.getName()), function.getLocation());
-			}
-			if(enclosingScope.getLocalValues().anyMatch(v -> v.equals(value))) {
-				/* Lift a value from the context directly enclosing this function. */
-				Value local = new Value(value.getName());
-				localClosure.put(value, local);
-				return local;
-			} else {
-				FunctionClosureContext enclosingFunctionScope = getEnclosingFunctionScope();
-				if(enclosingFunctionScope == null) {
-					throw new AnalysisErrorException(String.format("Unscoped value %s.", value.getName()), function.getLocation());
-				}
-				/* Lift a value that the enclosing context has already lifted. */
-				Value liftedValue = enclosingFunctionScope.liftValue(value);
-				Value local = new Value(liftedValue.getName());
-				localClosure.put(liftedValue, local);
-				return local;
-			}
+		for(Reference reference : freeReferences) {
+			reference.redirect(locals[indexOf(reference)]);
 		}
+		freeReferences.clear();
+		return closure;
 	}
-
+	
 	@Override
 	public void liftReference(Reference reference) {
 		if(reference.isNonLocalReference()) {
 			/* Do nothing - the reference refers to a value that is not
 			 * declared in a local scope, so we cannot close over it.
 			 */
-		} else if(reference.refersTo(function.getArgument())) {
-			/* Do nothing - we know this reference refers to a value
-			 * in local scope (ie. the value of this function's argument),
-			 * so we don't need to do anything else.
-			 */
 		} else {
-			/* This reference must refer to a value not local to the
-			 * scope of this function, so we need to lift it.
-			 */
-			reference.redirect(liftValue(reference.getValue()));
+			int index = indexOf(reference);
+			if(index >= firstIndex) {
+				/* Do nothing - the value is bound within this function,
+				 * so we don't need to do anything else.
+				 */
+			} else {
+				/* This reference must refer to a value not local to the
+				 * scope of this function, so we need to lift it.
+				 */
+				freeValues.set(index);
+				freeReferences.add(reference);
+			}
 		}
 	}
 }
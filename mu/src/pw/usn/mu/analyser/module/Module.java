@@ -1,35 +1,50 @@
 package pw.usn.mu.analyser.module;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
 import pw.usn.mu.analyser.AnalysisErrorException;
 import pw.usn.mu.analyser.Expression;
 import pw.usn.mu.analyser.ResolutionContext;
+import pw.usn.mu.analyser.ValueTable;
 import pw.usn.mu.analyser.closure.ClosureContext;
 import pw.usn.mu.parser.ModuleNode;
 import pw.usn.mu.tokenizer.Location;
+import pw.usn.mu.tokenizer.NameTable;
 
 /**
- * Represents a module in mu source code.
+ * Represents a module in mu source code. Submodules and declared values are keyed by the
+ * ids of their names in the {@link NameTable}. Definitions may be added to a module from
+ * several threads at once, such as when its definitions are analysed in parallel.
  */
 public class Module extends Expression {
-	private Map<String, Module> submodules;
-	private Map<String, ModuleValue> declaredValues;
+	private ValueTable values;
+	private Map<Integer, Module> submodules;
+	private Map<Integer, ModuleValue> declaredValues;
 	private Map<ModuleValue, Expression> definedValues;
 	
 	/**
 	 * Initializes a new Module.
 	 * @param location The original location, in a source, of the code that represents
 	 * this module.
+	 * @param values The table in which the values declared in this module are created.
 	 */
-	public Module(Location location) {
+	public Module(Location location, ValueTable values) {
 		super(location);
-		submodules = new HashMap<String, Module>();
-		declaredValues = new HashMap<String, ModuleValue>();
-		definedValues = new HashMap<ModuleValue, Expression>();
+		this.values = values;
+		submodules = new ConcurrentHashMap<Integer, Module>();
+		declaredValues = new ConcurrentHashMap<Integer, ModuleValue>();
+		definedValues = new ConcurrentHashMap<ModuleValue, Expression>();
+	}
+	
+	/**
+	 * Gets the table in which the values declared in this module are created.
+	 * @return The value table of the program containing this module.
+	 */
+	public ValueTable getValueTable() {
+		return values;
 	}
 	
 	/**
@@ -47,7 +62,7 @@ public class Module extends Expression {
 				throw new AnalysisErrorException(
 						String.format(
 								"Submodule %s already exists at %s.",
-								name,
+								NameTable.getName(name),
 								alreadyDefinedAt),
 						submodule.getLocation());
 			}
@@ -59,7 +74,7 @@ public class Module extends Expression {
 				throw new AnalysisErrorException(
 						String.format(
 								"Module cannot reclare identifier %s",
-								name),
+								NameTable.getName(name)),
 						module.getLocation());
 			}
 		});
@@ -86,7 +101,19 @@ public class Module extends Expression {
 	 * {@code name}; {@code false} otherwise.
 	 */
 	public boolean containsSubmodule(String name) {
-		return submodules.containsKey(name);
+		return containsSubmodule(NameTable.lookup(name));
+	}
+	
+	/**
+	 * Determines whether a submodule is contained within this {@link Module}
+	 * with the given name id.
+	 * @param nameId The id in the {@link NameTable} of the name of the submodule
+	 * to search for.
+	 * @return {@code true} if this module contains a submodule with the name
+	 * with id {@code nameId}; {@code false} otherwise.
+	 */
+	public boolean containsSubmodule(int nameId) {
+		return submodules.containsKey(nameId);
 	}
 	
 	/**
@@ -96,7 +123,18 @@ public class Module extends Expression {
 	 * this module; {@code false} otherwise.
 	 */
 	public boolean containsDeclaration(String name) {
-		return declaredValues.containsKey(name);
+		return containsDeclaration(NameTable.lookup(name));
+	}
+	
+	/**
+	 * Determines whether the identifier name with the given id is declared in this module.
+	 * @param nameId The id in the {@link NameTable} of the name of the identifier to
+	 * check for.
+	 * @return {@code true} if a value is declared with the name with id {@code nameId}
+	 * in this module; {@code false} otherwise.
+	 */
+	public boolean containsDeclaration(int nameId) {
+		return declaredValues.containsKey(nameId);
 	}
 	
 	/**
@@ -116,7 +154,17 @@ public class Module extends Expression {
 	 * name {@code name}.
 	 */
 	public Module getSubmodule(String name) {
-		return submodules.get(name);
+		return getSubmodule(NameTable.lookup(name));
+	}
+	
+	/**
+	 * Gets the submodule with the given name id within this {@link Module}.
+	 * @param nameId The id in the {@link NameTable} of the name of the submodule to get.
+	 * @return Returns the submodule within this module that is given the
+	 * name with id {@code nameId}.
+	 */
+	public Module getSubmodule(int nameId) {
+		return submodules.get(nameId);
 	}
 	
 	/**
@@ -129,8 +177,9 @@ public class Module extends Expression {
 	 * value with name {@code name}.
 	 */
 	public ModuleValue getValue(String name) {
-		if(declaredValues.containsKey(name)) {
-			return declaredValues.get(name);
+		ModuleValue value = declaredValues.get(NameTable.lookup(name));
+		if(value != null) {
+			return value;
 		} else {
 			throw new IllegalArgumentException(String.format(
 					"Module does not declare a value with an identifier name %s.",
@@ -138,6 +187,27 @@ public class Module extends Expression {
 		}
 	}
 	
+	/**
+	 * Gets the {@link ModuleValue} corresponding to the given identifier name id.
+	 * This method is only used during the initial analysis stage of
+	 * resolution of identifiers.
+	 * @param nameId The id in the {@link NameTable} of the name of the identifier
+	 * for which to get the value.
+	 * @return The value corresponding to the identifier with name id {@code nameId}.
+	 * @throws IllegalArgumentException when the module doesn't declare a
+	 * value with name id {@code nameId}.
+	 */
+	public ModuleValue getValue(int nameId) {
+		ModuleValue value = declaredValues.get(nameId);
+		if(value != null) {
+			return value;
+		} else {
+			throw new IllegalArgumentException(String.format(
+					"Module does not declare a value with an identifier name %s.",
+					NameTable.getName(nameId)));
+		}
+	}
+	
 	/**
 	 * Gets the {@link Expression} which {@code value} is defined as in this
 	 * module.
@@ -160,7 +230,7 @@ public class Module extends Expression {
 	 * @param submodule The module to add as a submodule.
 	 */
 	public void addSubmodule(String name, Module submodule) {
-		submodules.put(name, submodule);
+		submodules.put(NameTable.intern(name), submodule);
 	}
 	
 	/**
@@ -171,7 +241,7 @@ public class Module extends Expression {
 	 */
 	public ModuleValue addDeclaration(String name) {
 		ModuleValue value = new ModuleValue(name, this);
-		declaredValues.put(name, value);
+		declaredValues.put(value.getNameId(), value);
 		return value;
 	}
 	
@@ -188,7 +258,7 @@ public class Module extends Expression {
 	 * overload instead.
 	 */
 	public void addDefinition(ModuleValue value, Expression expression) {
-		if(declaredValues.containsValue(value)) {
+		if(declaredValues.get(value.getNameId()) == value) {
 			definedValues.put(value, expression);
 		} else {
 			throw new IllegalArgumentException(
@@ -226,19 +296,20 @@ public class Module extends Expression {
 	 * after initial analysis.
 	 * @param analyser The consumer which performs analyser-specific transformations on
 	 * each definition in a module.
+	 * @param values The table in which to create the values declared in this module.
 	 * @param node The node of the module to analyse.
 	 * @return A {@link Module} containing the structure of this module and submodules,
 	 * but lacking definitions of declared values.
 	 */
-	public static Module analyseInitial(Queue<Consumer<ResolutionContext>> handlers, Consumer<Expression> analyser, ModuleNode node) {
-		Module module = new Module(node.getLocation());
+	public static Module analyseInitial(Queue<Consumer<ResolutionContext>> handlers, Consumer<Expression> analyser, ValueTable values, ModuleNode node) {
+		Module module = new Module(node.getLocation(), values);
 		
 		String[] submodules = node.getSubmodules();
 		for(String submodule : submodules) {
 			module.addSubmodule(
 					submodule,
 					analyseInitial(
-							handlers, analyser,
+							handlers, analyser, values,
 							node.getSubmodule(submodule)));
 		}
 		
@@ -16,7 +16,7 @@ public class ModuleResolutionContext extends ResolutionContext {
 	 * @param rootModule The top-level module to use for resolution.
 	 */
 	public ModuleResolutionContext(Module rootModule) {
-		super(null, null);
+		super(null, null, rootModule.getValueTable());
 		this.globalContext = this;
 		this.rootModule = rootModule;
 	}
@@ -24,15 +24,15 @@ public class ModuleResolutionContext extends ResolutionContext {
 	@Override
 	public Expression resolve(IdentifierNode identifier) {
 		Module module = rootModule;
-		for(String moduleName : identifier.getModules()) {
+		for(int moduleName : identifier.getModuleIds()) {
 			if(module.containsSubmodule(moduleName)) {
 				module = module.getSubmodule(moduleName);
 			} else {
 				return super.resolve(identifier);
 			}
 		}
-		if(module.containsDeclaration(identifier.getName())) {
-			return module.getValue(identifier.getName()).newReference(identifier.getLocation());
+		if(module.containsDeclaration(identifier.getNameId())) {
+			return module.getValue(identifier.getNameId()).newReference(identifier.getLocation());
 		} else {
 			return super.resolve(identifier);
 		}
@@ -15,7 +15,7 @@ public class ModuleValue extends Value {
 	 * @param parent The module in which this value is defined.
 	 */
 	public ModuleValue(String name, Module parent) {
-		super(name);
+		super(parent.getValueTable(), name);
 		this.parent = parent;
 	}
 	
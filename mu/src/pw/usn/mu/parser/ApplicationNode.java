@@ -1,6 +1,7 @@
 package pw.usn.mu.parser;
 
 import pw.usn.mu.tokenizer.Location;
+import pw.usn.mu.tokenizer.TokenKind;
 
 /**
  * Represents the application of a function with a given argument.
@@ -48,7 +49,7 @@ public class ApplicationNode extends Node {
 	 */
 	public static Node parse(Parser parser) { 
 		Node left = Node.parseAtomic(parser);
-		while(parser.test(token -> token.isAtomicToken())) {
+		while(TokenKind.isAtomic(parser.nextKind())) {
 			Node right = Node.parseAtomic(parser);
 			left = new ApplicationNode(right.getLocation(), left, right);
 		}
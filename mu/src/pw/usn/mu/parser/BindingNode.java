@@ -3,6 +3,7 @@ package pw.usn.mu.parser;
 import pw.usn.mu.parser.binding.BindTupleNode;
 import pw.usn.mu.tokenizer.Location;
 import pw.usn.mu.tokenizer.SymbolTokenType;
+import pw.usn.mu.tokenizer.TokenKind;
 
 /**
  * Represents a binding, wherein a value is bound to a name.
@@ -61,30 +62,41 @@ public class BindingNode extends Node {
 	 * there may be zero bindings made, in which case nothing is bound to anything.
 	 */
 	public static Node parse(Parser parser) {
-		/* This bit here is an unbounded lookahead parser
-		 * it does this by cloning the parser enumerator state, which can be
-		 * returned to if there is no binding arrow (<-) after the potential binding target
-		 */
-		try {
-			/* this *might* be the structure of a binding so create a lookahead parser to 
-			 * tentatively step ahead */
-			Parser lookaheadParser = parser.copyState(); /* copy the parser state */
-			Node bindingStructure = BindTupleNode.parse(lookaheadParser);
-			/* OK, we've parsed the binding structure. Now let's see if there's a <- after it */
-			if(lookaheadParser.accept(token -> token.isSymbolToken(SymbolTokenType.BIND))) {
-				/* there is, so parse the binding */
-				Node value = Node.parse(lookaheadParser);
-				lookaheadParser.expect(token -> token.isSymbolToken(SymbolTokenType.SEPARATOR), "Expected semicolon to end binding.");
-				Node content = parse(lookaheadParser);
-				parser.fastForward(lookaheadParser); // bring the current parser up to the level of the look-ahead parser
-				return new BindingNode(bindingStructure.getLocation(), bindingStructure, value, content);
+		if(parser.isStackSafe()) {
+			return parser.getIterativeParser().parse(IterativeParser.BINDING);
+		} else if(isBinding(parser)) {
+			Node bindingStructure = BindTupleNode.parse(parser);
+			parser.require(TokenKind.symbol(SymbolTokenType.BIND), "Expected binding arrow after binding structure.");
+			Node value = Node.parse(parser);
+			parser.require(TokenKind.symbol(SymbolTokenType.SEPARATOR), "Expected semicolon to end binding.");
+			Node content = parse(parser);
+			return new BindingNode(bindingStructure.getLocation(), bindingStructure, value, content);
+		} else {
+			return Node.parse(parser);
+		}
+	}
+	
+	/**
+	 * Determines whether the next tokens are the structure of a binding followed by a
+	 * binding arrow (<-), without moving the parser. A binding structure is a list of
+	 * identifiers separated by commas and cons symbols, so whether there is a binding can
+	 * be decided by looking at the tokens up to the end of the structure, rather than by
+	 * parsing it and going back if it turns out not to be one.
+	 * @param parser The parser enumerator to use.
+	 * @return Whether the next tokens begin a binding.
+	 */
+	static boolean isBinding(Parser parser) {
+		int lookahead = 0;
+		while(parser.nextKind(lookahead) == TokenKind.IDENTIFIER) {
+			int kind = parser.nextKind(lookahead + 1);
+			if(kind == TokenKind.symbol(SymbolTokenType.BIND)) {
+				return true;
+			} else if(kind == TokenKind.symbol(SymbolTokenType.CONS) || kind == TokenKind.symbol(SymbolTokenType.COMMA)) {
+				lookahead += 2;
 			} else {
-				/* this looks like a valid binding but isn't so parse normally */
-				return Node.parse(parser);
+				return false;
 			}
-		} catch(ParserException e) {
-			/* not a binding structure so parse as normal */
-			return Node.parse(parser);
 		}
+		return false;
 	}
 }
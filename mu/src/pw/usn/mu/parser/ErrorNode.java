@@ -0,0 +1,31 @@
+package pw.usn.mu.parser;
+
+/**
+ * Represents an expression which could not be parsed, in a module parsed by a {@link
+ * Parser} which recovers from syntax errors. The node takes the place of the whole
+ * expression in which the error was found: the content of the innermost parentheses
+ * around the error, or otherwise the value of the definition containing it.<br>
+ * Error nodes have no {@link NodeKind}, so a module containing them cannot be stored in a
+ * {@link NodeArena}.
+ */
+public class ErrorNode extends Node {
+	private ParserException error;
+	
+	/**
+	 * Initializes a new ErrorNode for the given syntax error.
+	 * @param error The syntax error which the node takes the place of. The location of the
+	 * node is the location of the error.
+	 */
+	public ErrorNode(ParserException error) {
+		super(error.getLocation());
+		this.error = error;
+	}
+	
+	/**
+	 * Gets the syntax error which this node takes the place of.
+	 * @return The exception describing the error.
+	 */
+	public ParserException getError() {
+		return error;
+	}
+}
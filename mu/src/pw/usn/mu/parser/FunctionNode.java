@@ -1,11 +1,8 @@
 package pw.usn.mu.parser;
 
-import java.util.Stack;
-
-import pw.usn.mu.tokenizer.IdentifierToken;
 import pw.usn.mu.tokenizer.Location;
 import pw.usn.mu.tokenizer.SymbolTokenType;
-import pw.usn.mu.tokenizer.Token;
+import pw.usn.mu.tokenizer.TokenKind;
 
 /**
  * Represents a function which takes an argument and transforms it in some way.
@@ -50,39 +47,81 @@ public class FunctionNode extends Node {
 	 * @return An {@link FunctionNode}, as parsed from the current input.
 	 */
 	public static FunctionNode parse(Parser parser) {
-		Stack<String> arguments = new Stack<String>();
+		if(parser.isStackSafe()) {
+			return (FunctionNode)parser.getIterativeParser().parse(IterativeParser.FUNCTION);
+		}
 		Location functionLocation = parser.expect(
-				token -> token.isSymbolToken(SymbolTokenType.FUNCTION_DECLARE), 
+				TokenKind.symbol(SymbolTokenType.FUNCTION_DECLARE), 
 				"Expected beginning of function.");
-		if(parser.test(token -> token.isSymbolToken(SymbolTokenType.SWITCH_DECLARE))) {
-			Token switchExpressionToken = parser.current(2);
-			SwitchNode switchBody = SwitchNode.parse(parser);
-			Node switchBodyExpression = switchBody.getExpression();
-			if(switchBodyExpression instanceof IdentifierNode) {
-				IdentifierNode argumentName = (IdentifierNode)switchBodyExpression;
-				if(argumentName.isUnqualified()) {
-					return new FunctionNode(functionLocation, argumentName.getName(), switchBody);
-				} else {
-					throw new ParserException("Switch function argument must not be qualified.", switchExpressionToken);
-				}
+		if(parser.test(TokenKind.symbol(SymbolTokenType.SWITCH_DECLARE))) {
+			Location switchExpressionLocation = parser.currentLocation(2);
+			return createSwitchFunction(functionLocation, switchExpressionLocation, SwitchNode.parse(parser));
+		}
+		int start = parseArguments(parser);
+		return createFunction(parser, functionLocation, start, BindingNode.parse(parser));
+	}
+	
+	/**
+	 * Creates a function whose body is a switch on its argument, such as {@code (\ ? x
+	 * ...)}.
+	 * @param functionLocation The location of the function.
+	 * @param switchExpressionLocation The location of the expression of the switch.
+	 * @param switchBody The switch, whose expression must be the unqualified name of the
+	 * argument.
+	 * @return A {@link FunctionNode} whose body is {@code switchBody}.
+	 */
+	static FunctionNode createSwitchFunction(Location functionLocation, Location switchExpressionLocation, SwitchNode switchBody) {
+		Node switchBodyExpression = switchBody.getExpression();
+		if(switchBodyExpression instanceof IdentifierNode) {
+			IdentifierNode argumentName = (IdentifierNode)switchBodyExpression;
+			if(argumentName.isUnqualified()) {
+				return new FunctionNode(functionLocation, argumentName.getName(), switchBody);
 			} else {
-				throw new ParserException("Switch function argument must be a non-qualified identifier.", switchExpressionToken);
+				throw new ParserException("Switch function argument must not be qualified.", switchExpressionLocation);
 			}
+		} else {
+			throw new ParserException("Switch function argument must be a non-qualified identifier.", switchExpressionLocation);
 		}
+	}
+	
+	/**
+	 * Parses the argument names of a function, up to and including the forward arrow
+	 * before its body.
+	 * @param parser The parser enumerator to use.
+	 * @return The number of nodes on the node stack of the parser before the argument
+	 * names, which are left on the stack.
+	 */
+	static int parseArguments(Parser parser) {
+		/* The argument names are kept on the node stack of the parser until the body has
+		 * been parsed, as the functions are nested from the last argument outward.
+		 */
+		int start = parser.getNodeCount();
 		do {
-			Token argumentToken = parser.current(1);
 			IdentifierNode argumentName = IdentifierNode.parse(parser);
 			if(argumentName.isUnqualified()) {
-				arguments.push(argumentName.getName());
+				parser.pushNode(argumentName);
 			} else {
-				throw new ParserException("Function argument must not be qualified.", argumentToken);
+				throw new ParserException("Function argument must not be qualified.", argumentName.getLocation());
 			}
-		} while(parser.test(token -> token instanceof IdentifierToken));
-		parser.expect(token -> token.isSymbolToken(SymbolTokenType.FUNCTION_BEGIN), "Expected forward arrow at end of argument list.");
-		Node content = BindingNode.parse(parser);
-		FunctionNode function = new FunctionNode(functionLocation, arguments.pop(), content);
-		while(!arguments.empty()) {
-			function = new FunctionNode(functionLocation, arguments.pop(), function);
+		} while(parser.test(TokenKind.IDENTIFIER));
+		parser.require(TokenKind.symbol(SymbolTokenType.FUNCTION_BEGIN), "Expected forward arrow at end of argument list.");
+		return start;
+	}
+	
+	/**
+	 * Creates the nested functions taking the argument names parsed by {@link
+	 * FunctionNode#parseArguments(Parser)}, once their body has been parsed.
+	 * @param parser The parser enumerator to use.
+	 * @param functionLocation The location of the function.
+	 * @param start The number of nodes on the node stack of the parser before the argument
+	 * names.
+	 * @param content The body of the innermost function.
+	 * @return The outermost {@link FunctionNode}, taking the first argument.
+	 */
+	static FunctionNode createFunction(Parser parser, Location functionLocation, int start, Node content) {
+		FunctionNode function = new FunctionNode(functionLocation, ((IdentifierNode)parser.popNode()).getName(), content);
+		while(parser.getNodeCount() > start) {
+			function = new FunctionNode(functionLocation, ((IdentifierNode)parser.popNode()).getName(), function);
 		}
 		return function;
 	}
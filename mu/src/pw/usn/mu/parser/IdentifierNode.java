@@ -1,23 +1,29 @@
 package pw.usn.mu.parser;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.regex.Pattern;
 
-import pw.usn.mu.tokenizer.IdentifierToken;
 import pw.usn.mu.tokenizer.Location;
+import pw.usn.mu.tokenizer.NameTable;
 import pw.usn.mu.tokenizer.SymbolTokenType;
+import pw.usn.mu.tokenizer.TokenKind;
 
 /**
- * Represents an (optionally qualified) identifier in mu source code.
+ * Represents an (optionally qualified) identifier in mu source code. The components of the
+ * identifier are stored as their ids in the {@link NameTable}, so identifiers are compared
+ * and hashed without comparing or hashing strings. The modules qualifying the identifier
+ * are interned in the {@link PathTable}, so every identifier with the same qualifiers
+ * shares one array, and two identifiers are equal when their name ids are equal and their
+ * paths are the same array.
  */
 public class IdentifierNode extends Node {
 	/**
 	 * The symbol used to qualify identifiers with module names.
 	 */
 	public static final String QUALIFIER_SYMBOL = ".";
-	private String[] modules;
-	private String name;
+	private static final Pattern QUALIFIER_PATTERN = Pattern.compile(Pattern.quote(QUALIFIER_SYMBOL));
+	private int[] modules;
+	private int name;
 	
 	/**
 	 * @param location The location of the AST node in a parsed input source.
@@ -37,9 +43,46 @@ public class IdentifierNode extends Node {
 		if(names.length == 0) {
 			throw new IllegalArgumentException("Must specify at least one component of identifier.");
 		} else {
-			modules = new String[names.length - 1];
-			System.arraycopy(names, 0, modules, 0, modules.length);
-			name = names[modules.length];
+			modules = PathTable.intern(Arrays.copyOf(names, names.length - 1));
+			name = NameTable.intern(names[names.length - 1]);
+		}
+	}
+	
+	/**
+	 * @param location The location of the AST node in a parsed input source.
+	 * @param modules The ids of the qualifying modules of the identifier, which the node
+	 * takes ownership of. This array is interned in the {@link PathTable}, so it must not be
+	 * modified afterward.
+	 * @param name The id of the name of the identifier.
+	 */
+	IdentifierNode(Location location, int[] modules, int name) {
+		this(location);
+		this.modules = PathTable.intern(modules);
+		this.name = name;
+	}
+	
+	/**
+	 * Initializes a new unqualified IdentifierNode with the specified name id.
+	 * @param location The location of the AST node in a parsed input source.
+	 * @param nameId The id in the {@link NameTable} of the name of the identifier.
+	 */
+	public IdentifierNode(Location location, int nameId) {
+		this(location, PathTable.EMPTY, nameId);
+	}
+	
+	/**
+	 * Initializes a new IdentifierNode with the specified identifier component ids.
+	 * @param location The location of the AST node in a parsed input source.
+	 * @param nameIds The ids in the {@link NameTable} of the components comprising this
+	 * identifier.
+	 */
+	public IdentifierNode(Location location, int... nameIds) {
+		this(location);
+		if(nameIds.length == 0) {
+			throw new IllegalArgumentException("Must specify at least one component of identifier.");
+		} else {
+			modules = PathTable.intern(Arrays.copyOf(nameIds, nameIds.length - 1));
+			name = nameIds[modules.length];
 		}
 	}
 	
@@ -50,7 +93,9 @@ public class IdentifierNode extends Node {
 	 * code, representing this identifier.
 	 */
 	public IdentifierNode(Location location, String identifier) {
-		this(location, identifier.split(Pattern.quote(QUALIFIER_SYMBOL)));
+		this(location, identifier.contains(QUALIFIER_SYMBOL) ?
+				QUALIFIER_PATTERN.split(identifier) :
+				new String[] { identifier });
 	}
 	
 	/**
@@ -62,8 +107,7 @@ public class IdentifierNode extends Node {
 		if(isUnqualified()) {
 			IdentifierNode tailIdentifier = new IdentifierNode(getLocation());
 			tailIdentifier.name = name;
-			tailIdentifier.modules = new String[modules.length - 1];
-			System.arraycopy(modules, 1, tailIdentifier.modules, 0, tailIdentifier.modules.length);
+			tailIdentifier.modules = PathTable.intern(Arrays.copyOfRange(modules, 1, modules.length));
 			return tailIdentifier;
 		} else {
 			throw new IllegalStateException("Cannot get the tail of an unqualified identifier.");
@@ -76,6 +120,15 @@ public class IdentifierNode extends Node {
 	 * Otherwise, the first module is returned.
 	 */
 	public String head() {
+		return NameTable.getName(headId());
+	}
+	
+	/**
+	 * Gets the id of the first component of this identifier.
+	 * @return The id in the {@link NameTable} of the component returned by {@link
+	 * IdentifierNode#head()}.
+	 */
+	public int headId() {
 		if(isUnqualified()) {
 			return name;
 		} else {
@@ -93,12 +146,13 @@ public class IdentifierNode extends Node {
 	 */
 	public IdentifierNode qualify(IdentifierNode qualifyingIdentifier) {
 		IdentifierNode newIdentifier = new IdentifierNode(getLocation());
-		newIdentifier.modules = new String[qualifyingIdentifier.modules.length + 1 + modules.length];
+		int[] newModules = new int[qualifyingIdentifier.modules.length + 1 + modules.length];
 		
-		System.arraycopy(qualifyingIdentifier.modules, 0, newIdentifier.modules, 0, qualifyingIdentifier.modules.length);
-		newIdentifier.modules[qualifyingIdentifier.modules.length] = qualifyingIdentifier.name;
-		System.arraycopy(modules, 0, newIdentifier.modules, qualifyingIdentifier.modules.length + 1, modules.length);
+		System.arraycopy(qualifyingIdentifier.modules, 0, newModules, 0, qualifyingIdentifier.modules.length);
+		newModules[qualifyingIdentifier.modules.length] = qualifyingIdentifier.name;
+		System.arraycopy(modules, 0, newModules, qualifyingIdentifier.modules.length + 1, modules.length);
 		
+		newIdentifier.modules = PathTable.intern(newModules);
 		newIdentifier.name = name;
 		
 		return newIdentifier;
@@ -111,6 +165,20 @@ public class IdentifierNode extends Node {
 	 * an array {@code ["mu", "test"]}.
 	 */
 	public String[] getModules() {
+		String[] moduleNames = new String[modules.length];
+		for(int i = 0; i < modules.length; i++) {
+			moduleNames[i] = NameTable.getName(modules[i]);
+		}
+		return moduleNames;
+	}
+	
+	/**
+	 * Gets the ids of the modules qualifying this identifier.
+	 * @return An array of the ids in the {@link NameTable} of the nested module names
+	 * qualifying this identifier. This array is shared through the {@link PathTable}, so
+	 * it must not be modified.
+	 */
+	public int[] getModuleIds() {
 		return modules;
 	}
 	
@@ -130,6 +198,15 @@ public class IdentifierNode extends Node {
 	 * a string {@code "func"}.
 	 */
 	public String getName() {
+		return NameTable.getName(name);
+	}
+	
+	/**
+	 * Gets the id of the name of this identifier.
+	 * @return The id in the {@link NameTable} of the name returned by {@link
+	 * IdentifierNode#getName()}.
+	 */
+	public int getNameId() {
 		return name;
 	}
 	
@@ -139,63 +216,55 @@ public class IdentifierNode extends Node {
 	 * @return An identifier, as parsed from the current input.
 	 */
 	public static IdentifierNode parse(Parser parser) {
-		List<String> identifierParts = new ArrayList<String>();
-		Location identifierLocation = null;
-		do {
-			Location identifierPartLocation = parser.expect(token -> token instanceof IdentifierToken, "Identifier expected.");
-			if(identifierLocation == null) {
-				/* The reported location of the identifier is the location of the first
-				 * token of the identifier.
-				 */
-				identifierLocation = identifierPartLocation;
+		/* The reported location of the identifier is the location of the first token of
+		 * the identifier.
+		 */
+		Location identifierLocation = parser.expect(TokenKind.IDENTIFIER, "Identifier expected.");
+		int firstPart = parser.currentNameId();
+		if(!parser.test(TokenKind.symbol(SymbolTokenType.NAMESPACE_QUALIFIER))) {
+			return new IdentifierNode(identifierLocation, PathTable.EMPTY, firstPart);
+		} else {
+			/* Count the qualifiers ahead, so the array of module names can be created with
+			 * the right length.
+			 */
+			int qualifierCount = 1;
+			while(parser.test(TokenKind.symbol(SymbolTokenType.NAMESPACE_QUALIFIER), qualifierCount * 2)) {
+				qualifierCount++;
 			}
-			identifierParts.add(((IdentifierToken)parser.current()).getIdentifier());
-		} while(parser.accept(token -> token.isSymbolToken(SymbolTokenType.NAMESPACE_QUALIFIER)));
-		String[] partsArray = new String[identifierParts.size()];
-		identifierParts.toArray(partsArray);
-		return new IdentifierNode(identifierLocation, partsArray);
+			int[] modules = new int[qualifierCount];
+			modules[0] = firstPart;
+			for(int i = 1; i < qualifierCount; i++) {
+				parser.next();
+				parser.require(TokenKind.IDENTIFIER, "Identifier expected.");
+				modules[i] = parser.currentNameId();
+			}
+			parser.next();
+			parser.require(TokenKind.IDENTIFIER, "Identifier expected.");
+			return new IdentifierNode(identifierLocation, modules, parser.currentNameId());
+		}
 	}
 	
 	@Override
 	public String toString() {
 		StringBuilder builder = new StringBuilder();
-		for(String module : modules) {
-			builder.append(module);
+		for(int module : modules) {
+			builder.append(NameTable.getName(module));
 			builder.append(QUALIFIER_SYMBOL);
 		}
-		builder.append(name);
+		builder.append(NameTable.getName(name));
 		return builder.toString();
 	}
 	
 	@Override
 	public int hashCode() {
-		int hashCode = 0x633c0b24, prevHashCode = 0x6902a10c;
-		for(int i = 0; i < modules.length; i++) {
-			int currentHashCode = modules[i].hashCode();
-			hashCode ^= currentHashCode ^ (prevHashCode << ((i + currentHashCode % 8) % 3));
-			prevHashCode = currentHashCode;
-		}
-		int currentHashCode = name.hashCode();
-		hashCode ^= currentHashCode + modules.length ^ (prevHashCode);
-		return hashCode;
+		return Arrays.hashCode(modules) * 31 + name;
 	}
 	
 	@Override
 	public boolean equals(Object obj) {
 		if(obj != null && obj instanceof IdentifierNode) {
 			IdentifierNode identifier = (IdentifierNode)obj;
-			if(!identifier.name.equals(this.name)) {
-				return false;
-			}
-			if(identifier.modules.length != this.modules.length) {
-				return false;
-			}
-			for(int i = 0; i < this.modules.length; i++) {
-				if(!this.modules[i].equals(identifier.modules[i])) {
-					return false;
-				}
-			}
-			return true;
+			return identifier.name == this.name && identifier.modules == this.modules;
 		}
 		return false;
 	}
@@ -0,0 +1,555 @@
+package pw.usn.mu.parser;
+
+import java.util.Arrays;
+
+import pw.usn.mu.parser.binding.BindTupleNode;
+import pw.usn.mu.tokenizer.Location;
+import pw.usn.mu.tokenizer.SymbolTokenType;
+import pw.usn.mu.tokenizer.TokenKind;
+
+/**
+ * Parses expressions with an explicit stack of frames, rather than by recursion, for a
+ * {@link Parser} which is {@link Parser#setStackSafe(boolean) stack-safe}. Each parsing
+ * method of the node classes which may parse a nested expression has a state here for
+ * its start, and one for each point at which it continues after a nested expression has
+ * been parsed. Calling a nested method pushes a frame onto the stack, and returning from
+ * it pops the frame and leaves the result in {@link IterativeParser#result}; a call at
+ * the end of a method, such as from an operand to an application, replaces the frame
+ * instead.<br>
+ * The tokens are read in the same order, and the same nodes and errors are produced, as
+ * by the recursive methods. As with those methods, the nodes which a method is holding
+ * while a nested expression is parsed are kept on the node stack of the parser.
+ */
+final class IterativeParser {
+	/**
+	 * The state starting {@link Node#parse(Parser)}.
+	 */
+	static final int EXPRESSION = 0;
+	/**
+	 * The state starting {@link Node#parseTight(Parser)}.
+	 */
+	static final int OPERATION = 1;
+	/**
+	 * The state starting {@link Node#parseAtomic(Parser)}.
+	 */
+	static final int ATOMIC = 2;
+	/**
+	 * The state starting {@link FunctionNode#parse(Parser)}.
+	 */
+	static final int FUNCTION = 3;
+	/**
+	 * The state starting {@link BindingNode#parse(Parser)}.
+	 */
+	static final int BINDING = 4;
+	/**
+	 * The state starting {@link SwitchNode#parse(Parser)}.
+	 */
+	static final int SWITCH = 5;
+
+	private static final int EXPRESSION_FIRST = 6;
+	private static final int EXPRESSION_NEXT = 7;
+	private static final int OPERATION_LEFT = 8;
+	private static final int OPERATION_RIGHT = 9;
+	private static final int RIGHT_ASSOCIATIVE = 10;
+	private static final int RIGHT_ASSOCIATIVE_OPERAND = 11;
+	private static final int OPERAND = 12;
+	private static final int OPERAND_PREFIXED = 13;
+	private static final int APPLICATION = 14;
+	private static final int APPLICATION_FIRST = 15;
+	private static final int APPLICATION_NEXT = 16;
+	private static final int ATOMIC_PARENTHESIZED = 17;
+	private static final int SEQUENCE = 18;
+	private static final int SEQUENCE_NEXT = 19;
+	private static final int FUNCTION_SWITCH = 20;
+	private static final int FUNCTION_BODY = 21;
+	private static final int BINDING_VALUE = 22;
+	private static final int BINDING_CONTENT = 23;
+	private static final int SWITCH_INPUT = 24;
+	private static final int SWITCH_BRANCH = 25;
+	private static final int BRANCH = 26;
+	private static final int BRANCH_PATTERN = 27;
+	private static final int BRANCH_CONDITION = 28;
+	private static final int BRANCH_RESULT = 29;
+	private static final int BRANCH_CONDITIONAL_RESULT = 30;
+
+	private Parser parser;
+	private OperatorTable operators;
+	private int[] states;
+	private int[] values;
+	private int[] starts;
+	private Location[] locations;
+	private Location[] otherLocations;
+	private int depth;
+	private Node result;
+
+	/**
+	 * Initializes a new IterativeParser.
+	 * @param parser The parser enumerator to use.
+	 */
+	public IterativeParser(Parser parser) {
+		this.parser = parser;
+		this.operators = parser.getOperators();
+		this.states = new int[32];
+		this.values = new int[32];
+		this.starts = new int[32];
+		this.locations = new Location[32];
+		this.otherLocations = new Location[32];
+		this.depth = 0;
+	}
+
+	/**
+	 * Parses an expression from the current input.
+	 * @param state The state with which to start, which is one of {@link
+	 * IterativeParser#EXPRESSION}, {@link IterativeParser#OPERATION}, {@link
+	 * IterativeParser#ATOMIC}, {@link IterativeParser#FUNCTION}, {@link
+	 * IterativeParser#BINDING} and {@link IterativeParser#SWITCH}.
+	 * @return An AST node, as parsed from the current input.
+	 */
+	public Node parse(int state) {
+		int base = depth;
+		try {
+			call(state, 1);
+			while(depth > base) {
+				try {
+					step(depth - 1);
+				} catch(ParserException e) {
+					if(!recover(base, e)) {
+						throw e;
+					}
+				}
+			}
+			Node parsed = result;
+			result = null;
+			return parsed;
+		} finally {
+			/* If the input could not be parsed, the frames of the methods which were being
+			 * parsed are abandoned.
+			 */
+			if(depth > base) {
+				Arrays.fill(locations, base, depth, null);
+				Arrays.fill(otherLocations, base, depth, null);
+				depth = base;
+			}
+		}
+	}
+
+	/**
+	 * Pushes a frame for a nested method onto the stack.
+	 * @param state The state starting the method.
+	 * @param value The minimum precedence, if the method is {@link
+	 * IterativeParser#OPERATION}.
+	 */
+	private void call(int state, int value) {
+		if(depth == states.length) {
+			int capacity = depth * 2;
+			states = Arrays.copyOf(states, capacity);
+			values = Arrays.copyOf(values, capacity);
+			starts = Arrays.copyOf(starts, capacity);
+			locations = Arrays.copyOf(locations, capacity);
+			otherLocations = Arrays.copyOf(otherLocations, capacity);
+		}
+		states[depth] = state;
+		values[depth] = value;
+		depth++;
+	}
+
+	/**
+	 * Pushes a frame for a nested method onto the stack.
+	 * @param state The state starting the method.
+	 */
+	private void call(int state) {
+		call(state, 0);
+	}
+
+	/**
+	 * Pops the top frame off the stack, returning a node to the frame below it.
+	 * @param node The node parsed by the method of the top frame.
+	 */
+	private void complete(Node node) {
+		depth--;
+		locations[depth] = null;
+		otherLocations[depth] = null;
+		result = node;
+	}
+
+	/**
+	 * Runs the method of a frame until it calls a nested method or completes.
+	 * @param top The index of the top frame.
+	 */
+	private void step(int top) {
+		switch(states[top]) {
+		/* TupleNode#parse(Parser)
+		 */
+		case EXPRESSION:
+			states[top] = EXPRESSION_FIRST;
+			call(OPERATION, 1);
+			break;
+		case EXPRESSION_FIRST:
+			if(!parser.test(TokenKind.symbol(SymbolTokenType.COMMA))) {
+				complete(result);
+			} else {
+				starts[top] = parser.getNodeCount();
+				parser.pushNode(result);
+				continueTuple(top);
+			}
+			break;
+		case EXPRESSION_NEXT:
+			parser.pushNode(result);
+			continueTuple(top);
+			break;
+
+		/* Node#parseOperation(Parser, int)
+		 */
+		case OPERATION:
+			states[top] = OPERATION_LEFT;
+			call(OPERAND);
+			break;
+		case OPERATION_LEFT:
+			continueOperation(top, result);
+			break;
+		case OPERATION_RIGHT:
+			Node operator = parser.popNode();
+			Node left = parser.popNode();
+			continueOperation(top, Node.createOperationApplication(operator, left, result));
+			break;
+
+		/* Node#parseRightAssociative(Parser, Node, int)
+		 */
+		case RIGHT_ASSOCIATIVE:
+			continueRightAssociative(top);
+			break;
+		case RIGHT_ASSOCIATIVE_OPERAND:
+			parser.pushNode(result);
+			continueRightAssociative(top);
+			break;
+
+		/* Node#parseOperand(Parser)
+		 */
+		case OPERAND:
+			int prefixKind = parser.nextKind();
+			if(operators.isPrefix(prefixKind)) {
+				parser.next();
+				parser.pushNode(Node.createOperator(parser, prefixKind));
+				states[top] = OPERAND_PREFIXED;
+				call(OPERAND);
+			} else {
+				states[top] = APPLICATION;
+			}
+			break;
+		case OPERAND_PREFIXED:
+			complete(Node.createOperationApplication(parser.popNode(), result));
+			break;
+
+		/* ApplicationNode#parse(Parser)
+		 */
+		case APPLICATION:
+			states[top] = APPLICATION_FIRST;
+			call(ATOMIC);
+			break;
+		case APPLICATION_FIRST:
+			continueApplication(top, result);
+			break;
+		case APPLICATION_NEXT:
+			Node function = parser.popNode();
+			continueApplication(top, new ApplicationNode(result.getLocation(), function, result));
+			break;
+
+		/* Node#parseAtomic(Parser)
+		 */
+		case ATOMIC:
+			startAtomic(top);
+			break;
+		case ATOMIC_PARENTHESIZED:
+			parser.require(TokenKind.symbol(SymbolTokenType.PAREN_CLOSE), "Closing parenthesis expected.");
+			complete(result);
+			break;
+
+		/* SequenceNode#parse(Parser)
+		 */
+		case SEQUENCE:
+			locations[top] = parser.expect(TokenKind.symbol(SymbolTokenType.SEQUENCE_OPEN), "Expected start of sequence.");
+			if(parser.accept(TokenKind.symbol(SymbolTokenType.SEQUENCE_CLOSE))) {
+				complete(new SequenceNode(locations[top]));
+			} else {
+				starts[top] = parser.getNodeCount();
+				states[top] = SEQUENCE_NEXT;
+				call(OPERATION, 1);
+			}
+			break;
+		case SEQUENCE_NEXT:
+			parser.pushNode(result);
+			if(parser.accept(TokenKind.symbol(SymbolTokenType.COMMA))) {
+				call(OPERATION, 1);
+			} else {
+				parser.require(TokenKind.symbol(SymbolTokenType.SEQUENCE_CLOSE), "Expected end of sequence.");
+				Node[] expressionsArray = parser.popNodes(starts[top], Node[]::new);
+				complete(new SequenceNode(locations[top], expressionsArray));
+			}
+			break;
+
+		/* FunctionNode#parse(Parser)
+		 */
+		case FUNCTION:
+			locations[top] = parser.expect(
+					TokenKind.symbol(SymbolTokenType.FUNCTION_DECLARE),
+					"Expected beginning of function.");
+			if(parser.test(TokenKind.symbol(SymbolTokenType.SWITCH_DECLARE))) {
+				otherLocations[top] = parser.currentLocation(2);
+				states[top] = FUNCTION_SWITCH;
+				call(SWITCH);
+			} else {
+				starts[top] = FunctionNode.parseArguments(parser);
+				states[top] = FUNCTION_BODY;
+				call(BINDING);
+			}
+			break;
+		case FUNCTION_SWITCH:
+			complete(FunctionNode.createSwitchFunction(locations[top], otherLocations[top], (SwitchNode)result));
+			break;
+		case FUNCTION_BODY:
+			complete(FunctionNode.createFunction(parser, locations[top], starts[top], result));
+			break;
+
+		/* BindingNode#parse(Parser)
+		 */
+		case BINDING:
+			if(BindingNode.isBinding(parser)) {
+				Node structure = BindTupleNode.parse(parser);
+				parser.require(TokenKind.symbol(SymbolTokenType.BIND), "Expected binding arrow after binding structure.");
+				parser.pushNode(structure);
+				states[top] = BINDING_VALUE;
+				call(EXPRESSION);
+			} else {
+				states[top] = EXPRESSION;
+			}
+			break;
+		case BINDING_VALUE:
+			parser.require(TokenKind.symbol(SymbolTokenType.SEPARATOR), "Expected semicolon to end binding.");
+			parser.pushNode(result);
+			states[top] = BINDING_CONTENT;
+			call(BINDING);
+			break;
+		case BINDING_CONTENT:
+			Node value = parser.popNode();
+			Node bindingStructure = parser.popNode();
+			complete(new BindingNode(bindingStructure.getLocation(), bindingStructure, value, result));
+			break;
+
+		/* SwitchNode#parse(Parser)
+		 */
+		case SWITCH:
+			locations[top] = parser.expect(TokenKind.symbol(SymbolTokenType.SWITCH_DECLARE), "Expected question mark to begin switch statement.");
+			states[top] = SWITCH_INPUT;
+			call(ATOMIC);
+			break;
+		case SWITCH_INPUT:
+			parser.pushNode(result);
+			starts[top] = parser.getNodeCount();
+			states[top] = SWITCH_BRANCH;
+			call(BRANCH);
+			break;
+		case SWITCH_BRANCH:
+			parser.pushNode(result);
+			if(parser.accept(TokenKind.symbol(SymbolTokenType.SEPARATOR))) {
+				call(BRANCH);
+			} else {
+				SwitchBranchNode[] branchesArray = parser.popNodes(starts[top], SwitchBranchNode[]::new);
+				Node input = parser.popNode();
+				complete(new SwitchNode(locations[top], input, branchesArray));
+			}
+			break;
+
+		/* SwitchBranchNode#parse(Parser)
+		 */
+		case BRANCH:
+			states[top] = BRANCH_PATTERN;
+			call(EXPRESSION);
+			break;
+		case BRANCH_PATTERN:
+			parser.pushNode(result);
+			if(parser.accept(TokenKind.symbol(SymbolTokenType.FUNCTION_DECLARE))) {
+				states[top] = BRANCH_CONDITION;
+			} else {
+				locations[top] = parser.expect(
+						TokenKind.symbol(SymbolTokenType.FUNCTION_BEGIN),
+						"Expected forward-arrow after branch pattern.");
+				states[top] = BRANCH_RESULT;
+			}
+			call(EXPRESSION);
+			break;
+		case BRANCH_CONDITION:
+			parser.pushNode(result);
+			locations[top] = parser.expect(
+					TokenKind.symbol(SymbolTokenType.FUNCTION_BEGIN),
+					"Expected forward-arrow after branch condition.");
+			states[top] = BRANCH_CONDITIONAL_RESULT;
+			call(EXPRESSION);
+			break;
+		case BRANCH_RESULT:
+			complete(new SwitchBranchNode(locations[top], parser.popNode(), result));
+			break;
+		case BRANCH_CONDITIONAL_RESULT:
+			Node condition = parser.popNode();
+			Node pattern = parser.popNode();
+			complete(new SwitchBranchNode(locations[top], pattern, condition, result));
+			break;
+
+		default:
+			throw new IllegalStateException(String.format("Unknown parser state %d.", states[top]));
+		}
+	}
+
+	/**
+	 * Recovers from a syntax error, as {@link Node#parseAtomic(Parser)} does, if the parser
+	 * has an error collector. The frames above the innermost parenthesized expression are
+	 * abandoned, and the parser skips to the closing parenthesis, leaving an {@link
+	 * ErrorNode} as the result of the content of the parentheses.
+	 * @param base The depth of the stack below the frames of this call of {@link
+	 * IterativeParser#parse(int)}.
+	 * @param error The syntax error.
+	 * @return Whether the parser recovered from the error. If it did not, the error should
+	 * be thrown.
+	 */
+	private boolean recover(int base, ParserException error) {
+		if(parser.getErrorCollector() == null) {
+			return false;
+		}
+		for(int frame = depth - 1; frame >= base; frame--) {
+			if(states[frame] == ATOMIC_PARENTHESIZED) {
+				if(!parser.skipToClosingParenthesis()) {
+					return false;
+				}
+				Arrays.fill(locations, frame + 1, depth, null);
+				Arrays.fill(otherLocations, frame + 1, depth, null);
+				depth = frame + 1;
+				result = parser.recover(error, starts[frame]);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Continues parsing a tuple after one of its values, parsing the next value if there
+	 * is a comma, or completing the tuple otherwise.
+	 * @param top The index of the top frame.
+	 */
+	private void continueTuple(int top) {
+		if(parser.accept(TokenKind.symbol(SymbolTokenType.COMMA))) {
+			states[top] = EXPRESSION_NEXT;
+			call(OPERATION, 1);
+		} else {
+			Node[] expressionsArray = parser.popNodes(starts[top], Node[]::new);
+			/*
+			 * Tuple doesn't really have a well-defined starting location, so just use the
+			 * location of the first member instead.
+			 */
+			complete(new TupleNode(expressionsArray[0].getLocation(), expressionsArray));
+		}
+	}
+
+	/**
+	 * Continues parsing an operation after an operand, parsing the next operator and its
+	 * right operand if the operator binds at least as tightly as the minimum precedence of
+	 * the frame, or completing the operation otherwise.
+	 * @param top The index of the top frame.
+	 * @param left The operation parsed so far.
+	 */
+	private void continueOperation(int top, Node left) {
+		int kind = parser.nextKind();
+		int precedence = operators.getPrecedence(kind);
+		if(precedence >= values[top] && precedence > 0) {
+			if(operators.isRightAssociative(kind)) {
+				int start = parser.getNodeCount();
+				parser.pushNode(left);
+				states[top] = OPERATION_LEFT;
+				call(RIGHT_ASSOCIATIVE, precedence);
+				starts[depth - 1] = start;
+			} else {
+				parser.next();
+				Node operator = Node.createOperator(parser, kind);
+				parser.pushNode(left);
+				parser.pushNode(operator);
+				states[top] = OPERATION_RIGHT;
+				call(OPERATION, precedence + 1);
+			}
+		} else {
+			complete(left);
+		}
+	}
+
+	/**
+	 * Continues parsing a run of right-associative operators after an operand, parsing the
+	 * next operator and operand if the operator has the precedence of the run, or grouping
+	 * the operands from the right and completing the run otherwise.
+	 * @param top The index of the top frame.
+	 */
+	private void continueRightAssociative(int top) {
+		int kind = parser.nextKind();
+		if(operators.getPrecedence(kind) == values[top]) {
+			parser.next();
+			parser.pushNode(Node.createOperator(parser, kind));
+			states[top] = RIGHT_ASSOCIATIVE_OPERAND;
+			call(OPERATION, values[top] + 1);
+		} else {
+			Node expr = parser.popNode();
+			while(parser.getNodeCount() > starts[top]) {
+				Node operator = parser.popNode();
+				expr = Node.createOperationApplication(operator, parser.popNode(), expr);
+			}
+			complete(expr);
+		}
+	}
+
+	/**
+	 * Continues parsing an application after an atomic expression, parsing the next
+	 * argument if there is one, or completing the application otherwise.
+	 * @param top The index of the top frame.
+	 * @param left The application parsed so far.
+	 */
+	private void continueApplication(int top, Node left) {
+		if(TokenKind.isAtomic(parser.nextKind())) {
+			parser.pushNode(left);
+			states[top] = APPLICATION_NEXT;
+			call(ATOMIC);
+		} else {
+			complete(left);
+		}
+	}
+
+	/**
+	 * Starts parsing an atomic expression. A literal or identifier is parsed and completed
+	 * straight away; a sequence replaces the frame, and a parenthesized expression calls
+	 * the method for its content.
+	 * @param top The index of the top frame.
+	 */
+	private void startAtomic(int top) {
+		if(parser.test(TokenKind.LITERAL_STRING)) {
+			complete(LiteralStringNode.parse(parser));
+		} else if(parser.test(TokenKind.LITERAL_INT)) {
+			complete(LiteralIntNode.parse(parser));
+		} else if(parser.test(TokenKind.LITERAL_SYMBOL)) {
+			complete(LiteralSymbolNode.parse(parser));
+		} else if(parser.test(TokenKind.IDENTIFIER)) {
+			complete(IdentifierNode.parse(parser));
+		} else if(parser.test(TokenKind.symbol(SymbolTokenType.SEQUENCE_OPEN))) {
+			states[top] = SEQUENCE;
+		} else if(parser.accept(TokenKind.symbol(SymbolTokenType.PAREN_OPEN))) {
+			if(parser.accept(TokenKind.symbol(SymbolTokenType.PAREN_CLOSE))) {
+				complete(new TupleNode(parser.currentLocation()));
+			} else {
+				states[top] = ATOMIC_PARENTHESIZED;
+				starts[top] = parser.getNodeCount();
+				if(parser.test(TokenKind.symbol(SymbolTokenType.FUNCTION_DECLARE))) {
+					call(FUNCTION);
+				} else if(parser.test(TokenKind.symbol(SymbolTokenType.SWITCH_DECLARE))) {
+					call(SWITCH);
+				} else {
+					call(EXPRESSION);
+				}
+			}
+		} else {
+			throw parser.unexpected("Unexpected token in expression.");
+		}
+	}
+}
@@ -3,6 +3,7 @@ package pw.usn.mu.parser;
 import pw.usn.mu.tokenizer.LiteralIntToken;
 import pw.usn.mu.tokenizer.LiteralIntTokenBase;
 import pw.usn.mu.tokenizer.Location;
+import pw.usn.mu.tokenizer.TokenKind;
 
 /**
  * Represents an int literal in mu source code.
@@ -59,8 +60,7 @@ public class LiteralIntNode extends Node {
 	 * @return An int literal, as parsed from the current input.
 	 */
 	public static LiteralIntNode parse(Parser parser) {
-		Location location = parser.expect(token -> token instanceof LiteralIntToken, "Int literal expected.");
-		LiteralIntToken current = (LiteralIntToken)parser.current();
-		return new LiteralIntNode(location, current.getValue(), current.getBase());
+		Location location = parser.expect(TokenKind.LITERAL_INT, "Int literal expected.");
+		return new LiteralIntNode(location, parser.currentIntValue(), parser.currentIntBase());
 	}
 }
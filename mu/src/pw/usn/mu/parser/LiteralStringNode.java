@@ -1,7 +1,7 @@
 package pw.usn.mu.parser;
 
-import pw.usn.mu.tokenizer.LiteralStringToken;
 import pw.usn.mu.tokenizer.Location;
+import pw.usn.mu.tokenizer.TokenKind;
 
 /**
  * Represents a string literal in mu source code.
@@ -37,8 +37,7 @@ public class LiteralStringNode extends Node {
 	 * @return A string literal, as parsed from the current input.
 	 */
 	public static LiteralStringNode parse(Parser parser) {
-		Location location = parser.expect(token -> token instanceof LiteralStringToken, "String literal expected.");
-		LiteralStringToken current = (LiteralStringToken)parser.current();
-		return new LiteralStringNode(location, current.getValue());
+		Location location = parser.expect(TokenKind.LITERAL_STRING, "String literal expected.");
+		return new LiteralStringNode(location, parser.currentPayload());
 	}
 }
@@ -1,7 +1,7 @@
 package pw.usn.mu.parser;
 
-import pw.usn.mu.tokenizer.LiteralSymbolToken;
 import pw.usn.mu.tokenizer.Location;
+import pw.usn.mu.tokenizer.TokenKind;
 
 /**
  * Represents a symbol literal in mu source code.
@@ -37,8 +37,7 @@ public class LiteralSymbolNode extends Node {
 	 * @return A symbol literal, as parsed from the current input.
 	 */
 	public static LiteralSymbolNode parse(Parser parser) {
-		Location location = parser.expect(token -> token instanceof LiteralSymbolToken, "Symbol literal expected.");
-		LiteralSymbolToken current = (LiteralSymbolToken)parser.current();
-		return new LiteralSymbolNode(location, current.getValue());
+		Location location = parser.expect(TokenKind.LITERAL_SYMBOL, "Symbol literal expected.");
+		return new LiteralSymbolNode(location, parser.currentPayload());
 	}
 }
@@ -0,0 +1,769 @@
+package pw.usn.mu.parser;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import pw.usn.mu.Source;
+import pw.usn.mu.parser.binding.BindConsNode;
+import pw.usn.mu.parser.binding.BindTupleNode;
+import pw.usn.mu.parser.binding.BindValueNode;
+import pw.usn.mu.tokenizer.LineOffsetTable;
+import pw.usn.mu.tokenizer.LiteralIntTokenBase;
+import pw.usn.mu.tokenizer.Location;
+import pw.usn.mu.tokenizer.NameTable;
+
+/**
+ * Represents a parsed module stored in a file, in a compact binary format, so that a
+ * module which has not changed does not need to be tokenized and parsed again. The file
+ * contains a table of the names and one of the string literals used in the module, the
+ * row offsets of its source, and then the module itself. A module is stored as a
+ * directory of the names and sizes of its definitions and submodules, followed by each
+ * of them in turn; the nodes of a definition are stored in post-order (as in a {@link
+ * NodeArena}), with numbers written in as few bytes as their size allows.<br>
+ * {@link ModuleFile#load(File, Source)} maps the file into memory and reads only the
+ * tables and the directory of the top-level module. The nodes of a definition are read
+ * from the file when the definition is first asked for, and the directory of a
+ * submodule when the submodule is first asked for, so a program which uses only some of
+ * the definitions of a large library module reads only those.<br>
+ * Locations which refer to an offset in the source of the module are stored as that
+ * offset; any other location is stored as its row and column, and is read back as a
+ * location in the source given when the file is loaded.
+ */
+public class ModuleFile {
+	/**
+	 * The version of the format of module files. A file written in another version of the
+	 * format is not read.
+	 */
+	public static final int FORMAT_VERSION = 1;
+	private static final int MAGIC = 0x6d756d64;
+
+	private ByteBuffer data;
+	private Source source;
+	private int[] nameIds;
+	private String[] strings;
+	private LineOffsetTable lines;
+
+	/**
+	 * Initializes a new ModuleFile.
+	 * @param data The contents of the file.
+	 * @param source The source to which the locations in the file refer.
+	 */
+	private ModuleFile(ByteBuffer data, Source source) {
+		this.data = data;
+		this.source = source;
+	}
+
+	/**
+	 * Writes a module to a file.
+	 * @param module The module to write.
+	 * @param file The file to write the module to. If the file exists, it is replaced.
+	 * @throws IOException when the file cannot be written.
+	 */
+	public static void write(ModuleNode module, File file) throws IOException {
+		write(NodeArena.build(module), file);
+	}
+
+	/**
+	 * Writes the module stored in a node arena to a file.
+	 * @param arena The arena containing the module to write.
+	 * @param file The file to write the module to. If the file exists, it is replaced.
+	 * @throws IOException when the file cannot be written.
+	 */
+	public static void write(NodeArena arena, File file) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+			write(arena, out);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes the module stored in a node arena, in the format read by {@link
+	 * ModuleFile#read(ByteBuffer, Source)}.
+	 * @param arena The arena containing the module to write.
+	 * @param out The output to write the module to.
+	 * @throws IOException
+	 */
+	public static void write(NodeArena arena, DataOutput out) throws IOException {
+		Writer writer = new Writer(arena);
+		ByteArrayOutputStream module = new ByteArrayOutputStream();
+		writer.writeModule(new DataOutputStream(module), arena.getRoot());
+
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		writeNumber(out, writer.names.size());
+		for(String name : writer.names) {
+			writeString(out, name);
+		}
+		writeNumber(out, writer.strings.size());
+		for(String string : writer.strings) {
+			writeString(out, string);
+		}
+		LineOffsetTable lines = arena.getLineOffsets();
+		if(lines == null) {
+			writeNumber(out, 0);
+		} else {
+			writeNumber(out, lines.getLineCount());
+			for(int row = 2; row <= lines.getLineCount(); row++) {
+				writeNumber(out, lines.getRowStart(row) - lines.getRowStart(row - 1));
+			}
+		}
+		out.write(module.toByteArray());
+	}
+
+	/**
+	 * Loads a module from a file written by {@link ModuleFile#write(ModuleNode, File)}.
+	 * The file is mapped into memory, and the definitions of the module are read from it
+	 * only when they are asked for.
+	 * @param file The file to load.
+	 * @param source The source from which the module was parsed. The locations of the
+	 * nodes in the module refer to this source.
+	 * @return The module stored in the file.
+	 * @throws IOException when the file cannot be read.
+	 * @throws IllegalArgumentException when the file is not a module file, or was written
+	 * in another version of the format.
+	 */
+	public static ModuleNode load(File file, Source source) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			if(channel.size() > Integer.MAX_VALUE) {
+				throw new IOException(String.format("The module file %s is too large to be loaded.", file.getName()));
+			}
+			return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), source);
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Reads a module written by {@link ModuleFile#write(NodeArena, DataOutput)}. The
+	 * definitions of the module are read from the buffer only when they are asked for, so
+	 * the contents of the buffer must not be changed while the module is in use.
+	 * @param in The buffer to read the module from, from its position onwards. The
+	 * position of the buffer is not changed.
+	 * @param source The source from which the module was parsed. The locations of the
+	 * nodes in the module refer to this source.
+	 * @return The module stored in the buffer.
+	 * @throws IllegalArgumentException when {@code in} does not contain a module in the
+	 * format written by {@link ModuleFile#write(NodeArena, DataOutput)}.
+	 * @throws java.nio.BufferUnderflowException when {@code in} ends before the module.
+	 */
+	public static ModuleNode read(ByteBuffer in, Source source) {
+		ModuleFile file = new ModuleFile(in.duplicate(), source);
+		return file.readHeader();
+	}
+
+	/**
+	 * Reads the tables at the start of the file.
+	 * @return The top-level module of the file.
+	 */
+	private ModuleNode readHeader() {
+		if(data.getInt() != MAGIC) {
+			throw new IllegalArgumentException("The data is not a module file.");
+		}
+		int version = data.getInt();
+		if(version != FORMAT_VERSION) {
+			throw new IllegalArgumentException(String.format("The module file is in format version %d, not %d.", version, FORMAT_VERSION));
+		}
+		nameIds = new int[readNumber(data)];
+		for(int i = 0; i < nameIds.length; i++) {
+			nameIds[i] = NameTable.intern(readString(data));
+		}
+		strings = new String[readNumber(data)];
+		for(int i = 0; i < strings.length; i++) {
+			strings[i] = readString(data);
+		}
+		int lineCount = readNumber(data);
+		if(lineCount > 0) {
+			lines = new LineOffsetTable();
+			for(int row = 2, offset = 0; row <= lineCount; row++) {
+				offset += readNumber(data);
+				lines.addLine(offset);
+			}
+			lines.trim();
+		}
+		return new FileModuleNode(data.duplicate());
+	}
+
+	/**
+	 * Reads the location of a node.
+	 * @param in The buffer to read from.
+	 * @param previous The offset of the previous location in the definition, or {@code 0}
+	 * if it is the first.
+	 * @return The location that was read.
+	 */
+	private Location readLocation(ByteBuffer in, int previous) {
+		int number = readNumber(in);
+		if(number != 0) {
+			int distance = number - 1, offset = previous + ((distance >>> 1) ^ -(distance & 1));
+			if(lines == null || offset < 0) {
+				throw new IllegalArgumentException("A location in the module file is not valid.");
+			}
+			return new Location(source, lines, offset);
+		}
+		switch(in.get()) {
+		case 0:
+			return null;
+		case 1:
+			return new Location();
+		case 2:
+			int row = readNumber(in);
+			return new Location(source, row, readNumber(in));
+		default:
+			throw new IllegalArgumentException("A location in the module file is not valid.");
+		}
+	}
+
+	/**
+	 * Reads the id of a name from the name table of the file.
+	 * @param in The buffer to read from.
+	 * @return The id in the {@link NameTable} of the name.
+	 */
+	private int readName(ByteBuffer in) {
+		int index = readNumber(in);
+		if(index >= nameIds.length) {
+			throw new IllegalArgumentException(String.format("Name %d is not in the module file.", index));
+		}
+		return nameIds[index];
+	}
+
+	/**
+	 * Reads the value of a definition, creating its nodes bottom-up.
+	 * @param in The buffer to read from, positioned at the start of the definition.
+	 * @return The value of the definition.
+	 */
+	private Node readDefinition(ByteBuffer in) {
+		int count = readNumber(in);
+		Node[] stack = new Node[16];
+		int depth = 0, previous = 0;
+		for(int i = 0; i < count; i++) {
+			int kind = in.get();
+			Location location = readLocation(in, previous);
+			if(location != null && location.getOffset() >= 0) {
+				previous = location.getOffset();
+			}
+			int childCount = getChildCount(kind, in);
+			if(childCount > depth) {
+				throw new IllegalArgumentException("A definition in the module file is not valid.");
+			}
+			depth -= childCount;
+			Node node = createNode(kind, location, in, stack, depth, childCount);
+			if(depth == stack.length) {
+				stack = Arrays.copyOf(stack, depth * 2);
+			}
+			stack[depth++] = node;
+		}
+		if(depth != 1) {
+			throw new IllegalArgumentException("A definition in the module file is not valid.");
+		}
+		return stack[0];
+	}
+
+	/**
+	 * Reads the number of children of a node, for the kinds of node which have a varying
+	 * number of children.
+	 * @param kind The kind of the node.
+	 * @param in The buffer to read from.
+	 * @return The number of children of the node, which are on the top of the stack.
+	 */
+	private static int getChildCount(int kind, ByteBuffer in) {
+		switch(kind) {
+		case NodeKind.APPLICATION:
+		case NodeKind.BIND_CONS:
+			return 2;
+		case NodeKind.BINDING:
+		case NodeKind.SWITCH_BRANCH:
+			return 3;
+		case NodeKind.FUNCTION:
+			return 1;
+		case NodeKind.SEQUENCE:
+		case NodeKind.TUPLE:
+		case NodeKind.BIND_TUPLE:
+		case NodeKind.SWITCH:
+			return readNumber(in);
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * Reads the rest of a node and creates it.
+	 * @param kind The kind of the node.
+	 * @param location The location of the node.
+	 * @param in The buffer to read from.
+	 * @param stack The stack of nodes read so far.
+	 * @param start The position in {@code stack} of the first child of the node.
+	 * @param count The number of children of the node.
+	 * @return The node which was read.
+	 */
+	private Node createNode(int kind, Location location, ByteBuffer in, Node[] stack, int start, int count) {
+		switch(kind) {
+		case NodeKind.APPLICATION:
+			return new ApplicationNode(location, stack[start], stack[start + 1]);
+		case NodeKind.BINDING:
+			return new BindingNode(location, stack[start], stack[start + 1], stack[start + 2]);
+		case NodeKind.FUNCTION:
+			return new FunctionNode(location, NameTable.getName(readName(in)), stack[start]);
+		case NodeKind.IDENTIFIER:
+			int moduleCount = readNumber(in);
+			if(moduleCount == 0) {
+				return new IdentifierNode(location, readName(in));
+			} else {
+				int[] modules = new int[moduleCount];
+				for(int i = 0; i < moduleCount; i++) {
+					modules[i] = readName(in);
+				}
+				return new IdentifierNode(location, modules, readName(in));
+			}
+		case NodeKind.LITERAL_INT:
+			int base = in.get();
+			if(base < 0 || base >= LiteralIntTokenBase.values().length) {
+				throw new IllegalArgumentException("An int literal in the module file is not valid.");
+			}
+			int value = readNumber(in);
+			return new LiteralIntNode(location, (value >>> 1) ^ -(value & 1), LiteralIntTokenBase.values()[base]);
+		case NodeKind.LITERAL_STRING:
+			return new LiteralStringNode(location, readLiteral(in));
+		case NodeKind.LITERAL_SYMBOL:
+			return new LiteralSymbolNode(location, readLiteral(in));
+		case NodeKind.SEQUENCE:
+			return new SequenceNode(location, getChildren(stack, start, new Node[count]));
+		case NodeKind.SWITCH:
+			if(count < 2) {
+				throw new IllegalArgumentException("A switch in the module file is not valid.");
+			}
+			return new SwitchNode(location, stack[start], getChildren(stack, start + 1, new SwitchBranchNode[count - 1]));
+		case NodeKind.SWITCH_BRANCH:
+			return new SwitchBranchNode(location, stack[start], stack[start + 1], stack[start + 2]);
+		case NodeKind.TUPLE:
+			return new TupleNode(location, getChildren(stack, start, new Node[count]));
+		case NodeKind.BIND_CONS:
+			return new BindConsNode(location, stack[start], stack[start + 1]);
+		case NodeKind.BIND_TUPLE:
+			return new BindTupleNode(location, getChildren(stack, start, new Node[count]));
+		case NodeKind.BIND_VALUE:
+			return new BindValueNode(location, NameTable.getName(readName(in)));
+		default:
+			throw new IllegalArgumentException(String.format("Node kind %d is not valid in a definition.", kind));
+		}
+	}
+
+	/**
+	 * Copies the children of a node from the stack into an array.
+	 * @param stack The stack of nodes read so far.
+	 * @param start The position in {@code stack} of the first child.
+	 * @param children The array to fill.
+	 * @return {@code children}.
+	 * @throws IllegalArgumentException when a child is not of the type of the array.
+	 */
+	private static <T extends Node> T[] getChildren(Node[] stack, int start, T[] children) {
+		Class<?> type = children.getClass().getComponentType();
+		for(int i = 0; i < children.length; i++) {
+			if(!type.isInstance(stack[start + i])) {
+				throw new IllegalArgumentException("A node in the module file has a child of the wrong kind.");
+			}
+			@SuppressWarnings("unchecked")
+			T child = (T)stack[start + i];
+			children[i] = child;
+		}
+		return children;
+	}
+
+	/**
+	 * Represents a module read from a module file. The directory of the module is read
+	 * when it is created, and the nodes of each definition and submodule are read when
+	 * they are first asked for, and are then kept.
+	 */
+	private class FileModuleNode extends ModuleNode {
+		private int definitionCount;
+		private String[] names;
+		private int[] positions;
+		private Node[] values;
+		private Map<String, Integer> definitionPositions, submodulePositions;
+
+		/**
+		 * Initializes a new FileModuleNode, reading its directory.
+		 * @param in The buffer to read from, positioned at the start of the module.
+		 */
+		public FileModuleNode(ByteBuffer in) {
+			this(in, readNumber(in), readNumber(in));
+		}
+
+		/**
+		 * Initializes a new FileModuleNode, reading the rest of its directory.
+		 * @param in The buffer to read from, positioned after the number of definitions
+		 * and submodules of the module.
+		 * @param definitionCount The number of definitions in the module.
+		 * @param submoduleCount The number of submodules in the module.
+		 */
+		private FileModuleNode(ByteBuffer in, int definitionCount, int submoduleCount) {
+			super(readLocation(in, 0));
+			this.definitionCount = definitionCount;
+			this.names = new String[definitionCount + submoduleCount];
+			this.positions = new int[names.length];
+			this.values = new Node[names.length];
+			int[] sizes = new int[names.length];
+			for(int i = 0; i < names.length; i++) {
+				names[i] = NameTable.getName(readName(in));
+				sizes[i] = readNumber(in);
+			}
+			int position = in.position();
+			for(int i = 0; i < names.length; i++) {
+				positions[i] = position;
+				position += sizes[i];
+			}
+			if(position > in.limit()) {
+				throw new IllegalArgumentException("A module in the module file is not valid.");
+			}
+		}
+
+		@Override
+		public String[] getDefinitions() {
+			return Arrays.copyOfRange(names, 0, definitionCount);
+		}
+
+		@Override
+		public String[] getSubmodules() {
+			return Arrays.copyOfRange(names, definitionCount, names.length);
+		}
+
+		@Override
+		public Node getDefinition(String identifier) {
+			if(definitionPositions == null) {
+				definitionPositions = getPositions(0, definitionCount);
+			}
+			Integer position = definitionPositions.get(identifier);
+			if(position != null) {
+				return getValue(position);
+			} else {
+				throw new IllegalArgumentException(String.format("This module does not define anything named \"%s\".",
+						identifier));
+			}
+		}
+
+		@Override
+		public ModuleNode getSubmodule(String identifier) {
+			if(submodulePositions == null) {
+				submodulePositions = getPositions(definitionCount, names.length);
+			}
+			Integer position = submodulePositions.get(identifier);
+			if(position != null) {
+				return (ModuleNode)getValue(position);
+			} else {
+				throw new IllegalArgumentException(String.format("This module does not define a submodule named \"%s\".",
+						identifier));
+			}
+		}
+
+		@Override
+		public void addDefinition(String identifier, Node value) {
+			throw new IllegalStateException("A module loaded from a module file cannot be changed.");
+		}
+
+		@Override
+		public void addSubmodule(String identifier, ModuleNode module) {
+			throw new IllegalStateException("A module loaded from a module file cannot be changed.");
+		}
+
+		/**
+		 * Gets the value of an entry of the module, reading it if it has not been read
+		 * yet.
+		 * @param position The position of the entry in the module.
+		 * @return The node of the definition or submodule.
+		 */
+		private Node getValue(int position) {
+			if(values[position] == null) {
+				ByteBuffer in = data.duplicate();
+				in.position(positions[position]);
+				values[position] = position < definitionCount ? readDefinition(in) : new FileModuleNode(in);
+			}
+			return values[position];
+		}
+
+		/**
+		 * Maps the names of a range of entries of the module to their positions.
+		 * @param start The position of the first entry.
+		 * @param end The position after the last entry.
+		 * @return A map from the name of each entry to its position.
+		 */
+		private Map<String, Integer> getPositions(int start, int end) {
+			Map<String, Integer> positions = new HashMap<String, Integer>();
+			for(int i = start; i < end; i++) {
+				positions.put(names[i], i);
+			}
+			return positions;
+		}
+	}
+
+	/**
+	 * Writes the nodes of a node arena, collecting the names and strings used by them into
+	 * the tables of the file.
+	 */
+	private static class Writer {
+		private NodeArena arena;
+		private int[] nameIndices;
+		private List<String> names;
+		private Map<String, Integer> stringIndices;
+		private List<String> strings;
+		private int previousOffset;
+
+		/**
+		 * Initializes a new Writer.
+		 * @param arena The arena containing the nodes to write.
+		 */
+		public Writer(NodeArena arena) {
+			this.arena = arena;
+			this.nameIndices = new int[NameTable.getCount()];
+			Arrays.fill(nameIndices, -1);
+			this.names = new ArrayList<String>();
+			this.stringIndices = new HashMap<String, Integer>();
+			this.strings = new ArrayList<String>();
+		}
+
+		/**
+		 * Writes a module: the number of its definitions and submodules, its location, the
+		 * name and size of each definition and submodule, and then each of them.
+		 * @param out The output to write to.
+		 * @param node The index of the module in the arena.
+		 * @throws IOException
+		 */
+		public void writeModule(DataOutput out, int node) throws IOException {
+			int definitionCount = arena.getDefinitionCount(node), submoduleCount = arena.getSubmoduleCount(node);
+			writeNumber(out, definitionCount);
+			writeNumber(out, submoduleCount);
+			previousOffset = 0;
+			writeLocation(out, node);
+			ByteArrayOutputStream entries = new ByteArrayOutputStream();
+			DataOutputStream entryOut = new DataOutputStream(entries);
+			for(int i = 0; i < definitionCount + submoduleCount; i++) {
+				int start = entries.size();
+				if(i < definitionCount) {
+					writeDefinition(entryOut, arena.getEntryValue(node, i));
+				} else {
+					writeModule(entryOut, arena.getEntryValue(node, i));
+				}
+				writeNumber(out, getNameIndex(arena.getEntryNameId(node, i)));
+				writeNumber(out, entries.size() - start);
+			}
+			out.write(entries.toByteArray());
+		}
+
+		/**
+		 * Writes the value of a definition: the number of nodes in it, and then each node,
+		 * in post-order.
+		 * @param out The output to write to.
+		 * @param node The index of the value in the arena.
+		 * @throws IOException
+		 */
+		private void writeDefinition(DataOutput out, int node) throws IOException {
+			int first = arena.getSubtreeStart(node);
+			writeNumber(out, node - first + 1);
+			previousOffset = 0;
+			for(int i = first; i <= node; i++) {
+				writeNode(out, i);
+			}
+		}
+
+		/**
+		 * Writes a node: its kind, its location, and then the number of its children if
+		 * this can vary, and its payload.
+		 * @param out The output to write to.
+		 * @param node The index of the node in the arena.
+		 * @throws IOException
+		 */
+		private void writeNode(DataOutput out, int node) throws IOException {
+			int kind = arena.getKind(node);
+			out.writeByte(kind);
+			writeLocation(out, node);
+			switch(kind) {
+			case NodeKind.SEQUENCE:
+			case NodeKind.TUPLE:
+			case NodeKind.BIND_TUPLE:
+			case NodeKind.SWITCH:
+				writeNumber(out, arena.getChildCount(node));
+				break;
+			case NodeKind.FUNCTION:
+				writeNumber(out, getNameIndex(arena.getArgumentNameId(node)));
+				break;
+			case NodeKind.IDENTIFIER:
+				int moduleCount = arena.getModuleCount(node);
+				writeNumber(out, moduleCount);
+				for(int i = 0; i < moduleCount; i++) {
+					writeNumber(out, getNameIndex(arena.getModuleId(node, i)));
+				}
+				writeNumber(out, getNameIndex(arena.getNameId(node)));
+				break;
+			case NodeKind.BIND_VALUE:
+				writeNumber(out, getNameIndex(arena.getNameId(node)));
+				break;
+			case NodeKind.LITERAL_INT:
+				/* The value is written zig-zag encoded, so that small negative values are
+				 * also written in few bytes.
+				 */
+				int value = arena.getIntValue(node);
+				out.writeByte(arena.getIntBase(node).ordinal());
+				writeNumber(out, (value << 1) ^ (value >> 31));
+				break;
+			case NodeKind.LITERAL_STRING:
+			case NodeKind.LITERAL_SYMBOL:
+				writeNumber(out, getStringIndex(arena.getStringValue(node)));
+				break;
+			case NodeKind.MODULE:
+				throw new IllegalArgumentException("A module cannot be written as the value of a definition.");
+			default:
+				break;
+			}
+		}
+
+		/**
+		 * Writes the location of a node, as its offset in the source of the arena if it
+		 * has one, or otherwise as its row and column. An offset is written as its
+		 * distance, zig-zag encoded, from the previous offset written in the definition,
+		 * as the nodes of a definition are close to each other in the source.
+		 * @param out The output to write to.
+		 * @param node The index of the node in the arena.
+		 * @throws IOException
+		 */
+		private void writeLocation(DataOutput out, int node) throws IOException {
+			int offset = arena.getOffset(node);
+			if(offset >= 0) {
+				int distance = offset - previousOffset;
+				writeNumber(out, ((distance << 1) ^ (distance >> 31)) + 1);
+				previousOffset = offset;
+			} else {
+				writeNumber(out, 0);
+				Location location = arena.getLocation(node);
+				if(location == null) {
+					out.writeByte(0);
+				} else if(location.getSource() == null) {
+					out.writeByte(1);
+				} else {
+					out.writeByte(2);
+					writeNumber(out, location.getRow());
+					writeNumber(out, location.getColumn());
+				}
+			}
+		}
+
+		/**
+		 * Gets the index of a name in the name table of the file, adding it to the table
+		 * if it is not already there.
+		 * @param nameId The id of the name in the {@link NameTable}.
+		 * @return The index of the name in the name table of the file.
+		 */
+		private int getNameIndex(int nameId) {
+			if(nameId >= nameIndices.length) {
+				int length = nameIndices.length;
+				nameIndices = Arrays.copyOf(nameIndices, Math.max(nameId + 1, length * 2));
+				Arrays.fill(nameIndices, length, nameIndices.length, -1);
+			}
+			if(nameIndices[nameId] < 0) {
+				nameIndices[nameId] = names.size();
+				names.add(NameTable.getName(nameId));
+			}
+			return nameIndices[nameId];
+		}
+
+		/**
+		 * Gets the index of a string in the string table of the file, adding it to the
+		 * table if it is not already there.
+		 * @param value The string.
+		 * @return The index of the string in the string table of the file.
+		 */
+		private int getStringIndex(String value) {
+			Integer index = stringIndices.get(value);
+			if(index == null) {
+				index = strings.size();
+				strings.add(value);
+				stringIndices.put(value, index);
+			}
+			return index;
+		}
+	}
+
+	/**
+	 * Reads the value of a string or symbol literal from the string table of the file.
+	 * @param in The buffer to read from.
+	 * @return The value of the literal.
+	 */
+	private String readLiteral(ByteBuffer in) {
+		int index = readNumber(in);
+		if(index >= strings.length) {
+			throw new IllegalArgumentException(String.format("String %d is not in the module file.", index));
+		}
+		return strings[index];
+	}
+
+	/**
+	 * Writes a string as its length followed by each of its characters.
+	 * @param out The output to write the string to.
+	 * @param value The string to write.
+	 * @throws IOException
+	 */
+	private static void writeString(DataOutput out, String value) throws IOException {
+		writeNumber(out, value.length());
+		for(int i = 0; i < value.length(); i++) {
+			writeNumber(out, value.charAt(i));
+		}
+	}
+
+	/**
+	 * Reads a string written by {@link ModuleFile#writeString(DataOutput, String)}.
+	 * @param in The buffer to read the string from.
+	 * @return The string that was read.
+	 */
+	private static String readString(ByteBuffer in) {
+		char[] value = new char[readNumber(in)];
+		for(int i = 0; i < value.length; i++) {
+			value[i] = (char)readNumber(in);
+		}
+		return new String(value);
+	}
+
+	/**
+	 * Writes a non-negative number in seven-bit groups, from the lowest group to the
+	 * highest, with the top bit of each byte set if another byte follows.
+	 * @param out The output to write the number to.
+	 * @param value The number to write.
+	 * @throws IOException
+	 */
+	private static void writeNumber(DataOutput out, int value) throws IOException {
+		while((value & ~0x7f) != 0) {
+			out.writeByte((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	/**
+	 * Reads a number written by {@link ModuleFile#writeNumber(DataOutput, int)}.
+	 * @param in The buffer to read the number from.
+	 * @return The number that was read.
+	 * @throws IllegalArgumentException when the number is too large to be an {@code int}.
+	 */
+	private static int readNumber(ByteBuffer in) {
+		int value = 0;
+		for(int shift = 0; shift < 35; shift += 7) {
+			byte b = in.get();
+			value |= (b & 0x7f) << shift;
+			if(b >= 0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("A number in the module file is too large.");
+	}
+}
@@ -1,19 +1,28 @@
 package pw.usn.mu.parser;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
-import pw.usn.mu.tokenizer.IdentifierToken;
 import pw.usn.mu.tokenizer.Location;
-import pw.usn.mu.tokenizer.OperatorToken;
+import pw.usn.mu.tokenizer.NameTable;
 import pw.usn.mu.tokenizer.SymbolTokenType;
-import pw.usn.mu.tokenizer.Token;
+import pw.usn.mu.tokenizer.TokenBuffer;
+import pw.usn.mu.tokenizer.TokenKind;
 
 /**
  * Represents a collection of functions or values.
  */
 public class ModuleNode extends Node {
+	private static final int MINIMUM_TASK_TOKENS = 4096;
+	private static final int TASKS_PER_THREAD = 4;
 	private Map<String, Node> definitions;
 	private Map<String, ModuleNode> submodules;
 	
@@ -112,7 +121,42 @@ public class ModuleNode extends Node {
 	}
 	
 	/**
-	 * Parses the content of a module from the given parser state.
+	 * Represents a submodule whose definitions are being parsed, along with the definition
+	 * of it in the module containing it. Submodules are followed with a stack of these,
+	 * rather than by parsing each submodule recursively, so that submodules can be nested
+	 * to any depth.
+	 */
+	private static class OpenSubmodule {
+		private ModuleNode parent, module;
+		private IdentifierNode identifier;
+		private int mark, start;
+		
+		/**
+		 * Initializes a new OpenSubmodule.
+		 * @param parent The module containing the submodule.
+		 * @param module The submodule.
+		 * @param identifier The name of the submodule in {@code parent}.
+		 * @param mark The position saved at the start of the definition of the submodule,
+		 * if the parser is recovering from errors.
+		 * @param start The number of nodes on the node stack before the definition of the
+		 * submodule was begun.
+		 */
+		public OpenSubmodule(ModuleNode parent, ModuleNode module, IdentifierNode identifier, int mark, int start) {
+			this.parent = parent;
+			this.module = module;
+			this.identifier = identifier;
+			this.mark = mark;
+			this.start = start;
+		}
+	}
+	
+	/**
+	 * Parses the content of a module from the given parser state.<br>
+	 * If the parser has a {@link Parser#setErrorCollector(ParserErrorCollector) collector}
+	 * for syntax errors, the module is parsed up to the end of the tokens, and each error
+	 * is reported to the collector rather than thrown. A definition containing an error
+	 * which could not be recovered from within the definition is given an {@link
+	 * ErrorNode} as its value, if its name could be read.
 	 * @param identifierLocation The location of the identifier representing this
 	 * module within the source file.
 	 * @param parser The parser enumerator to use.
@@ -120,61 +164,423 @@ public class ModuleNode extends Node {
 	 */
 	public static ModuleNode parse(Location identifierLocation, Parser parser) {
 		ModuleNode module = new ModuleNode(identifierLocation);
-		
-		while(parser.test(token -> token instanceof IdentifierToken) ||
-		      parser.test(token -> token.isSymbolToken(SymbolTokenType.PAREN_OPEN))) {
-			Token identifierToken;
-			IdentifierNode identifier;
-			boolean isSymbolIdentifer;
-			
-			/*
-			 * If the identifier name of the definition in the module is parenthesized, then it
-			 * must be an operator declaration, such as:
-			 *     (++) <- (\ x y -> x * x + y * y |> sqrt )
-			 */
-			if(parser.accept(token -> token.isSymbolToken(SymbolTokenType.PAREN_OPEN))) {
-				parser.expect(token -> token instanceof OperatorToken, "Expected operator symbol in operator definition.");
-				identifierToken = parser.current();
-				identifier = new IdentifierNode(
-						identifierToken.getLocation(),
-						((OperatorToken)identifierToken).getOperator());
-				parser.expect(token -> token.isSymbolToken(SymbolTokenType.PAREN_CLOSE), "Expected closing bracket after operator symbol.");
-				isSymbolIdentifer = true;
+		parseContent(module, parser, false);
+		return module;
+	}
+	
+	/**
+	 * Parses definitions into a module, following the submodules defined in it with an
+	 * explicit stack.
+	 * @param module The module to which to add the definitions.
+	 * @param parser The parser enumerator to use.
+	 * @param single Whether to parse only one definition of {@code module}, along with
+	 * the submodules it contains, rather than every definition up to the end of the
+	 * module. Syntax errors are always thrown when parsing a single definition.
+	 * @return The name of the last definition of {@code module} which was parsed.
+	 */
+	private static String parseContent(ModuleNode module, Parser parser, boolean single) {
+		boolean recovering = !single && parser.getErrorCollector() != null;
+		Deque<OpenSubmodule> open = new ArrayDeque<OpenSubmodule>();
+		ModuleNode current = module;
+		String name = null;
+		while(true) {
+			boolean submodule = !open.isEmpty();
+			boolean ends;
+			if(single && !submodule) {
+				ends = name != null;
+			} else if(recovering) {
+				ends = parser.test(TokenKind.NONE) ||
+				       (submodule && parser.test(TokenKind.symbol(SymbolTokenType.PAREN_CLOSE)));
 			} else {
-				identifierToken = parser.current(1);
-				identifier = IdentifierNode.parse(parser);
-				if(!identifier.isUnqualified()) {
-					throw new ParserException("Module definition cannot be qualified.", identifierToken);
-				}
-				isSymbolIdentifer = false;
+				ends = !startsDefinition(parser);
 			}
 			
-			parser.expect(token -> token.isSymbolToken(SymbolTokenType.BIND), "Expected back-arrow in module definition.");
-			
-			/*
-			 * Look ahead to see if the value of the definition is a function.
-			 */
-			if(parser.test(token -> token.isSymbolToken(SymbolTokenType.PAREN_OPEN)) &&
-			   parser.test(token -> token.isSymbolToken(SymbolTokenType.MODULE_DECLARE), 1)) {
-				if(isSymbolIdentifer) {
-					throw new ParserException("Module definition cannot be bound to an operator symbol.", identifierToken);
+			if(!ends) {
+				int openCount = open.size();
+				IdentifierNode identifier = recovering ?
+						beginDefinitionRecovering(current, parser, open) :
+						beginDefinition(current, parser, open, 0, 0);
+				if(open.size() > openCount) {
+					current = open.peek().module;
+				} else if(!submodule && identifier != null) {
+					name = identifier.getName();
+				}
+			} else if(submodule) {
+				OpenSubmodule closed = open.pop();
+				if(recovering) {
+					endSubmoduleRecovering(closed, parser, !open.isEmpty());
+				} else {
+					endSubmodule(closed, parser);
+				}
+				current = closed.parent;
+				if(open.isEmpty()) {
+					name = closed.identifier.getName();
 				}
-				parser.next();
-				parser.next();
-				ModuleNode submodule = ModuleNode.parse(
-						identifierToken.getLocation(),
-						parser);
-				parser.expect(token -> token.isSymbolToken(SymbolTokenType.PAREN_CLOSE), "Expected closing bracket to end module.");
-				module.addSubmodule(identifier.getName(), submodule);
 			} else {
-				Node expression = Node.parse(parser);
-				module.addDefinition(identifier.getName(), expression);
+				return name;
+			}
+		}
+	}
+	
+	/**
+	 * Parses the start of a definition, recovering from a syntax error in it, or from the
+	 * definition having the same name as an earlier one. The error is reported to the
+	 * collector of the parser, and the parser skips to the end of the definition.
+	 * @param module The module to which to add the definition.
+	 * @param parser The parser enumerator to use, which must have an error collector.
+	 * @param open The submodules being parsed, to which a submodule begun by the
+	 * definition is pushed.
+	 * @return The name of the definition, or {@code null} if there was an error.
+	 */
+	private static IdentifierNode beginDefinitionRecovering(ModuleNode module, Parser parser, Deque<OpenSubmodule> open) {
+		boolean submodule = !open.isEmpty();
+		int openCount = open.size();
+		int mark = parser.mark();
+		int start = parser.getNodeCount();
+		try {
+			if(!startsDefinition(parser)) {
+				/* This is the error which would be thrown without recovery, when the
+				 * submodule is expected to end instead.
+				 */
+				throw parser.unexpected(submodule ?
+						"Expected closing bracket to end module." :
+						"Expected definition in module.");
+			}
+			IdentifierNode identifier = beginDefinition(module, parser, open, mark, start);
+			if(open.size() == openCount) {
+				/* A submodule keeps the position saved until it ends.
+				 */
+				parser.unmark(mark);
+			}
+			return identifier;
+		} catch(ParserException | IllegalArgumentException e) {
+			recoverDefinition(module, parser, submodule, mark, start, e);
+			return null;
+		}
+	}
+	
+	/**
+	 * Parses the end of a submodule, recovering from a syntax error in it, as {@link
+	 * ModuleNode#beginDefinitionRecovering(ModuleNode, Parser, Deque)} does.
+	 * @param closed The submodule to end.
+	 * @param parser The parser enumerator to use, which must have an error collector.
+	 * @param submodule Whether the module containing {@code closed} is itself a submodule.
+	 */
+	private static void endSubmoduleRecovering(OpenSubmodule closed, Parser parser, boolean submodule) {
+		try {
+			endSubmodule(closed, parser);
+			parser.unmark(closed.mark);
+		} catch(ParserException | IllegalArgumentException e) {
+			recoverDefinition(closed.parent, parser, submodule, closed.mark, closed.start, e);
+		}
+	}
+	
+	/**
+	 * Recovers from a syntax error in a definition, or from the definition having the same
+	 * name as an earlier one. The error is reported to the collector of the parser, and the
+	 * parser skips to the end of the definition.
+	 * @param module The module containing the definition.
+	 * @param parser The parser enumerator to use, which must have an error collector.
+	 * @param submodule Whether {@code module} is a submodule.
+	 * @param mark The position saved at the start of the definition.
+	 * @param start The number of nodes on the node stack before the definition was begun.
+	 * @param exception The syntax error, or the {@link IllegalArgumentException} thrown
+	 * when adding a definition whose name was already defined.
+	 */
+	private static void recoverDefinition(ModuleNode module, Parser parser, boolean submodule, int mark, int start, RuntimeException exception) {
+		/* Go back to the start of the definition, so its name can be read and the
+		 * brackets before the error can be matched.
+		 */
+		int errorIndex = parser.getIndex() + 1;
+		parser.reset(mark);
+		ParserException error;
+		if(exception instanceof ParserException) {
+			error = (ParserException)exception;
+		} else {
+			/* A name defined twice in the module is reported at the start of the second
+			 * definition of it.
+			 */
+			error = new ParserException(exception.getMessage(), parser.currentLocation(1));
+		}
+		String name = findDefinitionName(parser);
+		parser.skipDefinition(errorIndex, submodule);
+		if(parser.getIndex() == mark) {
+			parser.next();
+		}
+		ErrorNode errorNode = parser.recover(error, start);
+		if(name != null && !module.definitions.containsKey(name) && !module.submodules.containsKey(name)) {
+			module.addDefinition(name, errorNode);
+		}
+	}
+	
+	/**
+	 * Gets the name of the definition which the next tokens begin, without advancing the
+	 * parser.
+	 * @param parser The parser enumerator to use.
+	 * @return The name of the definition, or {@code null} if the next tokens are not a
+	 * name followed by a back-arrow.
+	 */
+	private static String findDefinitionName(Parser parser) {
+		if(parser.test(TokenKind.IDENTIFIER) &&
+		   parser.test(TokenKind.symbol(SymbolTokenType.BIND), 1)) {
+			return NameTable.getName(parser.nextNameId(0));
+		} else if(parser.test(TokenKind.symbol(SymbolTokenType.PAREN_OPEN)) &&
+		          TokenKind.isOperator(parser.nextKind(1)) &&
+		          parser.test(TokenKind.symbol(SymbolTokenType.PAREN_CLOSE), 2) &&
+		          parser.test(TokenKind.symbol(SymbolTokenType.BIND), 3)) {
+			return NameTable.getName(parser.nextNameId(1));
+		} else {
+			return null;
+		}
+	}
+	
+	/**
+	 * Parses a module from a buffer of tokens, parsing its definitions at the same time on
+	 * {@code pool}. The tokens are first scanned for the semi-colons which are not inside
+	 * any brackets, each of which ends a top-level definition. The definitions between them
+	 * are split into groups, which are parsed on the pool, and then added to the module in
+	 * the order in which they appear.<br>
+	 * The module produced is the same as that produced by {@link ModuleNode#parse(Location,
+	 * Parser)}. If a definition could not be parsed on its own, or did not end at the
+	 * semi-colon found by the scan (for example, because of mismatched brackets), the module
+	 * is parsed in order from that definition onward instead, so any exception thrown is the
+	 * same as would be thrown when parsing the module in order.
+	 * @param identifierLocation The location of the identifier representing this
+	 * module within the source file.
+	 * @param tokens The tokens to parse.
+	 * @param operators The operators to understand when parsing the module.
+	 * @param pool The pool on which to parse the definitions.
+	 * @return A {@link ModuleNode}, as parsed from {@code tokens}.
+	 */
+	public static ModuleNode parseParallel(Location identifierLocation, TokenBuffer tokens, OperatorTable operators, ForkJoinPool pool) {
+		int[] ends = findDefinitionEnds(tokens);
+		int tokensPerTask = Math.max(MINIMUM_TASK_TOKENS, tokens.size() / (pool.getParallelism() * TASKS_PER_THREAD));
+		List<ForkJoinTask<ModuleNode[]>> tasks = new ArrayList<ForkJoinTask<ModuleNode[]>>();
+		for(int first = 0; first < ends.length;) {
+			int start = first == 0 ? 0 : ends[first - 1] + 1;
+			int last = first;
+			while(last < ends.length && ends[last] - start < tokensPerTask) {
+				last++;
+			}
+			if(last == first) {
+				last++;
+			}
+			int from = first, to = last;
+			tasks.add(pool.submit(() -> parseDefinitions(tokens, operators, ends, from, to)));
+			first = last;
+		}
+		
+		ModuleNode module = new ModuleNode(identifierLocation);
+		int parsed = 0;
+		assemble:
+		for(ForkJoinTask<ModuleNode[]> task : tasks) {
+			for(ModuleNode definition : task.join()) {
+				if(definition == null) {
+					break assemble;
+				}
+				module.addAll(definition);
+				parsed++;
 			}
-			parser.expect(
-					token -> token.isSymbolToken(SymbolTokenType.SEPARATOR),
-					String.format("Expected semi-colon after definition of %s.",
-							identifier.toString()));
+		}
+		for(ForkJoinTask<ModuleNode[]> task : tasks) {
+			task.cancel(false);
+		}
+		
+		/* Parse the rest of the module in order, from the first definition which could not
+		 * be parsed on its own, or from after the last semi-colon found by the scan.
+		 */
+		Parser parser = new Parser(tokens, parsed == 0 ? -1 : ends[parsed - 1], operators);
+		while(startsDefinition(parser)) {
+			parseDefinition(module, parser);
 		}
 		return module;
 	}
+	
+	/**
+	 * Scans a buffer of tokens for the semi-colons which are not inside any parentheses or
+	 * square brackets. In a module, each of these ends a top-level definition. The scan
+	 * stops at a closing bracket which has no matching opening bracket, as that can only
+	 * be the end of the module.
+	 * @param tokens The tokens to scan.
+	 * @return The indices of the semi-colons, in order.
+	 */
+	private static int[] findDefinitionEnds(TokenBuffer tokens) {
+		int[] ends = new int[16];
+		int count = 0, depth = 0;
+		for(int i = 0; i < tokens.size() && depth >= 0; i++) {
+			int kind = tokens.getKind(i);
+			if(kind == TokenKind.symbol(SymbolTokenType.PAREN_OPEN) ||
+			   kind == TokenKind.symbol(SymbolTokenType.SEQUENCE_OPEN)) {
+				depth++;
+			} else if(kind == TokenKind.symbol(SymbolTokenType.PAREN_CLOSE) ||
+			          kind == TokenKind.symbol(SymbolTokenType.SEQUENCE_CLOSE)) {
+				depth--;
+			} else if(kind == TokenKind.symbol(SymbolTokenType.SEPARATOR) && depth == 0) {
+				if(count == ends.length) {
+					ends = Arrays.copyOf(ends, count * 2);
+				}
+				ends[count++] = i;
+			}
+		}
+		return Arrays.copyOf(ends, count);
+	}
+	
+	/**
+	 * Parses a group of top-level definitions, each into a module of its own.
+	 * @param tokens The tokens to parse.
+	 * @param operators The operators to understand when parsing the definitions.
+	 * @param ends The indices of the semi-colons ending the top-level definitions.
+	 * @param first The index in {@code ends} of the first definition to parse.
+	 * @param last The index in {@code ends} after the last definition to parse.
+	 * @return An array containing a module for each definition, which defines only that
+	 * definition. If a definition cannot be parsed, or does not end at the semi-colon
+	 * expected, the element for it and those for the rest of the group are {@code null}.
+	 */
+	private static ModuleNode[] parseDefinitions(TokenBuffer tokens, OperatorTable operators, int[] ends, int first, int last) {
+		ModuleNode[] definitions = new ModuleNode[last - first];
+		Parser parser = new Parser(tokens, first == 0 ? -1 : ends[first - 1], operators);
+		for(int i = first; i < last; i++) {
+			if(!startsDefinition(parser)) {
+				break;
+			}
+			ModuleNode definition = new ModuleNode(null);
+			try {
+				parseDefinition(definition, parser);
+			} catch(RuntimeException e) {
+				/* The definition is parsed again in order, which throws the exception
+				 * again if there really is an error in it.
+				 */
+				break;
+			}
+			if(parser.getIndex() != ends[i]) {
+				break;
+			}
+			definitions[i - first] = definition;
+		}
+		return definitions;
+	}
+	
+	/**
+	 * Adds all of the definitions and submodules of another module to this module.
+	 * @param module The module whose definitions to add.
+	 */
+	private void addAll(ModuleNode module) {
+		for(Map.Entry<String, Node> definition : module.definitions.entrySet()) {
+			addDefinition(definition.getKey(), definition.getValue());
+		}
+		for(Map.Entry<String, ModuleNode> submodule : module.submodules.entrySet()) {
+			addSubmodule(submodule.getKey(), submodule.getValue());
+		}
+	}
+	
+	/**
+	 * Determines whether the next token begins a definition in a module.
+	 * @param parser The parser enumerator to use.
+	 * @return Whether the next token is the start of a definition.
+	 */
+	static boolean startsDefinition(Parser parser) {
+		return parser.test(TokenKind.IDENTIFIER) ||
+		       parser.test(TokenKind.symbol(SymbolTokenType.PAREN_OPEN));
+	}
+	
+	/**
+	 * Parses one definition, of either a value or a submodule, from the given parser
+	 * state, up to and including the semi-colon ending it, and adds it to a module.
+	 * @param module The module to which to add the definition.
+	 * @param parser The parser enumerator to use.
+	 * @return The name of the definition.
+	 */
+	static String parseDefinition(ModuleNode module, Parser parser) {
+		return parseContent(module, parser, true);
+	}
+	
+	/**
+	 * Parses the start of a definition from the given parser state. A value definition is
+	 * parsed up to and including the semi-colon ending it, and added to the module. For a
+	 * submodule definition, only the name and opening bracket are parsed, and the submodule
+	 * is pushed to {@code open}; the definitions in it are parsed next.
+	 * @param module The module to which to add the definition.
+	 * @param parser The parser enumerator to use.
+	 * @param open The submodules being parsed.
+	 * @param mark The position saved at the start of the definition, if any.
+	 * @param start The number of nodes on the node stack before the definition was begun.
+	 * @return The name of the definition.
+	 */
+	private static IdentifierNode beginDefinition(ModuleNode module, Parser parser, Deque<OpenSubmodule> open, int mark, int start) {
+		Location definitionLocation;
+		IdentifierNode identifier;
+		boolean isSymbolIdentifer;
+		
+		/*
+		 * If the identifier name of the definition in the module is parenthesized, then it
+		 * must be an operator declaration, such as:
+		 *     (++) <- (\ x y -> x * x + y * y |> sqrt )
+		 */
+		if(parser.accept(TokenKind.symbol(SymbolTokenType.PAREN_OPEN))) {
+			if(!TokenKind.isOperator(parser.nextKind())) {
+				throw parser.unexpected("Expected operator symbol in operator definition.");
+			}
+			parser.next();
+			definitionLocation = parser.currentLocation();
+			identifier = new IdentifierNode(
+					definitionLocation,
+					parser.currentNameId());
+			parser.require(TokenKind.symbol(SymbolTokenType.PAREN_CLOSE), "Expected closing bracket after operator symbol.");
+			isSymbolIdentifer = true;
+		} else {
+			identifier = IdentifierNode.parse(parser);
+			definitionLocation = identifier.getLocation();
+			if(!identifier.isUnqualified()) {
+				throw new ParserException("Module definition cannot be qualified.", definitionLocation);
+			}
+			isSymbolIdentifer = false;
+		}
+		
+		parser.require(TokenKind.symbol(SymbolTokenType.BIND), "Expected back-arrow in module definition.");
+		
+		/*
+		 * Look ahead to see if the value of the definition is a function.
+		 */
+		if(parser.test(TokenKind.symbol(SymbolTokenType.PAREN_OPEN)) &&
+		   parser.test(TokenKind.symbol(SymbolTokenType.MODULE_DECLARE), 1)) {
+			if(isSymbolIdentifer) {
+				throw new ParserException("Module definition cannot be bound to an operator symbol.", definitionLocation);
+			}
+			parser.next();
+			parser.next();
+			open.push(new OpenSubmodule(module, new ModuleNode(definitionLocation), identifier, mark, start));
+		} else {
+			Node expression = Node.parse(parser);
+			module.addDefinition(identifier.getName(), expression);
+			endDefinition(parser, identifier);
+		}
+		return identifier;
+	}
+	
+	/**
+	 * Parses the end of a submodule, after the definitions in it, and adds it to the module
+	 * containing it.
+	 * @param closed The submodule to end.
+	 * @param parser The parser enumerator to use.
+	 */
+	private static void endSubmodule(OpenSubmodule closed, Parser parser) {
+		/* The submodule is added before the closing bracket is required, so that a
+		 * parser recovering from errors keeps what it has parsed of the submodule.
+		 */
+		closed.parent.addSubmodule(closed.identifier.getName(), closed.module);
+		parser.require(TokenKind.symbol(SymbolTokenType.PAREN_CLOSE), "Expected closing bracket to end module.");
+		endDefinition(parser, closed.identifier);
+	}
+	
+	/**
+	 * Parses the semi-colon ending a definition.
+	 * @param parser The parser enumerator to use.
+	 * @param identifier The name of the definition.
+	 */
+	private static void endDefinition(Parser parser, IdentifierNode identifier) {
+		if(!parser.accept(TokenKind.symbol(SymbolTokenType.SEPARATOR))) {
+			throw parser.unexpected(String.format("Expected semi-colon after definition of %s.",
+					identifier.toString()));
+		}
+	}
 }
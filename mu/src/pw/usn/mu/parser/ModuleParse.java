@@ -0,0 +1,317 @@
+package pw.usn.mu.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import pw.usn.mu.tokenizer.AutomatonTokenizer;
+import pw.usn.mu.tokenizer.Location;
+import pw.usn.mu.tokenizer.SymbolTokenType;
+import pw.usn.mu.tokenizer.TextEdit;
+import pw.usn.mu.tokenizer.TokenBuffer;
+import pw.usn.mu.tokenizer.TokenKind;
+
+/**
+ * Represents a {@link ModuleNode} parsed from a {@link TokenBuffer}, along with the range of
+ * tokens from which each of its top-level definitions and submodules was parsed. This
+ * allows the module to be updated after an edit to its source by parsing again only the
+ * definitions which the edit affected; see {@link ModuleParse#reparse(AutomatonTokenizer,
+ * TextEdit, CharSequence)}.
+ */
+public class ModuleParse {
+	private ModuleNode module;
+	private TokenBuffer tokens;
+	private OperatorTable operators;
+	private int tokenCount;
+	private Definition[] definitions;
+
+	/**
+	 * Represents the range of tokens from which a top-level definition was parsed.
+	 */
+	private static class Definition {
+		private String name;
+		private Node value;
+		private boolean submodule;
+		private int firstToken, endToken;
+		private int start, end;
+
+		/**
+		 * Initializes a new Definition.
+		 * @param name The name of the definition.
+		 * @param value The value of the definition, or the submodule.
+		 * @param submodule Whether the definition is of a submodule.
+		 * @param firstToken The index of the first token of the definition.
+		 * @param endToken The index after the semi-colon ending the definition.
+		 * @param start The offset in the source of the first token of the definition.
+		 * @param end The offset in the source after the semi-colon ending the definition.
+		 */
+		public Definition(String name, Node value, boolean submodule, int firstToken, int endToken, int start, int end) {
+			this.name = name;
+			this.value = value;
+			this.submodule = submodule;
+			this.firstToken = firstToken;
+			this.endToken = endToken;
+			this.start = start;
+			this.end = end;
+		}
+
+		/**
+		 * Creates a copy of this definition for the source after an edit which did not
+		 * affect it.
+		 * @param tokenShift The distance by which the tokens of the definition were moved.
+		 * @param shift The distance by which the text of the definition was moved.
+		 * @return A definition with the same name and value at the new position.
+		 */
+		public Definition move(int tokenShift, int shift) {
+			return new Definition(name, value, submodule, firstToken + tokenShift, endToken + tokenShift, start + shift, end + shift);
+		}
+	}
+
+	/**
+	 * Initializes a new ModuleParse.
+	 * @param module The parsed module.
+	 * @param tokens The tokens from which the module was parsed.
+	 * @param operators The operators understood when parsing the module.
+	 * @param definitions The top-level definitions of the module, in the order in which they
+	 * appear in the source.
+	 */
+	private ModuleParse(ModuleNode module, TokenBuffer tokens, OperatorTable operators, List<Definition> definitions) {
+		this.module = module;
+		this.tokens = tokens;
+		this.operators = operators;
+		this.tokenCount = tokens.size();
+		this.definitions = definitions.toArray(new Definition[definitions.size()]);
+	}
+
+	/**
+	 * Parses a module from a buffer of tokens, as {@link ModuleNode#parse(Location, Parser)}
+	 * does, recording where each of its top-level definitions is in the buffer.
+	 * @param location The location of the module.
+	 * @param tokens The tokens to parse. These must have been read by a tokenizer, so that
+	 * the offsets of the tokens are known.
+	 * @param operators The operators to understand when parsing the module.
+	 * @return The parsed module, with the ranges of its definitions.
+	 */
+	public static ModuleParse parse(Location location, TokenBuffer tokens, OperatorTable operators) {
+		if(tokens.getSourceLength() < 0) {
+			throw new IllegalArgumentException("The token buffer must contain the offsets of its tokens.");
+		}
+		ModuleNode module = new ModuleNode(location);
+		List<Definition> definitions = new ArrayList<Definition>();
+		parseRemainingDefinitions(module, new Parser(tokens, -1, operators), tokens, definitions);
+		return new ModuleParse(module, tokens, operators, definitions);
+	}
+
+	/**
+	 * Parses a module from a buffer of tokens, understanding the operators given by {@link
+	 * OperatorTable#createDefault()}.
+	 * @param location The location of the module.
+	 * @param tokens The tokens to parse. These must have been read by a tokenizer, so that
+	 * the offsets of the tokens are known.
+	 * @return The parsed module, with the ranges of its definitions.
+	 */
+	public static ModuleParse parse(Location location, TokenBuffer tokens) {
+		return parse(location, tokens, OperatorTable.createDefault());
+	}
+
+	/**
+	 * Updates the module after an edit to its source. The tokens are first updated with
+	 * {@link AutomatonTokenizer#retokenize(TokenBuffer, TextEdit, CharSequence)}. Then, the
+	 * definitions whose tokens were not read again are kept, and the others are parsed
+	 * again, from the first definition affected by the edit until the parser reaches the
+	 * start of a definition after the edit which was not affected. If the edit changed
+	 * where a definition ends, such as by removing a semi-colon, the definitions which it
+	 * now runs into are parsed again too.<br>
+	 * The values of the kept definitions, and the kept submodules, are the same objects as
+	 * in the module before the edit, so a later stage can tell which definitions changed
+	 * by comparing them by identity. As they are not parsed again, the locations within a
+	 * kept definition after the edit still refer to the source before the edit.<br>
+	 * The tokens of this ModuleParse are updated in place, so this ModuleParse cannot be
+	 * used again afterward, unless the edited text could not be tokenized.
+	 * @param tokenizer The tokenizer with which the tokens were read.
+	 * @param edit The edit made to the source.
+	 * @param text The text of the source after the edit.
+	 * @return The updated module, with the ranges of its definitions.
+	 * @throws TokenizerException when the edited text cannot be tokenized. In this case,
+	 * this ModuleParse is left unchanged.
+	 * @throws ParserException when the edited module cannot be parsed.
+	 */
+	public ModuleParse reparse(AutomatonTokenizer tokenizer, TextEdit edit, CharSequence text) {
+		tokenizer.retokenize(tokens, edit, text);
+		int rereadStart = tokens.getRereadStart(), rereadEnd = tokens.getRereadEnd();
+		int tokenShift = tokens.size() - tokenCount;
+
+		ModuleNode updatedModule = new ModuleNode(module.getLocation());
+		List<Definition> updated = new ArrayList<Definition>(definitions.length);
+
+		/* The definitions which end before the re-read text are kept where they are.
+		 */
+		int kept = 0;
+		while(kept < definitions.length && definitions[kept].end <= rereadStart) {
+			add(updatedModule, updated, definitions[kept]);
+			kept++;
+		}
+
+		/* The definitions which start after the re-read text could be kept, if the parser
+		 * reaches the start of one of them. Parse from the end of the last kept definition
+		 * until it does.
+		 */
+		int resumed = kept;
+		while(resumed < definitions.length && definitions[resumed].start < rereadEnd) {
+			resumed++;
+		}
+		int first = kept == 0 ? -1 : definitions[kept - 1].endToken - 1;
+		Parser parser = new Parser(tokens, first, operators);
+		resumed = parseChangedDefinitions(updatedModule, parser, resumed, tokenShift, updated);
+
+		/* If the parser reached the start of a definition after the edit, that definition
+		 * and the rest of the module are the same as before.
+		 */
+		for(int i = resumed; i < definitions.length; i++) {
+			add(updatedModule, updated, definitions[i].move(tokenShift, edit.getShift()));
+		}
+		return new ModuleParse(updatedModule, tokens, operators, updated);
+	}
+
+	/**
+	 * Parses definitions until the parser reaches the start of one of the definitions of
+	 * this module, or the end of the module.
+	 * @param module The module to which to add the parsed definitions.
+	 * @param parser The parser enumerator to use.
+	 * @param resumed The index of the first definition of this module at whose start the
+	 * parser may stop.
+	 * @param tokenShift The distance by which the tokens of the definitions from {@code
+	 * resumed} onward have been moved.
+	 * @param definitions The list to which to add the ranges of the parsed definitions.
+	 * @return The index of the definition at whose start the parser stopped, or the number
+	 * of definitions in this module if the parser reached the end of the module.
+	 */
+	private int parseChangedDefinitions(ModuleNode module, Parser parser, int resumed, int tokenShift, List<Definition> definitions) {
+		while(resumed < this.definitions.length) {
+			int boundary = this.definitions[resumed].firstToken + tokenShift;
+			if(parser.getIndex() + 1 == boundary) {
+				return resumed;
+			} else if(parser.getIndex() + 1 > boundary) {
+				resumed++;
+			} else if(!ModuleNode.startsDefinition(parser)) {
+				/* The module ends before the definition, so it and the rest of the
+				 * definitions are no longer part of the module.
+				 */
+				return this.definitions.length;
+			} else {
+				parseDefinition(module, parser, tokens, definitions);
+			}
+		}
+		parseRemainingDefinitions(module, parser, tokens, definitions);
+		return this.definitions.length;
+	}
+
+	/**
+	 * Parses definitions until the end of the module.
+	 * @param module The module to which to add the parsed definitions.
+	 * @param parser The parser enumerator to use.
+	 * @param tokens The tokens being parsed.
+	 * @param definitions The list to which to add the ranges of the parsed definitions.
+	 */
+	private static void parseRemainingDefinitions(ModuleNode module, Parser parser, TokenBuffer tokens, List<Definition> definitions) {
+		while(ModuleNode.startsDefinition(parser)) {
+			parseDefinition(module, parser, tokens, definitions);
+		}
+	}
+
+	/**
+	 * Parses one definition and records its range.
+	 * @param module The module to which to add the parsed definition.
+	 * @param parser The parser enumerator to use.
+	 * @param tokens The tokens being parsed.
+	 * @param definitions The list to which to add the range of the parsed definition.
+	 */
+	private static void parseDefinition(ModuleNode module, Parser parser, TokenBuffer tokens, List<Definition> definitions) {
+		int firstToken = parser.getIndex() + 1;
+		String name = ModuleNode.parseDefinition(module, parser);
+		int lastToken = parser.getIndex();
+
+		/* Submodules are the only definitions of the form: name <- (@ ... )
+		 */
+		boolean submodule =
+				tokens.getKind(firstToken) == TokenKind.IDENTIFIER &&
+				tokens.getKind(firstToken + 2) == TokenKind.symbol(SymbolTokenType.PAREN_OPEN) &&
+				tokens.getKind(firstToken + 3) == TokenKind.symbol(SymbolTokenType.MODULE_DECLARE);
+		definitions.add(new Definition(
+				name,
+				submodule ? module.getSubmodule(name) : module.getDefinition(name),
+				submodule,
+				firstToken,
+				lastToken + 1,
+				tokens.getStart(firstToken),
+				tokens.getStart(lastToken) + tokens.getLength(lastToken)));
+	}
+
+	/**
+	 * Adds a kept definition to a module.
+	 * @param module The module to which to add the definition.
+	 * @param definitions The list to which to add the range of the definition.
+	 * @param definition The definition to add.
+	 */
+	private static void add(ModuleNode module, List<Definition> definitions, Definition definition) {
+		if(definition.submodule) {
+			module.addSubmodule(definition.name, (ModuleNode)definition.value);
+		} else {
+			module.addDefinition(definition.name, definition.value);
+		}
+		definitions.add(definition);
+	}
+
+	/**
+	 * Gets the parsed module.
+	 * @return The module parsed from the tokens.
+	 */
+	public ModuleNode getModule() {
+		return module;
+	}
+
+	/**
+	 * Gets the tokens from which the module was parsed.
+	 * @return The token buffer containing the tokens of the module.
+	 */
+	public TokenBuffer getTokens() {
+		return tokens;
+	}
+
+	/**
+	 * Gets the number of top-level definitions, including submodules, in the module.
+	 * @return The number of definitions parsed.
+	 */
+	public int getDefinitionCount() {
+		return definitions.length;
+	}
+
+	/**
+	 * Gets the name of a top-level definition.
+	 * @param index The index of the definition, in the order in which the definitions
+	 * appear in the source.
+	 * @return The name of the definition.
+	 */
+	public String getDefinitionName(int index) {
+		return definitions[index].name;
+	}
+
+	/**
+	 * Gets the index of the first token of a top-level definition.
+	 * @param index The index of the definition, in the order in which the definitions
+	 * appear in the source.
+	 * @return The index in the token buffer of the first token of the definition.
+	 */
+	public int getFirstToken(int index) {
+		return definitions[index].firstToken;
+	}
+
+	/**
+	 * Gets the index of the token after a top-level definition.
+	 * @param index The index of the definition, in the order in which the definitions
+	 * appear in the source.
+	 * @return The index in the token buffer after the semi-colon ending the definition.
+	 */
+	public int getEndToken(int index) {
+		return definitions[index].endToken;
+	}
+}
@@ -1,17 +1,11 @@
 package pw.usn.mu.parser;
 
-import java.util.Stack;
-
 import pw.usn.mu.parser.binding.BindTupleNode;
 import pw.usn.mu.parser.binding.BindValueNode;
-import pw.usn.mu.tokenizer.IdentifierToken;
-import pw.usn.mu.tokenizer.LiteralIntToken;
-import pw.usn.mu.tokenizer.LiteralStringToken;
-import pw.usn.mu.tokenizer.LiteralSymbolToken;
 import pw.usn.mu.tokenizer.Location;
-import pw.usn.mu.tokenizer.OperatorToken;
-import pw.usn.mu.tokenizer.OperatorTokenType;
+import pw.usn.mu.tokenizer.NameTable;
 import pw.usn.mu.tokenizer.SymbolTokenType;
+import pw.usn.mu.tokenizer.TokenKind;
 
 /**
  * Represents a node of the parsed AST produced from parsing a source file.
@@ -41,6 +35,9 @@ public abstract class Node implements Parsable {
 	 * @return An AST node, as parsed from the current input.
 	 */
 	public static Node parse(Parser parser) {
+		if(parser.isStackSafe()) {
+			return parser.getIterativeParser().parse(IterativeParser.EXPRESSION);
+		}
 		return TupleNode.parse(parser);
 	}
 	
@@ -52,7 +49,10 @@ public abstract class Node implements Parsable {
 	 * @return An AST node, as parsed from the current input.
 	 */
 	public static Node parseTight(Parser parser) {
-		return parseCons(parser);
+		if(parser.isStackSafe()) {
+			return parser.getIterativeParser().parse(IterativeParser.OPERATION);
+		}
+		return parseOperation(parser, 1);
 	}
 	
 	/**
@@ -64,7 +64,7 @@ public abstract class Node implements Parsable {
 	 * @return An {@link ApplicationNode} syntax tree node representing the application of the
 	 * given {@code operator} with the given {@code left} and {@code right} operands.
 	 */
-	private static ApplicationNode createOperationApplication(Node operator, Node left, Node right) {
+	static ApplicationNode createOperationApplication(Node operator, Node left, Node right) {
 		return new ApplicationNode(
 				operator.getLocation(),
 				new ApplicationNode(
@@ -81,7 +81,7 @@ public abstract class Node implements Parsable {
 	 * @return An {@link ApplicationNode} syntax tree node representing the application of the
 	 * given {@code operator} with the given {@code operand}.
 	 */
-	private static ApplicationNode createOperationApplication(Node operator, Node operand) {
+	static ApplicationNode createOperationApplication(Node operator, Node operand) {
 		return new ApplicationNode(
 				operator.getLocation(),
 				operator,
@@ -95,14 +95,14 @@ public abstract class Node implements Parsable {
 	 * @return A binding structure node, as parsed from the current input.
 	 */
 	public static Node parseBindNode(Parser parser) {
-		if(parser.test(token -> token instanceof IdentifierToken)) {
+		if(parser.test(TokenKind.IDENTIFIER)) {
 			return BindValueNode.parse(parser);
-		} else if(parser.accept(token -> token.isSymbolToken(SymbolTokenType.PAREN_OPEN))) {
+		} else if(parser.accept(TokenKind.symbol(SymbolTokenType.PAREN_OPEN))) {
 			Node bindNode = BindTupleNode.parse(parser);
-			parser.expect(token -> token.isSymbolToken(SymbolTokenType.PAREN_CLOSE), "Closing parenthesis expected.");
+			parser.require(TokenKind.symbol(SymbolTokenType.PAREN_CLOSE), "Closing parenthesis expected.");
 			return bindNode;
 		} else {
-			throw new ParserException("Unexpected token in expression.", parser.current(1));
+			throw parser.unexpected("Unexpected token in expression.");
 		}
 	}
 	
@@ -113,134 +113,141 @@ public abstract class Node implements Parsable {
 	 * @return An AST node, as parsed from the current input.
 	 */
 	public static Node parseAtomic(Parser parser) {
-		if(parser.test(token -> token instanceof LiteralStringToken)) {
+		if(parser.isStackSafe()) {
+			return parser.getIterativeParser().parse(IterativeParser.ATOMIC);
+		} else if(parser.test(TokenKind.LITERAL_STRING)) {
 			return LiteralStringNode.parse(parser);
-		} else if(parser.test(token -> token instanceof LiteralIntToken)) {
+		} else if(parser.test(TokenKind.LITERAL_INT)) {
 			return LiteralIntNode.parse(parser);
-		} else if(parser.test(token -> token instanceof LiteralSymbolToken)) {
+		} else if(parser.test(TokenKind.LITERAL_SYMBOL)) {
 			return LiteralSymbolNode.parse(parser);
-		} else if(parser.test(token -> token instanceof IdentifierToken)) {
+		} else if(parser.test(TokenKind.IDENTIFIER)) {
 			return IdentifierNode.parse(parser);
-		} else if(parser.test(token -> token.isSymbolToken(SymbolTokenType.SEQUENCE_OPEN))) {
+		} else if(parser.test(TokenKind.symbol(SymbolTokenType.SEQUENCE_OPEN))) {
 			return SequenceNode.parse(parser);
-		} else if(parser.accept(token -> token.isSymbolToken(SymbolTokenType.PAREN_OPEN))) {
-			if(parser.accept(token -> token.isSymbolToken(SymbolTokenType.PAREN_CLOSE))) {
-				return new TupleNode(parser.current().getLocation());
+		} else if(parser.accept(TokenKind.symbol(SymbolTokenType.PAREN_OPEN))) {
+			if(parser.accept(TokenKind.symbol(SymbolTokenType.PAREN_CLOSE))) {
+				return new TupleNode(parser.currentLocation());
 			} else {
-				Node expression;
-				if(parser.test(token -> token.isSymbolToken(SymbolTokenType.FUNCTION_DECLARE))) {
-					expression = FunctionNode.parse(parser);
-				} else if(parser.test(token -> token.isSymbolToken(SymbolTokenType.SWITCH_DECLARE))) {
-					expression = SwitchNode.parse(parser);
-				} else {
-					expression = Node.parse(parser);
+				int start = parser.getNodeCount();
+				try {
+					Node expression;
+					if(parser.test(TokenKind.symbol(SymbolTokenType.FUNCTION_DECLARE))) {
+						expression = FunctionNode.parse(parser);
+					} else if(parser.test(TokenKind.symbol(SymbolTokenType.SWITCH_DECLARE))) {
+						expression = SwitchNode.parse(parser);
+					} else {
+						expression = Node.parse(parser);
+					}
+					parser.require(TokenKind.symbol(SymbolTokenType.PAREN_CLOSE), "Closing parenthesis expected.");
+					return expression;
+				} catch(ParserException e) {
+					/* A parser recovering from errors replaces the content of the
+					 * parentheses with an error node, if the parentheses are closed.
+					 */
+					if(parser.getErrorCollector() == null || !parser.skipToClosingParenthesis()) {
+						throw e;
+					}
+					parser.next();
+					return parser.recover(e, start);
 				}
-				parser.expect(token -> token.isSymbolToken(SymbolTokenType.PAREN_CLOSE), "Closing parenthesis expected.");
-				return expression;
 			}
 		} else {
-			throw new ParserException("Unexpected token in expression.", parser.current(1));
+			throw parser.unexpected("Unexpected token in expression.");
 		}
 	}
 	
 	/**
-	 * Parses an expression at the precedence of the right-associative cons ({@code ::}) operator.
+	 * Parses an expression containing only the infix operators with at least the given
+	 * precedence, using the {@link OperatorTable} of the parser. Runs of left-associative
+	 * operators are grouped in a loop, so an expression is parsed with only one call for
+	 * each rise in precedence, rather than one for each precedence level.
 	 * @param parser The parser enumerator to use.
+	 * @param minimumPrecedence The lowest precedence of the operators which may appear in
+	 * the expression, which must be greater than zero.
 	 * @return An AST node, as parsed from the current input.
 	 */
-	private static Node parseCons(Parser parser) {
-		/* This uses a stack to parse the cons operator due to its right associativity.
-		 * The location stack stores the location of the :: symbols themselves and will
-		 * always have exactly one less item than the node stack. 
-		 */
-		Stack<Node> nodes = new Stack<Node>();
-		Stack<Location> locations = new Stack<Location>();
-
-		nodes.add(parseBooleanPrecedence(parser));
-		while(parser.accept(token -> token.isSymbolToken(SymbolTokenType.CONS))) {
-			locations.add(parser.current().getLocation());
-			nodes.add(parseBooleanPrecedence(parser));
-		}
-		
-		Node expr = nodes.pop();
-		while(!nodes.isEmpty()) {
-			expr = createOperationApplication(new IdentifierNode(locations.pop(), CONS_BUILTIN), nodes.pop(), expr);
-		}
-		return expr;
-	}
-	
-	/**
-	 * Parses an expression at the precedence of the boolean operators.
-	 * @param parser The parser enumerator to use.
-	 * @return An AST node, as parsed from the current input.
-	 */
-	private static Node parseBooleanPrecedence(Parser parser) {
-		Node left = parseEqualityPrecedence(parser);
-		while(parser.accept(token -> token.isOperatorToken(OperatorTokenType.BOOLEAN))) {
-			OperatorToken operatorToken = (OperatorToken)parser.current();
-			String operator = operatorToken.getOperator();
-			left = createOperationApplication(new IdentifierNode(operatorToken.getLocation(), operator), left, parseEqualityPrecedence(parser));
+	private static Node parseOperation(Parser parser, int minimumPrecedence) {
+		OperatorTable operators = parser.getOperators();
+		Node left = parseOperand(parser);
+		int kind = parser.nextKind();
+		int precedence = operators.getPrecedence(kind);
+		while(precedence >= minimumPrecedence && precedence > 0) {
+			if(operators.isRightAssociative(kind)) {
+				left = parseRightAssociative(parser, left, precedence);
+			} else {
+				parser.next();
+				Node operator = createOperator(parser, kind);
+				left = createOperationApplication(operator, left, parseOperation(parser, precedence + 1));
+			}
+			kind = parser.nextKind();
+			precedence = operators.getPrecedence(kind);
 		}
 		return left;
 	}
 	
 	/**
-	 * Parses an expression at the precedence of the (in)equality operators.
+	 * Parses the rest of a run of right-associative infix operators with the same precedence,
+	 * such as the cons ({@code ::}) operator. The operands are parsed in a loop and grouped
+	 * from the right afterward, so a long run (like a long list written with {@code ::})
+	 * does not need a call for each operator.
 	 * @param parser The parser enumerator to use.
+	 * @param first The first operand of the run, which has already been parsed.
+	 * @param precedence The precedence of the operators in the run.
 	 * @return An AST node, as parsed from the current input.
 	 */
-	private static Node parseEqualityPrecedence(Parser parser) {
-		Node left = parseSummationPrecedence(parser);
-		while(parser.accept(token -> token.isOperatorToken(OperatorTokenType.EQUALITY))) {
-			OperatorToken operatorToken = (OperatorToken)parser.current();
-			String operator = operatorToken.getOperator();
-			left = createOperationApplication(new IdentifierNode(operatorToken.getLocation(), operator), left, parseSummationPrecedence(parser));
+	private static Node parseRightAssociative(Parser parser, Node first, int precedence) {
+		/* The operands and operators are pushed onto the node stack of the parser in the
+		 * order in which they appear, so the stack always holds one more operand than
+		 * operators.
+		 */
+		int start = parser.getNodeCount();
+		parser.pushNode(first);
+		int kind = parser.nextKind();
+		while(parser.getOperators().getPrecedence(kind) == precedence) {
+			parser.next();
+			parser.pushNode(createOperator(parser, kind));
+			parser.pushNode(parseOperation(parser, precedence + 1));
+			kind = parser.nextKind();
 		}
-		return left;
-	}
-	
-	/**
-	 * Parses an expression at the precedence of the summation operators.
-	 * @param parser The parser enumerator to use.
-	 * @return An AST node, as parsed from the current input.
-	 */
-	private static Node parseSummationPrecedence(Parser parser) {
-		Node left = parseProductionPrecedence(parser);
-		while(parser.accept(token -> token.isOperatorToken(OperatorTokenType.SUM))) {
-			OperatorToken operatorToken = (OperatorToken)parser.current();
-			String operator = operatorToken.getOperator();
-			left = createOperationApplication(new IdentifierNode(operatorToken.getLocation(), operator), left, parseProductionPrecedence(parser));
+		
+		Node expr = parser.popNode();
+		while(parser.getNodeCount() > start) {
+			Node operator = parser.popNode();
+			expr = createOperationApplication(operator, parser.popNode(), expr);
 		}
-		return left;
+		return expr;
 	}
 	
 	/**
-	 * Parses an expression at the precedence of the production operators.
+	 * Parses an operand of an infix operator, which is an application optionally preceded
+	 * by prefix operators.
 	 * @param parser The parser enumerator to use.
 	 * @return An AST node, as parsed from the current input.
 	 */
-	private static Node parseProductionPrecedence(Parser parser) {
-		Node left = parseUnaryPrecedence(parser);
-		while(parser.accept(token -> token.isOperatorToken(OperatorTokenType.PRODUCT))) {
-			OperatorToken operatorToken = (OperatorToken)parser.current();
-			String operator = operatorToken.getOperator();
-			left = createOperationApplication(new IdentifierNode(operatorToken.getLocation(), operator), left, parseUnaryPrecedence(parser));
+	private static Node parseOperand(Parser parser) {
+		int kind = parser.nextKind();
+		if(parser.getOperators().isPrefix(kind)) {
+			parser.next();
+			Node operator = createOperator(parser, kind);
+			return createOperationApplication(operator, parseOperand(parser));
+		} else {
+			return ApplicationNode.parse(parser);
 		}
-		return left;
 	}
 	
 	/**
-	 * Parses an expression at the precedence of the production operators.
-	 * @param parser The parser enumerator to use.
-	 * @return An AST node, as parsed from the current input.
+	 * Creates the identifier which an operator is applied as, from the current token.
+	 * @param parser The parser enumerator to use, whose current token is the operator.
+	 * @param kind The kind of the operator token.
+	 * @return An {@link IdentifierNode} naming the function applied by the operator.
 	 */
-	private static Node parseUnaryPrecedence(Parser parser) {
-		if(parser.accept(token -> token.isOperatorToken(OperatorTokenType.UNARY))) {
-			OperatorToken operatorToken = (OperatorToken)parser.current();
-			String operator = operatorToken.getOperator();
-			return createOperationApplication(new IdentifierNode(operatorToken.getLocation(), operator), parseUnaryPrecedence(parser));
+	static IdentifierNode createOperator(Parser parser, int kind) {
+		int nameId = parser.getOperators().getNameId(kind);
+		if(nameId == NameTable.NO_NAME) {
+			return new IdentifierNode(parser.currentLocation(), parser.currentNameId());
 		} else {
-			return ApplicationNode.parse(parser);
+			return new IdentifierNode(parser.currentLocation(), nameId);
 		}
 	}
 }
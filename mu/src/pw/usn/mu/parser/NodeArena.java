@@ -0,0 +1,951 @@
+package pw.usn.mu.parser;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import pw.usn.mu.Source;
+import pw.usn.mu.parser.binding.BindConsNode;
+import pw.usn.mu.parser.binding.BindTupleNode;
+import pw.usn.mu.parser.binding.BindValueNode;
+import pw.usn.mu.tokenizer.LineOffsetTable;
+import pw.usn.mu.tokenizer.LiteralIntTokenBase;
+import pw.usn.mu.tokenizer.Location;
+import pw.usn.mu.tokenizer.NameTable;
+
+/**
+ * Represents a parsed AST stored in flat arrays of primitives, rather than as a graph of
+ * {@link Node} objects. Each node is identified by an index into the arena, and has a
+ * kind (from {@link NodeKind}), an offset into the source, a payload and a slice of a
+ * shared data array, containing the indices of its children. The payload holds the name
+ * id (in the {@link NameTable}) of an identifier, function argument or bound value, the
+ * value of an int literal, or the index of the value of a string or symbol literal in a
+ * table of strings. The data of an identifier holds the name ids of its qualifying
+ * modules, and the data of a module holds the name id and the index of each of its
+ * definitions, followed by those of each of its submodules.<br>
+ * The nodes are stored in post-order: the children of a node always come before it, and
+ * the nodes of the subtree under a node are stored next to each other, from {@link
+ * NodeArena#getSubtreeStart(int)} up to the node itself. A whole tree can therefore be
+ * walked bottom-up by a single loop over the indices.<br>
+ * Locations are not stored as objects. The location of a node which refers to an offset
+ * in the source of the tree is stored as that offset, and a {@link Location} is created
+ * for it when it is asked for; only locations which do not, such as those of generated
+ * nodes, are kept in a separate table.<br>
+ * The nodes can be read with the typed accessors of the arena, such as {@link
+ * NodeArena#getFunction(int)} for an application, or turned back into {@link Node}
+ * objects with {@link NodeArena#getNode(int)}. {@link NodeArena#getModule()} gives a
+ * {@link ModuleNode} which creates the nodes of each definition only when the definition
+ * is first asked for, so an analyser which reads a {@link ModuleNode} can read an arena
+ * without change.
+ */
+public class NodeArena {
+	private byte[] kinds;
+	private int[] offsets;
+	private int[] payloads;
+	private int[] dataStarts;
+	private int[] data;
+	private int nodeCount, dataCount;
+	private String[] strings;
+	private int stringCount;
+	private Map<String, Integer> stringIds;
+	private Source source;
+	private LineOffsetTable lines;
+	private Map<Integer, Location> otherLocations;
+
+	/**
+	 * Initializes a new, empty NodeArena.
+	 */
+	private NodeArena() {
+		this.kinds = new byte[64];
+		this.offsets = new int[64];
+		this.payloads = new int[64];
+		this.dataStarts = new int[65];
+		this.data = new int[64];
+		this.strings = new String[16];
+		this.stringIds = new HashMap<String, Integer>();
+		this.otherLocations = new HashMap<Integer, Location>();
+	}
+
+	/**
+	 * Creates a NodeArena containing the given module and every node within it. The tree
+	 * is walked without recursion, so a tree of any depth can be stored.
+	 * @param module The module to store.
+	 * @return A new arena whose root is the given module.
+	 */
+	public static NodeArena build(ModuleNode module) {
+		NodeArena arena = new NodeArena();
+		arena.addTree(module);
+		arena.trim();
+		return arena;
+	}
+
+	/**
+	 * Adds the nodes of a tree to the arena, children first.
+	 * @param root The root of the tree to add.
+	 */
+	private void addTree(Node root) {
+		/* Each level of the stack holds a node whose children are being added, the number
+		 * of its children added so far, and the names of the definitions and submodules
+		 * if it is a module. The indices of the
+		 * added children are kept on a separate stack until their parent is added.
+		 */
+		Node[] nodes = new Node[16];
+		int[] added = new int[16];
+		String[][] definitionNames = new String[16][], submoduleNames = new String[16][];
+		int[] children = new int[16];
+		int depth = 0, childCount = 0;
+
+		Node node = root;
+		while(true) {
+			if(node != null) {
+				if(depth == nodes.length) {
+					nodes = Arrays.copyOf(nodes, depth * 2);
+					added = Arrays.copyOf(added, depth * 2);
+					definitionNames = Arrays.copyOf(definitionNames, depth * 2);
+					submoduleNames = Arrays.copyOf(submoduleNames, depth * 2);
+				}
+				nodes[depth] = node;
+				added[depth] = 0;
+				if(node instanceof ModuleNode) {
+					definitionNames[depth] = ((ModuleNode)node).getDefinitions();
+					submoduleNames[depth] = ((ModuleNode)node).getSubmodules();
+				}
+				depth++;
+			}
+
+			int top = depth - 1;
+			node = getChild(nodes[top], definitionNames[top], submoduleNames[top], added[top]);
+			if(node != null) {
+				added[top]++;
+			} else {
+				int count = added[top];
+				childCount -= count;
+				int index = addNode(nodes[top], definitionNames[top], submoduleNames[top], children, childCount, count);
+				nodes[top] = null;
+				definitionNames[top] = submoduleNames[top] = null;
+				depth--;
+				if(depth == 0) {
+					return;
+				}
+				if(childCount == children.length) {
+					children = Arrays.copyOf(children, childCount * 2);
+				}
+				children[childCount++] = index;
+			}
+		}
+	}
+
+	/**
+	 * Gets a child of a node which is being added to the arena.
+	 * @param node The node whose child to get.
+	 * @param definitionNames The names of the definitions of {@code node}, if it is a module.
+	 * @param submoduleNames The names of the submodules of {@code node}, if it is a module.
+	 * @param index The index of the child to get.
+	 * @return The {@code index}-th child of {@code node}, or {@code null} if it has no more
+	 * children.
+	 */
+	private static Node getChild(Node node, String[] definitionNames, String[] submoduleNames, int index) {
+		if(node instanceof ApplicationNode) {
+			ApplicationNode application = (ApplicationNode)node;
+			return index == 0 ? application.getFunction() : index == 1 ? application.getArgument() : null;
+		} else if(node instanceof FunctionNode) {
+			return index == 0 ? ((FunctionNode)node).getBody() : null;
+		} else if(node instanceof BindingNode) {
+			BindingNode binding = (BindingNode)node;
+			return index == 0 ? binding.getBindingStructure() : index == 1 ? binding.getValue() : index == 2 ? binding.getContent() : null;
+		} else if(node instanceof TupleNode) {
+			TupleNode tuple = (TupleNode)node;
+			return index < tuple.getSize() ? tuple.getValue(index) : null;
+		} else if(node instanceof SequenceNode) {
+			SequenceNode sequence = (SequenceNode)node;
+			return index < sequence.getLength() ? sequence.getValue(index) : null;
+		} else if(node instanceof SwitchNode) {
+			SwitchNode switchNode = (SwitchNode)node;
+			return index == 0 ? switchNode.getExpression() : index <= switchNode.getBranchCount() ? switchNode.getBranch(index - 1) : null;
+		} else if(node instanceof SwitchBranchNode) {
+			SwitchBranchNode branch = (SwitchBranchNode)node;
+			return index == 0 ? branch.getPattern() : index == 1 ? branch.getCondition() : index == 2 ? branch.getResult() : null;
+		} else if(node instanceof BindTupleNode) {
+			BindTupleNode tuple = (BindTupleNode)node;
+			return index < tuple.getSize() ? tuple.getValue(index) : null;
+		} else if(node instanceof BindConsNode) {
+			BindConsNode cons = (BindConsNode)node;
+			return index == 0 ? cons.getHead() : index == 1 ? cons.getTail() : null;
+		} else if(node instanceof ModuleNode) {
+			ModuleNode module = (ModuleNode)node;
+			if(index < definitionNames.length) {
+				return module.getDefinition(definitionNames[index]);
+			} else if(index < definitionNames.length + submoduleNames.length) {
+				return module.getSubmodule(submoduleNames[index - definitionNames.length]);
+			} else {
+				return null;
+			}
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * Adds a node to the arena, after all of its children have been added.
+	 * @param node The node to add.
+	 * @param definitionNames The names of the definitions of {@code node}, if it is a module.
+	 * @param submoduleNames The names of the submodules of {@code node}, if it is a module.
+	 * @param children The array containing the indices of the children of {@code node}.
+	 * @param start The position in {@code children} of the first child of {@code node}.
+	 * @param count The number of children of {@code node}.
+	 * @return The index of the added node.
+	 */
+	private int addNode(Node node, String[] definitionNames, String[] submoduleNames, int[] children, int start, int count) {
+		int index = nodeCount;
+		if(index == kinds.length) {
+			kinds = Arrays.copyOf(kinds, index * 2);
+			offsets = Arrays.copyOf(offsets, index * 2);
+			payloads = Arrays.copyOf(payloads, index * 2);
+			dataStarts = Arrays.copyOf(dataStarts, index * 2 + 1);
+		}
+		int kind = NodeKind.of(node);
+		kinds[index] = (byte)kind;
+		setLocation(index, node.getLocation());
+
+		switch(kind) {
+		case NodeKind.MODULE:
+			payloads[index] = definitionNames.length;
+			for(int i = 0; i < count; i++) {
+				String name = i < definitionNames.length ? definitionNames[i] : submoduleNames[i - definitionNames.length];
+				addData(NameTable.intern(name));
+				addData(children[start + i]);
+			}
+			break;
+		case NodeKind.IDENTIFIER:
+			IdentifierNode identifier = (IdentifierNode)node;
+			payloads[index] = identifier.getNameId();
+			for(int module : identifier.getModuleIds()) {
+				addData(module);
+			}
+			break;
+		case NodeKind.FUNCTION:
+			payloads[index] = NameTable.intern(((FunctionNode)node).getArgumentName());
+			addData(children[start]);
+			break;
+		case NodeKind.BIND_VALUE:
+			payloads[index] = NameTable.intern(((BindValueNode)node).getValueName());
+			break;
+		case NodeKind.LITERAL_INT:
+			LiteralIntNode literal = (LiteralIntNode)node;
+			payloads[index] = literal.getValue();
+			addData(literal.getOriginalBase().ordinal());
+			break;
+		case NodeKind.LITERAL_STRING:
+			payloads[index] = addString(((LiteralStringNode)node).getValue());
+			break;
+		case NodeKind.LITERAL_SYMBOL:
+			payloads[index] = addString(((LiteralSymbolNode)node).getValue());
+			break;
+		default:
+			for(int i = 0; i < count; i++) {
+				addData(children[start + i]);
+			}
+			break;
+		}
+		dataStarts[index + 1] = dataCount;
+		nodeCount++;
+		return index;
+	}
+
+	/**
+	 * Stores the location of a node. The first location with an offset determines the
+	 * source and row table of the arena.
+	 * @param index The index of the node.
+	 * @param location The location of the node.
+	 */
+	private void setLocation(int index, Location location) {
+		if(location != null && location.getOffset() >= 0) {
+			if(lines == null) {
+				source = location.getSource();
+				lines = location.getLineOffsets();
+			}
+			if(location.getSource() == source && location.getLineOffsets() == lines) {
+				offsets[index] = location.getOffset();
+				return;
+			}
+		}
+		offsets[index] = -1;
+		otherLocations.put(index, location);
+	}
+
+	/**
+	 * Appends a value to the data array.
+	 * @param value The value to append.
+	 */
+	private void addData(int value) {
+		if(dataCount == data.length) {
+			data = Arrays.copyOf(data, dataCount * 2);
+		}
+		data[dataCount++] = value;
+	}
+
+	/**
+	 * Adds a string to the string table, if it is not already there.
+	 * @param value The string to add.
+	 * @return The index of {@code value} in the string table.
+	 */
+	private int addString(String value) {
+		Integer id = stringIds.get(value);
+		if(id == null) {
+			if(stringCount == strings.length) {
+				strings = Arrays.copyOf(strings, stringCount * 2);
+			}
+			id = stringCount;
+			strings[stringCount++] = value;
+			stringIds.put(value, id);
+		}
+		return id;
+	}
+
+	/**
+	 * Shrinks the arrays of the arena to the number of nodes stored in it.
+	 */
+	private void trim() {
+		kinds = Arrays.copyOf(kinds, nodeCount);
+		offsets = Arrays.copyOf(offsets, nodeCount);
+		payloads = Arrays.copyOf(payloads, nodeCount);
+		dataStarts = Arrays.copyOf(dataStarts, nodeCount + 1);
+		data = Arrays.copyOf(data, dataCount);
+		strings = Arrays.copyOf(strings, stringCount);
+		stringIds = null;
+	}
+
+	/**
+	 * Gets the number of nodes stored in the arena.
+	 * @return The number of nodes. Nodes are indexed from {@code 0} up to one less than
+	 * this value.
+	 */
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * Gets the index of the root of the tree stored in the arena.
+	 * @return The index of the module from which the arena was built. As the nodes are
+	 * stored in post-order, this is the last node.
+	 */
+	public int getRoot() {
+		return nodeCount - 1;
+	}
+
+	/**
+	 * Gets the kind of a node.
+	 * @param node The index of the node.
+	 * @return The kind of the node, from {@link NodeKind}.
+	 */
+	public int getKind(int node) {
+		return kinds[node];
+	}
+
+	/**
+	 * Gets the location of a node.
+	 * @param node The index of the node.
+	 * @return The location of the node in its source.
+	 */
+	public Location getLocation(int node) {
+		int offset = offsets[node];
+		return offset >= 0 ? new Location(source, lines, offset) : otherLocations.get(node);
+	}
+
+	/**
+	 * Gets the offset in the source of the location of a node.
+	 * @param node The index of the node.
+	 * @return The offset in characters from the start of the source of the arena, or
+	 * {@code -1} if the location of the node is not stored as an offset in that source.
+	 */
+	public int getOffset(int node) {
+		return offsets[node];
+	}
+
+	/**
+	 * Gets the source to which the offsets of the arena refer.
+	 * @return The source of the tree stored in the arena, or {@code null} if no node has
+	 * its location stored as an offset.
+	 */
+	public Source getSource() {
+		return source;
+	}
+
+	/**
+	 * Gets the table of row offsets of the source to which the offsets of the arena refer.
+	 * @return The {@link LineOffsetTable} of the source of the tree, or {@code null} if no
+	 * node has its location stored as an offset.
+	 */
+	public LineOffsetTable getLineOffsets() {
+		return lines;
+	}
+
+	/**
+	 * Gets the index of the first node of the subtree under a node. The subtree consists
+	 * of every node from this index up to and including {@code node}.
+	 * @param node The index of the node.
+	 * @return The index of the first (leftmost and deepest) descendant of the node, or
+	 * {@code node} itself if it has no children.
+	 */
+	public int getSubtreeStart(int node) {
+		/* The subtree under the first child of a node is stored first in the subtree
+		 * under the node.
+		 */
+		while(getChildCount(node) > 0) {
+			node = getChild(node, 0);
+		}
+		return node;
+	}
+
+	/**
+	 * Gets the number of children of a node. The children of a module are the values of
+	 * its definitions, followed by its submodules.
+	 * @param node The index of the node.
+	 * @return The number of direct children of the node.
+	 */
+	public int getChildCount(int node) {
+		switch(kinds[node]) {
+		case NodeKind.IDENTIFIER:
+		case NodeKind.LITERAL_INT:
+		case NodeKind.LITERAL_STRING:
+		case NodeKind.LITERAL_SYMBOL:
+		case NodeKind.BIND_VALUE:
+			return 0;
+		case NodeKind.MODULE:
+			return getDataLength(node) / 2;
+		default:
+			return getDataLength(node);
+		}
+	}
+
+	/**
+	 * Gets a child of a node.
+	 * @param node The index of the node.
+	 * @param index The position of the child among the children of the node.
+	 * @return The index of the child.
+	 */
+	public int getChild(int node, int index) {
+		if(index < 0 || index >= getChildCount(node)) {
+			throw new IndexOutOfBoundsException(String.format("Node %d has no child %d.", node, index));
+		}
+		return kinds[node] == NodeKind.MODULE ?
+				data[dataStarts[node] + index * 2 + 1] :
+				data[dataStarts[node] + index];
+	}
+
+	/**
+	 * Gets the function of an application node.
+	 * @param node The index of an {@link NodeKind#APPLICATION} node.
+	 * @return The index of the function being applied.
+	 * @see ApplicationNode#getFunction()
+	 */
+	public int getFunction(int node) {
+		return getData(node, NodeKind.APPLICATION, 0);
+	}
+
+	/**
+	 * Gets the argument of an application node.
+	 * @param node The index of an {@link NodeKind#APPLICATION} node.
+	 * @return The index of the argument to the function.
+	 * @see ApplicationNode#getArgument()
+	 */
+	public int getArgument(int node) {
+		return getData(node, NodeKind.APPLICATION, 1);
+	}
+
+	/**
+	 * Gets the binding structure of a binding node.
+	 * @param node The index of a {@link NodeKind#BINDING} node.
+	 * @return The index of the structure to which the value is bound.
+	 * @see BindingNode#getBindingStructure()
+	 */
+	public int getBindingStructure(int node) {
+		return getData(node, NodeKind.BINDING, 0);
+	}
+
+	/**
+	 * Gets the bound value of a binding node.
+	 * @param node The index of a {@link NodeKind#BINDING} node.
+	 * @return The index of the value being bound.
+	 * @see BindingNode#getValue()
+	 */
+	public int getBoundValue(int node) {
+		return getData(node, NodeKind.BINDING, 1);
+	}
+
+	/**
+	 * Gets the content of a binding node.
+	 * @param node The index of a {@link NodeKind#BINDING} node.
+	 * @return The index of the expression in which the binding is visible.
+	 * @see BindingNode#getContent()
+	 */
+	public int getContent(int node) {
+		return getData(node, NodeKind.BINDING, 2);
+	}
+
+	/**
+	 * Gets the name id of the argument of a function node.
+	 * @param node The index of a {@link NodeKind#FUNCTION} node.
+	 * @return The id in the {@link NameTable} of the name of the argument.
+	 * @see FunctionNode#getArgumentName()
+	 */
+	public int getArgumentNameId(int node) {
+		checkKind(node, NodeKind.FUNCTION);
+		return payloads[node];
+	}
+
+	/**
+	 * Gets the body of a function node.
+	 * @param node The index of a {@link NodeKind#FUNCTION} node.
+	 * @return The index of the body of the function.
+	 * @see FunctionNode#getBody()
+	 */
+	public int getBody(int node) {
+		return getData(node, NodeKind.FUNCTION, 0);
+	}
+
+	/**
+	 * Gets the name id of an identifier node, or of the value bound by a bind value node.
+	 * @param node The index of an {@link NodeKind#IDENTIFIER} or {@link
+	 * NodeKind#BIND_VALUE} node.
+	 * @return The id in the {@link NameTable} of the name.
+	 * @see IdentifierNode#getNameId()
+	 * @see BindValueNode#getValueName()
+	 */
+	public int getNameId(int node) {
+		if(kinds[node] != NodeKind.BIND_VALUE) {
+			checkKind(node, NodeKind.IDENTIFIER);
+		}
+		return payloads[node];
+	}
+
+	/**
+	 * Gets the number of modules qualifying an identifier node.
+	 * @param node The index of an {@link NodeKind#IDENTIFIER} node.
+	 * @return The number of qualifying modules, which is zero if the identifier is
+	 * unqualified.
+	 */
+	public int getModuleCount(int node) {
+		checkKind(node, NodeKind.IDENTIFIER);
+		return getDataLength(node);
+	}
+
+	/**
+	 * Gets the name id of a module qualifying an identifier node.
+	 * @param node The index of an {@link NodeKind#IDENTIFIER} node.
+	 * @param index The position of the module in the identifier, from the outermost.
+	 * @return The id in the {@link NameTable} of the name of the module.
+	 * @see IdentifierNode#getModuleIds()
+	 */
+	public int getModuleId(int node, int index) {
+		return getData(node, NodeKind.IDENTIFIER, index);
+	}
+
+	/**
+	 * Gets the value of an int literal node.
+	 * @param node The index of a {@link NodeKind#LITERAL_INT} node.
+	 * @return The integer value of the literal.
+	 * @see LiteralIntNode#getValue()
+	 */
+	public int getIntValue(int node) {
+		checkKind(node, NodeKind.LITERAL_INT);
+		return payloads[node];
+	}
+
+	/**
+	 * Gets the original base of an int literal node.
+	 * @param node The index of a {@link NodeKind#LITERAL_INT} node.
+	 * @return The numeric base in which the literal was written.
+	 * @see LiteralIntNode#getOriginalBase()
+	 */
+	public LiteralIntTokenBase getIntBase(int node) {
+		return LiteralIntTokenBase.values()[getData(node, NodeKind.LITERAL_INT, 0)];
+	}
+
+	/**
+	 * Gets the value of a string or symbol literal node.
+	 * @param node The index of a {@link NodeKind#LITERAL_STRING} or {@link
+	 * NodeKind#LITERAL_SYMBOL} node.
+	 * @return The value of the literal.
+	 * @see LiteralStringNode#getValue()
+	 * @see LiteralSymbolNode#getValue()
+	 */
+	public String getStringValue(int node) {
+		if(kinds[node] != NodeKind.LITERAL_SYMBOL) {
+			checkKind(node, NodeKind.LITERAL_STRING);
+		}
+		return strings[payloads[node]];
+	}
+
+	/**
+	 * Gets the expression being switched on by a switch node.
+	 * @param node The index of a {@link NodeKind#SWITCH} node.
+	 * @return The index of the expression to match against the branches.
+	 * @see SwitchNode#getExpression()
+	 */
+	public int getExpression(int node) {
+		return getData(node, NodeKind.SWITCH, 0);
+	}
+
+	/**
+	 * Gets the number of branches of a switch node.
+	 * @param node The index of a {@link NodeKind#SWITCH} node.
+	 * @return The number of branches.
+	 * @see SwitchNode#getBranchCount()
+	 */
+	public int getBranchCount(int node) {
+		checkKind(node, NodeKind.SWITCH);
+		return getDataLength(node) - 1;
+	}
+
+	/**
+	 * Gets a branch of a switch node.
+	 * @param node The index of a {@link NodeKind#SWITCH} node.
+	 * @param index The position of the branch in the switch.
+	 * @return The index of the {@link NodeKind#SWITCH_BRANCH} node.
+	 * @see SwitchNode#getBranch(int)
+	 */
+	public int getBranch(int node, int index) {
+		return getData(node, NodeKind.SWITCH, index + 1);
+	}
+
+	/**
+	 * Gets the pattern of a switch branch node.
+	 * @param node The index of a {@link NodeKind#SWITCH_BRANCH} node.
+	 * @return The index of the pattern to match.
+	 * @see SwitchBranchNode#getPattern()
+	 */
+	public int getPattern(int node) {
+		return getData(node, NodeKind.SWITCH_BRANCH, 0);
+	}
+
+	/**
+	 * Gets the condition of a switch branch node.
+	 * @param node The index of a {@link NodeKind#SWITCH_BRANCH} node.
+	 * @return The index of the condition to satisfy.
+	 * @see SwitchBranchNode#getCondition()
+	 */
+	public int getCondition(int node) {
+		return getData(node, NodeKind.SWITCH_BRANCH, 1);
+	}
+
+	/**
+	 * Gets the result of a switch branch node.
+	 * @param node The index of a {@link NodeKind#SWITCH_BRANCH} node.
+	 * @return The index of the result of the branch.
+	 * @see SwitchBranchNode#getResult()
+	 */
+	public int getResult(int node) {
+		return getData(node, NodeKind.SWITCH_BRANCH, 2);
+	}
+
+	/**
+	 * Gets the head of a bind cons node.
+	 * @param node The index of a {@link NodeKind#BIND_CONS} node.
+	 * @return The index of the structure binding the head of the list.
+	 * @see BindConsNode#getHead()
+	 */
+	public int getHead(int node) {
+		return getData(node, NodeKind.BIND_CONS, 0);
+	}
+
+	/**
+	 * Gets the tail of a bind cons node.
+	 * @param node The index of a {@link NodeKind#BIND_CONS} node.
+	 * @return The index of the structure binding the tail of the list.
+	 * @see BindConsNode#getTail()
+	 */
+	public int getTail(int node) {
+		return getData(node, NodeKind.BIND_CONS, 1);
+	}
+
+	/**
+	 * Gets the number of definitions, not including submodules, of a module node.
+	 * @param node The index of a {@link NodeKind#MODULE} node.
+	 * @return The number of definitions in the module.
+	 */
+	public int getDefinitionCount(int node) {
+		checkKind(node, NodeKind.MODULE);
+		return payloads[node];
+	}
+
+	/**
+	 * Gets the number of submodules of a module node.
+	 * @param node The index of a {@link NodeKind#MODULE} node.
+	 * @return The number of submodules in the module.
+	 */
+	public int getSubmoduleCount(int node) {
+		checkKind(node, NodeKind.MODULE);
+		return getDataLength(node) / 2 - payloads[node];
+	}
+
+	/**
+	 * Gets the name id of a definition or submodule of a module node.
+	 * @param node The index of a {@link NodeKind#MODULE} node.
+	 * @param index The position of the definition in the module. The definitions are
+	 * followed by the submodules, so the {@code i}-th submodule is at position {@code i +
+	 * getDefinitionCount(node)}.
+	 * @return The id in the {@link NameTable} of the name of the definition.
+	 */
+	public int getEntryNameId(int node, int index) {
+		return getData(node, NodeKind.MODULE, index * 2);
+	}
+
+	/**
+	 * Gets the value of a definition or submodule of a module node.
+	 * @param node The index of a {@link NodeKind#MODULE} node.
+	 * @param index The position of the definition in the module. The definitions are
+	 * followed by the submodules, so the {@code i}-th submodule is at position {@code i +
+	 * getDefinitionCount(node)}.
+	 * @return The index of the value of the definition, or of the submodule.
+	 */
+	public int getEntryValue(int node, int index) {
+		return getData(node, NodeKind.MODULE, index * 2 + 1);
+	}
+
+	/**
+	 * Gets the root of the tree stored in the arena, as a {@link ModuleNode}. The nodes of
+	 * each definition and submodule of the module are created from the arena when they
+	 * are first asked for.
+	 * @return A module which reads its definitions from this arena.
+	 */
+	public ModuleNode getModule() {
+		return (ModuleNode)getNode(getRoot());
+	}
+
+	/**
+	 * Creates the {@link Node} objects for the subtree under a node. The subtree is
+	 * created bottom-up, without recursion. If the node is a module, the nodes within it
+	 * are created only when they are asked for, as by {@link NodeArena#getModule()}.
+	 * @param node The index of the node.
+	 * @return A new node equal to the one from which the arena was built.
+	 */
+	public Node getNode(int node) {
+		if(kinds[node] == NodeKind.MODULE) {
+			return new ArenaModuleNode(this, node);
+		}
+		int first = getSubtreeStart(node);
+		Node[] created = new Node[node - first + 1];
+		for(int i = first; i <= node; i++) {
+			created[i - first] = createNode(i, created, first);
+		}
+		return created[created.length - 1];
+	}
+
+	/**
+	 * Creates the {@link Node} object for a node, whose children have already been
+	 * created.
+	 * @param node The index of the node.
+	 * @param created The nodes created so far.
+	 * @param first The index of the node stored first in {@code created}.
+	 * @return A new node equal to the one from which the arena was built.
+	 */
+	private Node createNode(int node, Node[] created, int first) {
+		Location location = getLocation(node);
+		int start = dataStarts[node], end = dataStarts[node + 1];
+		switch(kinds[node]) {
+		case NodeKind.APPLICATION:
+			return new ApplicationNode(location, created[data[start] - first], created[data[start + 1] - first]);
+		case NodeKind.BINDING:
+			return new BindingNode(location, created[data[start] - first], created[data[start + 1] - first], created[data[start + 2] - first]);
+		case NodeKind.FUNCTION:
+			return new FunctionNode(location, NameTable.getName(payloads[node]), created[data[start] - first]);
+		case NodeKind.IDENTIFIER:
+			return start == end ?
+					new IdentifierNode(location, payloads[node]) :
+					new IdentifierNode(location, Arrays.copyOfRange(data, start, end), payloads[node]);
+		case NodeKind.LITERAL_INT:
+			return new LiteralIntNode(location, payloads[node], LiteralIntTokenBase.values()[data[start]]);
+		case NodeKind.LITERAL_STRING:
+			return new LiteralStringNode(location, strings[payloads[node]]);
+		case NodeKind.LITERAL_SYMBOL:
+			return new LiteralSymbolNode(location, strings[payloads[node]]);
+		case NodeKind.SEQUENCE:
+			return new SequenceNode(location, getCreated(created, first, start, end, new Node[end - start]));
+		case NodeKind.SWITCH:
+			return new SwitchNode(location, created[data[start] - first], getCreated(created, first, start + 1, end, new SwitchBranchNode[end - start - 1]));
+		case NodeKind.SWITCH_BRANCH:
+			return new SwitchBranchNode(location, created[data[start] - first], created[data[start + 1] - first], created[data[start + 2] - first]);
+		case NodeKind.TUPLE:
+			return new TupleNode(location, getCreated(created, first, start, end, new Node[end - start]));
+		case NodeKind.BIND_CONS:
+			return new BindConsNode(location, created[data[start] - first], created[data[start + 1] - first]);
+		case NodeKind.BIND_TUPLE:
+			return new BindTupleNode(location, getCreated(created, first, start, end, new Node[end - start]));
+		case NodeKind.BIND_VALUE:
+			return new BindValueNode(location, NameTable.getName(payloads[node]));
+		case NodeKind.MODULE:
+			return new ArenaModuleNode(this, node);
+		default:
+			throw new IllegalStateException(String.format("Node %d has unknown kind %d.", node, kinds[node]));
+		}
+	}
+
+	/**
+	 * Fills an array with the created children listed in a slice of the data array.
+	 * @param created The nodes created so far.
+	 * @param first The index of the node stored first in {@code created}.
+	 * @param start The start of the slice of the data array.
+	 * @param end The end of the slice of the data array.
+	 * @param children The array to fill, of length {@code end - start}.
+	 * @return {@code children}.
+	 */
+	private <T extends Node> T[] getCreated(Node[] created, int first, int start, int end, T[] children) {
+		for(int i = start; i < end; i++) {
+			@SuppressWarnings("unchecked")
+			T child = (T)created[data[i] - first];
+			children[i - start] = child;
+		}
+		return children;
+	}
+
+	/**
+	 * Gets a value from the data of a node of the given kind.
+	 * @param node The index of the node.
+	 * @param kind The kind which the node must be.
+	 * @param index The position of the value in the data of the node.
+	 * @return The value in the data array.
+	 */
+	private int getData(int node, int kind, int index) {
+		checkKind(node, kind);
+		if(index < 0 || index >= getDataLength(node)) {
+			throw new IndexOutOfBoundsException(String.format("Node %d has no data at %d.", node, index));
+		}
+		return data[dataStarts[node] + index];
+	}
+
+	/**
+	 * Gets the length of the data of a node.
+	 * @param node The index of the node.
+	 * @return The number of values in the data array belonging to the node.
+	 */
+	private int getDataLength(int node) {
+		return dataStarts[node + 1] - dataStarts[node];
+	}
+
+	/**
+	 * Checks that a node is of the given kind.
+	 * @param node The index of the node.
+	 * @param kind The kind which the node must be.
+	 */
+	private void checkKind(int node, int kind) {
+		if(kinds[node] != kind) {
+			throw new IllegalArgumentException(String.format("Node %d is of kind %d, not %d.", node, kinds[node], kind));
+		}
+	}
+
+	/**
+	 * Represents a module stored in a {@link NodeArena}. The nodes of each definition and
+	 * submodule are created from the arena when they are first asked for, and are then
+	 * kept, so that asking for the same definition twice gives the same node.
+	 */
+	private static class ArenaModuleNode extends ModuleNode {
+		private NodeArena arena;
+		private int node;
+		private int definitionCount;
+		private Node[] values;
+		private Map<String, Integer> definitionPositions, submodulePositions;
+
+		/**
+		 * Initializes a new ArenaModuleNode.
+		 * @param arena The arena containing the module.
+		 * @param node The index of the module in the arena.
+		 */
+		public ArenaModuleNode(NodeArena arena, int node) {
+			super(arena.getLocation(node));
+			this.arena = arena;
+			this.node = node;
+			this.definitionCount = arena.getDefinitionCount(node);
+			this.values = new Node[arena.getChildCount(node)];
+		}
+
+		@Override
+		public String[] getDefinitions() {
+			return getNames(0, definitionCount);
+		}
+
+		@Override
+		public String[] getSubmodules() {
+			return getNames(definitionCount, values.length);
+		}
+
+		@Override
+		public Node getDefinition(String identifier) {
+			if(definitionPositions == null) {
+				definitionPositions = getPositions(0, definitionCount);
+			}
+			Integer position = definitionPositions.get(identifier);
+			if(position != null) {
+				return getValue(position);
+			} else {
+				throw new IllegalArgumentException(String.format("This module does not define anything named \"%s\".",
+						identifier));
+			}
+		}
+
+		@Override
+		public ModuleNode getSubmodule(String identifier) {
+			if(submodulePositions == null) {
+				submodulePositions = getPositions(definitionCount, values.length);
+			}
+			Integer position = submodulePositions.get(identifier);
+			if(position != null) {
+				return (ModuleNode)getValue(position);
+			} else {
+				throw new IllegalArgumentException(String.format("This module does not define a submodule named \"%s\".",
+						identifier));
+			}
+		}
+
+		@Override
+		public void addDefinition(String identifier, Node value) {
+			throw new IllegalStateException("A module stored in a node arena cannot be changed.");
+		}
+
+		@Override
+		public void addSubmodule(String identifier, ModuleNode module) {
+			throw new IllegalStateException("A module stored in a node arena cannot be changed.");
+		}
+
+		/**
+		 * Gets the value of an entry of the module, creating it if it has not been
+		 * created yet.
+		 * @param position The position of the entry in the module.
+		 * @return The node of the definition or submodule.
+		 */
+		private Node getValue(int position) {
+			if(values[position] == null) {
+				values[position] = arena.getNode(arena.getEntryValue(node, position));
+			}
+			return values[position];
+		}
+
+		/**
+		 * Gets the names of a range of entries of the module.
+		 * @param start The position of the first entry.
+		 * @param end The position after the last entry.
+		 * @return The names of the entries.
+		 */
+		private String[] getNames(int start, int end) {
+			String[] names = new String[end - start];
+			for(int i = start; i < end; i++) {
+				names[i - start] = NameTable.getName(arena.getEntryNameId(node, i));
+			}
+			return names;
+		}
+
+		/**
+		 * Maps the names of a range of entries of the module to their positions.
+		 * @param start The position of the first entry.
+		 * @param end The position after the last entry.
+		 * @return A map from the name of each entry to its position.
+		 */
+		private Map<String, Integer> getPositions(int start, int end) {
+			Map<String, Integer> positions = new HashMap<String, Integer>();
+			for(int i = start; i < end; i++) {
+				positions.put(NameTable.getName(arena.getEntryNameId(node, i)), i);
+			}
+			return positions;
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package pw.usn.mu.parser;
+
+import pw.usn.mu.parser.binding.BindConsNode;
+import pw.usn.mu.parser.binding.BindTupleNode;
+import pw.usn.mu.parser.binding.BindValueNode;
+
+/**
+ * Contains the integer constants identifying each kind of {@link Node}, as stored in a
+ * {@link NodeArena}.
+ */
+public final class NodeKind {
+	/**
+	 * The kind of a {@link ModuleNode}.
+	 */
+	public static final int MODULE = 0;
+	/**
+	 * The kind of an {@link ApplicationNode}.
+	 */
+	public static final int APPLICATION = 1;
+	/**
+	 * The kind of a {@link BindingNode}.
+	 */
+	public static final int BINDING = 2;
+	/**
+	 * The kind of a {@link FunctionNode}.
+	 */
+	public static final int FUNCTION = 3;
+	/**
+	 * The kind of an {@link IdentifierNode}.
+	 */
+	public static final int IDENTIFIER = 4;
+	/**
+	 * The kind of a {@link LiteralIntNode}.
+	 */
+	public static final int LITERAL_INT = 5;
+	/**
+	 * The kind of a {@link LiteralStringNode}.
+	 */
+	public static final int LITERAL_STRING = 6;
+	/**
+	 * The kind of a {@link LiteralSymbolNode}.
+	 */
+	public static final int LITERAL_SYMBOL = 7;
+	/**
+	 * The kind of a {@link SequenceNode}.
+	 */
+	public static final int SEQUENCE = 8;
+	/**
+	 * The kind of a {@link SwitchNode}.
+	 */
+	public static final int SWITCH = 9;
+	/**
+	 * The kind of a {@link SwitchBranchNode}.
+	 */
+	public static final int SWITCH_BRANCH = 10;
+	/**
+	 * The kind of a {@link TupleNode}.
+	 */
+	public static final int TUPLE = 11;
+	/**
+	 * The kind of a {@link BindConsNode}.
+	 */
+	public static final int BIND_CONS = 12;
+	/**
+	 * The kind of a {@link BindTupleNode}.
+	 */
+	public static final int BIND_TUPLE = 13;
+	/**
+	 * The kind of a {@link BindValueNode}.
+	 */
+	public static final int BIND_VALUE = 14;
+
+	/**
+	 * The number of node kinds. Every kind is less than this value.
+	 */
+	public static final int COUNT = 15;
+
+	private NodeKind() {
+	}
+
+	/**
+	 * Gets the kind of the given node.
+	 * @param node The node whose kind to get.
+	 * @return The kind of {@code node}.
+	 */
+	public static int of(Node node) {
+		if(node instanceof ApplicationNode) {
+			return APPLICATION;
+		} else if(node instanceof IdentifierNode) {
+			return IDENTIFIER;
+		} else if(node instanceof FunctionNode) {
+			return FUNCTION;
+		} else if(node instanceof LiteralIntNode) {
+			return LITERAL_INT;
+		} else if(node instanceof BindingNode) {
+			return BINDING;
+		} else if(node instanceof TupleNode) {
+			return TUPLE;
+		} else if(node instanceof SwitchNode) {
+			return SWITCH;
+		} else if(node instanceof SwitchBranchNode) {
+			return SWITCH_BRANCH;
+		} else if(node instanceof LiteralStringNode) {
+			return LITERAL_STRING;
+		} else if(node instanceof LiteralSymbolNode) {
+			return LITERAL_SYMBOL;
+		} else if(node instanceof SequenceNode) {
+			return SEQUENCE;
+		} else if(node instanceof BindValueNode) {
+			return BIND_VALUE;
+		} else if(node instanceof BindTupleNode) {
+			return BIND_TUPLE;
+		} else if(node instanceof BindConsNode) {
+			return BIND_CONS;
+		} else if(node instanceof ModuleNode) {
+			return MODULE;
+		} else {
+			throw new IllegalArgumentException(String.format("Unknown node type %s.", node.getClass().getName()));
+		}
+	}
+}
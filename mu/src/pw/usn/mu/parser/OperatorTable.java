@@ -0,0 +1,175 @@
+package pw.usn.mu.parser;
+
+import java.util.Arrays;
+
+import pw.usn.mu.tokenizer.NameTable;
+import pw.usn.mu.tokenizer.OperatorTokenType;
+import pw.usn.mu.tokenizer.SymbolTokenType;
+import pw.usn.mu.tokenizer.TokenKind;
+
+/**
+ * Represents a table of the operators understood by the expression parser, and their
+ * precedences and associativities. The table is indexed by token kind (from {@link
+ * TokenKind}), so the parser can look up how to treat the next token with a single array
+ * access, without creating the token.<br>
+ * An infix operator has a precedence greater than zero; the higher the precedence of an
+ * operator, the more tightly it binds its operands. All of the infix operators with the
+ * same precedence must have the same associativity, so that a run of them can be grouped
+ * in only one way. A prefix operator binds more tightly than any infix operator.
+ */
+public class OperatorTable {
+	private int[] precedences;
+	private boolean[] rightAssociative;
+	private boolean[] prefix;
+	private int[] nameIds;
+
+	/**
+	 * Initializes a new, empty OperatorTable.
+	 */
+	public OperatorTable() {
+		this.precedences = new int[TokenKind.COUNT];
+		this.rightAssociative = new boolean[TokenKind.COUNT];
+		this.prefix = new boolean[TokenKind.COUNT];
+		this.nameIds = new int[TokenKind.COUNT];
+		Arrays.fill(this.nameIds, NameTable.NO_NAME);
+	}
+
+	/**
+	 * Creates a new OperatorTable containing the operators of mu. From loosest to tightest,
+	 * these are the right-associative cons ({@code ::}) operator, and the left-associative
+	 * {@link OperatorTokenType#BOOLEAN}, {@link OperatorTokenType#EQUALITY}, {@link
+	 * OperatorTokenType#SUM} and {@link OperatorTokenType#PRODUCT} operators, along with the
+	 * {@link OperatorTokenType#UNARY} prefix operators.
+	 * @return A new table of the default operators, which may be changed without affecting
+	 * any other table.
+	 */
+	public static OperatorTable createDefault() {
+		OperatorTable table = new OperatorTable();
+		table.defineInfix(TokenKind.symbol(SymbolTokenType.CONS), 1, true, Node.CONS_BUILTIN);
+		table.defineInfix(TokenKind.operator(OperatorTokenType.BOOLEAN), 2, false);
+		table.defineInfix(TokenKind.operator(OperatorTokenType.EQUALITY), 3, false);
+		table.defineInfix(TokenKind.operator(OperatorTokenType.SUM), 4, false);
+		table.defineInfix(TokenKind.operator(OperatorTokenType.PRODUCT), 5, false);
+		table.definePrefix(TokenKind.operator(OperatorTokenType.UNARY));
+		return table;
+	}
+
+	/**
+	 * Defines tokens of the given kind as an infix operator, which is applied by name as
+	 * given by the operator token itself.
+	 * @param kind The kind of the operator tokens, from {@link TokenKind}. This must be an
+	 * operator kind.
+	 * @param precedence The precedence of the operator, which must be greater than zero.
+	 * @param rightAssociative Whether the operator is right-associative, rather than
+	 * left-associative.
+	 */
+	public void defineInfix(int kind, int precedence, boolean rightAssociative) {
+		if(!TokenKind.isOperator(kind)) {
+			throw new IllegalArgumentException(String.format("Token kind %d is not an operator kind; the name of the operator must be given.", kind));
+		}
+		defineInfix(kind, precedence, rightAssociative, null);
+	}
+
+	/**
+	 * Defines tokens of the given kind as an infix operator, which is applied as the
+	 * identifier with the given name.
+	 * @param kind The kind of the operator tokens, from {@link TokenKind}.
+	 * @param precedence The precedence of the operator, which must be greater than zero.
+	 * @param rightAssociative Whether the operator is right-associative, rather than
+	 * left-associative.
+	 * @param name The name of the identifier to apply to the operands, or {@code null} to
+	 * use the name given by the operator token itself.
+	 */
+	public void defineInfix(int kind, int precedence, boolean rightAssociative, String name) {
+		checkKind(kind);
+		if(precedence <= 0) {
+			throw new IllegalArgumentException(String.format("The precedence of an operator must be greater than zero, not %d.", precedence));
+		}
+		for(int other = 0; other < TokenKind.COUNT; other++) {
+			if(other != kind && precedences[other] == precedence && this.rightAssociative[other] != rightAssociative) {
+				throw new IllegalArgumentException(String.format("Token kind %d has precedence %d with a different associativity.", other, precedence));
+			}
+		}
+		this.precedences[kind] = precedence;
+		this.rightAssociative[kind] = rightAssociative;
+		this.prefix[kind] = false;
+		this.nameIds[kind] = name == null ? NameTable.NO_NAME : NameTable.intern(name);
+	}
+
+	/**
+	 * Defines tokens of the given kind as a prefix operator, which is applied by name as
+	 * given by the operator token itself.
+	 * @param kind The kind of the operator tokens, from {@link TokenKind}. This must be an
+	 * operator kind.
+	 */
+	public void definePrefix(int kind) {
+		checkKind(kind);
+		if(!TokenKind.isOperator(kind)) {
+			throw new IllegalArgumentException(String.format("Token kind %d is not an operator kind.", kind));
+		}
+		this.precedences[kind] = 0;
+		this.rightAssociative[kind] = false;
+		this.prefix[kind] = true;
+		this.nameIds[kind] = NameTable.NO_NAME;
+	}
+
+	/**
+	 * Gets the precedence of the infix operator of the given kind.
+	 * @param kind The token kind, or {@link TokenKind#NONE}.
+	 * @return The precedence of the operator, or {@code 0} if tokens of the given kind are
+	 * not infix operators.
+	 */
+	public int getPrecedence(int kind) {
+		return kind == TokenKind.NONE ? 0 : precedences[kind];
+	}
+
+	/**
+	 * Determines whether the infix operator of the given kind is right-associative.
+	 * @param kind The token kind.
+	 * @return Whether tokens of the given kind are right-associative infix operators.
+	 */
+	public boolean isRightAssociative(int kind) {
+		return kind != TokenKind.NONE && rightAssociative[kind];
+	}
+
+	/**
+	 * Determines whether tokens of the given kind are prefix operators.
+	 * @param kind The token kind, or {@link TokenKind#NONE}.
+	 * @return Whether tokens of the given kind are prefix operators.
+	 */
+	public boolean isPrefix(int kind) {
+		return kind != TokenKind.NONE && prefix[kind];
+	}
+
+	/**
+	 * Gets the name of the identifier which the operator of the given kind is applied as.
+	 * @param kind The token kind.
+	 * @return The name of the identifier to apply, or {@code null} if the operator is
+	 * applied by the name given by the operator token itself.
+	 */
+	public String getName(int kind) {
+		return nameIds[kind] == NameTable.NO_NAME ? null : NameTable.getName(nameIds[kind]);
+	}
+
+	/**
+	 * Gets the id of the name of the identifier which the operator of the given kind is
+	 * applied as.
+	 * @param kind The token kind.
+	 * @return The id in the {@link NameTable} of the name returned by {@link
+	 * OperatorTable#getName(int)}, or {@link NameTable#NO_NAME} if the operator is applied by
+	 * the name given by the operator token itself.
+	 */
+	public int getNameId(int kind) {
+		return nameIds[kind];
+	}
+
+	/**
+	 * Checks that the given value is a token kind.
+	 * @param kind The value to check.
+	 */
+	private static void checkKind(int kind) {
+		if(kind < 0 || kind >= TokenKind.COUNT) {
+			throw new IllegalArgumentException(String.format("%d is not a token kind.", kind));
+		}
+	}
+}
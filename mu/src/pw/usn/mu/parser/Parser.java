@@ -1,31 +1,86 @@
 package pw.usn.mu.parser;
 
-import java.util.function.Predicate;
+import java.util.Arrays;
+import java.util.function.IntFunction;
 
+import pw.usn.mu.tokenizer.LiteralIntTokenBase;
 import pw.usn.mu.tokenizer.Location;
+import pw.usn.mu.tokenizer.SymbolTokenType;
 import pw.usn.mu.tokenizer.Token;
+import pw.usn.mu.tokenizer.TokenBuffer;
+import pw.usn.mu.tokenizer.TokenKind;
+import pw.usn.mu.tokenizer.TokenSequence;
 
 /**
  * A class used by a parsing process to enumerate over an array of tokens, as would
- * be done by a look-ahead parser.
+ * be done by a look-ahead parser. The tokens are read from a {@link TokenSequence}, such
+ * as a {@link TokenBuffer}; the methods taking a token kind (from {@link TokenKind}) work on
+ * the sequence directly, while the methods returning a {@link Token} create the token
+ * objects as needed, and are only meant for reporting errors.<br>
+ * To look further ahead than the lookahead methods allow, the position of the parser can be
+ * saved with {@link Parser#mark()} and later restored with {@link Parser#reset(int)}. While
+ * no position is saved, the parser releases the tokens it has moved past, as it cannot
+ * return to them. If the tokens are read lazily, as with a {@link
+ * pw.usn.mu.tokenizer.TokenCursor TokenCursor}, those tokens can then be discarded.<br>
+ * The parser also holds a stack of nodes, which the parsing methods use to collect the
+ * parts of a node (such as the values of a tuple) before the node is created, rather than
+ * creating a temporary collection for each node.<br>
+ * The infix and prefix operators which the parser understands, and how tightly each of them
+ * binds, are given by the {@link OperatorTable} of the parser.<br>
+ * By default, expressions are parsed by recursive descent, which uses a call on the Java
+ * stack for each level of nesting in the expression. A parser can instead be made {@link
+ * Parser#setStackSafe(boolean) stack-safe}, so that expressions nested to any depth can be
+ * parsed without running out of stack.<br>
+ * By default, the first syntax error ends the parse with a {@link ParserException}. A parser
+ * given a {@link Parser#setErrorCollector(ParserErrorCollector) collector} instead records
+ * each error and recovers from it, so that every error in a module can be found at once.
  */
 public class Parser {
-	private Token[] tokens;
+	private TokenSequence tokens;
 	private int index;
-	private Parser parent;
+	private int marks;
+	private OperatorTable operators;
+	private Node[] nodes;
+	private int nodeCount;
+	private IterativeParser iterativeParser;
+	private ParserErrorCollector errors;
 	
 	/**
-	 * Initialize a new Parser with the given array of tokens, and index in the token
-	 * array to begin.
+	 * Initialize a new Parser with the given sequence of tokens, and index in the token
+	 * sequence to begin.
 	 * @param tokens The tokens which this Parser is to parse.
 	 * @param index The index to set the current (not next) token to; if this is set
 	 * to {@code -1}, then the parser starts at the beginning - ie. with no current
 	 * token, and the next token as the first token.
+	 * @param operators The operators which this Parser is to understand.
 	 */
-	private Parser(Token[] tokens, int index) {
+	public Parser(TokenSequence tokens, int index, OperatorTable operators) {
 		this.tokens = tokens;
 		this.index = index;
-		this.parent = null;
+		this.marks = 0;
+		this.operators = operators;
+		this.nodes = new Node[16];
+		this.nodeCount = 0;
+		this.iterativeParser = null;
+		this.errors = null;
+	}
+	
+	/**
+	 * Initialize a new Parser with the given sequence of tokens and table of operators.
+	 * @param tokens The tokens which this Parser is to parse.
+	 * @param operators The operators which this Parser is to understand.
+	 */
+	public Parser(TokenSequence tokens, OperatorTable operators) {
+		this(tokens, -1, operators);
+	}
+	
+	/**
+	 * Initialize a new Parser with the given sequence of tokens, which understands the
+	 * operators given by {@link OperatorTable#createDefault()}.
+	 * @param tokens The tokens which this Parser is to parse.
+	 */
+	public Parser(TokenSequence tokens) {
+		this(tokens, OperatorTable.createDefault());
 	}
 	
 	/**
@@ -33,7 +88,204 @@ public class Parser {
 	 * @param tokens The tokens which this Parser is to parse.
 	 */
 	public Parser(Token[] tokens) {
-		this(tokens, -1);
+		this(new TokenBuffer(tokens));
+	}
+	
+	/**
+	 * Gets the index of the current token in the token sequence.
+	 * @return The index of the token at the location of the parser head, or {@code -1}
+	 * if the parser is at the beginning of the token sequence.
+	 */
+	public int getIndex() {
+		return index;
+	}
+	
+	/**
+	 * Gets the table of operators which this parser understands.
+	 * @return The operator table of the parser.
+	 */
+	public OperatorTable getOperators() {
+		return operators;
+	}
+	
+	/**
+	 * Sets whether this parser parses expressions with an explicit stack, rather than by
+	 * recursion. A stack-safe parser keeps the state of each nested expression it is
+	 * parsing in arrays on the heap, so an expression nested to any depth (such as one
+	 * with thousands of nested parentheses, functions or bindings) can be parsed without a
+	 * larger Java stack. The nodes it produces are the same either way.
+	 * @param stackSafe Whether to parse expressions with an explicit stack.
+	 */
+	public void setStackSafe(boolean stackSafe) {
+		if(!stackSafe) {
+			iterativeParser = null;
+		} else if(iterativeParser == null) {
+			iterativeParser = new IterativeParser(this);
+		}
+	}
+	
+	/**
+	 * Determines whether this parser parses expressions with an explicit stack.
+	 * @return Whether this parser is stack-safe.
+	 * @see Parser#setStackSafe(boolean)
+	 */
+	public boolean isStackSafe() {
+		return iterativeParser != null;
+	}
+	
+	/**
+	 * Gets the parser which parses expressions for this parser with an explicit stack.
+	 * @return The iterative parser, or {@code null} if this parser is not stack-safe.
+	 */
+	IterativeParser getIterativeParser() {
+		return iterativeParser;
+	}
+	
+	/**
+	 * Sets the collector to which this parser reports syntax errors. A parser with a
+	 * collector recovers from a syntax error rather than throwing it: an error inside
+	 * parentheses replaces the parenthesized expression with an {@link ErrorNode}, and the
+	 * parser skips to the matching closing parenthesis. An error anywhere else in a
+	 * definition of a module replaces the value of the definition with an {@link
+	 * ErrorNode}, and the parser skips to the semi-colon ending the definition. Parsing a
+	 * module then gives a partial module, containing every definition which could be
+	 * parsed.
+	 * @param errors The collector to which to report errors, or {@code null} to throw the
+	 * first error instead.
+	 */
+	public void setErrorCollector(ParserErrorCollector errors) {
+		this.errors = errors;
+	}
+	
+	/**
+	 * Gets the collector to which this parser reports syntax errors.
+	 * @return The error collector, or {@code null} if this parser throws the first error
+	 * it finds.
+	 * @see Parser#setErrorCollector(ParserErrorCollector)
+	 */
+	public ParserErrorCollector getErrorCollector() {
+		return errors;
+	}
+	
+	/**
+	 * Reports a syntax error which this parser has recovered from, and creates the node
+	 * taking the place of the expression in which it was found. An error at the same
+	 * location as the last error reported is not reported again, as it is only a
+	 * consequence of that error.
+	 * @param error The syntax error.
+	 * @param start The number of nodes on the node stack before the expression was begun.
+	 * The nodes pushed while parsing the expression are discarded.
+	 * @return An {@link ErrorNode} for {@code error}.
+	 */
+	ErrorNode recover(ParserException error, int start) {
+		if(!errors.hasErrors() ||
+		   !sameLocation(errors.getErrors().get(errors.getErrorCount() - 1).getLocation(), error.getLocation())) {
+			errors.add(error);
+		}
+		Arrays.fill(nodes, start, nodeCount, null);
+		nodeCount = start;
+		return new ErrorNode(error);
+	}
+	
+	/**
+	 * Determines whether two locations of errors are the same.
+	 * @param a The first location, or {@code null} for the end of input.
+	 * @param b The second location, or {@code null} for the end of input.
+	 * @return Whether {@code a} and {@code b} are at the same place in the same source.
+	 */
+	private static boolean sameLocation(Location a, Location b) {
+		if(a == null || b == null) {
+			return a == b;
+		} else {
+			return a.getSource() == b.getSource() &&
+			       a.getRow() == b.getRow() &&
+			       a.getColumn() == b.getColumn();
+		}
+	}
+	
+	/**
+	 * Skips to the closing parenthesis matching an opening parenthesis before the next
+	 * token, after a syntax error inside the parentheses. The brackets between are
+	 * matched, so the parser skips over any nested parentheses and sequences.
+	 * @return Whether the closing parenthesis was found, in which case it is the next
+	 * token. If it was not (because the parser reached the end of the tokens, or a closing
+	 * square bracket with no opening bracket), the parser is not moved.
+	 */
+	boolean skipToClosingParenthesis() {
+		int depth = 0;
+		for(int lookahead = 0;; lookahead++) {
+			int kind = nextKind(lookahead);
+			if(kind == TokenKind.symbol(SymbolTokenType.PAREN_OPEN) ||
+			   kind == TokenKind.symbol(SymbolTokenType.SEQUENCE_OPEN)) {
+				depth++;
+			} else if(kind == TokenKind.symbol(SymbolTokenType.PAREN_CLOSE) && depth == 0) {
+				for(int i = 0; i < lookahead; i++) {
+					next();
+				}
+				return true;
+			} else if(kind == TokenKind.symbol(SymbolTokenType.PAREN_CLOSE) ||
+			          kind == TokenKind.symbol(SymbolTokenType.SEQUENCE_CLOSE)) {
+				if(depth == 0) {
+					return false;
+				}
+				depth--;
+			} else if(kind == TokenKind.NONE) {
+				return false;
+			}
+		}
+	}
+	
+	/**
+	 * Skips the rest of a definition in a module, after a syntax error in it. The
+	 * definition is taken to end at the first semi-colon after the error which is nested
+	 * no more deeply in brackets than the error was, so an unclosed bracket before the
+	 * error does not cause the following definitions to be skipped too. The parser stops
+	 * early at a closing bracket with no opening bracket which ends the submodule
+	 * containing the definition, at an identifier followed by a back-arrow at the error or
+	 * after it, outside of any brackets, which begins the next definition, or at the end
+	 * of the tokens. Any other closing bracket with no opening bracket is skipped.
+	 * @param errorIndex The index of the token at which the error was found. The parser
+	 * must not be after this token.
+	 * @param submodule Whether the definition is in a submodule, which a closing
+	 * parenthesis with no opening parenthesis ends.
+	 */
+	void skipDefinition(int errorIndex, boolean submodule) {
+		int depth = 0, errorDepth = 0, lookahead = 0;
+		for(;; lookahead++) {
+			if(index + 1 + lookahead == errorIndex) {
+				errorDepth = depth;
+			}
+			int kind = nextKind(lookahead);
+			if(kind == TokenKind.symbol(SymbolTokenType.PAREN_OPEN) ||
+			   kind == TokenKind.symbol(SymbolTokenType.SEQUENCE_OPEN)) {
+				depth++;
+			} else if(kind == TokenKind.symbol(SymbolTokenType.PAREN_CLOSE) ||
+			          kind == TokenKind.symbol(SymbolTokenType.SEQUENCE_CLOSE)) {
+				if(depth == 0) {
+					if(submodule && kind == TokenKind.symbol(SymbolTokenType.PAREN_CLOSE)) {
+						break;
+					}
+				} else {
+					depth--;
+				}
+			} else if(kind == TokenKind.IDENTIFIER &&
+			          nextKind(lookahead + 1) == TokenKind.symbol(SymbolTokenType.BIND) &&
+			          lookahead > 0 && index + 2 + lookahead >= errorIndex && depth == 0) {
+				/* The identifier may be just before the error, as in "a <- b c <- d;",
+				 * where the error is found at the back-arrow.
+				 */
+				break;
+			} else if(kind == TokenKind.symbol(SymbolTokenType.SEPARATOR) &&
+			          index + 1 + lookahead >= errorIndex && depth <= errorDepth) {
+				lookahead++;
+				break;
+			} else if(kind == TokenKind.NONE) {
+				break;
+			}
+		}
+		for(int i = 0; i < lookahead; i++) {
+			next();
+		}
 	}
 	
 	/**
@@ -43,8 +295,8 @@ public class Parser {
 	 * {@code lookahead}.
 	 */
 	public Token current(int lookahead) {
-		if(index + lookahead >= 0 && index + lookahead < tokens.length) {
-			return tokens[index + lookahead];
+		if(tokens.hasToken(index + lookahead)) {
+			return tokens.getToken(index + lookahead);
 		} else {
 			return null;
 		}
@@ -58,13 +310,117 @@ public class Parser {
 		return current(0);
 	}
 	
+	/**
+	 * Gets the kind of the token {@code lookahead}+1 ahead of the current token in the
+	 * token buffer.
+	 * @param lookahead The number of tokens to look ahead after the next token. A
+	 * value of {@code 0} indicates the next token.
+	 * @return The kind of the given lookahead token, or {@link TokenKind#NONE} if there is
+	 * no such token.
+	 */
+	public int nextKind(int lookahead) {
+		if(tokens.hasToken(index + 1 + lookahead)) {
+			return tokens.getKind(index + 1 + lookahead);
+		} else {
+			return TokenKind.NONE;
+		}
+	}
+	
+	/**
+	 * Gets the kind of the next token in the token buffer.
+	 * @return The kind of the next token, or {@link TokenKind#NONE} if the parser is at
+	 * the end of the token buffer.
+	 */
+	public int nextKind() {
+		return nextKind(0);
+	}
+	
+	/**
+	 * Gets the location of the token {@code lookahead} places ahead of the current token
+	 * in the token buffer.
+	 * @param lookahead The number of tokens to look ahead of the current token.
+	 * @return The location of the token at the location of the parser head, plus
+	 * {@code lookahead}, or {@code null} if there is no such token.
+	 */
+	public Location currentLocation(int lookahead) {
+		if(tokens.hasToken(index + lookahead)) {
+			return tokens.getLocation(index + lookahead);
+		} else {
+			return null;
+		}
+	}
+	
+	/**
+	 * Gets the location of the current token.
+	 * @return The location of the token at the location of the parser head.
+	 */
+	public Location currentLocation() {
+		return currentLocation(0);
+	}
+	
+	/**
+	 * Gets the payload of the current token, such as the identifier of an identifier
+	 * token or the value of a string literal token.
+	 * @return The payload of the current token, as given by {@link
+	 * TokenSequence#getPayload(int)}.
+	 */
+	public String currentPayload() {
+		return tokens.getPayload(index);
+	}
+	
+	/**
+	 * Gets the id of the name represented by the current token, which must be an
+	 * identifier or operator token.
+	 * @return The id in the {@link pw.usn.mu.tokenizer.NameTable NameTable} of the
+	 * identifier, or of the operator string, of the current token.
+	 */
+	public int currentNameId() {
+		return tokens.getNameId(index);
+	}
+	
+	/**
+	 * Gets the id of the name represented by the token {@code lookahead}+1 ahead of the
+	 * current token, which must be an identifier or operator token.
+	 * @param lookahead The number of tokens to look ahead after the next token. A
+	 * value of {@code 0} indicates the next token.
+	 * @return The id in the {@link pw.usn.mu.tokenizer.NameTable NameTable} of the
+	 * identifier, or of the operator string, of the given lookahead token.
+	 */
+	public int nextNameId(int lookahead) {
+		return tokens.getNameId(index + 1 + lookahead);
+	}
+	
+	/**
+	 * Gets the operator string of the current token, which must be an operator token.
+	 * @return The operator string of the current token, with any backticks stripped.
+	 */
+	public String currentOperator() {
+		return tokens.getOperator(index);
+	}
+	
+	/**
+	 * Gets the value of the current token, which must be an int literal token.
+	 * @return The value of the current int literal.
+	 */
+	public int currentIntValue() {
+		return tokens.getIntValue(index);
+	}
+	
+	/**
+	 * Gets the base of the current token, which must be an int literal token.
+	 * @return The base in which the current int literal was written.
+	 */
+	public LiteralIntTokenBase currentIntBase() {
+		return tokens.getIntBase(index);
+	}
+	
 	/**
 	 * Determines if the the current token is also the last token in the tokenized array.
 	 * @return Returns {@code true} if the current token is the end of the token array;
 	 * otherwise, returns {@code false}.
 	 */
 	public boolean eof() {
-		return index + 1 >= tokens.length;
+		return !tokens.hasToken(index + 1);
 	}
 	
 	/**
@@ -74,51 +430,50 @@ public class Parser {
 	 * @return Whether the operation was successful or not.
 	 */
 	public boolean next() {
-		if(index + 1 >= tokens.length) {
+		if(!tokens.hasToken(index + 1)) {
 			return false;
 		} else{
 			index += 1;
+			if(marks == 0) {
+				tokens.release(index);
+			}
 			return true;
 		}
 	}
 	
 	/**
 	 * Tests whether the token {@code lookahead}+1 ahead of the current token in the
-	 * token array satisfies the given condition. If there is no such token (ie. the
-	 * token would be after the end of the token array), then this function returns
-	 * {@code false}.
-	 * @param condition The condition that the token must satisfy.
+	 * token buffer is of the given kind. If there is no such token, then this function
+	 * returns {@code false}.
+	 * @param kind The kind that the token must be, from {@link TokenKind}.
 	 * @param lookahead The number of tokens to look ahead after the next token. A
 	 * value of {@code 0} indicates the next token. A value of {@code 1} indicates the
 	 * token after that, and so on.
-	 * @return Whether the given lookahead token exists, and if so, it satisfies {@code
-	 * condition}.
+	 * @return Whether the given lookahead token exists, and if so, it is of kind
+	 * {@code kind}.
 	 */
-	public boolean test(Predicate<Token> condition, int lookahead) {
-		return !eof() && condition.test(tokens[index + 1 + lookahead]);
+	public boolean test(int kind, int lookahead) {
+		return nextKind(lookahead) == kind;
 	}
 	
 	/**
-	 * Tests whether the next token in the token array satisfies the given condition.
-	 * If there is no next token (ie. the parser is at the end of the token array), then
-	 * this function returns {@code false}.
-	 * @param condition The condition that the next token must satisfy.
-	 * @return Whether the next token exists, and if so, it satisfies {@code condition}.
+	 * Tests whether the next token in the token buffer is of the given kind.
+	 * @param kind The kind that the next token must be, from {@link TokenKind}.
+	 * @return Whether the next token exists, and if so, it is of kind {@code kind}.
 	 */
-	public boolean test(Predicate<Token> condition) {
-		return test(condition, 0);
+	public boolean test(int kind) {
+		return test(kind, 0);
 	}
 	
 	/**
 	 * Advances the parser lookahead one token forward, if and only if the next token
-	 * exists (ie. the parser is not at the end of the token array) and it satisfies
-	 * the given {@code condition}.
-	 * @param condition The condition that the next token must satisfy.
-	 * @return Whether the next token exists, and if so, it satisfies {@code condition}.
+	 * exists and it is of the given kind.
+	 * @param kind The kind that the next token must be, from {@link TokenKind}.
+	 * @return Whether the next token exists, and if so, it is of kind {@code kind}.
 	 * If this function returns true, then the parser was also advanced one token forward.
 	 */
-	public boolean accept(Predicate<Token> condition) {
-		if(test(condition)) {
+	public boolean accept(int kind) {
+		if(test(kind)) {
 			next();
 			return true;
 		} else {
@@ -127,67 +482,138 @@ public class Parser {
 	}
 	
 	/**
-	 * If the parser has not reached the end of the token array, and the next token in the
-	 * token array satisfies {@code condition}, advances the parser one token forward.
-	 * Otherwise, throws a {@link ParserException} with the exception message given in
-	 * {@code errorMessage}.
-	 * @param condition The condition that the next token must satisfy.
-	 * @param errorMessage If the conditions are not satisfied, the error message of the
-	 * {@link ParserException} that will be thrown.
+	 * If the next token in the token buffer is of the given kind, advances the parser one
+	 * token forward. Otherwise, throws a {@link ParserException} with the exception message
+	 * given in {@code errorMessage}.
+	 * @param kind The kind that the next token must be, from {@link TokenKind}.
+	 * @param errorMessage If the next token is not of kind {@code kind}, the error message
+	 * of the {@link ParserException} that will be thrown.
 	 * @returns The location of the token that was successfully accepted.
 	 */
-	public Location expect(Predicate<Token> condition, String errorMessage) {
-		if(!accept(condition)) {
-			Token badToken = current(1);
-			if(badToken == null) {
-				/* If the parser is at the end of the source, use the final token
-				 * before the end of the file instead.
-				 */
-				badToken = current();
-			}
-			throw new ParserException(errorMessage, badToken);
+	public Location expect(int kind, String errorMessage) {
+		if(!accept(kind)) {
+			throw unexpected(errorMessage);
 		} else {
-			return current().getLocation();
+			return currentLocation();
 		}
 	}
 	
 	/**
-	 * Creates a new {@link Parser} instance with the same token array and position. This
-	 * might be used in the case of look-ahead parsing.
-	 * @return A new {@link Parser} instance with the same state.
+	 * If the next token in the token buffer is of the given kind, advances the parser one
+	 * token forward. Otherwise, throws a {@link ParserException} with the exception message
+	 * given in {@code errorMessage}. This is the same as {@link Parser#expect(int, String)},
+	 * but does not create the location of the token, for when it is not needed.
+	 * @param kind The kind that the next token must be, from {@link TokenKind}.
+	 * @param errorMessage If the next token is not of kind {@code kind}, the error message
+	 * of the {@link ParserException} that will be thrown.
 	 */
-	public Parser copyState() {
-		Parser child = new Parser(tokens, index);
-		child.parent = this;
-		return child;
+	public void require(int kind, String errorMessage) {
+		if(!accept(kind)) {
+			throw unexpected(errorMessage);
+		}
 	}
 	
 	/**
-	 * Determines if this parser was created by calling {@link Parser#copyState()} on either
-	 * {@code ancestor}, or a (recursive) child of {@code ancestor}.
-	 * @param ancestor The ancestor to check if this Parser descends from.
-	 * @return Whether this parser is a descendant of {@code ancestor}.
+	 * Creates a {@link ParserException} for the next token not being what was expected.
+	 * @param errorMessage The error message of the exception.
+	 * @return A {@link ParserException} referring to the next token.
 	 */
-	public boolean descendsFrom(Parser ancestor) {
-		if(this.parent == null) {
-			return false;
-		} else if(this.parent == ancestor) {
-			return true;
-		} else {
-			return this.parent.descendsFrom(ancestor);
+	public ParserException unexpected(String errorMessage) {
+		Token badToken = current(1);
+		if(badToken == null) {
+			/* If the parser is at the end of the source, use the final token
+			 * before the end of the file instead.
+			 */
+			badToken = current();
 		}
+		return new ParserException(errorMessage, badToken);
 	}
 	
 	/**
-	 * Fast-forwards this parser to the state of the given child parser.
-	 * @param parser The child parser. The current parser will be fast-forwarded to whichever
-	 * token {@code parser} is at currently.
+	 * Saves the position of the parser, so that it can be returned to with {@link
+	 * Parser#reset(int)}. Until the position is returned to or forgotten with {@link
+	 * Parser#unmark(int)}, the tokens from this position onward are not released.
+	 * @return The saved position.
 	 */
-	public void fastForward(Parser parser) {
-		if(parser.descendsFrom(this)) {
-			this.index = parser.index;
-		} else {
-			throw new IllegalArgumentException("This parser must be an ancestor of the given child parser.");
+	public int mark() {
+		marks++;
+		return index;
+	}
+	
+	/**
+	 * Returns the parser to a position saved with {@link Parser#mark()}. The position is no
+	 * longer saved afterward.
+	 * @param mark The saved position.
+	 */
+	public void reset(int mark) {
+		unmark(mark);
+		index = mark;
+	}
+	
+	/**
+	 * Forgets a position saved with {@link Parser#mark()}, leaving the parser where it is.
+	 * @param mark The saved position.
+	 */
+	public void unmark(int mark) {
+		if(marks == 0 || mark > index) {
+			throw new IllegalStateException(String.format("There is no saved position %d.", mark));
+		}
+		marks--;
+		if(marks == 0) {
+			tokens.release(index);
+		}
+	}
+	
+	/**
+	 * Pushes a node onto the node stack of the parser.
+	 * @param node The node to push.
+	 */
+	public void pushNode(Node node) {
+		if(nodeCount == nodes.length) {
+			nodes = Arrays.copyOf(nodes, nodeCount * 2);
+		}
+		nodes[nodeCount++] = node;
+	}
+	
+	/**
+	 * Pops the top node from the node stack of the parser.
+	 * @return The node which was on the top of the stack.
+	 */
+	public Node popNode() {
+		if(nodeCount == 0) {
+			throw new IllegalStateException("The node stack is empty.");
+		}
+		Node node = nodes[--nodeCount];
+		nodes[nodeCount] = null;
+		return node;
+	}
+	
+	/**
+	 * Gets the number of nodes on the node stack of the parser. A parsing method can take
+	 * this before pushing nodes, and then use it to pop the nodes it has pushed with {@link
+	 * Parser#popNodes(int, IntFunction)}.
+	 * @return The number of nodes on the node stack.
+	 */
+	public int getNodeCount() {
+		return nodeCount;
+	}
+	
+	/**
+	 * Pops all of the nodes above the given depth off the node stack of the parser, into a
+	 * new array.
+	 * @param start The number of nodes on the stack before the nodes to pop were pushed.
+	 * @param createArray A function creating an array of the given length, such as {@code
+	 * Node[]::new}, whose type all of the popped nodes must have.
+	 * @return An array of the popped nodes, in the order in which they were pushed.
+	 */
+	public <T extends Node> T[] popNodes(int start, IntFunction<T[]> createArray) {
+		if(start < 0 || start > nodeCount) {
+			throw new IllegalArgumentException(String.format("The node stack does not have %d nodes.", start));
 		}
+		T[] array = createArray.apply(nodeCount - start);
+		System.arraycopy(nodes, start, array, 0, array.length);
+		Arrays.fill(nodes, start, nodeCount, null);
+		nodeCount = start;
+		return array;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,52 @@
+package pw.usn.mu.parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects the syntax errors found by a {@link Parser} which recovers from them, rather than
+ * stopping at the first one. See {@link Parser#setErrorCollector(ParserErrorCollector)}.
+ */
+public class ParserErrorCollector {
+	private List<ParserException> errors;
+	
+	/**
+	 * Initializes a new, empty ParserErrorCollector.
+	 */
+	public ParserErrorCollector() {
+		this.errors = new ArrayList<ParserException>();
+	}
+	
+	/**
+	 * Records a syntax error.
+	 * @param error The exception describing the error.
+	 */
+	public void add(ParserException error) {
+		errors.add(error);
+	}
+	
+	/**
+	 * Gets the syntax errors recorded so far.
+	 * @return An unmodifiable list of the errors, in the order in which they were found.
+	 */
+	public List<ParserException> getErrors() {
+		return Collections.unmodifiableList(errors);
+	}
+	
+	/**
+	 * Gets the number of syntax errors recorded so far.
+	 * @return The number of errors.
+	 */
+	public int getErrorCount() {
+		return errors.size();
+	}
+	
+	/**
+	 * Determines whether any syntax errors have been recorded.
+	 * @return Whether there is at least one error.
+	 */
+	public boolean hasErrors() {
+		return !errors.isEmpty();
+	}
+}
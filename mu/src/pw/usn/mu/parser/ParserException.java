@@ -1,5 +1,6 @@
 package pw.usn.mu.parser;
 
+import pw.usn.mu.tokenizer.Location;
 import pw.usn.mu.tokenizer.Token;
 
 /**
@@ -8,6 +9,7 @@ import pw.usn.mu.tokenizer.Token;
 public class ParserException extends RuntimeException {
 	private static final long serialVersionUID = -823442794160195509L;
 	private Token errorToken;
+	private Location location;
 
 	/**
 	 * Initializes a new ParserException with the given message and erroneous token location.
@@ -17,18 +19,45 @@ public class ParserException extends RuntimeException {
 	public ParserException(String message, Token errorToken) {
 		super(message);
 		this.errorToken = errorToken;
+		this.location = errorToken == null ? null : errorToken.getLocation();
+	}
+	
+	/**
+	 * Initializes a new ParserException with the given message and error location, where
+	 * the token which caused the error is no longer available.
+	 * @param message The detail message of the exception.
+	 * @param location The location of the token which caused the parser exception to occur.
+	 */
+	public ParserException(String message, Location location) {
+		super(message);
+		this.errorToken = null;
+		this.location = location;
 	}
 	
 	/**
 	 * Gets the error token for this ParserException.
-	 * @return The token which caused the parser exception to occur.
+	 * @return The token which caused the parser exception to occur, or {@code null} if
+	 * the exception was created from a location only.
 	 */
 	public Token getErrorToken() {
 		return errorToken;
 	}
 	
+	/**
+	 * Gets the location of the error.
+	 * @return The location of the token which caused the parser exception to occur, or
+	 * {@code null} if the error occurred at the end of input with no token to locate it.
+	 */
+	public Location getLocation() {
+		return location;
+	}
+	
 	@Override
 	public String getMessage() {
-		return String.format("%s (at %s)", super.getMessage(), errorToken.getLocation().toString());
+		if(location == null) {
+			return String.format("%s (at end of input)", super.getMessage());
+		} else {
+			return String.format("%s (at %s)", super.getMessage(), location.toString());
+		}
 	}
 }
@@ -0,0 +1,100 @@
+package pw.usn.mu.parser;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+import pw.usn.mu.tokenizer.NameTable;
+
+/**
+ * Represents the table of every distinct module path qualifying an {@link IdentifierNode}.
+ * A path is an array of the ids in the {@link NameTable} of the nested module names, and
+ * interning a path gives the one array shared by every identifier qualified by the same
+ * modules. As each identifier keeps its own location, only its path and name are shared;
+ * two identifiers name the same thing exactly when their name ids are equal and their paths
+ * are the same array, so they can be compared without comparing the arrays.<br>
+ * Like the {@link NameTable}, the table is shared between every source, and may be used
+ * from several threads at once. Interned paths must never be modified.
+ */
+public final class PathTable {
+	/**
+	 * The path of an unqualified identifier.
+	 */
+	public static final int[] EMPTY = new int[0];
+	
+	private static final ConcurrentHashMap<Path, int[]> paths = new ConcurrentHashMap<Path, int[]>();
+	
+	/**
+	 * Represents a path as a key of the table, comparing and hashing the contents of the
+	 * array rather than the array itself.
+	 */
+	private static final class Path {
+		private int[] ids;
+		private int hash;
+		
+		/**
+		 * Initializes a new Path.
+		 * @param ids The module name ids of the path.
+		 */
+		public Path(int[] ids) {
+			this.ids = ids;
+			this.hash = Arrays.hashCode(ids);
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Path && Arrays.equals(((Path)obj).ids, ids);
+		}
+	}
+	
+	private PathTable() {
+	}
+	
+	/**
+	 * Gets the shared array of the given path, adding the path to the table if it is not
+	 * already present.
+	 * @param path The ids in the {@link NameTable} of the modules in the path. If the path
+	 * is not already in the table, this array becomes the shared array, so it must not be
+	 * modified afterward.
+	 * @return The shared array with the same contents as {@code path}.
+	 */
+	public static int[] intern(int[] path) {
+		if(path.length == 0) {
+			return EMPTY;
+		}
+		Path key = new Path(path);
+		int[] shared = paths.get(key);
+		if(shared == null) {
+			shared = paths.putIfAbsent(key, path);
+			if(shared == null) {
+				shared = path;
+			}
+		}
+		return shared;
+	}
+	
+	/**
+	 * Gets the shared array of the path of the given module names.
+	 * @param names The names of the modules in the path.
+	 * @return The shared array of the ids of {@code names}.
+	 */
+	public static int[] intern(String... names) {
+		int[] path = new int[names.length];
+		for(int i = 0; i < names.length; i++) {
+			path[i] = NameTable.intern(names[i]);
+		}
+		return intern(path);
+	}
+	
+	/**
+	 * Gets the number of distinct paths in the table, not counting {@link PathTable#EMPTY}.
+	 * @return The number of paths interned so far.
+	 */
+	public static int getCount() {
+		return paths.size();
+	}
+}
@@ -1,10 +1,8 @@
 package pw.usn.mu.parser;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import pw.usn.mu.tokenizer.Location;
 import pw.usn.mu.tokenizer.SymbolTokenType;
+import pw.usn.mu.tokenizer.TokenKind;
 
 /**
  * Represents a sequence literal in mu source code.
@@ -46,17 +44,16 @@ public class SequenceNode extends Node {
 	 * @return A {@link SequenceNode}, as parsed from the current input.
 	 */
 	public static SequenceNode parse(Parser parser) {
-		Location sequenceLocation = parser.expect(token -> token.isSymbolToken(SymbolTokenType.SEQUENCE_OPEN), "Expected start of sequence.");
-		if(parser.accept(token -> token.isSymbolToken(SymbolTokenType.SEQUENCE_CLOSE))) {
+		Location sequenceLocation = parser.expect(TokenKind.symbol(SymbolTokenType.SEQUENCE_OPEN), "Expected start of sequence.");
+		if(parser.accept(TokenKind.symbol(SymbolTokenType.SEQUENCE_CLOSE))) {
 			return new SequenceNode(sequenceLocation);
 		} else {
-			List<Node> expressions = new ArrayList<Node>();
+			int start = parser.getNodeCount();
 			do {
-				expressions.add(Node.parseTight(parser));
-			} while(parser.accept(token -> token.isSymbolToken(SymbolTokenType.COMMA)));
-			parser.expect(token -> token.isSymbolToken(SymbolTokenType.SEQUENCE_CLOSE), "Expected end of sequence.");
-			Node[] expressionsArray = new Node[expressions.size()];
-			expressions.toArray(expressionsArray);
+				parser.pushNode(Node.parseTight(parser));
+			} while(parser.accept(TokenKind.symbol(SymbolTokenType.COMMA)));
+			parser.require(TokenKind.symbol(SymbolTokenType.SEQUENCE_CLOSE), "Expected end of sequence.");
+			Node[] expressionsArray = parser.popNodes(start, Node[]::new);
 			return new SequenceNode(sequenceLocation, expressionsArray);
 		}
 	}
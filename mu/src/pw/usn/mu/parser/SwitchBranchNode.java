@@ -2,6 +2,7 @@ package pw.usn.mu.parser;
 
 import pw.usn.mu.tokenizer.Location;
 import pw.usn.mu.tokenizer.SymbolTokenType;
+import pw.usn.mu.tokenizer.TokenKind;
 
 /**
  * Represents a branch of a switch statement.
@@ -67,16 +68,16 @@ public class SwitchBranchNode extends Node {
 	 */
 	public static SwitchBranchNode parse(Parser parser) {
 		Node pattern = Node.parse(parser);
-		if(parser.accept(token -> token.isSymbolToken(SymbolTokenType.FUNCTION_DECLARE))) {
+		if(parser.accept(TokenKind.symbol(SymbolTokenType.FUNCTION_DECLARE))) {
 			Node condition = Node.parse(parser);
 			Location switchBranchLocation = parser.expect(
-					token -> token.isSymbolToken(SymbolTokenType.FUNCTION_BEGIN),
+					TokenKind.symbol(SymbolTokenType.FUNCTION_BEGIN),
 					"Expected forward-arrow after branch condition.");
 			Node result = Node.parse(parser);
 			return new SwitchBranchNode(switchBranchLocation, pattern, condition, result);
 		} else {
 			Location switchBranchLocation = parser.expect(
-					token -> token.isSymbolToken(SymbolTokenType.FUNCTION_BEGIN),
+					TokenKind.symbol(SymbolTokenType.FUNCTION_BEGIN),
 					"Expected forward-arrow after branch pattern.");
 			Node result = Node.parse(parser);
 			return new SwitchBranchNode(switchBranchLocation, pattern, result);
@@ -1,10 +1,8 @@
 package pw.usn.mu.parser;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import pw.usn.mu.tokenizer.Location;
 import pw.usn.mu.tokenizer.SymbolTokenType;
+import pw.usn.mu.tokenizer.TokenKind;
 
 /**
  * Represents a switch ({@code ?}) expression.
@@ -61,14 +59,16 @@ public class SwitchNode extends Node {
 	 * @return A {@link SwitchNode} expression, as parsed from the current input.
 	 */
 	public static SwitchNode parse(Parser parser) {
-		Location switchLocation = parser.expect(token -> token.isSymbolToken(SymbolTokenType.SWITCH_DECLARE), "Expected question mark to begin switch statement.");
+		if(parser.isStackSafe()) {
+			return (SwitchNode)parser.getIterativeParser().parse(IterativeParser.SWITCH);
+		}
+		Location switchLocation = parser.expect(TokenKind.symbol(SymbolTokenType.SWITCH_DECLARE), "Expected question mark to begin switch statement.");
 		Node input = Node.parseAtomic(parser);
-		List<SwitchBranchNode> branches = new ArrayList<SwitchBranchNode>();
+		int start = parser.getNodeCount();
 		do {
-			branches.add(SwitchBranchNode.parse(parser));
-		} while(parser.accept(token -> token.isSymbolToken(SymbolTokenType.SEPARATOR)));
-		SwitchBranchNode[] branchesArray = new SwitchBranchNode[branches.size()];
-		branches.toArray(branchesArray);
+			parser.pushNode(SwitchBranchNode.parse(parser));
+		} while(parser.accept(TokenKind.symbol(SymbolTokenType.SEPARATOR)));
+		SwitchBranchNode[] branchesArray = parser.popNodes(start, SwitchBranchNode[]::new);
 		return new SwitchNode(switchLocation, input, branchesArray);
 	}
 }
@@ -1,10 +1,8 @@
 package pw.usn.mu.parser;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import pw.usn.mu.tokenizer.Location;
 import pw.usn.mu.tokenizer.SymbolTokenType;
+import pw.usn.mu.tokenizer.TokenKind;
 
 /**
  * Represents an unnamed tuple of values.
@@ -56,15 +54,16 @@ public class TupleNode extends Node {
 	 * the first (and only) value in the tuple.
 	 */
 	public static Node parse(Parser parser) {
-		List<Node> expressions = new ArrayList<Node>(1);
-		do {
-			expressions.add(Node.parseTight(parser));
-		} while(parser.accept(token -> token.isSymbolToken(SymbolTokenType.COMMA)));
-		if(expressions.size() == 1) {
-			return expressions.get(0);
+		Node first = Node.parseTight(parser);
+		if(!parser.test(TokenKind.symbol(SymbolTokenType.COMMA))) {
+			return first;
 		} else {
-			Node[] expressionsArray = new Node[expressions.size()];
-			expressions.toArray(expressionsArray);
+			int start = parser.getNodeCount();
+			parser.pushNode(first);
+			while(parser.accept(TokenKind.symbol(SymbolTokenType.COMMA))) {
+				parser.pushNode(Node.parseTight(parser));
+			}
+			Node[] expressionsArray = parser.popNodes(start, Node[]::new);
 			/*
 			 * Tuple doesn't really have a well-defined starting location, so just use the
 			 * location of the first member instead.
@@ -1,11 +1,10 @@
 package pw.usn.mu.parser.binding;
 
-import java.util.Stack;
-
 import pw.usn.mu.parser.Node;
 import pw.usn.mu.parser.Parser;
 import pw.usn.mu.tokenizer.Location;
 import pw.usn.mu.tokenizer.SymbolTokenType;
+import pw.usn.mu.tokenizer.TokenKind;
 
 /**
  * Represents a binding which gets the head and tail of a sequence.
@@ -48,17 +47,21 @@ public class BindConsNode extends Node {
 	 * no values are consed, then this simply returns the lone value instead.
 	 */
 	public static Node parse(Parser parser) {
-		Stack<Node> nodes = new Stack<Node>();
-		Stack<Location> locations = new Stack<Location>();
-		
-		nodes.push(BindValueNode.parse(parser));
-		while(parser.accept(token -> token.isSymbolToken(SymbolTokenType.CONS))) {
-			locations.push(parser.current().getLocation());
-			nodes.push(BindValueNode.parse(parser));
+		/* Cons is right-associative, but the heads are collected in a loop and the
+		 * tails filled in afterward, so that long cons bindings do not recurse. Each
+		 * cons node is pushed onto the node stack of the parser with its head and the
+		 * location of its cons symbol, before its tail has been parsed.
+		 */
+		int start = parser.getNodeCount();
+		Node node = BindValueNode.parse(parser);
+		while(parser.accept(TokenKind.symbol(SymbolTokenType.CONS))) {
+			parser.pushNode(new BindConsNode(parser.currentLocation(), node, null));
+			node = BindValueNode.parse(parser);
 		}
-		Node node = nodes.pop();
-		while(!nodes.isEmpty()) {
-			node = new BindConsNode(locations.pop(), nodes.pop(), node);
+		while(parser.getNodeCount() > start) {
+			BindConsNode cons = (BindConsNode)parser.popNode();
+			cons.tail = node;
+			node = cons;
 		}
 		return node;
 	}
@@ -1,12 +1,10 @@
 package pw.usn.mu.parser.binding;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import pw.usn.mu.parser.Node;
 import pw.usn.mu.parser.Parser;
 import pw.usn.mu.tokenizer.Location;
 import pw.usn.mu.tokenizer.SymbolTokenType;
+import pw.usn.mu.tokenizer.TokenKind;
 
 /**
  * Represents a binding which decomposes a tuple.
@@ -49,16 +47,16 @@ public class BindTupleNode extends Node {
 	 * the input tuple only has one value, then this simply returns that value instead.
 	 */
 	public static Node parse(Parser parser) {
-		List<Node> nodes = new ArrayList<Node>();
-		nodes.add(BindConsNode.parse(parser));
-		while(parser.accept(token -> token.isSymbolToken(SymbolTokenType.COMMA))) {
-			nodes.add(BindConsNode.parse(parser));
-		}
-		if(nodes.size() == 1) {
-			return nodes.get(0);
+		Node first = BindConsNode.parse(parser);
+		if(!parser.test(TokenKind.symbol(SymbolTokenType.COMMA))) {
+			return first;
 		} else {
-			Node[] nodesArray = new Node[nodes.size()];
-			nodes.toArray(nodesArray);
+			int start = parser.getNodeCount();
+			parser.pushNode(first);
+			while(parser.accept(TokenKind.symbol(SymbolTokenType.COMMA))) {
+				parser.pushNode(BindConsNode.parse(parser));
+			}
+			Node[] nodesArray = parser.popNodes(start, Node[]::new);
 			/*
 			 * Tuple doesn't really have a well-defined starting location, so just use the
 			 * location of the first member instead.
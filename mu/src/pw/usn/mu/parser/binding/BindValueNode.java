@@ -2,8 +2,8 @@ package pw.usn.mu.parser.binding;
 
 import pw.usn.mu.parser.Node;
 import pw.usn.mu.parser.Parser;
-import pw.usn.mu.tokenizer.IdentifierToken;
 import pw.usn.mu.tokenizer.Location;
+import pw.usn.mu.tokenizer.TokenKind;
 
 /**
  * Represents a binding of a value.
@@ -36,10 +36,9 @@ public class BindValueNode extends Node {
 	 * @return A value binding name, as parsed from the current input.
 	 */
 	public static BindValueNode parse(Parser parser) {
-		parser.expect(
-				token -> token instanceof IdentifierToken,
+		Location location = parser.expect(
+				TokenKind.IDENTIFIER,
 				"Expected identifier in binding structure.");
-		IdentifierToken token = (IdentifierToken)parser.current();
-		return new BindValueNode(token.getLocation(), token.getIdentifier());
+		return new BindValueNode(location, parser.currentPayload());
 	}
 }
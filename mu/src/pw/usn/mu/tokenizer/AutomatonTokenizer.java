@@ -0,0 +1,445 @@
+package pw.usn.mu.tokenizer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import pw.usn.mu.ChannelSource;
+import pw.usn.mu.Source;
+import pw.usn.mu.StringSource;
+
+/**
+ * Represents a tokenizer which compiles its rules into a single {@link TokenizerAutomaton}
+ * rather than trying each rule in turn. This reads each character of a source once when
+ * determining which rule to use, so tokenizing takes time linear in the size of the
+ * source. The tokens produced are the same as those produced by {@link Tokenizer}.
+ */
+public class AutomatonTokenizer extends Tokenizer {
+	private static final int MINIMUM_CHUNK_SIZE = 16384;
+	private static final int CHUNKS_PER_THREAD = 4;
+	
+	private TokenizerAutomaton automaton;
+
+	/**
+	 * Initialize a new AutomatonTokenizer with an empty set of rules.
+	 */
+	public AutomatonTokenizer() {
+		super();
+	}
+
+	@Override
+	public synchronized void addRule(TokenizerRule rule) {
+		super.addRule(rule);
+		automaton = null;
+	}
+
+	/**
+	 * Gets the automaton compiled from the rules of this tokenizer, compiling it if
+	 * any rules have been added since it was last compiled.
+	 * @return The {@link TokenizerAutomaton} for the current rules.
+	 * @throws IllegalArgumentException when the pattern of a rule uses syntax that
+	 * cannot be compiled into an automaton.
+	 */
+	public synchronized TokenizerAutomaton getAutomaton() {
+		if(automaton == null) {
+			automaton = new TokenizerAutomaton(getRules());
+		}
+		return automaton;
+	}
+
+	@Override
+	public Token[] tokenize(Source source) {
+		TokenizerAutomaton automaton = getAutomaton();
+		TokenizerMatch match = new TokenizerMatch();
+		List<Token> tokens = new ArrayList<Token>();
+		while(!source.endOfSource()) {
+			TokenizerRule rule = readRule(automaton, source, match);
+			if(rule instanceof IgnoreTokenizerRule) {
+				/* There is no need to create the token if it is going to be discarded anyway.
+				 */
+				source.skip(match.getLength());
+			} else {
+				Token token = readToken(source, rule, match);
+				if(!token.ignore()) {
+					tokens.add(token);
+				}
+			}
+		}
+		Token[] tokenArray = new Token[tokens.size()];
+		tokens.toArray(tokenArray);
+		return tokenArray;
+	}
+	
+	@Override
+	public TokenBuffer tokenizeToBuffer(Source source) {
+		TokenizerAutomaton automaton = getAutomaton();
+		TokenizerMatch match = new TokenizerMatch();
+		TokenBuffer buffer = new TokenBuffer(source);
+		int offset = 0;
+		while(!source.endOfSource()) {
+			offset += readToken(automaton, source, match, buffer, offset);
+		}
+		buffer.setSourceLength(offset);
+		buffer.trim();
+		return buffer;
+	}
+	
+	@Override
+	public TokenSequence tokenizeLazily(Source source) {
+		return new TokenCursor(this, source);
+	}
+	
+	/**
+	 * Tokenizes a UTF-8 encoded source directly from its bytes, without decoding it into a
+	 * {@link String} first. Only the text of identifiers, operators and literals is decoded,
+	 * and only the first time each distinct text is read; all other tokens, including
+	 * comments and white space, are recognized from the bytes alone.<br>
+	 * The tokens produced are the same as those produced by {@link
+	 * AutomatonTokenizer#tokenizeToBuffer(Source)} for the decoded source, with their offsets
+	 * and lengths counted in characters.
+	 * @param bytes The buffer containing the encoded source, from its position up to its
+	 * limit. This might be a {@link java.nio.MappedByteBuffer MappedByteBuffer} of a source
+	 * file. The position and limit of the buffer are not changed.
+	 * @param name The name of the source. This is used for error reporting, and may contain
+	 * a value such as a file name or terminal name.
+	 * @return A buffer containing the tokens of the source. The source of the buffer is a
+	 * {@link ChannelSource} over the same bytes.
+	 * @throws TokenizerException when the source cannot be tokenized.
+	 */
+	public TokenBuffer tokenizeUtf8(ByteBuffer bytes, String name) {
+		Source source = new ChannelSource(bytes.duplicate(), name, StandardCharsets.UTF_8);
+		return new Utf8TokenReader(getAutomaton(), bytes, source).readAll();
+	}
+	
+	/**
+	 * Tokenizes a UTF-8 encoded source directly from its bytes, without decoding it into a
+	 * {@link String} first. This is equivalent to calling {@link
+	 * AutomatonTokenizer#tokenizeUtf8(ByteBuffer, String)} with a buffer wrapping
+	 * {@code bytes}.
+	 * @param bytes The encoded source.
+	 * @param name The name of the source. This is used for error reporting, and may contain
+	 * a value such as a file name or terminal name.
+	 * @return A buffer containing the tokens of the source.
+	 * @throws TokenizerException when the source cannot be tokenized.
+	 */
+	public TokenBuffer tokenizeUtf8(byte[] bytes, String name) {
+		return tokenizeUtf8(ByteBuffer.wrap(bytes), name);
+	}
+	
+	/**
+	 * Tokenizes the given text by splitting it into chunks, which are read at the same time
+	 * on {@code pool}. The text is split at points found by {@link
+	 * AutomatonTokenizer#findSplitPoints(CharSequence, int)}, and the tokens of the chunks
+	 * are then joined in order.<br>
+	 * The tokens produced are the same as those produced by {@link
+	 * AutomatonTokenizer#tokenizeToBuffer(Source)}, even if a chunk does not begin at the
+	 * start of a token. In that case, the end of the previous chunk is read on from until the
+	 * tokenizer reaches the start of a token in the chunk, after which the tokens of the
+	 * chunk are used as they are.
+	 * @param text The text to tokenize.
+	 * @param name The name of the source. This is used for error reporting, and may contain
+	 * a value such as a file name or terminal name.
+	 * @param pool The pool on which to read the chunks.
+	 * @return A buffer containing the tokens of {@code text}.
+	 * @throws TokenizerException when the text cannot be tokenized. The exception is the
+	 * same as would be thrown when reading the text in one piece.
+	 */
+	public TokenBuffer tokenizeParallel(CharSequence text, String name, ForkJoinPool pool) {
+		TokenizerAutomaton automaton = getAutomaton();
+		int chunkSize = Math.max(MINIMUM_CHUNK_SIZE, text.length() / (pool.getParallelism() * CHUNKS_PER_THREAD));
+		int[] splitPoints = findSplitPoints(text, chunkSize);
+		List<ForkJoinTask<TokenizerChunk>> chunks = new ArrayList<ForkJoinTask<TokenizerChunk>>(splitPoints.length + 1);
+		for(int i = 0; i <= splitPoints.length; i++) {
+			int start = i == 0 ? 0 : splitPoints[i - 1];
+			int limit = i == splitPoints.length ? text.length() : splitPoints[i];
+			chunks.add(pool.submit(() -> readChunk(automaton, text, name, start, limit)));
+		}
+		
+		TokenBuffer buffer = new TokenBuffer(new StringSource(text, name, 0, 1, 0));
+		TokenizerMatch match = new TokenizerMatch();
+		int offset = 0;
+		for(ForkJoinTask<TokenizerChunk> task : chunks) {
+			TokenizerChunk chunk = task.join();
+			int index = chunk.getBoundaryIndex(offset);
+			if(index < 0 && offset < chunk.getEnd()) {
+				/* The previous chunk ended part of the way through a token of this chunk, so
+				 * this chunk was read from the wrong place. Read on from the end of the previous
+				 * chunk until both agree on where a token starts.
+				 */
+				StringSource source = createSource(text, name, buffer, offset);
+				do {
+					offset += readToken(automaton, source, match, buffer, offset);
+					index = chunk.getBoundaryIndex(offset);
+				} while(index < 0 && offset < chunk.getEnd());
+			}
+			if(index >= 0) {
+				buffer.append(chunk.getTokens(), index, offset, chunk.getEnd());
+				offset = chunk.getEnd();
+				if(chunk.hasFailed()) {
+					/* Read the text which could not be tokenized again, from a source at the
+					 * correct location, so that the exception thrown is the same as when
+					 * reading the text in one piece.
+					 */
+					offset += readToken(automaton, createSource(text, name, buffer, offset), match, buffer, offset);
+				}
+			}
+		}
+		while(offset < text.length()) {
+			offset += readToken(automaton, createSource(text, name, buffer, offset), match, buffer, offset);
+		}
+		buffer.setSourceLength(offset);
+		buffer.trim();
+		return buffer;
+	}
+	
+	/**
+	 * Finds the points at which {@link AutomatonTokenizer#tokenizeParallel(CharSequence,
+	 * String, ForkJoinPool)} splits a text into chunks. The split points do not need to be at
+	 * the start of a token for the result to be correct, but each split point which is not
+	 * means that text is read twice.<br>
+	 * The default implementation splits the text after a {@code ;} separator which is not
+	 * inside brackets, a string literal, a symbol literal or a comment.
+	 * @param text The text to split.
+	 * @param chunkSize The preferred number of characters in each chunk.
+	 * @return The offsets at which to split the text, in ascending order, not including the
+	 * start or end of the text.
+	 */
+	protected int[] findSplitPoints(CharSequence text, int chunkSize) {
+		List<Integer> splitPoints = new ArrayList<Integer>();
+		int length = text.length(), depth = 0, next = chunkSize;
+		for(int i = 0; i < length; i++) {
+			char c = text.charAt(i);
+			if(c == '"') {
+				/* This also skips symbol literals of the form '"...", and the other form of
+				 * symbol literal cannot contain a separator.
+				 */
+				do {
+					i++;
+				} while(i < length && text.charAt(i) != '"');
+			} else if(c == '/' && i + 1 < length && text.charAt(i + 1) == '*') {
+				i += 2;
+				while(i + 1 < length && !(text.charAt(i) == '*' && text.charAt(i + 1) == '/')) {
+					i++;
+				}
+				i++;
+			} else if(c == '/' && i + 1 < length && text.charAt(i + 1) == '/') {
+				while(i + 1 < length && text.charAt(i + 1) != '\n') {
+					i++;
+				}
+			} else if(c == '(' || c == '[') {
+				depth++;
+			} else if(c == ')' || c == ']') {
+				depth = Math.max(depth - 1, 0);
+			} else if(c == ';' && depth == 0 && i + 1 >= next && i + 1 < length) {
+				splitPoints.add(i + 1);
+				next = i + 1 + chunkSize;
+			}
+		}
+		int[] splitPointArray = new int[splitPoints.size()];
+		for(int i = 0; i < splitPointArray.length; i++) {
+			splitPointArray[i] = splitPoints.get(i);
+		}
+		return splitPointArray;
+	}
+	
+	/**
+	 * Reads the tokens of one chunk of a text.
+	 * @param automaton The automaton to match with.
+	 * @param text The whole text being tokenized.
+	 * @param name The name of the source.
+	 * @param start The offset at which to begin reading.
+	 * @param limit The offset at or after which to stop reading, once the current token
+	 * has been read.
+	 * @return The chunk that was read.
+	 */
+	private TokenizerChunk readChunk(TokenizerAutomaton automaton, CharSequence text, String name, int start, int limit) {
+		/* The row and column of the chunk are not known yet. Only the offsets of the tokens
+		 * are kept from the chunk, so the locations of the token objects do not matter.
+		 */
+		StringSource source = new StringSource(text, name, start, 1, 0);
+		TokenizerMatch match = new TokenizerMatch();
+		TokenBuffer tokens = new TokenBuffer(source);
+		int offset = start;
+		boolean failed = false;
+		try {
+			while(offset < limit) {
+				offset += readToken(automaton, source, match, tokens, offset);
+			}
+		} catch(RuntimeException e) {
+			/* A chunk beginning part of the way through a token can fail in ways that reading
+			 * the text in one piece would not, such as by reading the digits of an integer
+			 * literal in the wrong base. Whether the failure is genuine is only known once
+			 * the chunk is joined, when the text is read again.
+			 */
+			failed = true;
+		}
+		return new TokenizerChunk(start, offset, tokens, failed);
+	}
+	
+	/**
+	 * Creates a source reading from the given offset of a text, with the location of the
+	 * reading head taken from the rows already read into {@code buffer}.
+	 * @param text The text to read.
+	 * @param name The name of the source.
+	 * @param buffer The buffer containing the tokens before {@code offset}.
+	 * @param offset The offset at which to begin reading.
+	 * @return A source reading {@code text} from {@code offset}.
+	 */
+	private static StringSource createSource(CharSequence text, String name, TokenBuffer buffer, int offset) {
+		LineOffsetTable lines = buffer.getLineOffsets();
+		return new StringSource(text, name, offset, lines.getRow(offset), lines.getColumn(offset));
+	}
+	
+	/**
+	 * Updates the tokens of a source after an edit has been made to it. Rather than
+	 * tokenizing the whole source again, this only reads the text from the last point
+	 * before the edit at which the tokens could not have been affected by it, up to the
+	 * first point after the edit at which the tokenizer reaches the start of a token that
+	 * was read before the edit. The tokens after that point are the same as before, so
+	 * they are kept, and moved by the change in length of the source.<br>
+	 * The tokens are updated in place. {@link Location}s obtained from {@code previous}
+	 * before the edit still refer to the source before the edit.
+	 * @param previous The tokens of the source before the edit, as returned by {@link
+	 * AutomatonTokenizer#tokenizeToBuffer(Source)} or by a previous call to this method.
+	 * @param edit The edit made to the source.
+	 * @param text The text of the source after the edit.
+	 * @return {@code previous}, updated to contain the tokens of the edited source.
+	 * @throws TokenizerException when the edited text cannot be tokenized. In this case,
+	 * {@code previous} is left unchanged.
+	 * @throws IllegalArgumentException when {@code previous} was not created by a
+	 * tokenizer, or the edit does not fit the source.
+	 */
+	public TokenBuffer retokenize(TokenBuffer previous, TextEdit edit, CharSequence text) {
+		if(previous.getSourceLength() < 0) {
+			throw new IllegalArgumentException("The token buffer must contain the offsets of its tokens.");
+		} else if(edit.getOffset() + edit.getRemovedLength() > previous.getSourceLength() ||
+				text.length() != previous.getSourceLength() + edit.getShift()) {
+			throw new IllegalArgumentException("The edit does not fit the text of the source.");
+		}
+		TokenizerAutomaton automaton = getAutomaton();
+		TokenizerMatch match = new TokenizerMatch();
+		
+		/* A token can only change if the tokenizer read as far as the edit when reading it
+		 * or any token before it, so find the first token for which this is the case.
+		 */
+		int low = 0, high = previous.size();
+		while(low < high) {
+			int middle = (low + high) >>> 1;
+			if(previous.getReach(middle) <= edit.getOffset()) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		int from = low, start = 0;
+		TokenBuffer replacement = new TokenBuffer(previous.getSource());
+		if(from > 0) {
+			start = previous.getStart(from - 1) + previous.getLength(from - 1);
+			replacement.addReach(previous.getReach(from - 1));
+		}
+		LineOffsetTable lines = previous.getLineOffsets();
+		StringSource source = new StringSource(
+				text,
+				previous.getSource() == null ? null : previous.getSource().getName(),
+				start,
+				lines.getRow(start),
+				lines.getColumn(start));
+		
+		/* Read tokens until the tokenizer is at the start of a token which was read before
+		 * the edit, and which comes after the edit.
+		 */
+		int offset = start, to = from;
+		int editEnd = edit.getOffset() + edit.getInsertedText().length();
+		while(!source.endOfSource()) {
+			offset += readToken(automaton, source, match, replacement, offset);
+			if(offset >= editEnd) {
+				while(to < previous.size() && previous.getStart(to) + edit.getShift() < offset) {
+					to += 1;
+				}
+				if(to < previous.size() && previous.getStart(to) + edit.getShift() == offset) {
+					break;
+				}
+			}
+		}
+		if(source.endOfSource()) {
+			to = previous.size();
+		}
+		previous.replace(from, to, replacement, start, offset - edit.getShift(), edit);
+		return previous;
+	}
+	
+	/**
+	 * Reads the next token from {@code source} into {@code buffer}. Ignored tokens are
+	 * read but not added to the buffer.
+	 * @param automaton The automaton to match with.
+	 * @param source The source to read from.
+	 * @param match The match to use for reading.
+	 * @param buffer The buffer to add the token to.
+	 * @param offset The offset of the reading head of {@code source}.
+	 * @return The number of characters read.
+	 * @throws TokenizerException when no rule matches.
+	 */
+	int readToken(TokenizerAutomaton automaton, Source source, TokenizerMatch match, TokenBuffer buffer, int offset) {
+		TokenizerRule rule = readRule(automaton, source, match);
+		int length = match.getLength();
+		buffer.addReach(offset + match.getExaminedLength());
+		for(int i = 0; i < length; i++) {
+			if(source.peek(i) == '\n') {
+				buffer.addLine(offset + i + 1);
+			}
+		}
+		if(rule instanceof IgnoreTokenizerRule) {
+			source.skip(length);
+		} else if(rule instanceof SymbolTokenizerRule) {
+			/* Symbol tokens have no payload, so the token object is not needed either.
+			 */
+			buffer.add(TokenKind.symbol(((SymbolTokenizerRule)rule).getType()), offset, length, null);
+			source.skip(length);
+		} else {
+			Token token = readToken(source, rule, match);
+			if(!token.ignore()) {
+				buffer.add(token.getKind(), offset, length, token.getPayload());
+			}
+		}
+		return length;
+	}
+	
+	/**
+	 * Runs {@code automaton} from the current position of {@code source} to find the rule
+	 * to use for the next token.
+	 * @param automaton The automaton to match with.
+	 * @param source The source to read from.
+	 * @param match The match in which to store the length of the token.
+	 * @return The rule matching at the current position of {@code source}.
+	 * @throws TokenizerException when no rule matches.
+	 */
+	private TokenizerRule readRule(TokenizerAutomaton automaton, Source source, TokenizerMatch match) {
+		if(automaton.match(source, match)) {
+			return automaton.getRule(match.getRule());
+		} else {
+			throw new TokenizerException("Unrecognized token.", source.getLocation(), source.getRemainderOfLine());
+		}
+	}
+	
+	/**
+	 * Reads the token matched by {@code rule} from {@code source}.
+	 * @param source The source to read from.
+	 * @param rule The rule which matched.
+	 * @param match The match containing the length of the token.
+	 * @return The token that was read.
+	 * @throws TokenizerException when the pattern of {@code rule} does not match the
+	 * text that the automaton matched.
+	 */
+	private Token readToken(Source source, TokenizerRule rule, TokenizerMatch match) {
+		Location location = source.getLocation();
+		Token token = source.readToken(rule, match.getLength());
+		if(token == null) {
+			throw new TokenizerException("Unrecognized token.", location, source.getRemainderOfLine());
+		} else {
+			return token;
+		}
+	}
+}
@@ -3,12 +3,14 @@ package pw.usn.mu.tokenizer;
 import java.util.regex.Pattern;
 
 /**
- * A factory for creating mu language tokenizers.
+ * A factory for creating mu language tokenizers. The rules are compiled into a single
+ * {@link TokenizerAutomaton}, so the created tokenizers run in time linear in the size of
+ * the source.
  */
 public class DefaultTokenizerFactory implements TokenizerFactory {
 	@Override
 	public Tokenizer create() {
-		Tokenizer tokenizer = new Tokenizer();
+		Tokenizer tokenizer = new AutomatonTokenizer();
 
 		tokenizer.addRule(new IgnoreTokenizerRule(
 				"(?s)/\\*.*?\\*/")); // multi line comment
@@ -5,6 +5,7 @@ package pw.usn.mu.tokenizer;
  */
 public class IdentifierToken extends Token {
 	private String identifier;
+	private int nameId;
 	
 	/**
 	 * Initializes a new IdentifierToken with the given location and identifier string.
@@ -14,6 +15,7 @@ public class IdentifierToken extends Token {
 	public IdentifierToken(Location location, String identifier) {
 		super(location);
 		this.identifier = identifier;
+		this.nameId = NameTable.intern(identifier);
 	}
 	
 	/**
@@ -24,6 +26,24 @@ public class IdentifierToken extends Token {
 		return identifier;
 	}
 	
+	/**
+	 * Gets the id of the identifier string this token represents.
+	 * @return The id of the identifier in the {@link NameTable}.
+	 */
+	public int getNameId() {
+		return nameId;
+	}
+	
+	@Override
+	public int getKind() {
+		return TokenKind.IDENTIFIER;
+	}
+	
+	@Override
+	String getPayload() {
+		return identifier;
+	}
+	
 	@Override
 	public String getInformation() {
 		return getIdentifier();
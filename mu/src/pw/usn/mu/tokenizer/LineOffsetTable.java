@@ -0,0 +1,126 @@
+package pw.usn.mu.tokenizer;
+
+import java.util.Arrays;
+
+/**
+ * Represents the offsets, in characters from the start of a source, at which each row of
+ * the source begins. This allows the row and column of a {@link Location} to be computed
+ * from its offset only when they are needed.
+ */
+public class LineOffsetTable {
+	private int[] lineOffsets;
+	private int lineCount;
+	
+	/**
+	 * Initializes a new LineOffsetTable containing only the first row, which begins at
+	 * offset 0.
+	 */
+	public LineOffsetTable() {
+		lineOffsets = new int[16];
+		lineCount = 1;
+	}
+	
+	/**
+	 * Adds the start of a new row to the table. Rows must be added in order.
+	 * @param offset The offset of the first character of the row, ie. the offset after
+	 * the preceding newline character.
+	 */
+	public void addLine(int offset) {
+		if(offset <= lineOffsets[lineCount - 1]) {
+			throw new IllegalArgumentException("Rows must be added in ascending order of offset.");
+		}
+		if(lineCount == lineOffsets.length) {
+			lineOffsets = Arrays.copyOf(lineOffsets, lineCount * 2);
+		}
+		lineOffsets[lineCount++] = offset;
+	}
+	
+	/**
+	 * Adds the rows of another table which begin after {@code start} and no later than
+	 * {@code end} to this table.
+	 * @param other The table containing the rows to add.
+	 * @param start The offset after which to add rows.
+	 * @param end The offset up to which to add rows.
+	 */
+	void appendLines(LineOffsetTable other, int start, int end) {
+		for(int line = other.getRow(start); line < other.lineCount && other.lineOffsets[line] <= end; line++) {
+			addLine(other.lineOffsets[line]);
+		}
+	}
+	
+	/**
+	 * Creates a copy of this table for a source in which the text between {@code start} and
+	 * {@code end} has been re-read. Rows beginning up to {@code start} are kept, followed by
+	 * the rows of {@code replacement} other than its first row, followed by the rows which
+	 * began after {@code end}, moved by {@code shift}.
+	 * @param start The offset at which the re-read text begins.
+	 * @param end The offset, before the edit, at which the re-read text ends.
+	 * @param replacement A table containing the rows which begin in the re-read text.
+	 * @param shift The distance by which the text after {@code end} was moved.
+	 * @return A new table for the edited source.
+	 */
+	LineOffsetTable replace(int start, int end, LineOffsetTable replacement, int shift) {
+		int kept = getRow(start), resumed = getRow(end);
+		int added = replacement.lineCount - 1;
+		LineOffsetTable table = new LineOffsetTable();
+		table.lineOffsets = new int[kept + added + (lineCount - resumed)];
+		System.arraycopy(lineOffsets, 0, table.lineOffsets, 0, kept);
+		System.arraycopy(replacement.lineOffsets, 1, table.lineOffsets, kept, added);
+		for(int line = resumed, index = kept + added; line < lineCount; line++, index++) {
+			table.lineOffsets[index] = lineOffsets[line] + shift;
+		}
+		table.lineCount = table.lineOffsets.length;
+		return table;
+	}
+	
+	/**
+	 * Releases any unused space in the table.
+	 */
+	public void trim() {
+		lineOffsets = Arrays.copyOf(lineOffsets, lineCount);
+	}
+	
+	/**
+	 * Gets the number of rows in the table.
+	 * @return The number of rows added, including the first row.
+	 */
+	public int getLineCount() {
+		return lineCount;
+	}
+	
+	/**
+	 * Gets the offset at which the given row begins.
+	 * @param row The row, starting from row 1.
+	 * @return The offset of the first character of {@code row}.
+	 */
+	public int getRowStart(int row) {
+		return lineOffsets[row - 1];
+	}
+	
+	/**
+	 * Gets the row containing the given offset.
+	 * @param offset The offset from the start of the source.
+	 * @return The row (starting from row 1) containing {@code offset}.
+	 */
+	public int getRow(int offset) {
+		int low = 0, high = lineCount - 1;
+		while(low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if(lineOffsets[middle] <= offset) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return low + 1;
+	}
+	
+	/**
+	 * Gets the column of the given offset within its row.
+	 * @param offset The offset from the start of the source.
+	 * @return The column (starting from column 0) of {@code offset}.
+	 */
+	public int getColumn(int offset) {
+		return offset - lineOffsets[getRow(offset) - 1];
+	}
+}
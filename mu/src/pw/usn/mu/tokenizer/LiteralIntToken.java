@@ -47,6 +47,16 @@ public class LiteralIntToken extends Token {
 		return base;
 	}
 	
+	@Override
+	public int getKind() {
+		return TokenKind.LITERAL_INT;
+	}
+	
+	@Override
+	String getPayload() {
+		return getInformation();
+	}
+	
 	@Override
 	public String getInformation() {
 		return base.toString(value);
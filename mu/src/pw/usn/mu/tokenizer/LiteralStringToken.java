@@ -40,6 +40,16 @@ public class LiteralStringToken extends Token {
 				Pattern.DOTALL);
 	}
 	
+	@Override
+	public int getKind() {
+		return TokenKind.LITERAL_STRING;
+	}
+	
+	@Override
+	String getPayload() {
+		return value;
+	}
+	
 	@Override
 	public String getInformation() {
 		return String.format("%s%s%s",
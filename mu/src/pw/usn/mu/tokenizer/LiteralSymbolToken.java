@@ -45,6 +45,16 @@ public class LiteralSymbolToken extends Token {
 		};
 	}
 	
+	@Override
+	public int getKind() {
+		return TokenKind.LITERAL_SYMBOL;
+	}
+	
+	@Override
+	String getPayload() {
+		return value;
+	}
+	
 	@Override
 	public String getInformation() {
 		return String.format("%s%s%s%s",
@@ -9,6 +9,8 @@ import pw.usn.mu.Source;
 public class Location {
 	private int row, column;
 	private Source source;
+	private LineOffsetTable lines;
+	private int offset;
 	
 	/**
 	 * Initializes a new Location class.
@@ -20,6 +22,21 @@ public class Location {
 		this.row = row;
 		this.column = column;
 		this.source = source;
+		this.lines = null;
+		this.offset = -1;
+	}
+	
+	/**
+	 * Initializes a new Location class from an offset in a source. The row and column are
+	 * not computed until they are needed.
+	 * @param source The source containing this location.
+	 * @param lines The table of the offsets at which each row of {@code source} starts.
+	 * @param offset The offset of the location, in characters from the start of the source.
+	 */
+	public Location(Source source, LineOffsetTable lines, int offset) {
+		this.source = source;
+		this.lines = lines;
+		this.offset = offset;
 	}
 
 	/**
@@ -48,10 +65,10 @@ public class Location {
 	public String toString() {
 		if(source== null) {
 			return "generated";
-		} else if(row == 0) {
+		} else if(getRow() == 0) {
 			return String.format("%s@generated", source.getName());
 		} else {
-			return String.format("%s@%d:%d", source.getName(), row, column);
+			return String.format("%s@%d:%d", source.getName(), getRow(), getColumn());
 		}
 	}
 
@@ -70,7 +87,7 @@ public class Location {
 	 * @return The row (starting from row 1, i.e. line 1) where the location is.
 	 */
 	public final int getRow() {
-		return row;
+		return lines == null ? row : lines.getRow(offset);
 	}
 	
 	/**
@@ -78,6 +95,25 @@ public class Location {
 	 * @return The column (starting from column 0, i.e. the left of the row) where the location is.
 	 */
 	public final int getColumn() {
-		return column;
+		return lines == null ? column : lines.getColumn(offset);
+	}
+	
+	/**
+	 * Gets the offset of the location from the start of the source.
+	 * @return The offset in characters, or {@code -1} if this Location was created from a
+	 * row and column rather than an offset.
+	 */
+	public final int getOffset() {
+		return offset;
+	}
+	
+	/**
+	 * Gets the table of row offsets from which the row and column of the location are
+	 * computed.
+	 * @return The {@link LineOffsetTable} of the source, or {@code null} if this Location
+	 * was created from a row and column rather than an offset.
+	 */
+	public final LineOffsetTable getLineOffsets() {
+		return lines;
 	}
 }
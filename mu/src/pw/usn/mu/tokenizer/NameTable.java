@@ -0,0 +1,117 @@
+package pw.usn.mu.tokenizer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Represents the table of every distinct name (identifier or operator) read from mu source
+ * code. Each name is given an int id when it is first interned, and the ids are assigned
+ * densely from zero, so that names can be compared, hashed and used to index arrays as
+ * ints rather than as strings.<br>
+ * The table is shared between every source, and may be used from several threads at once,
+ * such as when sources are tokenized in parallel. Interning a name which is already in the
+ * table, and getting the name for an id, never lock. A name is stored in the table before
+ * it is given its id, but another thread may see the id counted in {@link
+ * NameTable#getCount()} a moment before the name is stored; {@link
+ * NameTable#getName(int)} waits for the name in that case, rather than failing.
+ */
+public final class NameTable {
+	/**
+	 * The id returned for a name which has not been interned.
+	 */
+	public static final int NO_NAME = -1;
+	
+	private static final int SEGMENT_BITS = 10;
+	private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+	private static final int SEGMENT_COUNT = 1 << 16;
+	
+	private static final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+	private static final AtomicReferenceArray<AtomicReferenceArray<String>> segments =
+			new AtomicReferenceArray<AtomicReferenceArray<String>>(SEGMENT_COUNT);
+	private static final AtomicInteger count = new AtomicInteger();
+	
+	private NameTable() {
+	}
+	
+	/**
+	 * Gets the id of the given name, adding the name to the table if it is not already
+	 * present.
+	 * @param name The name to intern.
+	 * @return The id of {@code name}.
+	 */
+	public static int intern(String name) {
+		Integer id = ids.get(name);
+		if(id == null) {
+			/* The mapping function is only called once for each name, so no ids are left
+			 * unused when two threads intern the same new name at once.
+			 */
+			id = ids.computeIfAbsent(name, NameTable::register);
+		}
+		return id;
+	}
+	
+	/**
+	 * Gets the id of the given name without adding it to the table.
+	 * @param name The name to look up.
+	 * @return The id of {@code name}, or {@link NameTable#NO_NAME} if it has not been
+	 * interned.
+	 */
+	public static int lookup(String name) {
+		Integer id = ids.get(name);
+		return id == null ? NO_NAME : id;
+	}
+	
+	/**
+	 * Gets the name with the given id. If the id has been assigned, but the name is still
+	 * being stored by the thread interning it, this waits until the name is stored; that
+	 * thread stores it without locking, so the wait is short.
+	 * @param id The id of the name, as returned by {@link NameTable#intern(String)}.
+	 * @return The name with the id {@code id}.
+	 * @throws IllegalArgumentException when no name has the id {@code id}.
+	 */
+	public static String getName(int id) {
+		if(id < 0 || id >= count.get() || id >>> SEGMENT_BITS >= SEGMENT_COUNT) {
+			throw new IllegalArgumentException(String.format("%d is not the id of an interned name.", id));
+		}
+		while(true) {
+			AtomicReferenceArray<String> segment = segments.get(id >>> SEGMENT_BITS);
+			if(segment != null) {
+				String name = segment.get(id & (SEGMENT_SIZE - 1));
+				if(name != null) {
+					return name;
+				}
+			}
+			Thread.yield();
+		}
+	}
+	
+	/**
+	 * Gets the number of names in the table. Every id is less than this number.
+	 * @return The number of names interned so far.
+	 */
+	public static int getCount() {
+		return count.get();
+	}
+	
+	/**
+	 * Assigns the next id to a name which is not yet in the table, and stores the name in
+	 * the table under that id.
+	 * @param name The name to add.
+	 * @return The id of {@code name}, which is only returned once {@code name} can be got
+	 * from the table with it.
+	 */
+	private static Integer register(String name) {
+		int id = count.getAndIncrement();
+		if(id >>> SEGMENT_BITS >= SEGMENT_COUNT) {
+			throw new IllegalStateException("Too many names have been interned.");
+		}
+		AtomicReferenceArray<String> segment = segments.get(id >>> SEGMENT_BITS);
+		if(segment == null) {
+			segments.compareAndSet(id >>> SEGMENT_BITS, null, new AtomicReferenceArray<String>(SEGMENT_SIZE));
+			segment = segments.get(id >>> SEGMENT_BITS);
+		}
+		segment.set(id & (SEGMENT_SIZE - 1), name);
+		return id;
+	}
+}
@@ -0,0 +1,515 @@
+package pw.usn.mu.tokenizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Builds a non-deterministic finite automaton from the patterns of a list of
+ * {@link TokenizerRule}s, so that they can be compiled into a {@link TokenizerAutomaton}.
+ * Only the subset of the {@link Pattern} syntax which can be recognised without
+ * backtracking is supported: literals, character classes, {@code .}, groups, alternation,
+ * the {@code *}, {@code +} and {@code ?} quantifiers (greedy or reluctant), the {@code s}
+ * and {@code m} flags and a trailing {@code $} in multi-line mode.
+ */
+class NfaBuilder {
+	/**
+	 * The value used in place of a rule index when no rule applies.
+	 */
+	static final int NO_RULE = Integer.MAX_VALUE;
+
+	private static final int[] ANY_CHARACTER = { 0, Character.MAX_VALUE };
+	private static final int[] LINE_TERMINATORS = { '\n', '\n', '\r', '\r', '\u0085', '\u0085', '\u2028', '\u2029' };
+	private static final int[] DIGITS = { '0', '9' };
+	private static final int[] WORD_CHARACTERS = { '0', '9', 'A', 'Z', '_', '_', 'a', 'z' };
+	private static final int[] WHITESPACE = { '\t', '\r', ' ', ' ' };
+
+	private List<int[]> characterSets;
+	private List<Integer> characterTargets;
+	private List<List<Integer>> epsilonTargets;
+	private List<Integer> owners;
+	private List<Integer> acceptingRules;
+	private List<Boolean> anchoredRules, shortestMatchRules;
+	private int initialState;
+
+	private String regex;
+	private int position, rule, depth;
+	private boolean dotAll, multiLine, reluctant, anchored, alternated;
+
+	/**
+	 * Initializes a new NfaBuilder containing no rules.
+	 */
+	public NfaBuilder() {
+		this.characterSets = new ArrayList<int[]>();
+		this.characterTargets = new ArrayList<Integer>();
+		this.epsilonTargets = new ArrayList<List<Integer>>();
+		this.owners = new ArrayList<Integer>();
+		this.acceptingRules = new ArrayList<Integer>();
+		this.anchoredRules = new ArrayList<Boolean>();
+		this.shortestMatchRules = new ArrayList<Boolean>();
+		this.rule = NO_RULE;
+		this.initialState = newState();
+	}
+
+	/**
+	 * Adds the pattern of the given rule to the automaton. Rules are numbered in the
+	 * order in which they are added, starting from zero.
+	 * @param tokenizerRule The rule to add.
+	 * @throws IllegalArgumentException when the pattern of {@code tokenizerRule} uses
+	 * syntax that cannot be compiled into an automaton.
+	 */
+	public void addRule(TokenizerRule tokenizerRule) {
+		Pattern pattern = tokenizerRule.getPattern();
+		if((pattern.flags() & ~(Pattern.DOTALL | Pattern.MULTILINE)) != 0) {
+			throw unsupported(pattern.pattern(), "only the DOTALL and MULTILINE flags are supported");
+		}
+		this.regex = pattern.pattern();
+		this.position = 0;
+		this.rule = anchoredRules.size();
+		this.dotAll = (pattern.flags() & Pattern.DOTALL) != 0;
+		this.multiLine = (pattern.flags() & Pattern.MULTILINE) != 0;
+		this.depth = 0;
+		this.reluctant = false;
+		this.anchored = false;
+		this.alternated = false;
+
+		int[] fragment = parseAlternation();
+		if(position < regex.length()) {
+			throw unsupported(regex, "unbalanced parenthesis");
+		}
+		addEpsilon(initialState, fragment[0]);
+		acceptingRules.set(fragment[1], rule);
+		anchoredRules.add(anchored);
+		shortestMatchRules.add(reluctant);
+	}
+
+	/**
+	 * Gets the state from which the automaton begins matching.
+	 * @return The initial state of the automaton.
+	 */
+	public int getInitialState() {
+		return initialState;
+	}
+
+	/**
+	 * Gets the number of states in the automaton.
+	 * @return The number of states created so far.
+	 */
+	public int getStateCount() {
+		return owners.size();
+	}
+
+	/**
+	 * Gets the number of rules added to the automaton.
+	 * @return The number of rules added by {@link NfaBuilder#addRule(TokenizerRule)}.
+	 */
+	public int getRuleCount() {
+		return anchoredRules.size();
+	}
+
+	/**
+	 * Gets the set of characters on which {@code state} has a transition.
+	 * @param state The state to check.
+	 * @return The sorted inclusive character ranges of the transition, as pairs of
+	 * bounds, or {@code null} if the state has no character transition.
+	 */
+	public int[] getCharacterSet(int state) {
+		return characterSets.get(state);
+	}
+
+	/**
+	 * Gets the target of the character transition of {@code state}.
+	 * @param state The state to check.
+	 * @return The state reached by consuming a character in {@link
+	 * NfaBuilder#getCharacterSet(int) getCharacterSet(state)}.
+	 */
+	public int getCharacterTarget(int state) {
+		return characterTargets.get(state);
+	}
+
+	/**
+	 * Gets the states reachable from {@code state} without consuming any input.
+	 * @param state The state to check.
+	 * @return The targets of the epsilon transitions of {@code state}.
+	 */
+	public List<Integer> getEpsilonTargets(int state) {
+		return epsilonTargets.get(state);
+	}
+
+	/**
+	 * Gets the rule which {@code state} was created for.
+	 * @param state The state to check.
+	 * @return The index of the rule owning {@code state}, or {@link NfaBuilder#NO_RULE}
+	 * for the initial state.
+	 */
+	public int getOwner(int state) {
+		return owners.get(state);
+	}
+
+	/**
+	 * Gets the rule accepted upon reaching {@code state}.
+	 * @param state The state to check.
+	 * @return The index of the rule accepted in {@code state}, or {@link NfaBuilder#NO_RULE}
+	 * if {@code state} is not an accepting state.
+	 */
+	public int getAcceptingRule(int state) {
+		return acceptingRules.get(state);
+	}
+
+	/**
+	 * Determines whether the given rule only matches at the end of a line.
+	 * @param rule The index of the rule.
+	 * @return {@code true} if the pattern of the rule ends with {@code $}.
+	 */
+	public boolean isAnchored(int rule) {
+		return anchoredRules.get(rule);
+	}
+
+	/**
+	 * Determines whether the given rule takes its shortest match rather than its
+	 * longest match.
+	 * @param rule The index of the rule.
+	 * @return {@code true} if the pattern of the rule contains a reluctant quantifier.
+	 */
+	public boolean isShortestMatch(int rule) {
+		return shortestMatchRules.get(rule);
+	}
+
+	/**
+	 * Determines whether {@code c} is a line terminator, as understood by
+	 * the {@code $} boundary matcher in multi-line mode.
+	 * @param c The character to check, or {@code -1} for the end of the input.
+	 * @return Whether a line ends before {@code c}.
+	 */
+	public static boolean isLineEnd(int c) {
+		return c < 0 || contains(LINE_TERMINATORS, c);
+	}
+
+	/**
+	 * Determines whether a set of character ranges contains the given character.
+	 * @param set The sorted inclusive character ranges, as pairs of bounds.
+	 * @param c The character to check.
+	 * @return Whether {@code c} lies within one of the ranges in {@code set}.
+	 */
+	public static boolean contains(int[] set, int c) {
+		for(int i = 0; i < set.length; i += 2) {
+			if(c < set[i]) {
+				return false;
+			} else if(c <= set[i + 1]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private int newState() {
+		characterSets.add(null);
+		characterTargets.add(-1);
+		epsilonTargets.add(new ArrayList<Integer>(2));
+		owners.add(rule);
+		acceptingRules.add(NO_RULE);
+		return owners.size() - 1;
+	}
+
+	private void addEpsilon(int from, int to) {
+		epsilonTargets.get(from).add(to);
+	}
+
+	private int[] newCharacterFragment(int[] set) {
+		int start = newState(), end = newState();
+		characterSets.set(start, set);
+		characterTargets.set(start, end);
+		return new int[] { start, end };
+	}
+
+	private IllegalArgumentException unsupported(String regex, String reason) {
+		return new IllegalArgumentException(String.format(
+				"Cannot compile the pattern \"%s\" into a tokenizer automaton: %s.",
+				regex, reason));
+	}
+
+	private IllegalArgumentException unsupported(String reason) {
+		return unsupported(regex, reason);
+	}
+
+	private boolean accept(char c) {
+		if(position < regex.length() && regex.charAt(position) == c) {
+			position++;
+			return true;
+		} else {
+			return false;
+		}
+	}
+
+	private char peek(int lookahead) {
+		return position + lookahead < regex.length() ? regex.charAt(position + lookahead) : '\0';
+	}
+
+	private int[] parseAlternation() {
+		int[] fragment = parseConcatenation();
+		while(accept('|')) {
+			alternated |= depth == 0;
+			int[] alternative = parseConcatenation();
+			int start = newState(), end = newState();
+			addEpsilon(start, fragment[0]);
+			addEpsilon(start, alternative[0]);
+			addEpsilon(fragment[1], end);
+			addEpsilon(alternative[1], end);
+			fragment = new int[] { start, end };
+		}
+		return fragment;
+	}
+
+	private int[] parseConcatenation() {
+		int start = newState(), end = start;
+		while(position < regex.length() && peek(0) != '|' && peek(0) != ')') {
+			if(peek(0) == '$') {
+				if(position != regex.length() - 1 || depth > 0 || alternated || !multiLine) {
+					throw unsupported("'$' is only supported at the end of a multi-line pattern without alternatives");
+				}
+				position++;
+				anchored = true;
+			} else {
+				int[] term = parseRepetition();
+				if(term != null) {
+					addEpsilon(end, term[0]);
+					end = term[1];
+				}
+			}
+		}
+		return new int[] { start, end };
+	}
+
+	private int[] parseRepetition() {
+		int[] atom = parseAtom();
+		char quantifier = peek(0);
+		if(atom == null || (quantifier != '*' && quantifier != '+' && quantifier != '?')) {
+			if(quantifier == '{') {
+				throw unsupported("bounded repetition is not supported");
+			}
+			return atom;
+		}
+		position++;
+		if(accept('?')) {
+			reluctant = true;
+		} else if(peek(0) == '+') {
+			throw unsupported("possessive quantifiers are not supported");
+		}
+		int start = newState(), end = newState();
+		addEpsilon(start, atom[0]);
+		addEpsilon(atom[1], end);
+		if(quantifier != '+') {
+			addEpsilon(start, end);
+		}
+		if(quantifier != '?') {
+			addEpsilon(atom[1], atom[0]);
+		}
+		return new int[] { start, end };
+	}
+
+	private int[] parseAtom() {
+		char c = peek(0);
+		switch(c) {
+		case '(':
+			return parseGroup();
+		case '[':
+			position++;
+			return newCharacterFragment(parseClass());
+		case '.':
+			position++;
+			return newCharacterFragment(dotAll ? ANY_CHARACTER : complement(LINE_TERMINATORS));
+		case '\\':
+			if(peek(1) == 'Q') {
+				position += 2;
+				int start = newState(), end = start;
+				for(char quoted : readQuotation().toCharArray()) {
+					int[] literal = newCharacterFragment(new int[] { quoted, quoted });
+					addEpsilon(end, literal[0]);
+					end = literal[1];
+				}
+				return new int[] { start, end };
+			} else {
+				return newCharacterFragment(parseEscape());
+			}
+		case '^':
+		case '*':
+		case '+':
+		case '?':
+		case '{':
+			throw unsupported(String.format("unexpected '%c'", c));
+		default:
+			position++;
+			return newCharacterFragment(new int[] { c, c });
+		}
+	}
+
+	private int[] parseGroup() {
+		position++;
+		boolean previousDotAll = dotAll, previousMultiLine = multiLine;
+		if(accept('?')) {
+			boolean enable = true;
+			while(position < regex.length() && peek(0) != ':' && peek(0) != ')') {
+				char flag = regex.charAt(position++);
+				if(flag == '-') {
+					enable = false;
+				} else if(flag == 's') {
+					dotAll = enable;
+				} else if(flag == 'm') {
+					multiLine = enable;
+				} else {
+					throw unsupported(String.format("the group construct (?%c is not supported", flag));
+				}
+			}
+			if(accept(')')) {
+				/* A flag-only group applies the flags to the rest of the enclosing group.
+				 */
+				return null;
+			}
+			position++;
+		}
+		depth++;
+		int[] fragment = parseAlternation();
+		if(!accept(')')) {
+			throw unsupported("unclosed group");
+		}
+		depth--;
+		dotAll = previousDotAll;
+		multiLine = previousMultiLine;
+		return fragment;
+	}
+
+	private int[] parseClass() {
+		boolean negated = accept('^');
+		int[] set = new int[0];
+		while(!accept(']')) {
+			if(position >= regex.length()) {
+				throw unsupported("unclosed character class");
+			} else if(peek(0) == '[' || (peek(0) == '&' && peek(1) == '&')) {
+				throw unsupported("nested character classes are not supported");
+			} else if(peek(0) == '\\' && peek(1) == 'Q') {
+				position += 2;
+				for(char quoted : readQuotation().toCharArray()) {
+					set = union(set, new int[] { quoted, quoted });
+				}
+			} else {
+				int[] item = parseClassCharacter();
+				if(item.length == 2 && item[0] == item[1] && peek(0) == '-' && peek(1) != ']' && position + 1 < regex.length()) {
+					position++;
+					int[] upper = parseClassCharacter();
+					if(upper.length != 2 || upper[0] != upper[1] || upper[0] < item[0]) {
+						throw unsupported("illegal character range");
+					}
+					item = new int[] { item[0], upper[0] };
+				}
+				set = union(set, item);
+			}
+		}
+		return negated ? complement(set) : set;
+	}
+
+	private int[] parseClassCharacter() {
+		if(peek(0) == '\\') {
+			return parseEscape();
+		} else {
+			char c = regex.charAt(position++);
+			return new int[] { c, c };
+		}
+	}
+
+	private String readQuotation() {
+		int end = regex.indexOf("\\E", position);
+		if(end < 0) {
+			end = regex.length();
+		}
+		String quoted = regex.substring(position, end);
+		position = Math.min(end + 2, regex.length());
+		return quoted;
+	}
+
+	private int[] parseEscape() {
+		position++;
+		if(position >= regex.length()) {
+			throw unsupported("trailing backslash");
+		}
+		char c = regex.charAt(position++);
+		switch(c) {
+		case 't': return new int[] { '\t', '\t' };
+		case 'n': return new int[] { '\n', '\n' };
+		case 'r': return new int[] { '\r', '\r' };
+		case 'f': return new int[] { '\f', '\f' };
+		case 'a': return new int[] { '\u0007', '\u0007' };
+		case 'e': return new int[] { '\u001B', '\u001B' };
+		case 'd': return DIGITS;
+		case 'D': return complement(DIGITS);
+		case 'w': return WORD_CHARACTERS;
+		case 'W': return complement(WORD_CHARACTERS);
+		case 's': return WHITESPACE;
+		case 'S': return complement(WHITESPACE);
+		case 'x':
+		case 'u':
+			int digits = c == 'x' ? 2 : 4;
+			if(position + digits > regex.length()) {
+				throw unsupported("incomplete character escape");
+			}
+			int value = Integer.parseInt(regex.substring(position, position + digits), 16);
+			position += digits;
+			return new int[] { value, value };
+		default:
+			if(Character.isLetterOrDigit(c)) {
+				throw unsupported(String.format("the escape sequence \\%c is not supported", c));
+			}
+			return new int[] { c, c };
+		}
+	}
+
+	/**
+	 * Gets the union of two sets of character ranges.
+	 * @param a The first set of sorted inclusive ranges.
+	 * @param b The second set of sorted inclusive ranges.
+	 * @return The sorted, non-overlapping ranges containing every character in either set.
+	 */
+	static int[] union(int[] a, int[] b) {
+		int[][] ranges = new int[(a.length + b.length) / 2][];
+		for(int i = 0; i < a.length; i += 2) {
+			ranges[i / 2] = new int[] { a[i], a[i + 1] };
+		}
+		for(int i = 0; i < b.length; i += 2) {
+			ranges[(a.length + i) / 2] = new int[] { b[i], b[i + 1] };
+		}
+		Arrays.sort(ranges, (x, y) -> Integer.compare(x[0], y[0]));
+		int[] merged = new int[ranges.length * 2];
+		int count = 0;
+		for(int[] range : ranges) {
+			if(count > 0 && range[0] <= merged[count - 1] + 1) {
+				merged[count - 1] = Math.max(merged[count - 1], range[1]);
+			} else {
+				merged[count++] = range[0];
+				merged[count++] = range[1];
+			}
+		}
+		return Arrays.copyOf(merged, count);
+	}
+
+	/**
+	 * Gets the complement of a set of character ranges.
+	 * @param set The sorted inclusive ranges.
+	 * @return The sorted inclusive ranges of every character not in {@code set}.
+	 */
+	static int[] complement(int[] set) {
+		int[] complement = new int[set.length + 2];
+		int count = 0, next = 0;
+		for(int i = 0; i < set.length; i += 2) {
+			if(set[i] > next) {
+				complement[count++] = next;
+				complement[count++] = set[i] - 1;
+			}
+			next = set[i + 1] + 1;
+		}
+		if(next <= Character.MAX_VALUE) {
+			complement[count++] = next;
+			complement[count++] = Character.MAX_VALUE;
+		}
+		return Arrays.copyOf(complement, count);
+	}
+}
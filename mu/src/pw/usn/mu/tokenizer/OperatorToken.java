@@ -5,6 +5,7 @@ package pw.usn.mu.tokenizer;
  */
 public class OperatorToken extends Token {
 	private String operator;
+	private int nameId;
 
 	/**
 	 * Initializes a new OperatorToken with the given location and operator string.
@@ -14,6 +15,7 @@ public class OperatorToken extends Token {
 	public OperatorToken(Location location, String operator) {
 		super(location);
 		this.operator = operator;
+		this.nameId = NameTable.intern(getOperator(operator));
 	}
 
 	/**
@@ -24,6 +26,24 @@ public class OperatorToken extends Token {
 	 * @return A string containing the operator symbol for this OperatorToken.
 	 */
 	public String getOperator() {
+		return getOperator(operator);
+	}
+	
+	/**
+	 * Gets the id of the operator string for this OperatorToken.
+	 * @return The id in the {@link NameTable} of the string returned by {@link
+	 * OperatorToken#getOperator()}.
+	 */
+	public int getNameId() {
+		return nameId;
+	}
+	
+	/**
+	 * Gets the operator string for the given operator as it was read from a source.
+	 * @param operator The operator string, which may be enclosed in backticks.
+	 * @return {@code operator} with any enclosing backticks stripped.
+	 */
+	static String getOperator(String operator) {
 		if(operator.startsWith("`") && operator.endsWith("`")) {
 			return operator.substring(1, operator.length() - 2);
 		} else {
@@ -48,6 +68,16 @@ public class OperatorToken extends Token {
 	 * @return The {@link OperatorTokenType} for this OperatorToken.
 	 */
 	public OperatorTokenType getType() {
+		return getType(operator);
+	}
+	
+	/**
+	 * Gets the operator token type for the given operator as it was read from a source.
+	 * @param operator The operator string, which may be enclosed in backticks.
+	 * @return The {@link OperatorTokenType} determining the precedence of {@code operator}.
+	 * @see OperatorToken#getType()
+	 */
+	static OperatorTokenType getType(String operator) {
 		char operatorInitialCharacter = operator.charAt(0);
 		switch(operatorInitialCharacter) {
 		case '&':
@@ -79,6 +109,16 @@ public class OperatorToken extends Token {
 		}
 	}
 	
+	@Override
+	public int getKind() {
+		return TokenKind.operator(getType());
+	}
+	
+	@Override
+	String getPayload() {
+		return operator;
+	}
+	
 	@Override
 	public String getInformation() {
 		return String.format("%s, level=%s",
@@ -24,6 +24,11 @@ public class SymbolToken extends Token {
 		return type;
 	}
 	
+	@Override
+	public int getKind() {
+		return TokenKind.symbol(type);
+	}
+	
 	@Override
 	public String getInformation() {
 		return type.getDisplayString();
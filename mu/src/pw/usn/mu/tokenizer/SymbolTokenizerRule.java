@@ -41,6 +41,14 @@ public class SymbolTokenizerRule implements TokenizerRule {
 		this(type.getPattern(), type);
 	}
 
+	/**
+	 * Gets the type of symbol token read by this rule.
+	 * @return The {@link SymbolTokenType} of the tokens returned by this rule.
+	 */
+	public final SymbolTokenType getType() {
+		return type;
+	}
+
 	@Override
 	public final SymbolToken read(Location location, MatchResult result) {
 		return new SymbolToken(location, type);
@@ -0,0 +1,61 @@
+package pw.usn.mu.tokenizer;
+
+/**
+ * Represents an edit to the text of a source: a range of characters that was removed, and
+ * the text that was inserted in its place.
+ */
+public class TextEdit {
+	private int offset, removedLength;
+	private String insertedText;
+	
+	/**
+	 * Initializes a new TextEdit.
+	 * @param offset The offset, in characters from the start of the source, at which the
+	 * edit was made.
+	 * @param removedLength The number of characters removed from the source at {@code
+	 * offset}.
+	 * @param insertedText The text inserted at {@code offset}.
+	 */
+	public TextEdit(int offset, int removedLength, String insertedText) {
+		if(offset < 0 || removedLength < 0) {
+			throw new IllegalArgumentException("The offset and removed length of an edit cannot be negative.");
+		} else {
+			this.offset = offset;
+			this.removedLength = removedLength;
+			this.insertedText = insertedText;
+		}
+	}
+	
+	/**
+	 * Gets the offset at which the edit was made.
+	 * @return The offset of the first character removed or inserted.
+	 */
+	public int getOffset() {
+		return offset;
+	}
+	
+	/**
+	 * Gets the number of characters removed by the edit.
+	 * @return The length of the range of text that was replaced.
+	 */
+	public int getRemovedLength() {
+		return removedLength;
+	}
+	
+	/**
+	 * Gets the text inserted by the edit.
+	 * @return The text inserted in place of the removed text.
+	 */
+	public String getInsertedText() {
+		return insertedText;
+	}
+	
+	/**
+	 * Gets the change in the length of the source caused by the edit. This is the distance
+	 * by which the text following the edit was moved.
+	 * @return The number of characters inserted, minus the number of characters removed.
+	 */
+	public int getShift() {
+		return insertedText.length() - removedLength;
+	}
+}
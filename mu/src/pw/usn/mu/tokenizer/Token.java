@@ -87,9 +87,24 @@ public abstract class Token {
 		return this instanceof OperatorToken && ((OperatorToken)this).getOperator().equals(operator);
 	}
 
-	@Override
-	public int hashCode() {
-		return toString().hashCode();
+	/**
+	 * Gets the kind of this token, which identifies both the class of token and, for
+	 * symbols and operators, its type.
+	 * @return One of the constants in {@link TokenKind}, or {@link TokenKind#NONE} if
+	 * this token cannot be represented by a kind.
+	 */
+	public int getKind() {
+		return TokenKind.NONE;
+	}
+	
+	/**
+	 * Gets the data carried by this token, as stored in a {@link TokenBuffer}. Together
+	 * with the kind and location of the token, this is enough to recreate it.
+	 * @return The payload string of this token, or {@code null} if the token carries no
+	 * data beyond its kind.
+	 */
+	String getPayload() {
+		return null;
 	}
 	
 	/**
@@ -0,0 +1,690 @@
+package pw.usn.mu.tokenizer;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import pw.usn.mu.Source;
+
+/**
+ * Represents a tokenized source as parallel arrays of primitive values, rather than as an
+ * array of {@link Token} objects. Each token is stored as its kind (one of the constants in
+ * {@link TokenKind}), its offset and length in the source, and the index of its payload in
+ * a table of distinct payload strings. The payloads of identifier and operator tokens are
+ * also interned in the {@link NameTable} as they are added. The {@link Location} of a token is only created, and
+ * its row and column only computed, when it is asked for; likewise, {@link Token} objects
+ * are only created by {@link TokenBuffer#getToken(int)}.<br>
+ * A buffer filled by a tokenizer also records how far into the source the tokenizer had
+ * read when each token was added, so that the tokens can be updated after an edit to the
+ * source without tokenizing it again from the start; see {@link
+ * AutomatonTokenizer#retokenize(TokenBuffer, TextEdit, CharSequence)}.
+ */
+public class TokenBuffer implements TokenSequence {
+	private static final int INITIAL_CAPACITY = 64;
+
+	private Source source;
+	private LineOffsetTable lines;
+	private Location[] locations;
+	private int size, sourceLength, reach;
+	private int rereadStart, rereadEnd;
+	private byte[] kinds;
+	private int[] starts, lengths, payloadIds, reaches;
+	private String[] payloads;
+	private int[] payloadNameIds;
+	private int payloadCount;
+	private Map<String, Integer> payloadIndices;
+
+	/**
+	 * Initializes a new, empty TokenBuffer for tokens read from the given source.
+	 * @param source The source from which the tokens are read.
+	 */
+	public TokenBuffer(Source source) {
+		this.source = source;
+		this.lines = new LineOffsetTable();
+		this.locations = null;
+		this.size = 0;
+		this.sourceLength = 0;
+		this.reach = 0;
+		this.rereadStart = -1;
+		this.rereadEnd = -1;
+		this.kinds = new byte[INITIAL_CAPACITY];
+		this.starts = new int[INITIAL_CAPACITY];
+		this.lengths = new int[INITIAL_CAPACITY];
+		this.payloadIds = new int[INITIAL_CAPACITY];
+		this.reaches = new int[INITIAL_CAPACITY];
+		this.payloads = new String[INITIAL_CAPACITY];
+		this.payloadNameIds = new int[INITIAL_CAPACITY];
+		this.payloadCount = 0;
+		this.payloadIndices = new HashMap<String, Integer>();
+	}
+
+	/**
+	 * Initializes a new TokenBuffer containing the given tokens. As the offsets of the
+	 * tokens are not known, the locations of the tokens are kept as they are.
+	 * @param tokens The tokens to store in the buffer.
+	 * @throws IllegalArgumentException when one of {@code tokens} is not of a kind that
+	 * can be stored in a TokenBuffer.
+	 */
+	public TokenBuffer(Token[] tokens) {
+		this(tokens.length > 0 ? tokens[0].getLocation().getSource() : null);
+		this.locations = new Location[tokens.length];
+		for(int i = 0; i < tokens.length; i++) {
+			Location location = tokens[i].getLocation();
+			add(tokens[i].getKind(), location.getOffset(), 0, tokens[i].getPayload());
+			locations[i] = location;
+		}
+		this.sourceLength = -1;
+		trim();
+	}
+
+	/**
+	 * Adds a token to the end of the buffer.
+	 * @param kind The kind of the token, from {@link TokenKind}.
+	 * @param start The offset of the first character of the token in the source.
+	 * @param length The number of characters in the token.
+	 * @param payload The payload of the token, or {@code null} if the token has none.
+	 * @throws IllegalArgumentException when {@code kind} is not a valid token kind.
+	 */
+	public void add(int kind, int start, int length, String payload) {
+		if(kind < 0 || kind >= TokenKind.COUNT) {
+			throw new IllegalArgumentException(String.format("%d is not a valid token kind.", kind));
+		}
+		add(kind, start, length, payload == null ? -1 : internPayload(kind, payload));
+	}
+	
+	/**
+	 * Adds a token whose payload is already in the payload table of this buffer to the end
+	 * of the buffer.
+	 * @param kind The kind of the token, from {@link TokenKind}.
+	 * @param start The offset of the first character of the token in the source.
+	 * @param length The number of characters in the token.
+	 * @param payloadId The index of the payload of the token in the payload table, as
+	 * returned by {@link TokenBuffer#internPayload(int, String)}, or {@code -1} if the token
+	 * has no payload.
+	 */
+	void add(int kind, int start, int length, int payloadId) {
+		ensureCapacity(size + 1);
+		kinds[size] = (byte)kind;
+		starts[size] = start;
+		lengths[size] = length;
+		payloadIds[size] = payloadId;
+		reaches[size] = reach;
+		size += 1;
+	}
+	
+	/**
+	 * Records that the tokenizer has read up to the given offset in the source. This is
+	 * stored with each token added afterwards.
+	 * @param end The offset after the last character read by the tokenizer.
+	 */
+	void addReach(int end) {
+		reach = Math.max(reach, end);
+	}
+	
+	/**
+	 * Gets the offset up to which the tokenizer had read when a token was added. Each
+	 * token, and every token before it, can only change if the source is edited before this
+	 * offset.
+	 * @param index The index of the token in the buffer.
+	 * @return The offset after the last character read before the token was added.
+	 */
+	int getReach(int index) {
+		return reaches[index];
+	}
+	
+	/**
+	 * Sets the length of the source from which the tokens were read.
+	 * @param sourceLength The number of characters in the source.
+	 */
+	void setSourceLength(int sourceLength) {
+		this.sourceLength = sourceLength;
+	}
+	
+	/**
+	 * Replaces a range of tokens with the tokens in another buffer, following an edit to
+	 * the source. The tokens after the range are moved by the distance the text after the
+	 * edit was moved.
+	 * @param from The index of the first token to replace.
+	 * @param to The index after the last token to replace.
+	 * @param replacement The buffer containing the tokens read from the edited source in
+	 * place of the replaced tokens.
+	 * @param start The offset from which the edited source was read again.
+	 * @param end The offset, before the edit, up to which the source was read again.
+	 * @param edit The edit made to the source.
+	 */
+	void replace(int from, int to, TokenBuffer replacement, int start, int end, TextEdit edit) {
+		int shift = edit.getShift();
+		int newSize = from + replacement.size + (size - to);
+		byte[] newKinds = Arrays.copyOf(kinds, newSize);
+		int[] newStarts = Arrays.copyOf(starts, newSize);
+		int[] newLengths = Arrays.copyOf(lengths, newSize);
+		int[] newPayloadIds = Arrays.copyOf(payloadIds, newSize);
+		int[] newReaches = Arrays.copyOf(reaches, newSize);
+		for(int i = 0; i < replacement.size; i++) {
+			newKinds[from + i] = replacement.kinds[i];
+			newStarts[from + i] = replacement.starts[i];
+			newLengths[from + i] = replacement.lengths[i];
+			newPayloadIds[from + i] = replacement.payloadIds[i] < 0 ? -1 :
+				internPayload(
+						replacement.payloads[replacement.payloadIds[i]],
+						replacement.payloadNameIds[replacement.payloadIds[i]]);
+			newReaches[from + i] = replacement.reaches[i];
+		}
+		System.arraycopy(kinds, to, newKinds, from + replacement.size, size - to);
+		System.arraycopy(lengths, to, newLengths, from + replacement.size, size - to);
+		System.arraycopy(payloadIds, to, newPayloadIds, from + replacement.size, size - to);
+		for(int i = to, j = from + replacement.size; i < size; i++, j++) {
+			/* The tokenizer may have read past the edit when reading the replaced tokens,
+			 * so the reach of the replacement tokens is kept where it is larger.
+			 */
+			newStarts[j] = starts[i] + shift;
+			newReaches[j] = Math.max(replacement.reach, reaches[i] + shift);
+		}
+		kinds = newKinds;
+		starts = newStarts;
+		lengths = newLengths;
+		payloadIds = newPayloadIds;
+		reaches = newReaches;
+		size = newSize;
+		sourceLength += shift;
+		lines = lines.replace(start, end, replacement.lines, shift);
+		rereadStart = start;
+		rereadEnd = end;
+	}
+
+	/**
+	 * Enlarges the arrays of the buffer, if necessary, so that they can hold the given
+	 * number of tokens.
+	 * @param capacity The number of tokens the buffer must be able to hold.
+	 */
+	private void ensureCapacity(int capacity) {
+		if(capacity > kinds.length) {
+			capacity = Math.max(capacity, Math.max(kinds.length * 2, INITIAL_CAPACITY));
+			kinds = Arrays.copyOf(kinds, capacity);
+			starts = Arrays.copyOf(starts, capacity);
+			lengths = Arrays.copyOf(lengths, capacity);
+			payloadIds = Arrays.copyOf(payloadIds, capacity);
+			reaches = Arrays.copyOf(reaches, capacity);
+		}
+	}
+	
+	/**
+	 * Adds the tokens of another buffer, read from a later part of the same source, to the
+	 * end of this buffer.
+	 * @param other The buffer containing the tokens to add.
+	 * @param from The index of the first token in {@code other} to add. All of the tokens
+	 * in {@code other} from this index onwards are added.
+	 * @param start The offset from which the tokens of {@code other} are used.
+	 * @param end The offset at which reading of the tokens in {@code other} stopped.
+	 */
+	void append(TokenBuffer other, int from, int start, int end) {
+		int[] payloadMap = new int[other.payloadCount];
+		Arrays.fill(payloadMap, -1);
+		ensureCapacity(size + other.size - from);
+		for(int i = from; i < other.size; i++) {
+			int payloadId = other.payloadIds[i];
+			if(payloadId >= 0 && payloadMap[payloadId] < 0) {
+				payloadMap[payloadId] = internPayload(other.payloads[payloadId], other.payloadNameIds[payloadId]);
+			}
+			kinds[size] = other.kinds[i];
+			starts[size] = other.starts[i];
+			lengths[size] = other.lengths[i];
+			payloadIds[size] = payloadId < 0 ? -1 : payloadMap[payloadId];
+			reaches[size] = Math.max(reach, other.reaches[i]);
+			size += 1;
+		}
+		addReach(other.reach);
+		lines.appendLines(other.lines, start, end);
+	}
+	
+	/**
+	 * Removes tokens from the start of the buffer. The indices of the remaining tokens are
+	 * reduced by {@code count}.
+	 * @param count The number of tokens to remove.
+	 */
+	void discard(int count) {
+		size -= count;
+		System.arraycopy(kinds, count, kinds, 0, size);
+		System.arraycopy(starts, count, starts, 0, size);
+		System.arraycopy(lengths, count, lengths, 0, size);
+		System.arraycopy(payloadIds, count, payloadIds, 0, size);
+		System.arraycopy(reaches, count, reaches, 0, size);
+	}
+	
+	/**
+	 * Finds the token beginning at the given offset.
+	 * @param offset The offset in the source.
+	 * @return The index of the token beginning at {@code offset}, or {@code -1} if no token
+	 * begins there.
+	 */
+	int indexOfStart(int offset) {
+		int index = Arrays.binarySearch(starts, 0, size, offset);
+		return index < 0 ? -1 : index;
+	}
+	
+	/**
+	 * Writes the tokens of this buffer in the format read by {@link
+	 * TokenBuffer#read(ByteBuffer, Source)}. Offsets are written relative to the end of the
+	 * previous token, and all numbers are written in as few bytes as their size allows, so
+	 * the tokens of a typical source take only a few bytes each.
+	 * @param out The output to write the tokens to.
+	 * @throws IOException
+	 * @throws IllegalArgumentException when the buffer does not contain the offsets of
+	 * its tokens.
+	 */
+	void write(DataOutput out) throws IOException {
+		if(sourceLength < 0) {
+			throw new IllegalArgumentException("The token buffer must contain the offsets of its tokens.");
+		}
+		/* Whether a payload is the name of an identifier or of an operator is written with
+		 * it, so that it can be interned in the name table again when it is read.
+		 */
+		byte[] nameKinds = new byte[payloadCount];
+		for(int i = 0; i < size; i++) {
+			if(kinds[i] == TokenKind.IDENTIFIER) {
+				nameKinds[payloadIds[i]] = 1;
+			} else if(TokenKind.isOperator(kinds[i])) {
+				nameKinds[payloadIds[i]] = 2;
+			}
+		}
+		writeNumber(out, sourceLength);
+		writeNumber(out, size);
+		writeNumber(out, payloadCount);
+		writeNumber(out, lines.getLineCount());
+		for(int i = 0; i < payloadCount; i++) {
+			out.writeByte(nameKinds[i]);
+			writeNumber(out, payloads[i].length());
+			for(int j = 0; j < payloads[i].length(); j++) {
+				writeNumber(out, payloads[i].charAt(j));
+			}
+		}
+		int end = 0;
+		for(int i = 0; i < size; i++) {
+			out.writeByte(kinds[i]);
+			writeNumber(out, starts[i] - end);
+			writeNumber(out, lengths[i]);
+			writeNumber(out, payloadIds[i] + 1);
+			end = starts[i] + lengths[i];
+			writeNumber(out, reaches[i] - end);
+		}
+		for(int row = 2; row <= lines.getLineCount(); row++) {
+			writeNumber(out, lines.getRowStart(row) - lines.getRowStart(row - 1));
+		}
+	}
+	
+	/**
+	 * Reads tokens written by {@link TokenBuffer#write(DataOutput)} into a new buffer.
+	 * @param in The buffer to read the tokens from, from its position onwards.
+	 * @param source The source from which the tokens were read.
+	 * @return A buffer containing the tokens which were written.
+	 * @throws IllegalArgumentException when {@code in} does not contain tokens in the
+	 * format written by {@link TokenBuffer#write(DataOutput)}.
+	 * @throws java.nio.BufferUnderflowException when {@code in} ends before all of the
+	 * tokens have been read.
+	 */
+	static TokenBuffer read(ByteBuffer in, Source source) {
+		TokenBuffer buffer = new TokenBuffer(source);
+		buffer.sourceLength = readNumber(in);
+		int size = readNumber(in), payloadCount = readNumber(in), lineCount = readNumber(in);
+		for(int i = 0; i < payloadCount; i++) {
+			byte nameKind = in.get();
+			char[] payload = new char[readNumber(in)];
+			for(int j = 0; j < payload.length; j++) {
+				payload[j] = (char)readNumber(in);
+			}
+			String payloadString = new String(payload);
+			if(nameKind == 1) {
+				buffer.internPayload(payloadString, NameTable.intern(payloadString));
+			} else if(nameKind == 2) {
+				buffer.internPayload(payloadString, NameTable.intern(OperatorToken.getOperator(payloadString)));
+			} else {
+				buffer.internPayload(payloadString, NameTable.NO_NAME);
+			}
+		}
+		if(buffer.payloadCount != payloadCount) {
+			throw new IllegalArgumentException("The payloads of the tokens are not distinct.");
+		}
+		buffer.ensureCapacity(size);
+		int end = 0;
+		for(int i = 0; i < size; i++) {
+			int kind = in.get(), start = end + readNumber(in), length = readNumber(in), payloadId = readNumber(in) - 1;
+			if(kind < 0 || kind >= TokenKind.COUNT || payloadId >= payloadCount) {
+				throw new IllegalArgumentException(String.format("Token %d is not valid.", i));
+			}
+			end = start + length;
+			buffer.addReach(end + readNumber(in));
+			buffer.add(kind, start, length, payloadId);
+		}
+		for(int row = 2, offset = 0; row <= lineCount; row++) {
+			offset += readNumber(in);
+			buffer.addLine(offset);
+		}
+		buffer.trim();
+		return buffer;
+	}
+	
+	/**
+	 * Writes a non-negative number in seven-bit groups, from the lowest group to the
+	 * highest, with the top bit of each byte set if another byte follows.
+	 * @param out The output to write the number to.
+	 * @param value The number to write.
+	 * @throws IOException
+	 */
+	private static void writeNumber(DataOutput out, int value) throws IOException {
+		while((value & ~0x7f) != 0) {
+			out.writeByte((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+	
+	/**
+	 * Reads a number written by {@link TokenBuffer#writeNumber(DataOutput, int)}.
+	 * @param in The buffer to read the number from.
+	 * @return The number that was read.
+	 * @throws IllegalArgumentException when the number is too large to be an {@code int}.
+	 */
+	private static int readNumber(ByteBuffer in) {
+		int value = 0;
+		for(int shift = 0; shift < 35; shift += 7) {
+			byte b = in.get();
+			value |= (b & 0x7f) << shift;
+			if(b >= 0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("A number in the token data is too large.");
+	}
+	
+	/**
+	 * Gets the index of the payload of a token of the given kind in the payload table,
+	 * adding it to the table if it is not already there. The payloads of identifier and
+	 * operator tokens are also interned in the {@link NameTable}.
+	 * @param kind The kind of the token, from {@link TokenKind}.
+	 * @param payload The payload string.
+	 * @return The index of {@code payload} in the payload table.
+	 */
+	int internPayload(int kind, String payload) {
+		if(kind == TokenKind.IDENTIFIER) {
+			return internPayload(payload, NameTable.intern(payload));
+		} else if(TokenKind.isOperator(kind)) {
+			return internPayload(payload, NameTable.intern(OperatorToken.getOperator(payload)));
+		} else {
+			return internPayload(payload, NameTable.NO_NAME);
+		}
+	}
+	
+	/**
+	 * Gets the index of the given payload in the payload table, adding it to the table
+	 * if it is not already present.
+	 * @param payload The payload string.
+	 * @param nameId The id of the name in {@link NameTable} which {@code payload}
+	 * represents, or {@link NameTable#NO_NAME} if it is not the payload of an identifier or
+	 * operator token.
+	 * @return The index of {@code payload} in the payload table.
+	 */
+	private int internPayload(String payload, int nameId) {
+		Integer index = payloadIndices.get(payload);
+		if(index == null) {
+			if(payloadCount == payloads.length) {
+				int capacity = Math.max(payloadCount * 2, INITIAL_CAPACITY);
+				payloads = Arrays.copyOf(payloads, capacity);
+				payloadNameIds = Arrays.copyOf(payloadNameIds, capacity);
+			}
+			index = payloadCount;
+			payloads[payloadCount] = payload;
+			payloadNameIds[payloadCount] = NameTable.NO_NAME;
+			payloadCount += 1;
+			payloadIndices.put(payload, index);
+		}
+		if(nameId != NameTable.NO_NAME) {
+			/* The same payload might also have been added for a token of another kind, such
+			 * as a string literal with the same text as an identifier.
+			 */
+			payloadNameIds[index] = nameId;
+		}
+		return index;
+	}
+
+	/**
+	 * Records that a new row of the source begins at the given offset.
+	 * @param offset The offset of the first character of the row.
+	 */
+	public void addLine(int offset) {
+		lines.addLine(offset);
+	}
+
+	/**
+	 * Releases any unused space in the buffer. This should be called once all of the
+	 * tokens have been added.
+	 */
+	public void trim() {
+		kinds = Arrays.copyOf(kinds, size);
+		starts = Arrays.copyOf(starts, size);
+		lengths = Arrays.copyOf(lengths, size);
+		payloadIds = Arrays.copyOf(payloadIds, size);
+		reaches = Arrays.copyOf(reaches, size);
+		payloads = Arrays.copyOf(payloads, payloadCount);
+		payloadNameIds = Arrays.copyOf(payloadNameIds, payloadCount);
+		lines.trim();
+	}
+
+	/**
+	 * Gets the source from which the tokens in this buffer were read.
+	 * @return The source of the tokens, or {@code null} if it is not known.
+	 */
+	public Source getSource() {
+		return source;
+	}
+
+	/**
+	 * Gets the length of the source from which the tokens were read.
+	 * @return The number of characters in the source, or {@code -1} if the buffer was
+	 * created from tokens whose offsets are not known.
+	 */
+	public int getSourceLength() {
+		return sourceLength;
+	}
+
+	/**
+	 * Gets the offset from which the source was read again when the tokens were last
+	 * updated after an edit. The tokens which end at or before this offset were kept as
+	 * they were.
+	 * @return The offset at which the re-read text begins, or {@code -1} if the tokens have
+	 * not been updated after an edit.
+	 */
+	public int getRereadStart() {
+		return rereadStart;
+	}
+
+	/**
+	 * Gets the offset, before the edit, up to which the source was read again when the
+	 * tokens were last updated after an edit. The tokens which began at or after this
+	 * offset were kept as they were, and moved by the change in length of the source.
+	 * @return The offset before the edit at which the re-read text ends, or {@code -1} if
+	 * the tokens have not been updated after an edit.
+	 */
+	public int getRereadEnd() {
+		return rereadEnd;
+	}
+
+	/**
+	 * Gets the table of the offsets at which each row of the source starts.
+	 * @return The line offset table for the source of the tokens.
+	 */
+	public LineOffsetTable getLineOffsets() {
+		return lines;
+	}
+
+	/**
+	 * Gets the number of tokens in the buffer.
+	 * @return The number of tokens added to the buffer.
+	 */
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean hasToken(int index) {
+		return index >= 0 && index < size;
+	}
+
+	/**
+	 * As all of the tokens in a TokenBuffer have already been read, this does nothing.
+	 * @param index The index of the first token which may still be read.
+	 */
+	@Override
+	public void release(int index) {
+	}
+
+	/**
+	 * Gets the kind of a token.
+	 * @param index The index of the token in the buffer.
+	 * @return The kind of the token, from {@link TokenKind}.
+	 */
+	@Override
+	public int getKind(int index) {
+		return kinds[index];
+	}
+
+	/**
+	 * Gets the offset of a token in the source.
+	 * @param index The index of the token in the buffer.
+	 * @return The offset of the first character of the token, or {@code -1} if the
+	 * buffer was created from tokens whose offsets are not known.
+	 */
+	public int getStart(int index) {
+		return starts[index];
+	}
+
+	/**
+	 * Gets the length of a token in the source.
+	 * @param index The index of the token in the buffer.
+	 * @return The number of characters in the token.
+	 */
+	public int getLength(int index) {
+		return lengths[index];
+	}
+
+	/**
+	 * Gets the index of the payload of a token in the payload table. Tokens with equal
+	 * payloads have equal payload indices.
+	 * @param index The index of the token in the buffer.
+	 * @return The index of the payload of the token, or {@code -1} if the token has no
+	 * payload.
+	 */
+	public int getPayloadId(int index) {
+		return payloadIds[index];
+	}
+
+	/**
+	 * Gets the payload of a token. This is the identifier of an identifier token, the
+	 * operator (as written in the source) of an operator token, the value of a string or
+	 * symbol literal, and the formatted value of an int literal.
+	 * @param index The index of the token in the buffer.
+	 * @return The payload of the token, or {@code null} if the token has no payload.
+	 */
+	@Override
+	public String getPayload(int index) {
+		int payloadId = payloadIds[index];
+		return payloadId < 0 ? null : payloads[payloadId];
+	}
+
+	/**
+	 * Gets the id in the {@link NameTable} of the identifier of an identifier token, or of
+	 * the operator string of an operator token.
+	 * @param index The index of the token in the buffer.
+	 * @return The id of the name represented by the token, or {@link NameTable#NO_NAME}
+	 * if the token is not an identifier or operator token.
+	 */
+	@Override
+	public int getNameId(int index) {
+		int kind = kinds[index];
+		if(kind == TokenKind.IDENTIFIER || TokenKind.isOperator(kind)) {
+			return payloadNameIds[payloadIds[index]];
+		} else {
+			return NameTable.NO_NAME;
+		}
+	}
+
+	/**
+	 * Gets the operator string of an operator token.
+	 * @param index The index of the token in the buffer.
+	 * @return The operator string, as returned by {@link OperatorToken#getOperator()}.
+	 */
+	@Override
+	public String getOperator(int index) {
+		return OperatorToken.getOperator(getPayload(index));
+	}
+
+	/**
+	 * Gets the base of an int literal token.
+	 * @param index The index of the token in the buffer.
+	 * @return The base in which the int literal was written.
+	 */
+	@Override
+	public LiteralIntTokenBase getIntBase(int index) {
+		String payload = getPayload(index);
+		String digits = payload.startsWith("-") ? payload.substring(1) : payload;
+		for(LiteralIntTokenBase base : LiteralIntTokenBase.values()) {
+			if(!base.getPrefix().isEmpty() && digits.startsWith(base.getPrefix())) {
+				return base;
+			}
+		}
+		return LiteralIntTokenBase.DECIMAL;
+	}
+
+	/**
+	 * Gets the value of an int literal token.
+	 * @param index The index of the token in the buffer.
+	 * @return The value of the int literal.
+	 */
+	@Override
+	public int getIntValue(int index) {
+		return getIntBase(index).fromString(getPayload(index));
+	}
+
+	/**
+	 * Gets the location of a token.
+	 * @param index The index of the token in the buffer.
+	 * @return The location of the token in its source.
+	 */
+	@Override
+	public Location getLocation(int index) {
+		if(locations != null) {
+			return locations[index];
+		} else {
+			return new Location(source, lines, starts[index]);
+		}
+	}
+
+	/**
+	 * Creates the {@link Token} object for a token in the buffer.
+	 * @param index The index of the token in the buffer.
+	 * @return A new token equivalent to the token that was added to the buffer.
+	 */
+	@Override
+	public Token getToken(int index) {
+		int kind = getKind(index);
+		Location location = getLocation(index);
+		switch(kind) {
+		case TokenKind.IDENTIFIER:
+			return new IdentifierToken(location, getPayload(index));
+		case TokenKind.LITERAL_INT:
+			return new LiteralIntToken(location, getIntValue(index), getIntBase(index));
+		case TokenKind.LITERAL_STRING:
+			return new LiteralStringToken(location, getPayload(index));
+		case TokenKind.LITERAL_SYMBOL:
+			return new LiteralSymbolToken(location, getPayload(index));
+		default:
+			if(TokenKind.isOperator(kind)) {
+				return new OperatorToken(location, getPayload(index));
+			} else {
+				return new SymbolToken(location, TokenKind.getSymbolType(kind));
+			}
+		}
+	}
+}
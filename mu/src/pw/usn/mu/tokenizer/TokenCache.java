@@ -0,0 +1,270 @@
+package pw.usn.mu.tokenizer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import pw.usn.mu.ChannelSource;
+
+/**
+ * Represents a cache of tokenized sources stored in a directory, so that a source which
+ * has not changed since it was last tokenized does not need to be tokenized again. Each
+ * cache file is named after a hash of the content of a source and a hash of the rules of
+ * the tokenizer, and contains the tokens in the compact binary format written by {@link
+ * TokenBuffer}. When a source is tokenized through the cache, the cache file with the same
+ * hashes is mapped into memory and the tokens are loaded from it; if there is no such
+ * file, the source is tokenized with {@link AutomatonTokenizer#tokenizeUtf8(ByteBuffer,
+ * String)} and a cache file is written for it.<br>
+ * Cache files are written to a temporary file and then moved into place, so several
+ * processes can share the same cache directory. The token data in each file is checked
+ * against a checksum before it is loaded, and a cache file which cannot be read, such as
+ * one which has been damaged, is treated as if it were not there.
+ * The rules of the tokenizer are identified by their classes, patterns and symbol types;
+ * if a rule is changed in any other way, such as by changing how a {@link
+ * SimpleTokenizerRule} creates its tokens, {@link TokenCache#FORMAT_VERSION} must be
+ * increased or the cache directory cleared.
+ */
+public class TokenCache {
+	/**
+	 * The version of the format of the cache files. This is part of the hash of the rules,
+	 * so cache files written in an older format are never read.
+	 */
+	public static final int FORMAT_VERSION = 1;
+	private static final int MAGIC = 0x6d75746b;
+	private static final String EXTENSION = ".tokens";
+
+	private File directory;
+	private AutomatonTokenizer tokenizer;
+	private byte[] ruleHash;
+
+	/**
+	 * Initializes a new TokenCache, which stores its files in the given directory. The
+	 * directory is created when the first file is stored in it.
+	 * @param directory The directory in which to store the cache files.
+	 * @param tokenizer The tokenizer with which to tokenize sources which are not in the
+	 * cache. Rules must not be added to the tokenizer after the cache is created.
+	 */
+	public TokenCache(File directory, AutomatonTokenizer tokenizer) {
+		this.directory = directory;
+		this.tokenizer = tokenizer;
+		this.ruleHash = hashRules(tokenizer);
+	}
+
+	/**
+	 * Tokenizes a UTF-8 encoded source file, loading its tokens from the cache if the file
+	 * has been tokenized before with the same rules.
+	 * @param file The file to tokenize.
+	 * @return A buffer containing the tokens of the file.
+	 * @throws IOException when the file cannot be read, or a cache file cannot be written.
+	 * @throws TokenizerException when the file cannot be tokenized.
+	 */
+	public TokenBuffer tokenize(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			if(channel.size() > Integer.MAX_VALUE) {
+				throw new IOException(String.format("The source file %s is too large to be tokenized.", file.getName()));
+			}
+			return tokenize(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), file.getName());
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Tokenizes a UTF-8 encoded source, loading its tokens from the cache if a source with
+	 * the same content has been tokenized before with the same rules.
+	 * @param bytes The buffer containing the encoded source, from its position up to its
+	 * limit. The position and limit of the buffer are not changed.
+	 * @param name The name of the source. This is used for error reporting, and may contain
+	 * a value such as a file name or terminal name.
+	 * @return A buffer containing the tokens of the source.
+	 * @throws IOException when a cache file cannot be written.
+	 * @throws TokenizerException when the source cannot be tokenized.
+	 */
+	public TokenBuffer tokenize(ByteBuffer bytes, String name) throws IOException {
+		MessageDigest digest = newDigest();
+		digest.update(bytes.duplicate());
+		byte[] contentHash = digest.digest();
+		File file = getCacheFile(contentHash);
+		if(file.isFile()) {
+			TokenBuffer tokens = load(file, contentHash, new ChannelSource(bytes.duplicate(), name, StandardCharsets.UTF_8));
+			if(tokens != null) {
+				return tokens;
+			}
+		}
+		TokenBuffer tokens = tokenizer.tokenizeUtf8(bytes, name);
+		store(file, contentHash, tokens);
+		return tokens;
+	}
+
+	/**
+	 * Gets the cache file for a source with the given content hash.
+	 * @param contentHash The hash of the content of the source.
+	 * @return The file in which the tokens of the source are cached.
+	 */
+	private File getCacheFile(byte[] contentHash) {
+		/* The whole content hash is used, but only part of the rule hash, as the number of
+		 * rule sets in use at once is small.
+		 */
+		return new File(directory, toHex(contentHash, contentHash.length) + "-" + toHex(ruleHash, 4) + EXTENSION);
+	}
+
+	/**
+	 * Loads the tokens stored in a cache file.
+	 * @param file The cache file to load.
+	 * @param contentHash The hash of the content of the source.
+	 * @param source The source to which the locations of the tokens refer.
+	 * @return A buffer containing the tokens stored in the file, or {@code null} if the
+	 * file is not a complete cache file for the source.
+	 * @throws IOException when the file cannot be read.
+	 */
+	private TokenBuffer load(File file, byte[] contentHash, ChannelSource source) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		MappedByteBuffer data;
+		try {
+			data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			channel.close();
+		}
+		try {
+			if(data.getInt() != MAGIC ||
+					!Arrays.equals(readHash(data), ruleHash) ||
+					!Arrays.equals(readHash(data), contentHash)) {
+				return null;
+			}
+			int length = data.getInt(), checksum = data.getInt();
+			if(length != data.remaining() || checksum != computeChecksum(data)) {
+				return null;
+			}
+			TokenBuffer tokens = TokenBuffer.read(data, source);
+			return data.hasRemaining() ? null : tokens;
+		} catch(BufferUnderflowException | IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Stores tokens in a cache file. The tokens are written to a temporary file in the
+	 * cache directory, which is then moved into place.
+	 * @param file The cache file to write.
+	 * @param contentHash The hash of the content of the source.
+	 * @param tokens The tokens of the source.
+	 * @throws IOException when the file cannot be written.
+	 */
+	private void store(File file, byte[] contentHash, TokenBuffer tokens) throws IOException {
+		Files.createDirectories(directory.toPath());
+		ByteArrayOutputStream tokenData = new ByteArrayOutputStream();
+		tokens.write(new DataOutputStream(tokenData));
+		byte[] tokenBytes = tokenData.toByteArray();
+		
+		File temporary = File.createTempFile("tokens", ".tmp", directory);
+		try {
+			DataOutputStream out = new DataOutputStream(new FileOutputStream(temporary));
+			try {
+				out.writeInt(MAGIC);
+				out.write(ruleHash);
+				out.write(contentHash);
+				out.writeInt(tokenBytes.length);
+				out.writeInt(computeChecksum(ByteBuffer.wrap(tokenBytes)));
+				out.write(tokenBytes);
+			} finally {
+				out.close();
+			}
+			try {
+				Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch(AtomicMoveNotSupportedException e) {
+				Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temporary.toPath());
+		}
+	}
+
+	/**
+	 * Computes a hash identifying the rules of a tokenizer, and the format of the cache
+	 * files.
+	 * @param tokenizer The tokenizer whose rules to hash.
+	 * @return The hash of the rules of {@code tokenizer}.
+	 */
+	private static byte[] hashRules(Tokenizer tokenizer) {
+		StringBuilder description = new StringBuilder();
+		description.append(FORMAT_VERSION).append('\n');
+		for(TokenizerRule rule : tokenizer.getRules()) {
+			description
+					.append(rule.getClass().getName()).append('\n')
+					.append(rule.getPattern().flags()).append('\n')
+					.append(rule.getPattern().pattern()).append('\n');
+			if(rule instanceof SymbolTokenizerRule) {
+				description.append(((SymbolTokenizerRule)rule).getType()).append('\n');
+			}
+		}
+		return newDigest().digest(description.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Reads a hash from a cache file.
+	 * @param data The buffer to read from.
+	 * @return The hash that was read.
+	 */
+	private static byte[] readHash(ByteBuffer data) {
+		byte[] hash = new byte[newDigest().getDigestLength()];
+		data.get(hash);
+		return hash;
+	}
+
+	/**
+	 * Computes the checksum of the token data in a cache file, which is checked before
+	 * the tokens are loaded so that a damaged file is not mistaken for a valid one.
+	 * @param data The buffer containing the token data, from its position up to its
+	 * limit. The position of the buffer is not changed.
+	 * @return The CRC-32 checksum of the token data.
+	 */
+	private static int computeChecksum(ByteBuffer data) {
+		CRC32 checksum = new CRC32();
+		checksum.update(data.duplicate());
+		return (int)checksum.getValue();
+	}
+
+	/**
+	 * Formats the start of a hash as hexadecimal digits.
+	 * @param hash The hash to format.
+	 * @param length The number of bytes of the hash to format.
+	 * @return The first {@code length} bytes of {@code hash} as hexadecimal digits.
+	 */
+	private static String toHex(byte[] hash, int length) {
+		StringBuilder builder = new StringBuilder();
+		for(int i = 0; i < length; i++) {
+			builder.append(String.format("%02x", hash[i] & 0xff));
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Creates the message digest used for the hashes of sources and rules.
+	 * @return A new SHA-256 message digest.
+	 */
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch(NoSuchAlgorithmException e) {
+			/* Every Java platform is required to support SHA-256.
+			 */
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package pw.usn.mu.tokenizer;
+
+import pw.usn.mu.Source;
+
+/**
+ * Represents the tokens of a source which are only read as they are asked for, so that a
+ * {@link pw.usn.mu.parser.Parser Parser} can begin parsing before the rest of the source
+ * has been tokenized. A tokenizer error is therefore only reported once the parser reaches
+ * the text which could not be tokenized.<br>
+ * Tokens are kept from the first token which has not been released, so that a parser can
+ * return to the position of an earlier copy of itself. Tokens before that are discarded,
+ * so the number of tokens kept at once depends on how far the parser looks ahead rather
+ * than on the size of the source.
+ */
+public class TokenCursor implements TokenSequence {
+	private static final int MINIMUM_DISCARD = 256;
+	
+	private AutomatonTokenizer tokenizer;
+	private TokenizerAutomaton automaton;
+	private Source source;
+	private TokenizerMatch match;
+	private TokenBuffer window;
+	private int base, released, offset;
+	
+	/**
+	 * Initializes a new TokenCursor.
+	 * @param tokenizer The tokenizer with which to read the tokens.
+	 * @param source The source from which to read the tokens.
+	 */
+	TokenCursor(AutomatonTokenizer tokenizer, Source source) {
+		this.tokenizer = tokenizer;
+		this.automaton = tokenizer.getAutomaton();
+		this.source = source;
+		this.match = new TokenizerMatch();
+		this.window = new TokenBuffer(source);
+		this.base = 0;
+		this.released = 0;
+		this.offset = 0;
+	}
+	
+	@Override
+	public boolean hasToken(int index) {
+		if(index < 0) {
+			return false;
+		}
+		while(index - base >= window.size() && !source.endOfSource()) {
+			offset += tokenizer.readToken(automaton, source, match, window, offset);
+		}
+		return index - base < window.size();
+	}
+	
+	@Override
+	public void release(int index) {
+		if(index > released) {
+			released = index;
+			int count = Math.min(released - base, window.size());
+			/* Only move the kept tokens once enough have been released, so that each token
+			 * is only moved a constant number of times on average.
+			 */
+			if(count >= MINIMUM_DISCARD && count >= window.size() / 2) {
+				window.discard(count);
+				base += count;
+			}
+		}
+	}
+	
+	/**
+	 * Gets the index in the window of a token which has already been read.
+	 * @param index The index of the token in the source.
+	 * @return The index of the token in the window.
+	 * @throws IllegalStateException when the token has been discarded.
+	 * @throws IndexOutOfBoundsException when the token has not been read yet.
+	 */
+	private int indexInWindow(int index) {
+		if(index < base) {
+			throw new IllegalStateException(String.format(
+					"The token at index %d has already been released.",
+					index));
+		} else if(index - base >= window.size()) {
+			throw new IndexOutOfBoundsException(String.format(
+					"The token at index %d has not been read.",
+					index));
+		} else {
+			return index - base;
+		}
+	}
+	
+	/**
+	 * Gets the table of the offsets at which each row of the source starts, for the part
+	 * of the source read so far.
+	 * @return The line offset table for the source of the tokens.
+	 */
+	public LineOffsetTable getLineOffsets() {
+		return window.getLineOffsets();
+	}
+	
+	@Override
+	public int getKind(int index) {
+		return window.getKind(indexInWindow(index));
+	}
+	
+	@Override
+	public String getPayload(int index) {
+		return window.getPayload(indexInWindow(index));
+	}
+	
+	@Override
+	public int getNameId(int index) {
+		return window.getNameId(indexInWindow(index));
+	}
+	
+	@Override
+	public String getOperator(int index) {
+		return window.getOperator(indexInWindow(index));
+	}
+	
+	@Override
+	public LiteralIntTokenBase getIntBase(int index) {
+		return window.getIntBase(indexInWindow(index));
+	}
+	
+	@Override
+	public int getIntValue(int index) {
+		return window.getIntValue(indexInWindow(index));
+	}
+	
+	@Override
+	public Location getLocation(int index) {
+		return window.getLocation(indexInWindow(index));
+	}
+	
+	@Override
+	public Token getToken(int index) {
+		return window.getToken(indexInWindow(index));
+	}
+}
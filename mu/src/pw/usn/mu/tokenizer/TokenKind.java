@@ -0,0 +1,112 @@
+package pw.usn.mu.tokenizer;
+
+/**
+ * Contains the integer constants identifying each kind of {@link Token}. Each symbol
+ * type and each operator precedence level has a kind of its own, so the parser can
+ * determine what a token is by comparing a single integer, without creating the token.
+ */
+public final class TokenKind {
+	/**
+	 * The kind used where there is no token, such as after the end of a token stream.
+	 */
+	public static final int NONE = -1;
+	/**
+	 * The kind of an {@link IdentifierToken}.
+	 */
+	public static final int IDENTIFIER = 0;
+	/**
+	 * The kind of a {@link LiteralIntToken}.
+	 */
+	public static final int LITERAL_INT = 1;
+	/**
+	 * The kind of a {@link LiteralStringToken}.
+	 */
+	public static final int LITERAL_STRING = 2;
+	/**
+	 * The kind of a {@link LiteralSymbolToken}.
+	 */
+	public static final int LITERAL_SYMBOL = 3;
+	
+	private static final int OPERATOR_KINDS = 4;
+	private static final int SYMBOL_KINDS = OPERATOR_KINDS + OperatorTokenType.values().length;
+	private static final OperatorTokenType[] OPERATOR_TYPES = OperatorTokenType.values();
+	private static final SymbolTokenType[] SYMBOL_TYPES = SymbolTokenType.values();
+	
+	/**
+	 * The number of token kinds. Every kind other than {@link TokenKind#NONE} is less
+	 * than this value.
+	 */
+	public static final int COUNT = SYMBOL_KINDS + SymbolTokenType.values().length;
+	
+	private TokenKind() {
+	}
+	
+	/**
+	 * Gets the kind of an {@link OperatorToken} with the given type.
+	 * @param type The precedence level of the operator.
+	 * @return The token kind for operators of type {@code type}.
+	 */
+	public static int operator(OperatorTokenType type) {
+		return OPERATOR_KINDS + type.ordinal();
+	}
+	
+	/**
+	 * Gets the kind of a {@link SymbolToken} with the given type.
+	 * @param type The type of the symbol.
+	 * @return The token kind for symbols of type {@code type}.
+	 */
+	public static int symbol(SymbolTokenType type) {
+		return SYMBOL_KINDS + type.ordinal();
+	}
+	
+	/**
+	 * Determines whether the given kind is the kind of an {@link OperatorToken}.
+	 * @param kind The token kind.
+	 * @return Whether {@code kind} is an operator kind.
+	 */
+	public static boolean isOperator(int kind) {
+		return kind >= OPERATOR_KINDS && kind < SYMBOL_KINDS;
+	}
+	
+	/**
+	 * Gets the operator type for the given operator kind.
+	 * @param kind The token kind, which must be an operator kind.
+	 * @return The {@link OperatorTokenType} of operators of the given kind.
+	 */
+	public static OperatorTokenType getOperatorType(int kind) {
+		return OPERATOR_TYPES[kind - OPERATOR_KINDS];
+	}
+	
+	/**
+	 * Determines whether the given kind is the kind of a {@link SymbolToken}.
+	 * @param kind The token kind.
+	 * @return Whether {@code kind} is a symbol kind.
+	 */
+	public static boolean isSymbol(int kind) {
+		return kind >= SYMBOL_KINDS && kind < COUNT;
+	}
+	
+	/**
+	 * Gets the symbol type for the given symbol kind.
+	 * @param kind The token kind, which must be a symbol kind.
+	 * @return The {@link SymbolTokenType} of symbols of the given kind.
+	 */
+	public static SymbolTokenType getSymbolType(int kind) {
+		return SYMBOL_TYPES[kind - SYMBOL_KINDS];
+	}
+	
+	/**
+	 * Determines if tokens of the given kind mark the beginning of an atomic non-terminal
+	 * in the parsing stage.
+	 * @param kind The token kind.
+	 * @return Whether {@code kind} is the kind of a token which begins an atomic node.
+	 * @see Token#isAtomicToken()
+	 */
+	public static boolean isAtomic(int kind) {
+		return
+				kind == LITERAL_INT ||
+				kind == LITERAL_STRING ||
+				kind == IDENTIFIER ||
+				kind == symbol(SymbolTokenType.PAREN_OPEN);
+	}
+}
@@ -0,0 +1,83 @@
+package pw.usn.mu.tokenizer;
+
+/**
+ * Represents a sequence of tokens which can be read by index, such as by a {@link
+ * pw.usn.mu.parser.Parser Parser}. The sequence might contain all of the tokens of a
+ * source, as a {@link TokenBuffer} does, or only read the tokens of a source as they are
+ * asked for, as a {@link TokenCursor} does.
+ */
+public interface TokenSequence {
+	/**
+	 * Determines whether the sequence contains a token at the given index. This might
+	 * cause more of the source to be tokenized.
+	 * @param index The index of the token.
+	 * @return Whether there is a token at {@code index}; ie. whether {@code index} is not
+	 * negative and is before the end of the source.
+	 * @throws TokenizerException when the source cannot be tokenized up to the token at
+	 * {@code index}.
+	 */
+	public boolean hasToken(int index);
+	
+	/**
+	 * Indicates that the tokens before the given index will not be read again, so that the
+	 * sequence may discard them.
+	 * @param index The index of the first token which may still be read.
+	 */
+	public void release(int index);
+	
+	/**
+	 * Gets the kind of a token.
+	 * @param index The index of the token.
+	 * @return The kind of the token, from {@link TokenKind}.
+	 */
+	public int getKind(int index);
+	
+	/**
+	 * Gets the payload of a token.
+	 * @param index The index of the token.
+	 * @return The payload of the token, as given by {@link TokenBuffer#getPayload(int)}.
+	 */
+	public String getPayload(int index);
+	
+	/**
+	 * Gets the id of the name represented by an identifier or operator token.
+	 * @param index The index of the token.
+	 * @return The id of the name, as given by {@link TokenBuffer#getNameId(int)}.
+	 */
+	public int getNameId(int index);
+	
+	/**
+	 * Gets the operator string of an operator token.
+	 * @param index The index of the token.
+	 * @return The operator string, as returned by {@link OperatorToken#getOperator()}.
+	 */
+	public String getOperator(int index);
+	
+	/**
+	 * Gets the base of an int literal token.
+	 * @param index The index of the token.
+	 * @return The base in which the int literal was written.
+	 */
+	public LiteralIntTokenBase getIntBase(int index);
+	
+	/**
+	 * Gets the value of an int literal token.
+	 * @param index The index of the token.
+	 * @return The value of the int literal.
+	 */
+	public int getIntValue(int index);
+	
+	/**
+	 * Gets the location of a token.
+	 * @param index The index of the token.
+	 * @return The location of the token in its source.
+	 */
+	public Location getLocation(int index);
+	
+	/**
+	 * Creates the {@link Token} object for a token.
+	 * @param index The index of the token.
+	 * @return A new token equivalent to the token at {@code index}.
+	 */
+	public Token getToken(int index);
+}
@@ -1,6 +1,7 @@
 package pw.usn.mu.tokenizer;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import pw.usn.mu.Source;
@@ -26,6 +27,15 @@ public class Tokenizer {
 		rules.add(rule);
 	}
 	
+	/**
+	 * Gets the tokenization rules of this tokenizer.
+	 * @return An unmodifiable list of the rules added to this tokenizer, in the order
+	 * in which they are tried.
+	 */
+	protected List<TokenizerRule> getRules() {
+		return Collections.unmodifiableList(rules);
+	}
+	
 	/**
 	 * Tokenizes source code from a {@link Source}.
 	 * @param source The source code to tokenize.
@@ -57,4 +67,29 @@ public class Tokenizer {
 		tokens.toArray(tokenArray);
 		return tokenArray;
 	}
-}
+	
+	/**
+	 * Tokenizes source code from a {@link Source} into a {@link TokenBuffer}, which stores
+	 * the tokens more compactly than an array of {@link Token}s.
+	 * @param source The source code to tokenize.
+	 * @return A {@link TokenBuffer} containing all non-ignored tokens in {@code source}.
+	 * @throws TokenizerException when the expression cannot be tokenized.
+	 */
+	public TokenBuffer tokenizeToBuffer(Source source) {
+		return new TokenBuffer(tokenize(source));
+	}
+	
+	/**
+	 * Tokenizes source code from a {@link Source} into a {@link TokenSequence}, whose tokens
+	 * might only be read from {@code source} as they are asked for. This allows a parser to
+	 * begin before the whole source has been tokenized. By default, the whole source is
+	 * tokenized at once.
+	 * @param source The source code to tokenize.
+	 * @return A {@link TokenSequence} of all non-ignored tokens in {@code source}.
+	 * @throws TokenizerException when the expression cannot be tokenized, if the tokens are
+	 * read at once. Otherwise, this is thrown when reading the token sequence.
+	 */
+	public TokenSequence tokenizeLazily(Source source) {
+		return tokenizeToBuffer(source);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,274 @@
+package pw.usn.mu.tokenizer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import pw.usn.mu.Source;
+
+/**
+ * Represents a set of {@link TokenizerRule}s compiled into a single deterministic finite
+ * automaton, such that the rule to use at any position in a source can be determined by
+ * reading each character once.<br>
+ * The automaton keeps the semantics of trying each rule in turn: the rule matching at a
+ * position is the first rule, in the order the rules were added, which matches at all.
+ * That rule then takes its longest match, or its shortest match if its pattern contains a
+ * reluctant quantifier (such as the {@code .*?} in a comment pattern).
+ */
+public class TokenizerAutomaton {
+	/**
+	 * The value returned in place of a rule index when no rule matches.
+	 */
+	public static final int NO_RULE = NfaBuilder.NO_RULE;
+
+	private TokenizerRule[] rules;
+	private boolean[] shortestMatch;
+	private char[] characterClasses;
+	private int classCount;
+	private int[] transitions;
+	private int[] acceptingRules, anchoredAcceptingRules, liveRules;
+
+	/**
+	 * Compiles the given rules into a new TokenizerAutomaton.
+	 * @param rules The rules to compile, in order of priority.
+	 * @throws IllegalArgumentException when the pattern of one of {@code rules} uses syntax
+	 * that cannot be compiled into an automaton.
+	 */
+	public TokenizerAutomaton(List<TokenizerRule> rules) {
+		this.rules = rules.toArray(new TokenizerRule[rules.size()]);
+		NfaBuilder nfa = new NfaBuilder();
+		shortestMatch = new boolean[this.rules.length];
+		for(int i = 0; i < this.rules.length; i++) {
+			nfa.addRule(this.rules[i]);
+			shortestMatch[i] = nfa.isShortestMatch(i);
+		}
+		int[] classBounds = computeCharacterClasses(nfa);
+		determinize(nfa, classBounds);
+	}
+
+	/**
+	 * Partitions the character set into classes of characters which every transition in
+	 * {@code nfa} treats identically.
+	 * @param nfa The automaton to partition the characters for.
+	 * @return The lowest character of each class, in ascending order.
+	 */
+	private int[] computeCharacterClasses(NfaBuilder nfa) {
+		TreeSet<Integer> bounds = new TreeSet<Integer>();
+		bounds.add(0);
+		for(int state = 0; state < nfa.getStateCount(); state++) {
+			int[] set = nfa.getCharacterSet(state);
+			if(set != null) {
+				for(int i = 0; i < set.length; i += 2) {
+					bounds.add(set[i]);
+					if(set[i + 1] < Character.MAX_VALUE) {
+						bounds.add(set[i + 1] + 1);
+					}
+				}
+			}
+		}
+		int[] classBounds = new int[bounds.size()];
+		int index = 0;
+		for(int bound : bounds) {
+			classBounds[index++] = bound;
+		}
+		classCount = classBounds.length;
+		characterClasses = new char[Character.MAX_VALUE + 1];
+		for(int i = 0; i < classCount; i++) {
+			int upper = i + 1 < classCount ? classBounds[i + 1] : Character.MAX_VALUE + 1;
+			Arrays.fill(characterClasses, classBounds[i], upper, (char)i);
+		}
+		return classBounds;
+	}
+
+	/**
+	 * Builds the transition table using the subset construction on {@code nfa}.
+	 * @param nfa The automaton to determinize.
+	 * @param classBounds The lowest character of each character class.
+	 */
+	private void determinize(NfaBuilder nfa, int[] classBounds) {
+		Map<List<Integer>, Integer> stateIndices = new HashMap<List<Integer>, Integer>();
+		List<List<Integer>> states = new ArrayList<List<Integer>>();
+		List<int[]> rows = new ArrayList<int[]>();
+
+		List<Integer> initial = closure(nfa, Arrays.asList(nfa.getInitialState()));
+		stateIndices.put(initial, 0);
+		states.add(initial);
+		for(int index = 0; index < states.size(); index++) {
+			List<Integer> state = states.get(index);
+			int[] row = new int[classCount];
+			for(int characterClass = 0; characterClass < classCount; characterClass++) {
+				List<Integer> targets = new ArrayList<Integer>();
+				for(int nfaState : state) {
+					int[] set = nfa.getCharacterSet(nfaState);
+					if(set != null && NfaBuilder.contains(set, classBounds[characterClass])) {
+						targets.add(nfa.getCharacterTarget(nfaState));
+					}
+				}
+				if(targets.isEmpty()) {
+					row[characterClass] = -1;
+				} else {
+					List<Integer> target = closure(nfa, targets);
+					Integer targetIndex = stateIndices.get(target);
+					if(targetIndex == null) {
+						targetIndex = states.size();
+						stateIndices.put(target, targetIndex);
+						states.add(target);
+					}
+					row[characterClass] = targetIndex;
+				}
+			}
+			rows.add(row);
+		}
+
+		transitions = new int[states.size() * classCount];
+		acceptingRules = new int[states.size()];
+		anchoredAcceptingRules = new int[states.size()];
+		liveRules = new int[states.size()];
+		for(int index = 0; index < states.size(); index++) {
+			System.arraycopy(rows.get(index), 0, transitions, index * classCount, classCount);
+			acceptingRules[index] = anchoredAcceptingRules[index] = liveRules[index] = NO_RULE;
+			for(int nfaState : states.get(index)) {
+				int rule = nfa.getAcceptingRule(nfaState);
+				if(rule != NO_RULE) {
+					if(nfa.isAnchored(rule)) {
+						anchoredAcceptingRules[index] = Math.min(anchoredAcceptingRules[index], rule);
+					} else {
+						acceptingRules[index] = Math.min(acceptingRules[index], rule);
+					}
+				}
+				if(nfa.getCharacterSet(nfaState) != null) {
+					liveRules[index] = Math.min(liveRules[index], nfa.getOwner(nfaState));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Computes the set of states reachable from {@code from} without consuming input.
+	 * @param nfa The automaton containing the states.
+	 * @param from The states to start from.
+	 * @return The sorted list of reachable states, including {@code from}.
+	 */
+	private static List<Integer> closure(NfaBuilder nfa, List<Integer> from) {
+		boolean[] visited = new boolean[nfa.getStateCount()];
+		Deque<Integer> pending = new ArrayDeque<Integer>(from);
+		while(!pending.isEmpty()) {
+			int state = pending.pop();
+			if(!visited[state]) {
+				visited[state] = true;
+				pending.addAll(nfa.getEpsilonTargets(state));
+			}
+		}
+		List<Integer> closure = new ArrayList<Integer>();
+		for(int state = 0; state < visited.length; state++) {
+			if(visited[state]) {
+				closure.add(state);
+			}
+		}
+		return closure;
+	}
+
+	/**
+	 * Runs the automaton from the reading head of {@code source} to find the rule matching
+	 * there. This looks ahead in {@code source} without advancing it.
+	 * @param source The source to match from.
+	 * @param match The match to store the matching rule and its length in.
+	 * @return {@code true} if a rule matched; {@code false} if no rule matches at the
+	 * current position of {@code source}.
+	 */
+	public boolean match(Source source, TokenizerMatch match) {
+		int state = getInitialState();
+		int matchedRule = NO_RULE, matchedLength = 0;
+		int length = 0, c = source.peek(0);
+		while(c >= 0) {
+			state = getNextState(state, (char)c);
+			if(state < 0) {
+				break;
+			}
+			c = source.peek(++length);
+			int rule = getMatchedRule(state, c);
+			if(rule < matchedRule || (rule == matchedRule && rule != NO_RULE && !shortestMatch[rule])) {
+				matchedRule = rule;
+				matchedLength = length;
+			}
+			if(!canImproveMatch(state, matchedRule)) {
+				break;
+			}
+		}
+		match.set(matchedRule, matchedLength, length + 1);
+		return matchedRule != NO_RULE;
+	}
+
+	/**
+	 * Gets the state in which the automaton begins reading a token.
+	 * @return The initial state.
+	 */
+	public int getInitialState() {
+		return 0;
+	}
+
+	/**
+	 * Gets the state reached by reading the character {@code c} in {@code state}.
+	 * @param state The current state.
+	 * @param c The character read.
+	 * @return The next state, or {@code -1} if no rule can match any further.
+	 */
+	public int getNextState(int state, char c) {
+		return transitions[state * classCount + characterClasses[c]];
+	}
+
+	/**
+	 * Gets the highest-priority rule that matches the characters read to reach
+	 * {@code state}.
+	 * @param state The current state.
+	 * @param lookahead The character following those read, or {@code -1} at the end
+	 * of the source. This is needed for patterns ending in {@code $}.
+	 * @return The index of the matching rule, or {@link TokenizerAutomaton#NO_RULE} if none
+	 * of the rules match.
+	 */
+	public int getMatchedRule(int state, int lookahead) {
+		int rule = acceptingRules[state];
+		if(anchoredAcceptingRules[state] < rule && NfaBuilder.isLineEnd(lookahead)) {
+			rule = anchoredAcceptingRules[state];
+		}
+		return rule;
+	}
+
+	/**
+	 * Determines whether reading further from {@code state} could change the result of a
+	 * match, given the best match found so far.
+	 * @param state The current state.
+	 * @param matchedRule The index of the rule matched so far, or {@link
+	 * TokenizerAutomaton#NO_RULE} if no rule has matched yet.
+	 * @return {@code true} if a higher-priority rule or a longer match of {@code matchedRule}
+	 * could still be found by reading on from {@code state}.
+	 */
+	public boolean canImproveMatch(int state, int matchedRule) {
+		int live = liveRules[state];
+		return live < matchedRule || (live == matchedRule && !shortestMatch[live]);
+	}
+
+	/**
+	 * Determines whether the given rule takes its shortest match rather than its
+	 * longest match.
+	 * @param rule The index of the rule.
+	 * @return {@code true} if the pattern of the rule contains a reluctant quantifier.
+	 */
+	public boolean isShortestMatch(int rule) {
+		return shortestMatch[rule];
+	}
+
+	/**
+	 * Gets the rule with the given index.
+	 * @param rule The index of the rule.
+	 * @return The rule compiled into this automaton at position {@code rule}.
+	 */
+	public TokenizerRule getRule(int rule) {
+		return rules[rule];
+	}
+}
@@ -0,0 +1,70 @@
+package pw.usn.mu.tokenizer;
+
+/**
+ * Represents the tokens read from one part of a source by {@link
+ * AutomatonTokenizer#tokenizeParallel(CharSequence, String, java.util.concurrent.ForkJoinPool)}.
+ * A chunk is read from its start offset until the tokenizer reaches or passes its limit, so
+ * the chunk ends at the end of a token rather than at an arbitrary character.
+ */
+class TokenizerChunk {
+	private int start, end;
+	private TokenBuffer tokens;
+	private boolean failed;
+	
+	/**
+	 * Initializes a new TokenizerChunk.
+	 * @param start The offset at which reading began.
+	 * @param end The offset at which reading stopped.
+	 * @param tokens The tokens read from the chunk.
+	 * @param failed Whether reading stopped because the text at {@code end} could not be tokenized.
+	 */
+	public TokenizerChunk(int start, int end, TokenBuffer tokens, boolean failed) {
+		this.start = start;
+		this.end = end;
+		this.tokens = tokens;
+		this.failed = failed;
+	}
+	
+	/**
+	 * Gets the offset at which reading of this chunk stopped.
+	 * @return The offset after the last token read, or the offset of the text which could
+	 * not be tokenized if the chunk failed.
+	 */
+	public int getEnd() {
+		return end;
+	}
+	
+	/**
+	 * Gets the tokens read from this chunk.
+	 * @return A buffer containing the tokens of the chunk.
+	 */
+	public TokenBuffer getTokens() {
+		return tokens;
+	}
+	
+	/**
+	 * Determines whether reading this chunk stopped because the text could not be tokenized.
+	 * @return Whether no rule matched at {@link TokenizerChunk#getEnd()}.
+	 */
+	public boolean hasFailed() {
+		return failed;
+	}
+	
+	/**
+	 * Finds the token in this chunk beginning at the given offset. If the tokenizer is at
+	 * such an offset, it would read the same tokens from there as were read in this chunk.
+	 * @param offset The offset of the reading head of the tokenizer.
+	 * @return The index of the first token in this chunk at or after {@code offset}, if
+	 * {@code offset} is the start or end of the chunk or the start of one of its tokens;
+	 * otherwise, {@code -1}.
+	 */
+	public int getBoundaryIndex(int offset) {
+		if(offset == start) {
+			return 0;
+		} else if(offset == end) {
+			return tokens.size();
+		} else {
+			return tokens.indexOfStart(offset);
+		}
+	}
+}
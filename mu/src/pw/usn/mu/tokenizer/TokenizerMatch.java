@@ -0,0 +1,58 @@
+package pw.usn.mu.tokenizer;
+
+/**
+ * Represents the result of running a {@link TokenizerAutomaton} at a position in a
+ * source: the rule that matched, and the number of characters it matched. A single
+ * TokenizerMatch can be reused for each token read, so that matching does not allocate.
+ */
+public final class TokenizerMatch {
+	private int rule, length, examinedLength;
+	
+	/**
+	 * Initializes a new TokenizerMatch representing no match.
+	 */
+	public TokenizerMatch() {
+		set(TokenizerAutomaton.NO_RULE, 0, 0);
+	}
+	
+	/**
+	 * Sets the result of this match.
+	 * @param rule The index of the rule which matched.
+	 * @param length The number of characters matched.
+	 * @param examinedLength The number of characters looked at to find the match.
+	 */
+	void set(int rule, int length, int examinedLength) {
+		this.rule = rule;
+		this.length = length;
+		this.examinedLength = examinedLength;
+	}
+	
+	/**
+	 * Gets the rule which matched.
+	 * @return The index of the matching rule in the {@link TokenizerAutomaton}, or {@link
+	 * TokenizerAutomaton#NO_RULE} if no rule matched.
+	 */
+	public int getRule() {
+		return rule;
+	}
+	
+	/**
+	 * Gets the length of the match.
+	 * @return The number of characters matched by the rule.
+	 */
+	public int getLength() {
+		return length;
+	}
+	
+	/**
+	 * Gets the number of characters which were looked at to find the match. This is at
+	 * least the length of the match, as the automaton reads past the end of a match to
+	 * determine that it cannot be extended. The match can only change if one of these
+	 * characters changes.
+	 * @return The number of characters from the start of the match that were read,
+	 * including the end of the source if it was reached.
+	 */
+	public int getExaminedLength() {
+		return examinedLength;
+	}
+}
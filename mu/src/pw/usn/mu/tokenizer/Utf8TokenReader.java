@@ -0,0 +1,402 @@
+package pw.usn.mu.tokenizer;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+
+import pw.usn.mu.Source;
+
+/**
+ * Reads the tokens of a UTF-8 encoded source directly from its bytes, for {@link
+ * AutomatonTokenizer#tokenizeUtf8(ByteBuffer, String)}. The {@link TokenizerAutomaton} is
+ * run over the characters of the source as they are decoded one at a time, so the source is
+ * never decoded into a {@link String} as a whole; characters below {@code 0x80}, which make
+ * up all of the tokens other than comments and literals, are read straight from the bytes.<br>
+ * Only the text of tokens with a payload is decoded, and only once for each distinct text:
+ * the payload is kept in a table keyed by the bytes of the token, and tokens with the same
+ * bytes as an earlier token reuse its payload without being decoded or matched again. This
+ * relies on the rules creating tokens which depend only on the text they match, as all of
+ * the rules of {@link DefaultTokenizerFactory} do.<br>
+ * Offsets and lengths in the {@link TokenBuffer} are counted in characters, as for any other
+ * source, so the tokens read are the same as those read from the decoded text. Malformed
+ * input is read as {@code U+FFFD}, replacing each maximal invalid subsequence as the UTF-8
+ * {@link java.nio.charset.CharsetDecoder CharsetDecoder} does.
+ */
+class Utf8TokenReader {
+	private static final char REPLACEMENT = '\uFFFD';
+	private static final int INITIAL_CACHE_CAPACITY = 256;
+
+	private TokenizerAutomaton automaton;
+	private ByteBuffer bytes;
+	private int limit;
+	private Source source;
+	private TokenBuffer buffer;
+
+	private int position, offset;
+	private boolean low;
+	private int scanPosition, decodedLength;
+	private boolean scanLow;
+	private int readKind, readPayloadId;
+	private char[] text;
+	private Matcher[] matchers;
+
+	private int[] cacheRules, cacheKinds, cachePayloadIds;
+	private byte[][] cacheTexts;
+	private int cacheCount;
+
+	/**
+	 * Initializes a new Utf8TokenReader over the remaining bytes of a buffer.
+	 * @param automaton The automaton to match with.
+	 * @param bytes The buffer containing the encoded source. Its position and limit are
+	 * not changed.
+	 * @param source The source to which the locations of the tokens refer.
+	 */
+	public Utf8TokenReader(TokenizerAutomaton automaton, ByteBuffer bytes, Source source) {
+		this.automaton = automaton;
+		this.bytes = bytes;
+		this.limit = bytes.limit();
+		this.source = source;
+		this.buffer = new TokenBuffer(source);
+		this.position = bytes.position();
+		this.offset = 0;
+		this.low = false;
+		this.text = new char[64];
+		this.matchers = new Matcher[0];
+		this.cacheRules = new int[INITIAL_CACHE_CAPACITY];
+		this.cacheKinds = new int[INITIAL_CACHE_CAPACITY];
+		this.cachePayloadIds = new int[INITIAL_CACHE_CAPACITY];
+		this.cacheTexts = new byte[INITIAL_CACHE_CAPACITY][];
+		this.cacheCount = 0;
+	}
+
+	/**
+	 * Reads all of the tokens of the source.
+	 * @return A buffer containing the tokens that were read.
+	 * @throws TokenizerException when the source cannot be tokenized.
+	 */
+	public TokenBuffer readAll() {
+		while(position < limit || low) {
+			readToken();
+		}
+		buffer.setSourceLength(offset);
+		buffer.trim();
+		return buffer;
+	}
+
+	/**
+	 * Reads the next token into the buffer. This runs the automaton in the same way as
+	 * {@link TokenizerAutomaton#match(Source, TokenizerMatch)}.
+	 * @throws TokenizerException when no rule matches.
+	 */
+	private void readToken() {
+		scanPosition = position;
+		scanLow = low;
+		int state = automaton.getInitialState();
+		int matchedRule = TokenizerAutomaton.NO_RULE, matchedLength = 0;
+		int matchedPosition = position;
+		boolean matchedLow = low;
+		int length = 0, c = nextChar();
+		while(c >= 0) {
+			state = automaton.getNextState(state, (char)c);
+			if(state < 0) {
+				break;
+			}
+			length += 1;
+			int nextPosition = scanPosition;
+			boolean nextLow = scanLow;
+			c = nextChar();
+			int rule = automaton.getMatchedRule(state, c);
+			if(rule < matchedRule || (rule == matchedRule && rule != TokenizerAutomaton.NO_RULE && !automaton.isShortestMatch(rule))) {
+				matchedRule = rule;
+				matchedLength = length;
+				matchedPosition = nextPosition;
+				matchedLow = nextLow;
+			}
+			if(!automaton.canImproveMatch(state, matchedRule)) {
+				break;
+			}
+		}
+		if(matchedRule == TokenizerAutomaton.NO_RULE) {
+			throw new TokenizerException("Unrecognized token.", new Location(source, buffer.getLineOffsets(), offset), getRemainderOfLine());
+		}
+
+		buffer.addReach(offset + length + 1);
+		scanPosition = position;
+		scanLow = low;
+		for(int i = 0; i < matchedLength; i++) {
+			if(nextChar() == '\n') {
+				buffer.addLine(offset + i + 1);
+			}
+		}
+		TokenizerRule rule = automaton.getRule(matchedRule);
+		if(rule instanceof SymbolTokenizerRule) {
+			buffer.add(TokenKind.symbol(((SymbolTokenizerRule)rule).getType()), offset, matchedLength, -1);
+		} else if(!(rule instanceof IgnoreTokenizerRule)) {
+			if(low || matchedLow) {
+				/* The token begins or ends part of the way through a character encoded as a
+				 * surrogate pair, so its bytes do not identify it.
+				 */
+				readPayload(matchedRule, rule, matchedLength);
+			} else {
+				int entry = findCacheEntry(matchedRule, position, matchedPosition);
+				if(cacheTexts[entry] == null) {
+					readPayload(matchedRule, rule, matchedLength);
+					addCacheEntry(entry, matchedRule, matchedPosition);
+				} else {
+					readKind = cacheKinds[entry];
+					readPayloadId = cachePayloadIds[entry];
+				}
+			}
+			if(readKind != TokenKind.NONE) {
+				buffer.add(readKind, offset, matchedLength, readPayloadId);
+			}
+		}
+		offset += matchedLength;
+		position = matchedPosition;
+		low = matchedLow;
+	}
+
+	/**
+	 * Decodes a token and reads it using the pattern of its rule, storing its kind and the
+	 * index of its payload in the buffer.
+	 * @param ruleIndex The index of the rule in the automaton.
+	 * @param rule The rule which matched.
+	 * @param length The number of characters in the token.
+	 * @throws TokenizerException when the pattern of {@code rule} does not match the
+	 * text that the automaton matched.
+	 */
+	private void readPayload(int ruleIndex, TokenizerRule rule, int length) {
+		if(text.length < length) {
+			text = new char[Math.max(length, text.length * 2)];
+		}
+		scanPosition = position;
+		scanLow = low;
+		for(int i = 0; i < length; i++) {
+			text[i] = (char)nextChar();
+		}
+		Location location = new Location(source, buffer.getLineOffsets(), offset);
+		Matcher matcher = getMatcher(ruleIndex, rule, new String(text, 0, length));
+		if(!matcher.matches()) {
+			throw new TokenizerException("Unrecognized token.", location, getRemainderOfLine());
+		}
+		Token token = rule.read(location, matcher);
+		if(token.ignore()) {
+			readKind = TokenKind.NONE;
+			readPayloadId = -1;
+		} else {
+			readKind = token.getKind();
+			readPayloadId = token.getPayload() == null ? -1 : buffer.internPayload(readKind, token.getPayload());
+		}
+	}
+
+	/**
+	 * Gets a matcher for the pattern of a rule over the given text. Matchers are reused
+	 * between tokens, as creating a matcher for each token would dominate the time taken to
+	 * read tokens which are not in the cache.
+	 * @param ruleIndex The index of the rule in the automaton.
+	 * @param rule The rule whose pattern to match.
+	 * @param text The text to match.
+	 * @return A matcher for the pattern of {@code rule}, reset to match {@code text}.
+	 */
+	private Matcher getMatcher(int ruleIndex, TokenizerRule rule, String text) {
+		if(ruleIndex >= matchers.length) {
+			matchers = Arrays.copyOf(matchers, ruleIndex + 1);
+		}
+		if(matchers[ruleIndex] == null) {
+			matchers[ruleIndex] = rule.getPattern().matcher(text);
+			return matchers[ruleIndex];
+		} else {
+			return matchers[ruleIndex].reset(text);
+		}
+	}
+
+	/**
+	 * Records the kind and payload of the token last read by {@link
+	 * Utf8TokenReader#readPayload(int, TokenizerRule, int)} in the cache.
+	 * @param entry The empty entry at which to add the token, as returned by {@link
+	 * Utf8TokenReader#findCacheEntry(int, int, int)}.
+	 * @param rule The index of the rule in the automaton.
+	 * @param end The position of the byte after the token.
+	 */
+	private void addCacheEntry(int entry, int rule, int end) {
+		byte[] entryText = new byte[end - position];
+		for(int i = 0; i < entryText.length; i++) {
+			entryText[i] = bytes.get(position + i);
+		}
+		cacheRules[entry] = rule;
+		cacheKinds[entry] = readKind;
+		cachePayloadIds[entry] = readPayloadId;
+		cacheTexts[entry] = entryText;
+		cacheCount += 1;
+		if(cacheCount * 2 > cacheRules.length) {
+			resizeCache(cacheRules.length * 2);
+		}
+	}
+
+	/**
+	 * Finds the entry in the cache for a token matched by the given rule. The cache is an
+	 * open-addressing hash table, so that looking a token up does not allocate a key.
+	 * @param rule The index of the rule in the automaton.
+	 * @param start The position of the first byte of the token.
+	 * @param end The position of the byte after the token.
+	 * @return The index of the entry for the token, or of the empty entry at which to add
+	 * it if there is none.
+	 */
+	private int findCacheEntry(int rule, int start, int end) {
+		int hash = rule;
+		for(int i = start; i < end; i++) {
+			hash = hash * 31 + bytes.get(i);
+		}
+		int mask = cacheRules.length - 1;
+		for(int entry = (hash ^ (hash >>> 16)) & mask; ; entry = (entry + 1) & mask) {
+			byte[] entryText = cacheTexts[entry];
+			if(entryText == null) {
+				return entry;
+			} else if(cacheRules[entry] == rule && entryText.length == end - start && matchesBytes(entryText, start)) {
+				return entry;
+			}
+		}
+	}
+
+	/**
+	 * Determines whether the bytes of the source at the given position are the same as
+	 * {@code entryText}.
+	 * @param entryText The bytes to compare against.
+	 * @param start The position of the first byte to compare.
+	 * @return Whether the source contains {@code entryText} at {@code start}.
+	 */
+	private boolean matchesBytes(byte[] entryText, int start) {
+		for(int i = 0; i < entryText.length; i++) {
+			if(entryText[i] != bytes.get(start + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Moves the entries of the cache into a larger table.
+	 * @param capacity The new number of entries, which must be a power of two.
+	 */
+	private void resizeCache(int capacity) {
+		int[] oldRules = cacheRules, oldKinds = cacheKinds, oldPayloadIds = cachePayloadIds;
+		byte[][] oldTexts = cacheTexts;
+		cacheRules = new int[capacity];
+		cacheKinds = new int[capacity];
+		cachePayloadIds = new int[capacity];
+		cacheTexts = new byte[capacity][];
+		int mask = capacity - 1;
+		for(int i = 0; i < oldTexts.length; i++) {
+			if(oldTexts[i] != null) {
+				int hash = oldRules[i];
+				for(byte b : oldTexts[i]) {
+					hash = hash * 31 + b;
+				}
+				int entry = (hash ^ (hash >>> 16)) & mask;
+				while(cacheTexts[entry] != null) {
+					entry = (entry + 1) & mask;
+				}
+				cacheRules[entry] = oldRules[i];
+				cacheKinds[entry] = oldKinds[i];
+				cachePayloadIds[entry] = oldPayloadIds[i];
+				cacheTexts[entry] = oldTexts[i];
+			}
+		}
+	}
+
+	/**
+	 * Decodes the next character at the scanning position, and advances the scanning
+	 * position past it. A code point outside of the Basic Multilingual Plane is read as
+	 * two characters, the scanning position being part of the way through the code point
+	 * between them.
+	 * @return The character read, or {@code -1} at the end of the source.
+	 */
+	private int nextChar() {
+		if(scanPosition >= limit) {
+			return -1;
+		}
+		int b = bytes.get(scanPosition);
+		if(b >= 0) {
+			scanPosition += 1;
+			return b;
+		}
+		int codePoint = decode(scanPosition);
+		if(codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+			scanPosition += decodedLength;
+			return codePoint;
+		} else if(scanLow) {
+			scanPosition += decodedLength;
+			scanLow = false;
+			return Character.lowSurrogate(codePoint);
+		} else {
+			scanLow = true;
+			return Character.highSurrogate(codePoint);
+		}
+	}
+
+	/**
+	 * Decodes the code point beginning at the given position, storing the number of bytes
+	 * it is encoded in. Input which is not valid UTF-8 is decoded as {@code U+FFFD}.
+	 * @param index The position of the first byte of the code point.
+	 * @return The code point beginning at {@code index}.
+	 */
+	private int decode(int index) {
+		int first = bytes.get(index) & 0xff, count, codePoint;
+		int lower = 0x80, upper = 0xbf;
+		if(first < 0x80) {
+			decodedLength = 1;
+			return first;
+		} else if(first >= 0xc2 && first <= 0xdf) {
+			count = 1;
+			codePoint = first & 0x1f;
+		} else if(first >= 0xe0 && first <= 0xef) {
+			count = 2;
+			codePoint = first & 0x0f;
+			if(first == 0xe0) {
+				lower = 0xa0;
+			}
+		} else if(first >= 0xf0 && first <= 0xf4) {
+			count = 3;
+			codePoint = first & 0x07;
+			if(first == 0xf0) {
+				lower = 0x90;
+			} else if(first == 0xf4) {
+				upper = 0x8f;
+			}
+		} else {
+			decodedLength = 1;
+			return REPLACEMENT;
+		}
+		for(int i = 1; i <= count; i++) {
+			int b = index + i < limit ? bytes.get(index + i) & 0xff : -1;
+			if(b < lower || b > upper) {
+				decodedLength = i;
+				return REPLACEMENT;
+			}
+			codePoint = (codePoint << 6) | (b & 0x3f);
+			lower = 0x80;
+			upper = 0xbf;
+		}
+		decodedLength = count + 1;
+		/* Surrogates cannot be encoded in UTF-8, but an encoded surrogate is replaced as a
+		 * whole rather than byte by byte.
+		 */
+		return codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE ? REPLACEMENT : codePoint;
+	}
+
+	/**
+	 * Decodes the text from the reading head up to the end of its line, for reporting
+	 * where an error occurred.
+	 * @return The rest of the line, or {@code null} if the reading head is at the end of
+	 * the line.
+	 */
+	private String getRemainderOfLine() {
+		StringBuilder builder = new StringBuilder();
+		scanPosition = position;
+		scanLow = low;
+		for(int c = nextChar(); c >= 0 && c != '\n' && c != '\r' && c != '\u0085' && c != '\u2028' && c != '\u2029'; c = nextChar()) {
+			builder.append((char)c);
+		}
+		return builder.length() > 0 ? builder.toString() : null;
+	}
+}